@@ -1,23 +1,39 @@
 package com.alibaba.jvm.sandbox.api;
 
+import java.lang.ref.WeakReference;
+
+import static com.alibaba.jvm.sandbox.api.ProcessControlException.State.NONE_IMMEDIATELY;
 import static com.alibaba.jvm.sandbox.api.ProcessControlException.State.RETURN_IMMEDIATELY;
 import static com.alibaba.jvm.sandbox.api.ProcessControlException.State.THROWS_IMMEDIATELY;
 
 /**
  * 流程控制异常
  * <p>用于控制事件处理器处理事件走向</p>
+ * <p>
+ * 流程控制异常不携带堆栈，立即返回和立即抛出时每个线程复用同一个异常对象，抛出前改写状态和回应结果。
+ * 事件处理器取出状态和回应结果后通过{@link #recycle()}归还，归还之前本线程再次改变流程会得到新的异常对象，
+ * 已经抛出的异常对象不会被改写
+ * </p>
  *
  * @author luanjia@taobao.com
  */
 public final class ProcessControlException extends Exception {
 
+    // 每个线程复用的流程控制异常
+    // ThreadLocal中只放弱引用，线程的ThreadLocalMap不会强引用SANDBOX的类，GC后重新创建即可
+    private static final ThreadLocal<WeakReference<ProcessControlException>> reusableRef
+            = new ThreadLocal<WeakReference<ProcessControlException>>();
+
     // 流程控制状态
-    private final State state;
+    private State state;
 
     // 回应结果对象(直接返回或者抛出异常)
-    private final Object respond;
+    private Object respond;
 
-    private final boolean isIgnoreProcessEvent;
+    private boolean isIgnoreProcessEvent;
+
+    // 是否已经抛出且尚未被事件处理器归还
+    private boolean isThrowing;
 
     ProcessControlException(State state, Object respond) {
         this(false, state, respond);
@@ -32,6 +48,43 @@ public final class ProcessControlException extends Exception {
         this.respond = respond;
     }
 
+    /**
+     * 获取本线程复用的流程控制异常，并改写状态和回应结果
+     * <p>复用的异常对象尚未归还时(例如监听器捕获后再次改变流程)，创建新的异常对象代替它复用</p>
+     *
+     * @param isIgnoreProcessEvent 是否忽略后续所有事件处理
+     * @param state                流程控制状态
+     * @param respond              回应结果对象
+     * @return 本线程复用的流程控制异常
+     */
+    static ProcessControlException reuse(final boolean isIgnoreProcessEvent,
+                                         final State state,
+                                         final Object respond) {
+        final WeakReference<ProcessControlException> reference = reusableRef.get();
+        ProcessControlException pce = null == reference
+                ? null
+                : reference.get();
+        if (null == pce || pce.isThrowing) {
+            pce = new ProcessControlException(NONE_IMMEDIATELY, null);
+            reusableRef.set(new WeakReference<ProcessControlException>(pce));
+        }
+        pce.isIgnoreProcessEvent = isIgnoreProcessEvent;
+        pce.state = state;
+        pce.respond = respond;
+        pce.isThrowing = true;
+        return pce;
+    }
+
+    /**
+     * 归还流程控制异常
+     * <p>事件处理器取出状态和回应结果后调用，之后本线程改变流程时可以再次复用这个异常对象</p>
+     *
+     * @since {@code sandbox-api:1.3.3}
+     */
+    public void recycle() {
+        isThrowing = false;
+    }
+
     /**
      * 中断当前代码处理流程,并立即返回指定对象
      *
@@ -39,7 +92,7 @@ public final class ProcessControlException extends Exception {
      * @throws ProcessControlException 抛出立即返回流程控制异常
      */
     public static void throwReturnImmediately(final Object object) throws ProcessControlException {
-        throw new ProcessControlException(RETURN_IMMEDIATELY, object);
+        throw reuse(false, RETURN_IMMEDIATELY, object);
     }
 
     /**
@@ -49,7 +102,7 @@ public final class ProcessControlException extends Exception {
      * @throws ProcessControlException 抛出立即抛出异常流程控制异常
      */
     public static void throwThrowsImmediately(final Throwable throwable) throws ProcessControlException {
-        throw new ProcessControlException(THROWS_IMMEDIATELY, throwable);
+        throw reuse(false, THROWS_IMMEDIATELY, throwable);
     }
 
     /**
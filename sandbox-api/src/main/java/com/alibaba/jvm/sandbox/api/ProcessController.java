@@ -46,7 +46,7 @@ public final class ProcessController {
      * @since {@code sandbox-api:1.0.16}
      */
     public static void returnImmediatelyWithIgnoreProcessEvent(final Object object) throws ProcessControlException {
-        throw new ProcessControlException(true, RETURN_IMMEDIATELY, object);
+        throw ProcessControlException.reuse(true, RETURN_IMMEDIATELY, object);
     }
 
     /**
@@ -57,7 +57,7 @@ public final class ProcessController {
      * @since {@code sandbox-api:1.0.16}
      */
     public static void throwsImmediatelyWithIgnoreProcessEvent(final Throwable throwable) throws ProcessControlException {
-        throw new ProcessControlException(true, THROWS_IMMEDIATELY, throwable);
+        throw ProcessControlException.reuse(true, THROWS_IMMEDIATELY, throwable);
     }
 
     private static final ProcessControlException noneImmediatelyException
@@ -0,0 +1,40 @@
+package com.alibaba.jvm.sandbox.api.event;
+
+/**
+ * 事件携带的现场数据
+ * <p>
+ * 观察时声明监听器需要读取的数据，未声明的数据不会在增强代码中采集：
+ * 不构造参数数组、不装箱返回值，对应的事件字段为null。
+ * 例如只统计耗时的监听器，什么都不需要采集
+ * </p>
+ *
+ * @author luanjia@taobao.com
+ * @since {@code sandbox-api:1.3.3}
+ */
+public enum Capture {
+
+    /**
+     * 方法参数
+     * <p>
+     * 对应{@link BeforeEvent#argumentArray}；不采集时也无法通过{@link BeforeEvent#changeParameter(int, Object)}修改方法入参
+     * </p>
+     */
+    ARGUMENTS,
+
+    /**
+     * 触发调用事件的对象
+     * <p>
+     * 对应{@link BeforeEvent#target}
+     * </p>
+     */
+    TARGET,
+
+    /**
+     * 方法返回值
+     * <p>
+     * 对应{@link ReturnEvent#object}
+     * </p>
+     */
+    RETURN_VALUE
+
+}
@@ -0,0 +1,117 @@
+package com.alibaba.jvm.sandbox.api.event;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调用采样
+ * <p>
+ * 高频方法往往只需要统计意义上的观察，采样在产生任何事件之前决定：
+ * 未被采样的调用过程不构造事件、不分配调用ID，过程中的CALL/LINE/RETURN/THROWS事件也一并跳过，
+ * 所以{@link com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener}看到的调用堆栈始终是完整的
+ * </p>
+ * <ul>
+ * <li>{@link #oneIn(int)}：每个线程每N次调用过程采样一次</li>
+ * <li>{@link #budget(int, long, TimeUnit)}：每个周期内最多采样N次调用过程，所有线程共享</li>
+ * </ul>
+ *
+ * @author luanjia@taobao.com
+ * @since {@code sandbox-api:1.3.3}
+ */
+public final class Sampling {
+
+    /**
+     * 不采样，观察所有的调用
+     */
+    public static final Sampling ALL = new Sampling(1, 0, 0);
+
+    private final int rate;
+    private final int budget;
+    private final long periodMillis;
+
+    private Sampling(final int rate, final int budget, final long periodMillis) {
+        this.rate = rate;
+        this.budget = budget;
+        this.periodMillis = periodMillis;
+    }
+
+    /**
+     * 按固定比例采样
+     *
+     * @param rate 每N次调用过程采样一次，1为不采样
+     * @return 调用采样
+     */
+    public static Sampling oneIn(final int rate) {
+        if (rate < 1) {
+            throw new IllegalArgumentException("illegal sampling rate: " + rate);
+        }
+        return 1 == rate
+                ? ALL
+                : new Sampling(rate, 0, 0);
+    }
+
+    /**
+     * 按时间预算采样
+     *
+     * @param budget 每个周期内最多采样的调用过程数
+     * @param period 周期
+     * @param unit   周期的时间单位，周期不能短于1毫秒
+     * @return 调用采样
+     */
+    public static Sampling budget(final int budget, final long period, final TimeUnit unit) {
+        final long periodMillis = unit.toMillis(period);
+        if (budget < 1) {
+            throw new IllegalArgumentException("illegal sampling budget: " + budget);
+        }
+        if (periodMillis < 1) {
+            throw new IllegalArgumentException("illegal sampling period: " + period + " " + unit);
+        }
+        return new Sampling(1, budget, periodMillis);
+    }
+
+    /**
+     * 获取采样比例
+     *
+     * @return 每N次调用过程采样一次，1为不按比例采样
+     */
+    public int getRate() {
+        return rate;
+    }
+
+    /**
+     * 获取每个周期的采样预算
+     *
+     * @return 每个周期内最多采样的调用过程数，0为不按时间预算采样
+     */
+    public int getBudget() {
+        return budget;
+    }
+
+    /**
+     * 获取采样周期
+     *
+     * @return 采样周期(毫秒)
+     */
+    public long getPeriodMillis() {
+        return periodMillis;
+    }
+
+    /**
+     * 是否观察所有的调用
+     *
+     * @return TRUE:不采样;FALSE:采样
+     */
+    public boolean isAll() {
+        return 1 == rate && 0 == budget;
+    }
+
+    @Override
+    public String toString() {
+        if (isAll()) {
+            return "ALL";
+        }
+        return budget > 0
+                ? String.format("BUDGET[%d/%dms]", budget, periodMillis)
+                : String.format("ONE_IN[%d]", rate);
+    }
+
+}
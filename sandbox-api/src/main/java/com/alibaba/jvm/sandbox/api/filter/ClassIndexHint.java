@@ -0,0 +1,44 @@
+package com.alibaba.jvm.sandbox.api.filter;
+
+/**
+ * 已加载类索引提示
+ * <p>
+ * 过滤器如果同时实现了此接口，容器在查找需要渲染的类时，会根据提示直接从已加载类索引中找出候选类，
+ * 而不用逐个匹配JVM中所有已加载的类。候选类仍然会经过{@link Filter}的完整匹配，
+ * 所以提示只需要保证不会漏掉任何能匹配上的类即可，无法给出提示的部分返回null
+ * </p>
+ *
+ * @author luanjia@taobao.com
+ * @since {@code sandbox-api:1.3.3}
+ */
+public interface ClassIndexHint {
+
+    /**
+     * 能匹配上的类名都以此为前缀
+     *
+     * @return 类名前缀，null表示无法提示
+     */
+    String getJavaClassNamePrefix();
+
+    /**
+     * {@link #getJavaClassNamePrefix()}是否为完整的类名
+     *
+     * @return TRUE:完整类名;FALSE:只是前缀
+     */
+    boolean isExactJavaClassName();
+
+    /**
+     * 能匹配上的类，其家族接口中一定包含这里所有的接口
+     *
+     * @return 接口类名数组，null表示无法提示
+     */
+    String[] getInterfaceTypeJavaClassNames();
+
+    /**
+     * 能匹配上的类，其家族标注中一定包含这里所有的标注
+     *
+     * @return 标注类名数组，null表示无法提示
+     */
+    String[] getAnnotationTypeJavaClassNames();
+
+}
@@ -45,48 +45,9 @@ public interface ExtFilter extends Filter {
         public static ExtFilter make(final Filter filter,
                                      final boolean isIncludeSubClasses,
                                      final boolean isIncludeBootstrap) {
-            return new ExtFilter() {
-
-                @Override
-                public boolean isIncludeSubClasses() {
-                    return isIncludeSubClasses;
-                }
-
-                @Override
-                public boolean isIncludeBootstrap() {
-                    return isIncludeBootstrap;
-                }
-
-                @Override
-                public boolean doClassFilter(final int access,
-                                             final String javaClassName,
-                                             final String superClassTypeJavaClassName,
-                                             final String[] interfaceTypeJavaClassNameArray,
-                                             final String[] annotationTypeJavaClassNameArray) {
-                    return filter.doClassFilter(
-                            access,
-                            javaClassName,
-                            superClassTypeJavaClassName,
-                            interfaceTypeJavaClassNameArray,
-                            annotationTypeJavaClassNameArray
-                    );
-                }
-
-                @Override
-                public boolean doMethodFilter(final int access,
-                                              final String javaMethodName,
-                                              final String[] parameterTypeJavaClassNameArray,
-                                              final String[] throwsTypeJavaClassNameArray,
-                                              final String[] annotationTypeJavaClassNameArray) {
-                    return filter.doMethodFilter(
-                            access,
-                            javaMethodName,
-                            parameterTypeJavaClassNameArray,
-                            throwsTypeJavaClassNameArray,
-                            annotationTypeJavaClassNameArray
-                    );
-                }
-            };
+            return filter instanceof ThreadSafeFilter
+                    ? new ThreadSafeDelegateExtFilter(filter, isIncludeSubClasses, isIncludeBootstrap)
+                    : new DelegateExtFilter(filter, isIncludeSubClasses, isIncludeBootstrap);
         }
 
         /**
@@ -106,6 +67,78 @@ public interface ExtFilter extends Filter {
                     );
         }
 
+        /**
+         * 代理原生过滤器的增强过滤器
+         */
+        private static class DelegateExtFilter implements ExtFilter {
+
+            private final Filter filter;
+            private final boolean isIncludeSubClasses;
+            private final boolean isIncludeBootstrap;
+
+            DelegateExtFilter(final Filter filter,
+                              final boolean isIncludeSubClasses,
+                              final boolean isIncludeBootstrap) {
+                this.filter = filter;
+                this.isIncludeSubClasses = isIncludeSubClasses;
+                this.isIncludeBootstrap = isIncludeBootstrap;
+            }
+
+            @Override
+            public boolean isIncludeSubClasses() {
+                return isIncludeSubClasses;
+            }
+
+            @Override
+            public boolean isIncludeBootstrap() {
+                return isIncludeBootstrap;
+            }
+
+            @Override
+            public boolean doClassFilter(final int access,
+                                         final String javaClassName,
+                                         final String superClassTypeJavaClassName,
+                                         final String[] interfaceTypeJavaClassNameArray,
+                                         final String[] annotationTypeJavaClassNameArray) {
+                return filter.doClassFilter(
+                        access,
+                        javaClassName,
+                        superClassTypeJavaClassName,
+                        interfaceTypeJavaClassNameArray,
+                        annotationTypeJavaClassNameArray
+                );
+            }
+
+            @Override
+            public boolean doMethodFilter(final int access,
+                                          final String javaMethodName,
+                                          final String[] parameterTypeJavaClassNameArray,
+                                          final String[] throwsTypeJavaClassNameArray,
+                                          final String[] annotationTypeJavaClassNameArray) {
+                return filter.doMethodFilter(
+                        access,
+                        javaMethodName,
+                        parameterTypeJavaClassNameArray,
+                        throwsTypeJavaClassNameArray,
+                        annotationTypeJavaClassNameArray
+                );
+            }
+
+        }
+
+        /**
+         * 代理线程安全原生过滤器的增强过滤器，保留{@link ThreadSafeFilter}标记
+         */
+        private static class ThreadSafeDelegateExtFilter extends DelegateExtFilter implements ThreadSafeFilter {
+
+            ThreadSafeDelegateExtFilter(final Filter filter,
+                                        final boolean isIncludeSubClasses,
+                                        final boolean isIncludeBootstrap) {
+                super(filter, isIncludeSubClasses, isIncludeBootstrap);
+            }
+
+        }
+
     }
 
 }
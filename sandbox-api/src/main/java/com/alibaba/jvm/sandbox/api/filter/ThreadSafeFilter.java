@@ -0,0 +1,17 @@
+package com.alibaba.jvm.sandbox.api.filter;
+
+/**
+ * 线程安全的过滤器标记
+ * <p>
+ * {@link Filter}默认会在同一个线程中被依次调用，实现可以依赖这一点在{@link Filter#doClassFilter(int, String, String, String[], String[])}
+ * 和{@link Filter#doMethodFilter(int, String, String[], String[], String[])}之间传递状态。
+ * 已加载的类较多时，容器会把类的匹配切分成多段并行完成，只有同时实现了此接口的过滤器才会被并发调用，
+ * 所以实现此接口的过滤器不能在两次调用之间保存任何状态
+ * </p>
+ *
+ * @author luanjia@taobao.com
+ * @since {@code sandbox-api:1.3.3}
+ */
+public interface ThreadSafeFilter {
+
+}
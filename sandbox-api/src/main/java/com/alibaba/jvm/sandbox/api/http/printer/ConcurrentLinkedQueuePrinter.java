@@ -14,7 +14,9 @@ import static java.lang.Math.min;
  * 高性能背后的代价就是相对比较高的CPU开销
  *
  * @author luanjia@taobao.com
+ * @deprecated 每次输出都要遍历整个队列检查容量，输出线程只能轮询，请使用{@link RingBufferPrinter}代替
  */
+@Deprecated
 public class ConcurrentLinkedQueuePrinter implements Printer {
 
     private static final String NUL_STRING = new String(new byte[]{0x00});
@@ -0,0 +1,281 @@
+package com.alibaba.jvm.sandbox.api.http.printer;
+
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有界环形缓冲区文本输出
+ * <p>
+ * 多个业务线程并发输出，由一个输出线程(通常是{@link #waitingForBroken()}挂起的HTTP请求线程)批量写入{@link PrintWriter}
+ * </p>
+ * <ul>
+ * <li>缓冲区预先分配，容量检查只需要比较生产位置和消费位置，与缓冲区中堆积的文本数量无关</li>
+ * <li>缓冲区写满后新的输出会被丢弃，并计入{@link #getDroppedCount()}</li>
+ * <li>输出线程没有可写的文本时挂起，由业务线程在输出后唤醒，不再需要轮询</li>
+ * </ul>
+ *
+ * @author luanjia@taobao.com
+ * @since {@code sandbox-api:1.3.3}
+ */
+public class RingBufferPrinter implements Printer {
+
+    /**
+     * 默认缓冲区容量
+     */
+    public static final int DEFAULT_CAPACITY = 16384;
+
+    // 输出线程挂起的最长时间，超时后重新检查网络是否已经断开
+    private static final long MAX_AWAIT_MS = 200;
+
+    // 攒够这么多字符就先写入一次
+    private static final int BATCH_CHARS = 8192;
+
+    private final PrintWriter writer;
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<String> slots;
+
+    // 下一个生产位置
+    private final AtomicLong tail = new AtomicLong();
+
+    // 下一个消费位置，只在持有锁时修改
+    private volatile long head;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    // 消费缓冲区的锁，输出线程在这把锁上等待新的文本
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+
+    // 输出线程是否正在等待，业务线程只在需要时才加锁唤醒
+    private volatile boolean isWaiting = false;
+
+    // 批量写入的缓冲，只在持有锁时访问
+    private StringBuilder batch = new StringBuilder();
+
+    // 是否被打断
+    private final AtomicBoolean isBrokenRef = new AtomicBoolean(false);
+
+    /**
+     * 构造文本输出
+     *
+     * @param writer   {@link PrintWriter}
+     * @param capacity 缓冲区容量，向上取整为2的幂。超过容量的输出将会被主动丢弃
+     */
+    public RingBufferPrinter(final PrintWriter writer,
+                             final int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("illegal printer capacity: " + capacity);
+        }
+        int power = 1;
+        while (power < capacity) {
+            power <<= 1;
+        }
+        this.writer = writer;
+        this.capacity = power;
+        this.mask = power - 1;
+        this.slots = new AtomicReferenceArray<String>(power);
+    }
+
+    /**
+     * 构造文本输出，缓冲区容量为{@link #DEFAULT_CAPACITY}
+     *
+     * @param writer {@link PrintWriter}
+     */
+    public RingBufferPrinter(final PrintWriter writer) {
+        this(writer, DEFAULT_CAPACITY);
+    }
+
+    private void offer(final String string) {
+        long position;
+        do {
+            position = tail.get();
+            if (position - head >= capacity) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+        } while (!tail.compareAndSet(position, position + 1));
+        slots.set((int) position & mask, string);
+
+        // 写入槽位和检查等待标记的顺序不能颠倒，与await()中的顺序相配合，不会漏掉唤醒
+        if (isWaiting) {
+            signal();
+        }
+    }
+
+    private void signal() {
+        lock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Printer print(String string) {
+        offer(String.valueOf(string));
+        return this;
+    }
+
+    @Override
+    public Printer println(String string) {
+        offer(string + "\n");
+        return this;
+    }
+
+    // 是否有可以消费的文本，生产者抢到位置但还没写入时也视为没有
+    private boolean isEmpty() {
+        return null == slots.get((int) head & mask);
+    }
+
+    // 将缓冲区中的文本批量写入，需要持有锁
+    private void commit() {
+        long position = head;
+        while (true) {
+            final int index = (int) position & mask;
+            final String string = slots.get(index);
+            if (null == string) {
+                break;
+            }
+
+            // 先清空槽位再推进消费位置，生产者看到新的消费位置时槽位一定已经可用
+            slots.lazySet(index, null);
+            head = ++position;
+            batch.append(string);
+            if (batch.length() >= BATCH_CHARS) {
+                writeBatch();
+            }
+        }
+        writeBatch();
+    }
+
+    private void writeBatch() {
+        if (batch.length() == 0) {
+            return;
+        }
+        writer.write(batch.toString());
+
+        // 偶尔输出过大的文本时不要一直占着内存
+        if (batch.capacity() > BATCH_CHARS * 8) {
+            batch = new StringBuilder();
+        } else {
+            batch.setLength(0);
+        }
+    }
+
+    @Override
+    public Printer flush() {
+        lock.lock();
+        try {
+            commit();
+            writer.flush();
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    // 没有可写的文本时挂起，直到被唤醒或超时
+    private void await(final long timeMs) throws InterruptedException {
+        lock.lock();
+        try {
+            isWaiting = true;
+            if (isEmpty() && !isBrokenRef.get()) {
+                condition.await(timeMs, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            isWaiting = false;
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Printer waitingForBroken() {
+        waitingForBroken(0L, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    @Override
+    public boolean waitingForBroken(final long time,
+                                    final TimeUnit unit) {
+
+        // 超时等待时间
+        final long timeMs = unit.toMillis(time);
+
+        // 是否需要进行超时控制
+        final boolean isTimeoutControl = timeMs > 0;
+
+        // 方法执行开始时间(超时等待计时开始)
+        final long startMs = isTimeoutControl
+                ? System.currentTimeMillis()
+                : 0;
+
+        try {
+            while (!writer.checkError()
+                    && !isBrokenRef.get()
+                    && !Thread.currentThread().isInterrupted()) {
+
+                final long remainMs = isTimeoutControl
+                        ? timeMs - (System.currentTimeMillis() - startMs)
+                        : MAX_AWAIT_MS;
+                if (remainMs <= 0) {
+                    flush();
+                    return true;
+                }
+
+                if (isEmpty()) {
+                    await(Math.min(remainMs, MAX_AWAIT_MS));
+                } else {
+                    flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            flush();
+        } catch (Throwable cause) {
+            // maybe IOException
+        }
+
+        return false;
+
+    }
+
+    @Override
+    public Printer broken() {
+        isBrokenRef.set(true);
+        signal();
+        return this;
+    }
+
+    @Override
+    public boolean isBroken() {
+        return isBrokenRef.get();
+    }
+
+    /**
+     * 获取因缓冲区写满而丢弃的输出次数
+     *
+     * @return 丢弃的输出次数
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    @Override
+    public void close() {
+        if (null != writer) {
+            try {
+                writer.close();
+            } catch (Throwable cause) {
+                // ignore...
+            }
+        }
+    }
+
+}
@@ -2,7 +2,6 @@ package com.alibaba.jvm.sandbox.api.listener.ext;
 
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.event.InvokeEvent;
-import com.alibaba.jvm.sandbox.api.util.LazyGet;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -11,6 +10,10 @@ import java.util.Set;
 
 /**
  * 行为通知
+ * <p>
+ * 每次调用都会产生一个通知，所以通知只持有事件中的原始信息：
+ * 触发事件的行为在第一次{@link #getBehavior()}时才从行为缓存中解析，标记集合在第一次{@link #mark(String)}时才创建
+ * </p>
  *
  * @author luanjia@taobao.com
  * @since {@code sandbox-api:1.0.10}
@@ -21,15 +24,21 @@ public class Advice implements Attachment {
     private final int invokeId;
 
     private final ClassLoader loader;
-    private final LazyGet<Behavior> behaviorLazyGet;
+    private final BehaviorCache behaviorCache;
+    private final String javaClassName;
+    private final String javaMethodName;
+    private final String javaMethodDesc;
     private final Object[] parameterArray;
     private final Object target;
 
     private Object returnObj;
     private Throwable throwable;
 
+    // 触发事件的行为，解析结果不变，多个线程重复解析也没有关系
+    private Behavior behavior;
+
     private Object attachment;
-    private Set<String> marks = new HashSet<String>();
+    private Set<String> marks;
 
     private Advice top = this;
     private Advice parent = this;
@@ -40,21 +49,30 @@ public class Advice implements Attachment {
      *
      * @param processId      {@link InvokeEvent#processId}
      * @param invokeId       {@link InvokeEvent#invokeId}
-     * @param behaviorLazyGet 触发事件的行为(懒加载)
+     * @param behaviorCache  解析触发事件的行为所用的行为缓存
      * @param loader         触发事件的行为所在ClassLoader
+     * @param javaClassName  触发事件的行为所在类名
+     * @param javaMethodName 触发事件的行为名称
+     * @param javaMethodDesc 触发事件的行为描述
      * @param parameterArray 触发事件的行为入参
      * @param target         触发事件所归属的对象实例
      */
     Advice(final int processId,
            final int invokeId,
-           final LazyGet<Behavior> behaviorLazyGet,
+           final BehaviorCache behaviorCache,
            final ClassLoader loader,
+           final String javaClassName,
+           final String javaMethodName,
+           final String javaMethodDesc,
            final Object[] parameterArray,
            final Object target) {
         this.processId = processId;
         this.invokeId = invokeId;
-        this.behaviorLazyGet = behaviorLazyGet;
+        this.behaviorCache = behaviorCache;
         this.loader = loader;
+        this.javaClassName = javaClassName;
+        this.javaMethodName = javaMethodName;
+        this.javaMethodDesc = javaMethodDesc;
         this.parameterArray = parameterArray;
         this.target = target;
     }
@@ -141,7 +159,15 @@ public class Advice implements Attachment {
      * @return 触发事件的行为
      */
     public Behavior getBehavior() {
-        return behaviorLazyGet.get();
+        final Behavior exist = behavior;
+        if (null != exist) {
+            return exist;
+        }
+        try {
+            return behavior = behaviorCache.resolve(loader, javaClassName, javaMethodName, javaMethodDesc);
+        } catch (Throwable cause) {
+            throw new BehaviorUnCaughtException(cause);
+        }
     }
 
     /**
@@ -226,6 +252,9 @@ public class Advice implements Attachment {
      * @param mark 标记
      */
     public void mark(final String mark) {
+        if (null == marks) {
+            marks = new HashSet<String>();
+        }
         marks.add(mark);
     }
 
@@ -236,7 +265,8 @@ public class Advice implements Attachment {
      * @return TRUE:拥有;FALSE:不拥有
      */
     public boolean hasMark(final String exceptMark) {
-        return marks.contains(exceptMark);
+        return null != marks
+                && marks.contains(exceptMark);
     }
 
     /**
@@ -246,7 +276,8 @@ public class Advice implements Attachment {
      * @return TRUE:标记曾经存在，现已删；FALSE：标记从未存在，现已删；
      */
     public boolean unMark(final String mark) {
-        return marks.remove(mark);
+        return null != marks
+                && marks.remove(mark);
     }
 
     /**
@@ -296,5 +327,10 @@ public class Advice implements Attachment {
         return advices;
     }
 
-}
+    private static class BehaviorUnCaughtException extends RuntimeException {
+        BehaviorUnCaughtException(Throwable cause) {
+            super(cause);
+        }
+    }
 
+}
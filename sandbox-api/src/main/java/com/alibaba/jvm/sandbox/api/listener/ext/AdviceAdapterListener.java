@@ -2,17 +2,16 @@ package com.alibaba.jvm.sandbox.api.listener.ext;
 
 import com.alibaba.jvm.sandbox.api.event.*;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
-import com.alibaba.jvm.sandbox.api.util.BehaviorDescriptor;
-import com.alibaba.jvm.sandbox.api.util.CacheGet;
 import com.alibaba.jvm.sandbox.api.util.GaStringUtils;
-import com.alibaba.jvm.sandbox.api.util.LazyGet;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
-import java.util.Stack;
+import java.lang.ref.WeakReference;
 
 /**
  * 通知监听器
+ * <p>
+ * 每次调用只分配一个{@link Advice}：通知堆栈是线程私有的数组，CALL目标按堆栈深度记录，都不需要额外的对象和锁。
+ * {@link Advice}会交给{@link AdviceListener}，可能被长期持有或者跨线程使用，所以不能复用
+ * </p>
  *
  * @author luanjia@taobao.com
  * @since {@code sandbox-api:1.0.10}
@@ -25,27 +24,39 @@ public class AdviceAdapterListener implements EventListener {
         this.adviceListener = adviceListener;
     }
 
-    private final ThreadLocal<OpStack> opStackRef = new ThreadLocal<OpStack>() {
-        @Override
-        protected OpStack initialValue() {
-            return new OpStack();
-        }
-    };
+    // 调用过程中为通知堆栈本身，执行到TOP的最后一个事件后换成通知堆栈的弱引用
+    // 空闲时只保留弱引用，线程池中的长寿线程不会因此强引用模块的类，导致模块的ClassLoader无法卸载
+    private final ThreadLocal<Object> opStackRef = new ThreadLocal<Object>();
 
     @Override
     final public void onEvent(final Event event) throws Throwable {
-        final OpStack opStack = opStackRef.get();
+        final Object holder = opStackRef.get();
+        final OpStack opStack = toOpStack(holder);
         try {
             switchEvent(opStack, event);
         } finally {
-            // 如果执行到TOP的最后一个事件，则需要主动清理占用的资源
-            if (opStack.isEmpty()) {
-                opStackRef.remove();
+            final Object newHolder = opStack.isEmpty()
+                    ? opStack.weakRef
+                    : opStack;
+            if (newHolder != holder) {
+                opStackRef.set(newHolder);
             }
         }
 
     }
 
+    @SuppressWarnings("unchecked")
+    private static OpStack toOpStack(final Object holder) {
+        if (holder instanceof OpStack) {
+            return (OpStack) holder;
+        }
+        final OpStack exist = null == holder
+                ? null
+                : ((WeakReference<OpStack>) holder).get();
+        return null == exist
+                ? new OpStack()
+                : exist;
+    }
 
     // 执行事件
     private void switchEvent(final OpStack opStack,
@@ -54,27 +65,14 @@ public class AdviceAdapterListener implements EventListener {
         switch (event.type) {
             case BEFORE: {
                 final BeforeEvent bEvent = (BeforeEvent) event;
-                final ClassLoader loader = toClassLoader(bEvent.javaClassLoader);
                 final Advice advice = new Advice(
                         bEvent.processId,
                         bEvent.invokeId,
-                        new LazyGet<Behavior>() {
-
-                            private final ClassLoader _loader = loader;
-                            private final String _javaClassName = bEvent.javaClassName;
-                            private final String _javaMethodName = bEvent.javaMethodName;
-                            private final String _javaMethodDesc = bEvent.javaMethodDesc;
-
-                            @Override
-                            protected Behavior initialValue() throws Throwable {
-                                return toBehavior(
-                                        toClass(_loader, _javaClassName),
-                                        _javaMethodName,
-                                        _javaMethodDesc
-                                );
-                            }
-                        },
-                        loader,
+                        behaviorCache,
+                        toClassLoader(bEvent.javaClassLoader),
+                        bEvent.javaClassName,
+                        bEvent.javaMethodName,
+                        bEvent.javaMethodDesc,
                         bEvent.argumentArray,
                         bEvent.target
                 );
@@ -89,13 +87,13 @@ public class AdviceAdapterListener implements EventListener {
 
                 // 非顶层
                 else {
-                    parent = opStack.peek().advice;
+                    parent = opStack.peek();
                     top = parent.getProcessTop();
                 }
 
                 advice.applyBefore(top, parent);
 
-                opStackRef.get().pushForBegin(advice);
+                opStack.pushForBegin(advice);
                 adviceListener.before(advice);
                 break;
             }
@@ -111,9 +109,9 @@ public class AdviceAdapterListener implements EventListener {
 
             case RETURN: {
                 final ReturnEvent rEvent = (ReturnEvent) event;
-                final WrapAdvice wrapAdvice = opStack.popByExpectInvokeId(rEvent.invokeId);
-                if (null != wrapAdvice) {
-                    Advice advice = wrapAdvice.advice.applyReturn(rEvent.object);
+                final Advice popAdvice = opStack.popByExpectInvokeId(rEvent.invokeId);
+                if (null != popAdvice) {
+                    Advice advice = popAdvice.applyReturn(rEvent.object);
                     try {
                         adviceListener.afterReturning(advice);
                     } finally {
@@ -124,9 +122,9 @@ public class AdviceAdapterListener implements EventListener {
             }
             case THROWS: {
                 final ThrowsEvent tEvent = (ThrowsEvent) event;
-                final WrapAdvice wrapAdvice = opStack.popByExpectInvokeId(tEvent.invokeId);
-                if (null != wrapAdvice) {
-                    Advice advice = wrapAdvice.advice.applyThrows(tEvent.throwable);
+                final Advice popAdvice = opStack.popByExpectInvokeId(tEvent.invokeId);
+                if (null != popAdvice) {
+                    Advice advice = popAdvice.applyThrows(tEvent.throwable);
                     try {
                         adviceListener.afterThrowing(advice);
                     } finally {
@@ -138,53 +136,49 @@ public class AdviceAdapterListener implements EventListener {
 
             case CALL_BEFORE: {
                 final CallBeforeEvent cbEvent = (CallBeforeEvent) event;
-                final WrapAdvice wrapAdvice = opStack.peekByExpectInvokeId(cbEvent.invokeId);
-                if (null == wrapAdvice) {
+                if (!opStack.isTopInvokeId(cbEvent.invokeId)) {
                     return;
                 }
-                final CallTarget target;
-                wrapAdvice.attach(target = new CallTarget(
+                opStack.attachCall(
                         cbEvent.lineNumber,
                         toJavaClassName(cbEvent.owner),
                         cbEvent.name,
                         cbEvent.desc
-                ));
+                );
                 adviceListener.beforeCall(
-                        wrapAdvice.advice,
-                        target.callLineNum,
-                        target.callJavaClassName,
-                        target.callJavaMethodName,
-                        target.callJavaMethodDesc
+                        opStack.peek(),
+                        opStack.callLineNum(),
+                        opStack.callJavaClassName(),
+                        opStack.callJavaMethodName(),
+                        opStack.callJavaMethodDesc()
                 );
                 break;
             }
 
             case CALL_RETURN: {
                 final CallReturnEvent crEvent = (CallReturnEvent) event;
-                final WrapAdvice wrapAdvice = opStack.peekByExpectInvokeId(crEvent.invokeId);
-                if (null == wrapAdvice) {
-                    return;
-                }
-                final CallTarget target = wrapAdvice.attachment();
-                if (null == target) {
-                    // 这里做一个容灾保护，防止在callBefore()中发生什么异常导致beforeCall()之前失败
+
+                // 这里做一个容灾保护，防止在callBefore()中发生什么异常导致beforeCall()之前失败
+                if (!opStack.isTopInvokeId(crEvent.invokeId)
+                        || !opStack.hasCall()) {
                     return;
                 }
+                final Advice advice = opStack.peek();
                 try {
                     adviceListener.afterCallReturning(
-                            wrapAdvice.advice,
-                            target.callLineNum,
-                            target.callJavaClassName,
-                            target.callJavaMethodName,
-                            target.callJavaMethodDesc
+                            advice,
+                            opStack.callLineNum(),
+                            opStack.callJavaClassName(),
+                            opStack.callJavaMethodName(),
+                            opStack.callJavaMethodDesc()
                     );
                 } finally {
                     adviceListener.afterCall(
-                            wrapAdvice.advice,
-                            target.callLineNum,
-                            target.callJavaClassName,
-                            target.callJavaMethodName,
-                            target.callJavaMethodDesc,
+                            advice,
+                            opStack.callLineNum(),
+                            opStack.callJavaClassName(),
+                            opStack.callJavaMethodName(),
+                            opStack.callJavaMethodDesc(),
                             null
                     );
                 }
@@ -193,31 +187,29 @@ public class AdviceAdapterListener implements EventListener {
 
             case CALL_THROWS: {
                 final CallThrowsEvent ctEvent = (CallThrowsEvent) event;
-                final WrapAdvice wrapAdvice = opStack.peekByExpectInvokeId(ctEvent.invokeId);
-                if (null == wrapAdvice) {
-                    return;
-                }
-                final CallTarget target = wrapAdvice.attachment();
-                if (null == target) {
-                    // 这里做一个容灾保护，防止在callBefore()中发生什么异常导致beforeCall()之前失败
+
+                // 这里做一个容灾保护，防止在callBefore()中发生什么异常导致beforeCall()之前失败
+                if (!opStack.isTopInvokeId(ctEvent.invokeId)
+                        || !opStack.hasCall()) {
                     return;
                 }
+                final Advice advice = opStack.peek();
                 try {
                     adviceListener.afterCallThrowing(
-                            wrapAdvice.advice,
-                            target.callLineNum,
-                            target.callJavaClassName,
-                            target.callJavaMethodName,
-                            target.callJavaMethodDesc,
+                            advice,
+                            opStack.callLineNum(),
+                            opStack.callJavaClassName(),
+                            opStack.callJavaMethodName(),
+                            opStack.callJavaMethodDesc(),
                             ctEvent.throwException
                     );
                 } finally {
                     adviceListener.afterCall(
-                            wrapAdvice.advice,
-                            target.callLineNum,
-                            target.callJavaClassName,
-                            target.callJavaMethodName,
-                            target.callJavaMethodDesc,
+                            advice,
+                            opStack.callLineNum(),
+                            opStack.callJavaClassName(),
+                            opStack.callJavaMethodName(),
+                            opStack.callJavaMethodDesc(),
                             ctEvent.throwException
                     );
                 }
@@ -226,11 +218,10 @@ public class AdviceAdapterListener implements EventListener {
 
             case LINE: {
                 final LineEvent lEvent = (LineEvent) event;
-                final WrapAdvice wrapAdvice = opStack.peekByExpectInvokeId(lEvent.invokeId);
-                if (null == wrapAdvice) {
+                if (!opStack.isTopInvokeId(lEvent.invokeId)) {
                     return;
                 }
-                adviceListener.beforeLine(wrapAdvice.advice, lEvent.lineNumber);
+                adviceListener.beforeLine(opStack.peek(), lEvent.lineNumber);
                 break;
             }
 
@@ -245,27 +236,94 @@ public class AdviceAdapterListener implements EventListener {
 
     /**
      * 通知操作堆栈
+     * <p>
+     * 只被一个线程访问，所以直接用数组实现，不需要{@link java.util.Stack}的锁。
+     * 每一层除了通知之外，还按深度记录了当前正在调用的CALL目标
+     * </p>
      */
-    private class OpStack {
+    private static class OpStack {
+
+        // 堆栈初始容量
+        private static final int INITIAL_CAPACITY = 16;
 
-        private final Stack<WrapAdvice> adviceStack = new Stack<WrapAdvice>();
+        // 空闲时挂在线程上的弱引用
+        private final WeakReference<OpStack> weakRef = new WeakReference<OpStack>(this);
+
+        private Advice[] advices = new Advice[INITIAL_CAPACITY];
+
+        // CALL目标
+        private boolean[] hasCalls = new boolean[INITIAL_CAPACITY];
+        private int[] callLineNums = new int[INITIAL_CAPACITY];
+        private String[] callJavaClassNames = new String[INITIAL_CAPACITY];
+        private String[] callJavaMethodNames = new String[INITIAL_CAPACITY];
+        private String[] callJavaMethodDescs = new String[INITIAL_CAPACITY];
+
+        private int size;
 
         boolean isEmpty() {
-            return adviceStack.isEmpty();
+            return size == 0;
         }
 
-        WrapAdvice peek() {
-            return adviceStack.peek();
+        Advice peek() {
+            return advices[size - 1];
         }
 
         void pushForBegin(final Advice advice) {
-            adviceStack.push(new WrapAdvice(advice));
+            if (size == advices.length) {
+                grow();
+            }
+            advices[size] = advice;
+            hasCalls[size] = false;
+            size++;
         }
 
-        WrapAdvice pop() {
-            return !adviceStack.isEmpty()
-                    ? adviceStack.pop()
-                    : null;
+        // 堆栈扩容为原来的两倍
+        private void grow() {
+            final int capacity = size * 2;
+
+            final Advice[] newAdvices = new Advice[capacity];
+            System.arraycopy(advices, 0, newAdvices, 0, size);
+            advices = newAdvices;
+
+            final boolean[] newHasCalls = new boolean[capacity];
+            System.arraycopy(hasCalls, 0, newHasCalls, 0, size);
+            hasCalls = newHasCalls;
+
+            final int[] newCallLineNums = new int[capacity];
+            System.arraycopy(callLineNums, 0, newCallLineNums, 0, size);
+            callLineNums = newCallLineNums;
+
+            final String[] newCallJavaClassNames = new String[capacity];
+            System.arraycopy(callJavaClassNames, 0, newCallJavaClassNames, 0, size);
+            callJavaClassNames = newCallJavaClassNames;
+
+            final String[] newCallJavaMethodNames = new String[capacity];
+            System.arraycopy(callJavaMethodNames, 0, newCallJavaMethodNames, 0, size);
+            callJavaMethodNames = newCallJavaMethodNames;
+
+            final String[] newCallJavaMethodDescs = new String[capacity];
+            System.arraycopy(callJavaMethodDescs, 0, newCallJavaMethodDescs, 0, size);
+            callJavaMethodDescs = newCallJavaMethodDescs;
+        }
+
+        Advice pop() {
+            if (size == 0) {
+                return null;
+            }
+            final Advice advice = advices[--size];
+            advices[size] = null;
+            return advice;
+        }
+
+        /**
+         * 判断栈顶通知的invokeId是否为期待的invokeId
+         *
+         * @param expectInvokeId 期待的invokeId
+         * @return TRUE:配对成功;FALSE:堆栈为空或者发生了错位
+         */
+        boolean isTopInvokeId(final int expectInvokeId) {
+            return size > 0
+                    && advices[size - 1].getInvokeId() == expectInvokeId;
         }
 
         /**
@@ -277,28 +335,55 @@ public class AdviceAdapterListener implements EventListener {
          *                       必须要求和BEFORE的invokeId配对
          * @return 如果invokeId配对成功，则返回对应的Advice，否则返回null
          */
-        WrapAdvice popByExpectInvokeId(final int expectInvokeId) {
-            return !adviceStack.isEmpty()
-                    && adviceStack.peek().advice.getInvokeId() == expectInvokeId
-                    ? adviceStack.pop()
+        Advice popByExpectInvokeId(final int expectInvokeId) {
+            return isTopInvokeId(expectInvokeId)
+                    ? pop()
                     : null;
         }
 
-        WrapAdvice peekByExpectInvokeId(final int expectInvokeId) {
-            return !adviceStack.isEmpty()
-                    && adviceStack.peek().advice.getInvokeId() == expectInvokeId
-                    ? adviceStack.peek()
-                    : null;
+        // 记录栈顶通知当前正在调用的CALL目标
+        void attachCall(final int callLineNum,
+                        final String callJavaClassName,
+                        final String callJavaMethodName,
+                        final String callJavaMethodDesc) {
+            final int top = size - 1;
+            hasCalls[top] = true;
+            callLineNums[top] = callLineNum;
+            callJavaClassNames[top] = callJavaClassName;
+            callJavaMethodNames[top] = callJavaMethodName;
+            callJavaMethodDescs[top] = callJavaMethodDesc;
+        }
+
+        boolean hasCall() {
+            return hasCalls[size - 1];
+        }
+
+        int callLineNum() {
+            return callLineNums[size - 1];
+        }
+
+        String callJavaClassName() {
+            return callJavaClassNames[size - 1];
+        }
+
+        String callJavaMethodName() {
+            return callJavaMethodNames[size - 1];
+        }
+
+        String callJavaMethodDesc() {
+            return callJavaMethodDescs[size - 1];
         }
 
     }
 
     // change internalClassName to javaClassName
+    // 增强代码中的CALL目标在织入时就已经是javaClassName，这里只做兜底，不再每次都用正则替换
     private String toJavaClassName(final String internalClassName) {
-        if (GaStringUtils.isEmpty(internalClassName)) {
+        if (GaStringUtils.isEmpty(internalClassName)
+                || internalClassName.indexOf('/') < 0) {
             return internalClassName;
         } else {
-            return internalClassName.replaceAll("/", ".");
+            return internalClassName.replace('/', '.');
         }
     }
 
@@ -310,130 +395,7 @@ public class AdviceAdapterListener implements EventListener {
                 : loader;
     }
 
-    // 根据JavaClassName从ClassLoader中提取出Class<?>对象
-    private Class<?> toClass(ClassLoader loader, String javaClassName) throws ClassNotFoundException {
-        return toClassLoader(loader).loadClass(javaClassName);
-    }
-
-
-    /**
-     * 行为缓存KEY对象
-     */
-    private static class BehaviorCacheKey {
-        private final Class<?> clazz;
-        private final String javaMethodName;
-        private final String javaMethodDesc;
-
-        private BehaviorCacheKey(final Class<?> clazz,
-                                 final String javaMethodName,
-                                 final String javaMethodDesc) {
-            this.clazz = clazz;
-            this.javaMethodName = javaMethodName;
-            this.javaMethodDesc = javaMethodDesc;
-        }
-
-        @Override
-        public int hashCode() {
-            return clazz.hashCode()
-                    + javaMethodName.hashCode()
-                    + javaMethodDesc.hashCode();
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (null == o
-                    || !(o instanceof BehaviorCacheKey)) {
-                return false;
-            }
-            final BehaviorCacheKey key = (BehaviorCacheKey) o;
-            return clazz.equals(key.clazz)
-                    && javaMethodName.equals(key.javaMethodName)
-                    && javaMethodDesc.equals(key.javaMethodDesc);
-        }
-
-    }
-
     // 行为缓存，为了增加性能，不要每次都从class通过反射获取行为
-    private final CacheGet<BehaviorCacheKey, Behavior> toBehaviorCacheGet
-            = new CacheGet<BehaviorCacheKey, Behavior>() {
-        @Override
-        protected Behavior load(BehaviorCacheKey key) {
-            if ("<init>".equals(key.javaMethodName)) {
-                for (final Constructor<?> constructor : key.clazz.getDeclaredConstructors()) {
-                    if (key.javaMethodDesc.equals(new BehaviorDescriptor(constructor).getDescriptor())) {
-                        return new Behavior.ConstructorImpl(constructor);
-                    }
-                }
-            } else {
-                for (final Method method : key.clazz.getDeclaredMethods()) {
-                    if (key.javaMethodName.equals(method.getName())
-                            && key.javaMethodDesc.equals(new BehaviorDescriptor(method).getDescriptor())) {
-                        return new Behavior.MethodImpl(method);
-                    }
-                }
-            }
-            return null;
-        }
-    };
-
-    /**
-     * CALL目标对象
-     */
-    private static class CallTarget {
-
-        final int callLineNum;
-        final String callJavaClassName;
-        final String callJavaMethodName;
-        final String callJavaMethodDesc;
-
-        CallTarget(int callLineNum, String callJavaClassName, String callJavaMethodName, String callJavaMethodDesc) {
-            this.callLineNum = callLineNum;
-            this.callJavaClassName = callJavaClassName;
-            this.callJavaMethodName = callJavaMethodName;
-            this.callJavaMethodDesc = callJavaMethodDesc;
-        }
-    }
-
-    /**
-     * 通知内部封装，主要是要封装掉attachment
-     */
-    private static class WrapAdvice implements Attachment {
-
-        final Advice advice;
-        Object attachment;
-
-        WrapAdvice(Advice advice) {
-            this.advice = advice;
-        }
-
-        @Override
-        public void attach(Object attachment) {
-            this.attachment = attachment;
-        }
-
-        @Override
-        public <T> T attachment() {
-            return (T) attachment;
-        }
-    }
-
-    /**
-     * 根据提供的行为名称、行为描述从指定的Class中获取对应的行为
-     *
-     * @param clazz          指定的Class
-     * @param javaMethodName 行为名称
-     * @param javaMethodDesc 行为参数声明
-     * @return 匹配的行为
-     * @throws NoSuchMethodException 如果匹配不到行为，则抛出该异常
-     */
-    private Behavior toBehavior(final Class<?> clazz,
-                                final String javaMethodName,
-                                final String javaMethodDesc) throws NoSuchMethodException {
-        final Behavior behavior = toBehaviorCacheGet.getFromCache(new BehaviorCacheKey(clazz, javaMethodName, javaMethodDesc));
-        if (null == behavior) {
-            throw new NoSuchMethodException(String.format("%s.%s(%s)", clazz.getName(), javaMethodName, javaMethodDesc));
-        }
-        return behavior;
-    }
+    private final BehaviorCache behaviorCache = new BehaviorCache();
 
 }
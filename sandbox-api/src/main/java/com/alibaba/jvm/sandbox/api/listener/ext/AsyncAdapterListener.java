@@ -0,0 +1,387 @@
+package com.alibaba.jvm.sandbox.api.listener.ext;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.event.InvokeEvent;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步事件监听器适配器
+ * <p>
+ * 业务线程把事件快照写入预先分配好的环形缓冲区后立即返回，由消费线程批量交给{@link AsyncEventListener}处理。
+ * 缓冲区是无锁的多生产者多消费者队列：每个槽位带一个序号，生产者和消费者各自只用一次CAS抢占位置，
+ * 写入和消费快照时不需要任何锁，也不会分配新的对象
+ * </p>
+ * <p>
+ * 消费线程没有可消费的快照时挂起，由生产者在写入后唤醒，不需要轮询。
+ * 消费线程在第一个事件到达时才启动，模块删除观察时由容器调用{@link #shutdown()}，
+ * 消费线程处理完缓冲区中剩余的事件后退出。
+ * 一个适配器只能用于一次观察
+ * </p>
+ *
+ * @author luanjia@taobao.com
+ * @since {@code sandbox-api:1.3.3}
+ */
+public class AsyncAdapterListener implements EventListener {
+
+    // 消费线程编号
+    private static final AtomicInteger SEQUENCER = new AtomicInteger();
+
+    // BLOCK策略下生产者等待消费者腾出空间的时间
+    private static final long BLOCK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+    // 生产位置和消费位置在cursors中的下标
+    private static final int TAIL = 7;
+    private static final int HEAD = 15;
+
+    private final AsyncEventListener asyncEventListener;
+    private final AsyncConfig config;
+    private final int mask;
+
+    // 槽位：快照和序号。序号等于生产位置时可以写入，等于生产位置+1时可以消费
+    private final EventSnapshot[] snapshots;
+    private final AtomicLongArray sequences;
+
+    // 下一个生产位置和下一个消费位置，两者相隔一个缓存行，生产者和消费者更新时不会互相使对方的缓存失效
+    private final AtomicLongArray cursors = new AtomicLongArray(HEAD + 8);
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong consumedCount = new AtomicLong();
+
+    private final List<ConsumerThread> consumerThreads = new ArrayList<ConsumerThread>();
+
+    // 已经启动的消费线程，生产者从这里找到挂起的消费线程来唤醒
+    private volatile ConsumerThread[] consumers = new ConsumerThread[0];
+
+    // 挂起等待的消费线程数，生产者只在有消费线程等待时才去唤醒
+    private final AtomicInteger waitingCount = new AtomicInteger();
+    private volatile boolean isStarted = false;
+    private volatile boolean isShutdown = false;
+
+    /**
+     * 以默认配置构造异步事件监听器适配器
+     *
+     * @param asyncEventListener 异步事件监听器
+     */
+    public AsyncAdapterListener(final AsyncEventListener asyncEventListener) {
+        this(asyncEventListener, AsyncConfig.DEFAULT);
+    }
+
+    /**
+     * 构造异步事件监听器适配器
+     *
+     * @param asyncEventListener 异步事件监听器
+     * @param config             异步事件分发配置
+     */
+    public AsyncAdapterListener(final AsyncEventListener asyncEventListener,
+                                final AsyncConfig config) {
+        this.asyncEventListener = asyncEventListener;
+        this.config = null == config
+                ? AsyncConfig.DEFAULT
+                : config;
+        final int capacity = this.config.getCapacity();
+        this.mask = capacity - 1;
+        this.snapshots = new EventSnapshot[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int index = 0; index < capacity; index++) {
+            snapshots[index] = new EventSnapshot();
+            sequences.set(index, index);
+        }
+    }
+
+    @Override
+    public void onEvent(final Event event) throws Throwable {
+
+        // 消费线程自己触发的事件不再观察，否则处理一个事件就会产生新的事件
+        final Thread current = Thread.currentThread();
+        if (current instanceof ConsumerThread
+                && ((ConsumerThread) current).getAdapter() == this) {
+            return;
+        }
+
+        if (isShutdown) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+        if (!isStarted) {
+            start();
+        }
+
+        final InvokeEvent iEvent = (InvokeEvent) event;
+        switch (config.getOverflow()) {
+            case SAMPLE: {
+                if (cursors.get(TAIL) - cursors.get(HEAD) >= (mask + 1) >> 1
+                        && (iEvent.processId & Integer.MAX_VALUE) % config.getSampleRate() != 0) {
+                    droppedCount.incrementAndGet();
+                    return;
+                }
+                if (!tryPublish(iEvent)) {
+                    droppedCount.incrementAndGet();
+                }
+                break;
+            }
+            case BLOCK: {
+                while (!tryPublish(iEvent)) {
+                    if (isShutdown) {
+                        droppedCount.incrementAndGet();
+                        return;
+                    }
+                    LockSupport.parkNanos(BLOCK_NANOS);
+                }
+                break;
+            }
+            case DROP:
+            default: {
+                if (!tryPublish(iEvent)) {
+                    droppedCount.incrementAndGet();
+                }
+                break;
+            }
+        }
+    }
+
+    // 写入快照，缓冲区已满时返回false
+    private boolean tryPublish(final InvokeEvent event) {
+        long position = cursors.get(TAIL);
+        while (true) {
+            final int index = (int) position & mask;
+            final long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (cursors.compareAndSet(TAIL, position, position + 1)) {
+                    try {
+                        snapshots[index].copyFrom(event, config.isSnapshotArguments());
+                    } finally {
+                        // 抢到的槽位必须发布，否则消费者会一直等在这个位置
+                        // 发布序号和检查等待数的顺序不能颠倒，与ConsumerThread#await()中的顺序相配合，不会漏掉唤醒
+                        sequences.set(index, position + 1);
+                    }
+                    if (waitingCount.get() > 0) {
+                        signal();
+                    }
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+            position = cursors.get(TAIL);
+        }
+    }
+
+    // 唤醒一个挂起的消费线程，被唤醒的消费线程会一直消费到缓冲区为空
+    private void signal() {
+        for (final ConsumerThread consumer : consumers) {
+            if (consumer.isWaiting) {
+                LockSupport.unpark(consumer);
+                return;
+            }
+        }
+    }
+
+    // 消费位置上是否有已经发布的快照
+    private boolean isAvailable() {
+        final long position = cursors.get(HEAD);
+        return sequences.get((int) position & mask) == position + 1;
+    }
+
+    // 消费一批快照，返回消费的数量
+    private int drain() {
+        final int batchSize = config.getBatchSize();
+        int count = 0;
+        long position = cursors.get(HEAD);
+        while (count < batchSize) {
+            final int index = (int) position & mask;
+            final long diff = sequences.get(index) - (position + 1);
+            if (diff == 0) {
+                if (cursors.compareAndSet(HEAD, position, position + 1)) {
+                    final EventSnapshot snapshot = snapshots[index];
+                    try {
+                        asyncEventListener.onEvent(snapshot);
+                    } catch (Throwable cause) {
+                        handleOnError(snapshot, cause);
+                    } finally {
+                        snapshot.clear();
+                        sequences.lazySet(index, position + mask + 1);
+                    }
+                    count++;
+                }
+            } else if (diff < 0) {
+                break;
+            }
+            position = cursors.get(HEAD);
+        }
+        if (count > 0) {
+            consumedCount.addAndGet(count);
+        }
+        return count;
+    }
+
+    private void handleOnError(final EventSnapshot snapshot,
+                               final Throwable cause) {
+        try {
+            asyncEventListener.onError(snapshot, cause);
+        } catch (Throwable ignore) {
+            // ignore
+        }
+    }
+
+    private void handleAfterBatch(final int count) {
+        try {
+            asyncEventListener.afterBatch(count);
+        } catch (Throwable ignore) {
+            // ignore
+        }
+    }
+
+    private synchronized void start() {
+        if (isStarted || isShutdown) {
+            return;
+        }
+        final int id = SEQUENCER.incrementAndGet();
+        for (int index = 0; index < config.getConsumers(); index++) {
+            final ConsumerThread thread = new ConsumerThread(String.format("sandbox-async-listener-%d-%d", id, index));
+            consumerThreads.add(thread);
+        }
+        consumers = consumerThreads.toArray(new ConsumerThread[0]);
+        for (final ConsumerThread thread : consumerThreads) {
+            thread.start();
+        }
+        isStarted = true;
+    }
+
+    /**
+     * 关闭适配器
+     * <p>
+     * 不再接收新的事件，消费线程处理完缓冲区中剩余的事件后退出
+     * </p>
+     */
+    public synchronized void shutdown() {
+        isShutdown = true;
+        for (final ConsumerThread thread : consumerThreads) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * 等待消费线程退出
+     *
+     * @param timeout 最长等待时间
+     * @param unit    时间单位
+     * @return TRUE:消费线程已全部退出;FALSE:等待超时
+     * @throws InterruptedException 等待被中断
+     */
+    public boolean awaitTermination(final long timeout,
+                                    final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        final List<ConsumerThread> threads;
+        synchronized (this) {
+            threads = new ArrayList<ConsumerThread>(consumerThreads);
+        }
+        for (final ConsumerThread thread : threads) {
+            final long remainMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainMillis <= 0) {
+                return !thread.isAlive();
+            }
+            thread.join(remainMillis);
+            if (thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 是否已经关闭
+     *
+     * @return TRUE:已关闭;FALSE:未关闭
+     */
+    public boolean isShutdown() {
+        return isShutdown;
+    }
+
+    /**
+     * 获取写入缓冲区的事件数
+     *
+     * @return 写入缓冲区的事件数
+     */
+    public long getPublishedCount() {
+        return cursors.get(TAIL);
+    }
+
+    /**
+     * 获取已经处理的事件数
+     *
+     * @return 已经处理的事件数
+     */
+    public long getConsumedCount() {
+        return consumedCount.get();
+    }
+
+    /**
+     * 获取丢弃的事件数
+     *
+     * @return 缓冲区溢出、溢出采样和关闭后丢弃的事件数
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * 消费线程
+     */
+    private class ConsumerThread extends Thread {
+
+        // 是否正在挂起等待
+        private volatile boolean isWaiting = false;
+
+        ConsumerThread(final String name) {
+            super(name);
+            setDaemon(true);
+            setContextClassLoader(asyncEventListener.getClass().getClassLoader());
+        }
+
+        AsyncAdapterListener getAdapter() {
+            return AsyncAdapterListener.this;
+        }
+
+        // 没有可消费的快照时挂起，直到生产者写入或者适配器被关闭
+        private void await() {
+            isWaiting = true;
+            waitingCount.incrementAndGet();
+            try {
+                if (!isAvailable() && !isShutdown) {
+                    LockSupport.park(this);
+                }
+            } finally {
+                waitingCount.decrementAndGet();
+                isWaiting = false;
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!isShutdown) {
+                final int count = drain();
+                if (count > 0) {
+                    handleAfterBatch(count);
+                } else {
+                    await();
+                }
+            }
+
+            // 关闭后处理完剩余的事件再退出
+            int count;
+            while ((count = drain()) > 0) {
+                handleAfterBatch(count);
+            }
+        }
+
+    }
+
+}
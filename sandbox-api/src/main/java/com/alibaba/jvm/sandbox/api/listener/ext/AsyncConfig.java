@@ -0,0 +1,208 @@
+package com.alibaba.jvm.sandbox.api.listener.ext;
+
+/**
+ * 异步事件分发配置
+ * <p>
+ * 配置不可修改，每个{@code withXXX}方法都返回一份新的配置
+ * </p>
+ *
+ * @author luanjia@taobao.com
+ * @since {@code sandbox-api:1.3.3}
+ */
+public final class AsyncConfig {
+
+    /**
+     * 缓冲区溢出策略
+     */
+    public enum Overflow {
+
+        /**
+         * 缓冲区写满后丢弃新的事件
+         */
+        DROP,
+
+        /**
+         * 缓冲区使用超过一半后按调用过程采样，写满后丢弃新的事件
+         * <p>
+         * 采样以调用过程ID为准，被保留下来的调用过程事件是完整的
+         * </p>
+         */
+        SAMPLE,
+
+        /**
+         * 缓冲区写满后业务线程等待消费线程腾出空间
+         * <p>
+         * 消费跟不上时会直接拖慢业务，只适合不能丢失事件的场景
+         * </p>
+         */
+        BLOCK
+
+    }
+
+    /**
+     * 默认配置：缓冲区容量8192，1个消费线程，每批最多消费256个事件，写满丢弃，不复制入参和返回值
+     */
+    public static final AsyncConfig DEFAULT = new AsyncConfig(8192, 1, 256, Overflow.DROP, 8, false);
+
+    private final int capacity;
+    private final int consumers;
+    private final int batchSize;
+    private final Overflow overflow;
+    private final int sampleRate;
+    private final boolean isSnapshotArguments;
+
+    private AsyncConfig(final int capacity,
+                        final int consumers,
+                        final int batchSize,
+                        final Overflow overflow,
+                        final int sampleRate,
+                        final boolean isSnapshotArguments) {
+        this.capacity = capacity;
+        this.consumers = consumers;
+        this.batchSize = batchSize;
+        this.overflow = overflow;
+        this.sampleRate = sampleRate;
+        this.isSnapshotArguments = isSnapshotArguments;
+    }
+
+    /**
+     * 设置缓冲区容量
+     *
+     * @param capacity 缓冲区能容纳的事件数，向上取整为2的幂
+     * @return 新的配置
+     */
+    public AsyncConfig withCapacity(final int capacity) {
+        if (capacity < 2 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("illegal async capacity: " + capacity);
+        }
+        int power = 2;
+        while (power < capacity) {
+            power <<= 1;
+        }
+        return new AsyncConfig(power, consumers, batchSize, overflow, sampleRate, isSnapshotArguments);
+    }
+
+    /**
+     * 设置消费线程数
+     *
+     * @param consumers 消费线程数
+     * @return 新的配置
+     */
+    public AsyncConfig withConsumers(final int consumers) {
+        if (consumers < 1) {
+            throw new IllegalArgumentException("illegal async consumers: " + consumers);
+        }
+        return new AsyncConfig(capacity, consumers, batchSize, overflow, sampleRate, isSnapshotArguments);
+    }
+
+    /**
+     * 设置每批消费的最大事件数
+     *
+     * @param batchSize 每批最多消费的事件数，一批消费完成后回调{@link AsyncEventListener#afterBatch(int)}
+     * @return 新的配置
+     */
+    public AsyncConfig withBatchSize(final int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("illegal async batch size: " + batchSize);
+        }
+        return new AsyncConfig(capacity, consumers, batchSize, overflow, sampleRate, isSnapshotArguments);
+    }
+
+    /**
+     * 设置缓冲区溢出策略
+     *
+     * @param overflow 溢出策略
+     * @return 新的配置
+     */
+    public AsyncConfig withOverflow(final Overflow overflow) {
+        if (null == overflow) {
+            throw new IllegalArgumentException("illegal async overflow: null");
+        }
+        return new AsyncConfig(capacity, consumers, batchSize, overflow, sampleRate, isSnapshotArguments);
+    }
+
+    /**
+     * 设置缓冲区溢出时按调用过程采样
+     *
+     * @param sampleRate 缓冲区使用超过一半后每N个调用过程保留一个
+     * @return 新的配置
+     */
+    public AsyncConfig withSampleOverflow(final int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("illegal async sample rate: " + sampleRate);
+        }
+        return new AsyncConfig(capacity, consumers, batchSize, Overflow.SAMPLE, sampleRate, isSnapshotArguments);
+    }
+
+    /**
+     * 快照中复制入参和返回值
+     * <p>
+     * 入参数组需要在业务线程中复制一份，返回值和入参对象会一直被缓冲区引用到消费完成为止
+     * </p>
+     *
+     * @return 新的配置
+     */
+    public AsyncConfig withArgumentSnapshot() {
+        return new AsyncConfig(capacity, consumers, batchSize, overflow, sampleRate, true);
+    }
+
+    /**
+     * 获取缓冲区容量
+     *
+     * @return 缓冲区能容纳的事件数
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 获取消费线程数
+     *
+     * @return 消费线程数
+     */
+    public int getConsumers() {
+        return consumers;
+    }
+
+    /**
+     * 获取每批消费的最大事件数
+     *
+     * @return 每批最多消费的事件数
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * 获取缓冲区溢出策略
+     *
+     * @return 溢出策略
+     */
+    public Overflow getOverflow() {
+        return overflow;
+    }
+
+    /**
+     * 获取溢出采样比例
+     *
+     * @return 缓冲区使用超过一半后每N个调用过程保留一个，只在{@link Overflow#SAMPLE}时生效
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * 是否复制入参和返回值
+     *
+     * @return TRUE:复制;FALSE:不复制
+     */
+    public boolean isSnapshotArguments() {
+        return isSnapshotArguments;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ASYNC[capacity=%d;consumers=%d;batch=%d;overflow=%s;]", capacity, consumers, batchSize, overflow);
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.alibaba.jvm.sandbox.api.listener.ext;
+
+import com.alibaba.jvm.sandbox.api.ProcessController;
+
+/**
+ * 异步事件监听器
+ * <p>
+ * 用于只观察不干预的场景，例如统计、日志、链路导出：
+ * 业务线程只把事件快照写入缓冲区就返回，监听器在模块自己的消费线程中批量处理，处理得再慢也不会增加业务耗时
+ * </p>
+ * <ul>
+ * <li>不能使用{@link ProcessController}改变流程，也不能改变入参</li>
+ * <li>缓冲区溢出时可能丢失事件(参考{@link AsyncConfig.Overflow})，监听器需要能容忍不配对的BEFORE和RETURN/THROWS</li>
+ * <li>配置了多个消费线程时，回调会被并发调用，同一个调用过程的事件也可能被不同线程处理</li>
+ * </ul>
+ *
+ * @author luanjia@taobao.com
+ * @since {@code sandbox-api:1.3.3}
+ */
+public abstract class AsyncEventListener {
+
+    /**
+     * 处理事件
+     *
+     * @param snapshot 事件快照，回调结束后会被复用，不能保存
+     * @throws Throwable 处理事件错误，会交给{@link #onError(EventSnapshot, Throwable)}，不影响后续事件
+     */
+    protected abstract void onEvent(EventSnapshot snapshot) throws Throwable;
+
+    /**
+     * 一批事件处理完成
+     * <p>
+     * 适合在这里批量刷新输出
+     * </p>
+     *
+     * @param count 本批处理的事件数
+     * @throws Throwable 处理错误，忽略
+     */
+    protected void afterBatch(int count) throws Throwable {
+
+    }
+
+    /**
+     * 处理事件失败
+     *
+     * @param snapshot 事件快照
+     * @param cause    失败原因
+     */
+    protected void onError(EventSnapshot snapshot, Throwable cause) {
+
+    }
+
+}
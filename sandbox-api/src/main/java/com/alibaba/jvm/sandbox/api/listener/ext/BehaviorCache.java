@@ -0,0 +1,279 @@
+package com.alibaba.jvm.sandbox.api.listener.ext;
+
+import com.alibaba.jvm.sandbox.api.util.BehaviorDescriptor;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 行为缓存
+ * <p>
+ * 所有业务线程都会通过{@link Advice#getBehavior()}并发查询，所以读操作不加锁：
+ * 类到行为表的映射保存在一张开放寻址的散列表中，只有第一次查询某个类时才需要加锁写入，失效映射的清理也只在写入时顺带完成。
+ * </p>
+ * <p>
+ * 第一次查询某个类时一次性扫描它的所有构造函数和方法，预先计算好{@code 方法名:[方法描述:行为]}的行为表，
+ * 此后每次查询只需要一次散列查找。
+ * </p>
+ * <p>
+ * 类以弱引用为KEY，不会阻止重新部署的应用类被卸载。
+ * 但行为表持有的{@link Method}会强引用所在的类，所以行为表只以软引用挂在映射上：
+ * 长期不再访问的行为表会被GC回收，随后类就可以正常卸载；仍在访问的类被回收后只需重新计算一次
+ * </p>
+ *
+ * @author luanjia@taobao.com
+ * @since {@code sandbox-api:1.3.3}
+ */
+class BehaviorCache {
+
+    // 散列表初始容量，必须为2的幂
+    private static final int INITIAL_CAPACITY = 16;
+
+    // 构造函数的方法名
+    private static final String CONSTRUCTOR_NAME = "<init>";
+
+    private final ReferenceQueue<Class<?>> rQueue = new ReferenceQueue<Class<?>>();
+
+    // 当前映射表，写入时整体替换，发布后不再修改
+    private volatile ClassEntry[] table = new ClassEntry[INITIAL_CAPACITY];
+
+    // 映射表中的映射数量(含已失效的映射)，只在持有锁时访问
+    private int size;
+
+    /**
+     * 根据提供的行为名称、行为描述从指定的ClassLoader中获取对应的行为
+     *
+     * @param loader         行为所在的ClassLoader
+     * @param javaClassName  行为所在的类名
+     * @param javaMethodName 行为名称
+     * @param javaMethodDesc 行为描述
+     * @return 匹配的行为
+     * @throws ClassNotFoundException 如果找不到行为所在的类，则抛出该异常
+     * @throws NoSuchMethodException  如果匹配不到行为，则抛出该异常
+     */
+    Behavior resolve(final ClassLoader loader,
+                     final String javaClassName,
+                     final String javaMethodName,
+                     final String javaMethodDesc) throws ClassNotFoundException, NoSuchMethodException {
+        final Class<?> clazz = loader.loadClass(javaClassName);
+        final Behavior behavior = get(clazz, javaMethodName, javaMethodDesc);
+        if (null == behavior) {
+            throw new NoSuchMethodException(String.format("%s.%s(%s)", clazz.getName(), javaMethodName, javaMethodDesc));
+        }
+        return behavior;
+    }
+
+    /**
+     * 获取类中的行为
+     *
+     * @param clazz          类
+     * @param javaMethodName 行为名称
+     * @param javaMethodDesc 行为描述
+     * @return 匹配的行为，匹配不到返回null
+     */
+    Behavior get(final Class<?> clazz,
+                 final String javaMethodName,
+                 final String javaMethodDesc) {
+        ClassEntry entry = getEntry(table, clazz);
+        if (null == entry) {
+            entry = mapping(clazz);
+        }
+        return entry.getBehaviorTable(clazz).get(javaMethodName, javaMethodDesc);
+    }
+
+    private static int indexFor(final int hash, final int length) {
+        return hash & (length - 1);
+    }
+
+    private static ClassEntry getEntry(final ClassEntry[] table,
+                                       final Class<?> clazz) {
+        final int hash = System.identityHashCode(clazz);
+        for (int index = indexFor(hash, table.length); ; index = indexFor(index + 1, table.length)) {
+            final ClassEntry entry = table[index];
+            if (null == entry) {
+                return null;
+            }
+            if (entry.hash == hash
+                    && entry.get() == clazz) {
+                return entry;
+            }
+        }
+    }
+
+    // 建立类的映射
+    private synchronized ClassEntry mapping(final Class<?> clazz) {
+
+        // 加锁后需要重新检查一遍，有可能已经被其他线程映射
+        final ClassEntry exist = getEntry(table, clazz);
+        if (null != exist) {
+            return exist;
+        }
+
+        ClassEntry[] current = table;
+
+        // 有类被回收了，顺带清理掉失效的映射
+        if (null != rQueue.poll()) {
+            while (null != rQueue.poll()) ;
+            current = rebuild(current, current.length);
+        }
+
+        // 保持装载因子不超过1/2，线性探测才能很快结束
+        final ClassEntry[] newTable = (size + 1) * 2 > current.length
+                ? rebuild(current, current.length * 2)
+                : copy(current);
+        final ClassEntry entry = new ClassEntry(clazz, rQueue);
+        put(newTable, entry);
+        size++;
+        table = newTable;
+        return entry;
+    }
+
+    private static ClassEntry[] copy(final ClassEntry[] table) {
+        final ClassEntry[] newTable = new ClassEntry[table.length];
+        System.arraycopy(table, 0, newTable, 0, table.length);
+        return newTable;
+    }
+
+    // 以指定容量重建映射表，并丢弃已失效的映射
+    private ClassEntry[] rebuild(final ClassEntry[] table, final int capacity) {
+        final ClassEntry[] newTable = new ClassEntry[capacity];
+        size = 0;
+        for (final ClassEntry entry : table) {
+            if (null != entry
+                    && null != entry.get()) {
+                put(newTable, entry);
+                size++;
+            }
+        }
+        return newTable;
+    }
+
+    private static void put(final ClassEntry[] table, final ClassEntry entry) {
+        int index = indexFor(entry.hash, table.length);
+        while (null != table[index]) {
+            index = indexFor(index + 1, table.length);
+        }
+        table[index] = entry;
+    }
+
+    /**
+     * 类的映射
+     */
+    private static class ClassEntry extends WeakReference<Class<?>> {
+
+        // 类的身份散列值
+        private final int hash;
+
+        // 行为表，被回收后重新计算
+        private volatile SoftReference<BehaviorTable> behaviorTableRef;
+
+        ClassEntry(final Class<?> clazz,
+                   final ReferenceQueue<Class<?>> rQueue) {
+            super(clazz, rQueue);
+            this.hash = System.identityHashCode(clazz);
+        }
+
+        BehaviorTable getBehaviorTable(final Class<?> clazz) {
+            final SoftReference<BehaviorTable> reference = behaviorTableRef;
+            final BehaviorTable exist = null == reference
+                    ? null
+                    : reference.get();
+            if (null != exist) {
+                return exist;
+            }
+
+            // 并发计算时结果相同，谁覆盖谁都可以
+            final BehaviorTable behaviorTable = new BehaviorTable(clazz);
+            behaviorTableRef = new SoftReference<BehaviorTable>(behaviorTable);
+            return behaviorTable;
+        }
+
+    }
+
+    /**
+     * 类的行为表
+     * <p>构造完成后不再修改，可以被多个线程并发读取</p>
+     */
+    private static class BehaviorTable {
+
+        // 方法名:同名行为
+        private final Map<String, Overloads> overloadsMap = new HashMap<String, Overloads>();
+
+        BehaviorTable(final Class<?> clazz) {
+            for (final Constructor<?> constructor : clazz.getDeclaredConstructors()) {
+                put(CONSTRUCTOR_NAME, new BehaviorDescriptor(constructor).getDescriptor(), new Behavior.ConstructorImpl(constructor));
+            }
+            for (final Method method : clazz.getDeclaredMethods()) {
+                put(method.getName(), new BehaviorDescriptor(method).getDescriptor(), new Behavior.MethodImpl(method));
+            }
+        }
+
+        private void put(final String javaMethodName,
+                         final String javaMethodDesc,
+                         final Behavior behavior) {
+            final Overloads exist = overloadsMap.get(javaMethodName);
+            overloadsMap.put(javaMethodName, null == exist
+                    ? new Overloads(javaMethodDesc, behavior)
+                    : exist.append(javaMethodDesc, behavior));
+        }
+
+        Behavior get(final String javaMethodName,
+                     final String javaMethodDesc) {
+            final Overloads overloads = overloadsMap.get(javaMethodName);
+            return null == overloads
+                    ? null
+                    : overloads.get(javaMethodDesc);
+        }
+
+    }
+
+    /**
+     * 同名行为
+     * <p>重载的数量一般很少，直接顺序比较行为描述即可</p>
+     */
+    private static class Overloads {
+
+        private final String[] javaMethodDescArray;
+        private final Behavior[] behaviorArray;
+
+        Overloads(final String javaMethodDesc,
+                  final Behavior behavior) {
+            this(new String[]{javaMethodDesc}, new Behavior[]{behavior});
+        }
+
+        private Overloads(final String[] javaMethodDescArray,
+                          final Behavior[] behaviorArray) {
+            this.javaMethodDescArray = javaMethodDescArray;
+            this.behaviorArray = behaviorArray;
+        }
+
+        Overloads append(final String javaMethodDesc,
+                         final Behavior behavior) {
+            final int length = javaMethodDescArray.length;
+            final String[] newJavaMethodDescArray = new String[length + 1];
+            final Behavior[] newBehaviorArray = new Behavior[length + 1];
+            System.arraycopy(javaMethodDescArray, 0, newJavaMethodDescArray, 0, length);
+            System.arraycopy(behaviorArray, 0, newBehaviorArray, 0, length);
+            newJavaMethodDescArray[length] = javaMethodDesc;
+            newBehaviorArray[length] = behavior;
+            return new Overloads(newJavaMethodDescArray, newBehaviorArray);
+        }
+
+        // 同名同描述的行为以先出现的为准
+        Behavior get(final String javaMethodDesc) {
+            for (int index = 0; index < javaMethodDescArray.length; index++) {
+                if (javaMethodDescArray[index].equals(javaMethodDesc)) {
+                    return behaviorArray[index];
+                }
+            }
+            return null;
+        }
+
+    }
+
+}
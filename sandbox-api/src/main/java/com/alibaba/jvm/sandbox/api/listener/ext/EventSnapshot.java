@@ -0,0 +1,231 @@
+package com.alibaba.jvm.sandbox.api.listener.ext;
+
+import com.alibaba.jvm.sandbox.api.event.*;
+
+/**
+ * 事件快照
+ * <p>
+ * 业务线程在{@link AsyncAdapterListener}中把事件的关键信息复制到预先分配好的快照里，
+ * 再由消费线程交给{@link AsyncEventListener}处理。
+ * 快照属于环形缓冲区的槽位，会被反复复用：只能在{@link AsyncEventListener#onEvent(EventSnapshot)}中读取，
+ * 不能保存下来稍后使用
+ * </p>
+ *
+ * @author luanjia@taobao.com
+ * @since {@code sandbox-api:1.3.3}
+ */
+public final class EventSnapshot {
+
+    private Event.Type type;
+    private int processId;
+    private int invokeId;
+    private long threadId;
+    private long timestamp;
+    private String javaClassName;
+    private String javaMethodName;
+    private String javaMethodDesc;
+    private int lineNumber;
+    private Object[] argumentArray;
+    private Object returnObj;
+    private Throwable throwable;
+    private String throwJavaClassName;
+
+    EventSnapshot() {
+    }
+
+    /**
+     * 从事件中复制快照
+     *
+     * @param event                事件
+     * @param isSnapshotArguments  是否复制入参和返回值
+     */
+    void copyFrom(final InvokeEvent event,
+                  final boolean isSnapshotArguments) {
+        this.type = event.type;
+        this.processId = event.processId;
+        this.invokeId = event.invokeId;
+        this.threadId = Thread.currentThread().getId();
+        this.timestamp = System.nanoTime();
+        switch (event.type) {
+            case BEFORE: {
+                final BeforeEvent bEvent = (BeforeEvent) event;
+                javaClassName = bEvent.javaClassName;
+                javaMethodName = bEvent.javaMethodName;
+                javaMethodDesc = bEvent.javaMethodDesc;
+
+                // 入参数组在方法执行过程中可能被改写，只能复制一份
+                if (isSnapshotArguments && null != bEvent.argumentArray) {
+                    argumentArray = bEvent.argumentArray.clone();
+                }
+                break;
+            }
+            case RETURN:
+            case IMMEDIATELY_RETURN: {
+                if (isSnapshotArguments) {
+                    returnObj = ((ReturnEvent) event).object;
+                }
+                break;
+            }
+            case THROWS:
+            case IMMEDIATELY_THROWS: {
+                throwable = ((ThrowsEvent) event).throwable;
+                break;
+            }
+            case LINE: {
+                lineNumber = ((LineEvent) event).lineNumber;
+                break;
+            }
+            case CALL_BEFORE: {
+                final CallBeforeEvent cbEvent = (CallBeforeEvent) event;
+                lineNumber = cbEvent.lineNumber;
+                javaClassName = cbEvent.owner;
+                javaMethodName = cbEvent.name;
+                javaMethodDesc = cbEvent.desc;
+                break;
+            }
+            case CALL_THROWS: {
+                throwJavaClassName = ((CallThrowsEvent) event).throwException;
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 清除快照中的引用，避免已经消费的快照阻止业务对象被回收
+     */
+    void clear() {
+        javaClassName = null;
+        javaMethodName = null;
+        javaMethodDesc = null;
+        lineNumber = 0;
+        argumentArray = null;
+        returnObj = null;
+        throwable = null;
+        throwJavaClassName = null;
+    }
+
+    /**
+     * 获取事件类型
+     *
+     * @return 事件类型
+     */
+    public Event.Type getType() {
+        return type;
+    }
+
+    /**
+     * 获取调用过程ID
+     *
+     * @return 调用过程ID
+     */
+    public int getProcessId() {
+        return processId;
+    }
+
+    /**
+     * 获取调用ID
+     *
+     * @return 调用ID
+     */
+    public int getInvokeId() {
+        return invokeId;
+    }
+
+    /**
+     * 获取产生事件的线程ID
+     *
+     * @return 线程ID
+     */
+    public long getThreadId() {
+        return threadId;
+    }
+
+    /**
+     * 获取事件产生的时间
+     *
+     * @return 事件产生时的{@link System#nanoTime()}，只能用于计算时间间隔
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * 获取行为所在的类名
+     *
+     * @return BEFORE事件为被观察行为的类名；CALL_BEFORE事件为被调用方法所在的类名(与BEFORE事件一样是Java类名)；其他事件为null
+     */
+    public String getJavaClassName() {
+        return javaClassName;
+    }
+
+    /**
+     * 获取行为名称
+     *
+     * @return BEFORE事件为被观察行为的名称；CALL_BEFORE事件为被调用方法的名称；其他事件为null
+     */
+    public String getJavaMethodName() {
+        return javaMethodName;
+    }
+
+    /**
+     * 获取行为描述
+     *
+     * @return BEFORE事件为被观察行为的描述；CALL_BEFORE事件为被调用方法的描述；其他事件为null
+     */
+    public String getJavaMethodDesc() {
+        return javaMethodDesc;
+    }
+
+    /**
+     * 获取行号
+     *
+     * @return LINE和CALL_BEFORE事件的行号，其他事件为0
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * 获取入参快照
+     *
+     * @return BEFORE事件入参数组的浅复制，未开启{@link AsyncConfig#withArgumentSnapshot()}时为null
+     */
+    public Object[] getArgumentArray() {
+        return argumentArray;
+    }
+
+    /**
+     * 获取返回值
+     *
+     * @return RETURN和IMMEDIATELY_RETURN事件的返回值，未开启{@link AsyncConfig#withArgumentSnapshot()}时为null
+     */
+    public Object getReturnObj() {
+        return returnObj;
+    }
+
+    /**
+     * 获取抛出的异常
+     *
+     * @return THROWS和IMMEDIATELY_THROWS事件抛出的异常，其他事件为null
+     */
+    public Throwable getThrowable() {
+        return throwable;
+    }
+
+    /**
+     * 获取调用方法抛出的异常类名
+     *
+     * @return CALL_THROWS事件抛出的异常类名，其他事件为null
+     */
+    public String getThrowJavaClassName() {
+        return throwJavaClassName;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[processId=%d;invokeId=%d;threadId=%d;]", type, processId, invokeId, threadId);
+    }
+
+}
@@ -1,9 +1,13 @@
 package com.alibaba.jvm.sandbox.api.listener.ext;
 
+import com.alibaba.jvm.sandbox.api.event.Capture;
 import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.event.Sampling;
 import com.alibaba.jvm.sandbox.api.filter.AccessFlags;
+import com.alibaba.jvm.sandbox.api.filter.ClassIndexHint;
 import com.alibaba.jvm.sandbox.api.filter.ExtFilter;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.filter.ThreadSafeFilter;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher;
 import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher.Progress;
@@ -11,6 +15,7 @@ import com.alibaba.jvm.sandbox.api.util.GaArrayUtils;
 import com.alibaba.jvm.sandbox.api.util.GaStringUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -203,6 +208,17 @@ public class EventWatchBuilder {
 
         EventWatcher onWatch(EventListener eventListener, Event.Type... eventTypeArray);
 
+        /**
+         * 使用异步事件监听器观察
+         *
+         * @param asyncEventListener 异步事件监听器
+         * @param config             异步事件分发配置
+         * @param eventTypeArray     需要监听的事件
+         * @return EventWatcher
+         * @since {@code sandbox-api:1.3.3}
+         */
+        EventWatcher onWatch(AsyncEventListener asyncEventListener, AsyncConfig config, Event.Type... eventTypeArray);
+
     }
 
     /**
@@ -248,6 +264,31 @@ public class EventWatchBuilder {
          */
         IBuildingForWatching withLine();
 
+        /**
+         * 声明需要采集的现场数据，可以多次调用
+         * <p>
+         * 不调用时采集所有的现场数据；调用后只采集声明过的数据，未声明的数据在事件和{@link Advice}中为null，
+         * 增强代码也不再为它们构造参数数组和装箱
+         * </p>
+         *
+         * @param captures 需要采集的现场数据
+         * @return IBuildingForWatching
+         * @since {@code sandbox-api:1.3.3}
+         */
+        IBuildingForWatching withCapture(Capture... captures);
+
+        /**
+         * 只观察被采样的调用
+         * <p>
+         * 不调用时观察所有的调用；未被采样的调用过程不会产生任何事件，也不会通知{@link AdviceListener}
+         * </p>
+         *
+         * @param sampling 调用采样
+         * @return IBuildingForWatching
+         * @since {@code sandbox-api:1.3.3}
+         */
+        IBuildingForWatching withSampling(Sampling sampling);
+
         /**
          * 使用通知监听器观察
          *
@@ -265,6 +306,21 @@ public class EventWatchBuilder {
          */
         EventWatcher onWatch(EventListener eventListener, Event.Type... eventTypeArray);
 
+        /**
+         * 使用异步事件监听器观察
+         * <p>
+         * 业务线程只写入事件快照，监听器在消费线程中处理；删除观察后消费线程处理完剩余的事件退出。
+         * 需要获取丢弃事件数等计数时，可以自行构造{@link AsyncAdapterListener}，再通过{@link #onWatch(EventListener, Event.Type...)}观察
+         * </p>
+         *
+         * @param asyncEventListener 异步事件监听器
+         * @param config             异步事件分发配置
+         * @param eventTypeArray     需要监听的事件
+         * @return EventWatcher
+         * @since {@code sandbox-api:1.3.3}
+         */
+        EventWatcher onWatch(AsyncEventListener asyncEventListener, AsyncConfig config, Event.Type... eventTypeArray);
+
     }
 
     /**
@@ -648,7 +704,7 @@ public class EventWatchBuilder {
 
         @Override
         public EventWatcher onWatch(AdviceListener adviceListener) {
-            return build(new AdviceAdapterListener(adviceListener), null, BEFORE, RETURN, THROWS, IMMEDIATELY_RETURN, IMMEDIATELY_THROWS);
+            return build(new AdviceAdapterListener(adviceListener), null, Capture.values(), Sampling.ALL, BEFORE, RETURN, THROWS, IMMEDIATELY_RETURN, IMMEDIATELY_THROWS);
         }
 
         @Deprecated
@@ -659,7 +715,12 @@ public class EventWatchBuilder {
 
         @Override
         public EventWatcher onWatch(EventListener eventListener, Event.Type... eventTypeArray) {
-            return build(eventListener, null, eventTypeArray);
+            return build(eventListener, null, Capture.values(), Sampling.ALL, eventTypeArray);
+        }
+
+        @Override
+        public EventWatcher onWatch(AsyncEventListener asyncEventListener, AsyncConfig config, Event.Type... eventTypeArray) {
+            return onWatch(new AsyncAdapterListener(asyncEventListener, config), eventTypeArray);
         }
 
     }
@@ -669,6 +730,12 @@ public class EventWatchBuilder {
         private final Set<Event.Type> eventTypeSet = new HashSet<Event.Type>();
         private final List<Progress> progresses = new ArrayList<Progress>();
 
+        // 需要采集的现场数据，为null表示全部采集
+        private Set<Capture> captureSet;
+
+        // 调用采样
+        private Sampling sampling = Sampling.ALL;
+
         @Override
         public IBuildingForWatching withProgress(Progress progress) {
             if (null != progress) {
@@ -691,6 +758,31 @@ public class EventWatchBuilder {
             return this;
         }
 
+        @Override
+        public IBuildingForWatching withCapture(Capture... captures) {
+            if (null == captureSet) {
+                captureSet = new HashSet<Capture>();
+            }
+            if (null != captures) {
+                captureSet.addAll(Arrays.asList(captures));
+            }
+            return this;
+        }
+
+        @Override
+        public IBuildingForWatching withSampling(Sampling sampling) {
+            this.sampling = null == sampling
+                    ? Sampling.ALL
+                    : sampling;
+            return this;
+        }
+
+        private Capture[] toCaptureArray() {
+            return null == captureSet
+                    ? Capture.values()
+                    : captureSet.toArray(new Capture[0]);
+        }
+
         @Override
         public EventWatcher onWatch(AdviceListener adviceListener) {
             eventTypeSet.add(BEFORE);
@@ -701,18 +793,26 @@ public class EventWatchBuilder {
             return build(
                     new AdviceAdapterListener(adviceListener),
                     toProgressGroup(progresses),
+                    toCaptureArray(),
+                    sampling,
                     eventTypeSet.toArray(EMPTY)
             );
         }
 
         @Override
         public EventWatcher onWatch(EventListener eventListener, Event.Type... eventTypeArray) {
-            return build(eventListener, toProgressGroup(progresses), eventTypeArray);
+            return build(eventListener, toProgressGroup(progresses), toCaptureArray(), sampling, eventTypeArray);
+        }
+
+        @Override
+        public EventWatcher onWatch(AsyncEventListener asyncEventListener, AsyncConfig config, Event.Type... eventTypeArray) {
+            return onWatch(new AsyncAdapterListener(asyncEventListener, config), eventTypeArray);
         }
 
     }
 
-    private EventWatchCondition toEventWatchCondition() {
+    private EventWatchCondition toEventWatchCondition(final Capture[] captures,
+                                                      final Sampling sampling) {
         final List<Filter> filters = new ArrayList<Filter>();
         for (final BuildingForClass bfClass : bfClasses) {
             final Filter filter = new Filter() {
@@ -757,23 +857,154 @@ public class EventWatchBuilder {
 
             filters.add(makeExtFilter(filter, bfClass));
         }
-        return new EventWatchCondition() {
+        return new ExtEventWatchCondition() {
             @Override
             public Filter[] getOrFilterArray() {
                 return filters.toArray(new Filter[0]);
             }
+
+            @Override
+            public Capture[] getCaptureArray() {
+                return captures;
+            }
+
+            @Override
+            public Sampling getSampling() {
+                return sampling;
+            }
         };
     }
 
     private Filter makeExtFilter(final Filter filter,
                                  final BuildingForClass bfClass) {
-        return ExtFilter.ExtFilterFactory.make(
-                filter,
-                bfClass.isIncludeSubClasses,
-                bfClass.isIncludeBootstrap
+        return new IndexHintExtFilter(
+                ExtFilter.ExtFilterFactory.make(
+                        filter,
+                        bfClass.isIncludeSubClasses,
+                        bfClass.isIncludeBootstrap
+                ),
+                bfClass
         );
     }
 
+    /**
+     * 提取模式字符串中的字面量前缀
+     * <p>
+     * 通配符模式下为第一个通配符之前的部分；正则模式下只识别{@link java.util.regex.Pattern#quote(String)}生成的完整字面量
+     * </p>
+     *
+     * @param pattern 模式字符串
+     * @return [0]:字面量前缀;[1]:非null表示前缀即为完整的字面量;无法提取时返回null
+     */
+    private String[] toLiteralPrefix(final String pattern) {
+        if (null == pattern) {
+            return null;
+        }
+        switch (patternType) {
+            case REGEX: {
+                if (pattern.startsWith("\\Q")
+                        && pattern.endsWith("\\E")
+                        && pattern.indexOf("\\E") == pattern.length() - 2) {
+                    return new String[]{pattern.substring(2, pattern.length() - 2), pattern};
+                }
+                return null;
+            }
+            case WILDCARD:
+            default: {
+                for (int index = 0; index < pattern.length(); index++) {
+                    final char c = pattern.charAt(index);
+                    if (c == '*' || c == '?' || c == '\\') {
+                        return new String[]{pattern.substring(0, index), null};
+                    }
+                }
+                return new String[]{pattern, pattern};
+            }
+        }
+    }
+
+    /**
+     * 带已加载类索引提示的增强过滤器
+     * <p>
+     * 过滤器只读取构建时确定的模式，不保存匹配过程中的状态，所以可以被并发调用
+     * </p>
+     */
+    private class IndexHintExtFilter implements ExtFilter, ClassIndexHint, ThreadSafeFilter {
+
+        private final ExtFilter extFilter;
+        private final BuildingForClass bfClass;
+
+        IndexHintExtFilter(final ExtFilter extFilter,
+                           final BuildingForClass bfClass) {
+            this.extFilter = extFilter;
+            this.bfClass = bfClass;
+        }
+
+        @Override
+        public boolean isIncludeSubClasses() {
+            return extFilter.isIncludeSubClasses();
+        }
+
+        @Override
+        public boolean isIncludeBootstrap() {
+            return extFilter.isIncludeBootstrap();
+        }
+
+        @Override
+        public boolean doClassFilter(final int access,
+                                     final String javaClassName,
+                                     final String superClassTypeJavaClassName,
+                                     final String[] interfaceTypeJavaClassNameArray,
+                                     final String[] annotationTypeJavaClassNameArray) {
+            return extFilter.doClassFilter(
+                    access,
+                    javaClassName,
+                    superClassTypeJavaClassName,
+                    interfaceTypeJavaClassNameArray,
+                    annotationTypeJavaClassNameArray
+            );
+        }
+
+        @Override
+        public boolean doMethodFilter(final int access,
+                                      final String javaMethodName,
+                                      final String[] parameterTypeJavaClassNameArray,
+                                      final String[] throwsTypeJavaClassNameArray,
+                                      final String[] annotationTypeJavaClassNameArray) {
+            return extFilter.doMethodFilter(
+                    access,
+                    javaMethodName,
+                    parameterTypeJavaClassNameArray,
+                    throwsTypeJavaClassNameArray,
+                    annotationTypeJavaClassNameArray
+            );
+        }
+
+        @Override
+        public String getJavaClassNamePrefix() {
+            final String[] literalPrefix = toLiteralPrefix(bfClass.pattern);
+            return null == literalPrefix || literalPrefix[0].length() == 0
+                    ? null
+                    : literalPrefix[0];
+        }
+
+        @Override
+        public boolean isExactJavaClassName() {
+            final String[] literalPrefix = toLiteralPrefix(bfClass.pattern);
+            return null != literalPrefix && null != literalPrefix[1];
+        }
+
+        @Override
+        public String[] getInterfaceTypeJavaClassNames() {
+            return bfClass.hasInterfaceTypes.toRequiredLiterals();
+        }
+
+        @Override
+        public String[] getAnnotationTypeJavaClassNames() {
+            return bfClass.hasAnnotationTypes.toRequiredLiterals();
+        }
+
+    }
+
     private ProgressGroup toProgressGroup(final List<Progress> progresses) {
         if (progresses.isEmpty()) {
             return null;
@@ -783,10 +1014,12 @@ public class EventWatchBuilder {
 
     private EventWatcher build(final EventListener listener,
                                final Progress progress,
+                               final Capture[] captures,
+                               final Sampling sampling,
                                final Event.Type... eventTypes) {
 
         final int watchId = moduleEventWatcher.watch(
-                toEventWatchCondition(),
+                toEventWatchCondition(captures, sampling),
                 listener,
                 progress,
                 eventTypes
@@ -872,6 +1105,27 @@ public class EventWatchBuilder {
             groups.add(new Group(patternArray));
         }
 
+        /*
+         * 提取必须存在的字面量
+         * 只有一个匹配组时，组内每一个完整字面量的模式都必须存在匹配；多个匹配组之间是或的关系，无法提取
+         */
+        String[] toRequiredLiterals() {
+            if (groups.size() != 1) {
+                return null;
+            }
+            final List<String> literals = new ArrayList<String>();
+            for (final String pattern : groups.get(0).patternArray) {
+                final String[] literalPrefix = toLiteralPrefix(pattern);
+                if (null != literalPrefix
+                        && null != literalPrefix[1]) {
+                    literals.add(literalPrefix[0]);
+                }
+            }
+            return literals.isEmpty()
+                    ? null
+                    : literals.toArray(new String[0]);
+        }
+
         /*
          * 模式匹配With
          */
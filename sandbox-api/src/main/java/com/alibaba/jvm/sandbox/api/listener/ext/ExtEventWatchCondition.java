@@ -0,0 +1,39 @@
+package com.alibaba.jvm.sandbox.api.listener.ext;
+
+import com.alibaba.jvm.sandbox.api.event.Capture;
+import com.alibaba.jvm.sandbox.api.event.Sampling;
+
+/**
+ * 增强的事件观察条件
+ * <p>
+ * 在{@link EventWatchCondition}的基础上声明需要采集的现场数据和调用采样，
+ * 容器在{@link com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher#watch(EventWatchCondition, com.alibaba.jvm.sandbox.api.listener.EventListener, com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher.Progress, com.alibaba.jvm.sandbox.api.event.Event.Type...)}
+ * 中判断观察条件是否实现了本接口；普通的{@link EventWatchCondition}会采集所有的现场数据，观察所有的调用
+ * </p>
+ *
+ * @author luanjia@taobao.com
+ * @since {@code sandbox-api:1.3.3}
+ */
+public interface ExtEventWatchCondition extends EventWatchCondition {
+
+    /**
+     * 获取需要采集的现场数据
+     * <p>
+     * 未声明的数据在事件中为null
+     * </p>
+     *
+     * @return 需要采集的现场数据
+     */
+    Capture[] getCaptureArray();
+
+    /**
+     * 获取调用采样
+     * <p>
+     * 采样在产生事件之前决定，未被采样的调用过程不会产生任何事件
+     * </p>
+     *
+     * @return 调用采样
+     */
+    Sampling getSampling();
+
+}
@@ -0,0 +1,71 @@
+package com.alibaba.jvm.sandbox.api.resource;
+
+/**
+ * 缓存监控器
+ *
+ * @author luanjia@taobao.com
+ * @since {@code sandbox-api:1.3.3}
+ */
+public interface CacheMonitor {
+
+    /**
+     * 缓存信息
+     *
+     * @author luanjia@taobao.com
+     * @since {@code sandbox-api:1.3.3}
+     */
+    interface CacheInfo {
+
+        /**
+         * 获取当前缓存数量
+         *
+         * @return 当前缓存数量
+         */
+        long getSize();
+
+        /**
+         * 获取缓存容量
+         *
+         * @return 缓存容量
+         */
+        long getMaximumSize();
+
+        /**
+         * 获取命中次数，包含{@link #getNegativeHitCount()}
+         *
+         * @return 命中次数
+         */
+        long getHitCount();
+
+        /**
+         * 获取命中"不存在"结果的次数
+         *
+         * @return 命中"不存在"结果的次数
+         */
+        long getNegativeHitCount();
+
+        /**
+         * 获取未命中次数
+         *
+         * @return 未命中次数
+         */
+        long getMissCount();
+
+        /**
+         * 获取因容量不足而淘汰的次数
+         *
+         * @return 淘汰次数
+         */
+        long getEvictionCount();
+
+    }
+
+    /**
+     * 获取类结构缓存信息
+     * <p>匹配子类、接口和注解时读取的父类、接口等类结构的缓存</p>
+     *
+     * @return 类结构缓存信息
+     */
+    CacheInfo getClassStructureCacheInfo();
+
+}
@@ -1,10 +1,14 @@
 package com.alibaba.jvm.sandbox.api.util;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * 缓存加载
+ * <p>
+ * 可以被多个线程并发使用：并发加载同一个KEY时{@link #load(Object)}可能被执行多次，但只有第一个结果会被缓存和返回，KEY不能为null。
+ * 缓存强引用KEY和VALUE且永不淘汰，不要用来缓存{@link Class}、{@link ClassLoader}这类需要被回收的对象
+ * </p>
  *
  * @param <K> KEY
  * @param <V> VAL
@@ -13,7 +17,10 @@ import java.util.Map;
  */
 public abstract class CacheGet<K, V> {
 
-    private final Map<K, V> cache = new HashMap<K, V>();
+    // ConcurrentHashMap不允许null，加载结果为null时以此占位
+    private static final Object NULL = new Object();
+
+    private final ConcurrentMap<K, Object> cache = new ConcurrentHashMap<K, Object>();
 
     /**
      * 从缓存中加载
@@ -22,17 +29,28 @@ public abstract class CacheGet<K, V> {
      * @return VALUE
      */
     public V getFromCache(K key) {
-        if (!cache.containsKey(key)) {
-            try {
-                final V value;
-                cache.put(key, value = load(key));
-                return value;
-            } catch (Throwable cause) {
-                throw new CacheLoadUnCaughtException(cause);
-            }
-        } else {
-            return cache.get(key);
+        final Object exist = cache.get(key);
+        if (null != exist) {
+            return unmask(exist);
+        }
+        final V value;
+        try {
+            value = load(key);
+        } catch (Throwable cause) {
+            throw new CacheLoadUnCaughtException(cause);
         }
+        final Object masked = null == value ? NULL : value;
+        final Object previous = cache.putIfAbsent(key, masked);
+        return null == previous
+                ? value
+                : unmask(previous);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V unmask(final Object object) {
+        return NULL == object
+                ? null
+                : (V) object;
     }
 
     /**
@@ -0,0 +1,192 @@
+package com.alibaba.jvm.sandbox.qatest.api;
+
+import com.alibaba.jvm.sandbox.api.event.BeforeEvent;
+import com.alibaba.jvm.sandbox.api.event.ReturnEvent;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.Advice;
+import com.alibaba.jvm.sandbox.api.listener.ext.AdviceAdapterListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.Behavior;
+import com.alibaba.jvm.sandbox.api.util.CacheGet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 通知中行为解析的测试
+ */
+public class AdviceBehaviorTestCase {
+
+    /**
+     * 行为解析的目标类
+     */
+    public static class Target {
+
+        public Target() {
+        }
+
+        public Target(String name) {
+        }
+
+        public String say() {
+            return "";
+        }
+
+        public String say(String words) {
+            return words;
+        }
+
+        public String say(String words, int times) {
+            return words;
+        }
+
+    }
+
+    // 获取BEFORE事件中的行为
+    private static Behavior toBehavior(final Class<?> clazz,
+                                       final String javaMethodName,
+                                       final String javaMethodDesc) throws Throwable {
+        final AtomicReference<Behavior> behaviorRef = new AtomicReference<Behavior>();
+        final AtomicReference<Throwable> causeRef = new AtomicReference<Throwable>();
+        final AdviceListener adviceListener = new AdviceListener() {
+            @Override
+            protected void before(Advice advice) {
+                try {
+                    behaviorRef.set(advice.getBehavior());
+                } catch (Throwable cause) {
+                    causeRef.set(cause);
+                }
+            }
+        };
+        final EventListener target = new AdviceAdapterListener(adviceListener);
+        target.onEvent(new BeforeEvent(
+                10001,
+                10001,
+                clazz.getClassLoader(),
+                clazz.getName(),
+                javaMethodName,
+                javaMethodDesc,
+                null,
+                new Object[]{}
+        ));
+        target.onEvent(new ReturnEvent(10001, 10001, null));
+        if (null != causeRef.get()) {
+            throw causeRef.get();
+        }
+        return behaviorRef.get();
+    }
+
+    @Test
+    public void test$$behavior$$overloads() throws Throwable {
+        Assert.assertEquals(
+                Target.class.getDeclaredMethod("say"),
+                toBehavior(Target.class, "say", "()Ljava/lang/String;").getTarget()
+        );
+        Assert.assertEquals(
+                Target.class.getDeclaredMethod("say", String.class),
+                toBehavior(Target.class, "say", "(Ljava/lang/String;)Ljava/lang/String;").getTarget()
+        );
+        Assert.assertEquals(
+                Target.class.getDeclaredMethod("say", String.class, int.class),
+                toBehavior(Target.class, "say", "(Ljava/lang/String;I)Ljava/lang/String;").getTarget()
+        );
+    }
+
+    @Test
+    public void test$$behavior$$constructor() throws Throwable {
+        final Behavior behavior = toBehavior(Target.class, "<init>", "(Ljava/lang/String;)V");
+        Assert.assertTrue(behavior.getTarget() instanceof Constructor);
+        Assert.assertEquals(Target.class.getDeclaredConstructor(String.class), behavior.getTarget());
+    }
+
+    @Test
+    public void test$$behavior$$notFound() throws Throwable {
+        try {
+            toBehavior(Target.class, "say", "(I)Ljava/lang/String;");
+            Assert.fail();
+        } catch (RuntimeException cause) {
+            Assert.assertTrue(cause.getCause() instanceof NoSuchMethodException);
+        }
+    }
+
+    @Test
+    public void test$$behavior$$concurrent() throws Throwable {
+        final Class<?>[] classes = new Class<?>[]{
+                Object.class, String.class, Long.class, Integer.class, StringBuilder.class, Thread.class
+        };
+        final AtomicInteger failCount = new AtomicInteger();
+
+        // 所有线程共享同一个监听器，也就共享同一个行为缓存
+        final EventListener listener = new AdviceAdapterListener(new AdviceListener() {
+            @Override
+            protected void before(Advice advice) {
+                final Method method = (Method) advice.getBehavior().getTarget();
+                if (!method.getDeclaringClass().getName().equals(advice.getParameterArray()[0])) {
+                    failCount.incrementAndGet();
+                }
+            }
+        });
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int index = 0; index < 8; index++) {
+            final int threadIndex = index;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int loop = 0; loop < 100; loop++) {
+                            final Class<?> clazz = classes[(threadIndex + loop) % classes.length];
+                            final int invokeId = threadIndex * 1000 + loop;
+                            listener.onEvent(new BeforeEvent(
+                                    invokeId,
+                                    invokeId,
+                                    clazz.getClassLoader(),
+                                    clazz.getName(),
+                                    "toString",
+                                    "()Ljava/lang/String;",
+                                    null,
+                                    new Object[]{clazz.getName()}
+                            ));
+                            listener.onEvent(new ReturnEvent(invokeId, invokeId, null));
+                        }
+                    } catch (Throwable cause) {
+                        failCount.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        startLatch.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(0, failCount.get());
+    }
+
+    @Test
+    public void test$$cacheGet$$nullValue() {
+        final AtomicInteger loadCount = new AtomicInteger();
+        final CacheGet<String, String> cacheGet = new CacheGet<String, String>() {
+            @Override
+            protected String load(String key) {
+                loadCount.incrementAndGet();
+                return "null".equals(key) ? null : key;
+            }
+        };
+        Assert.assertEquals("a", cacheGet.getFromCache("a"));
+        Assert.assertEquals("a", cacheGet.getFromCache("a"));
+        Assert.assertNull(cacheGet.getFromCache("null"));
+        Assert.assertNull(cacheGet.getFromCache("null"));
+        Assert.assertEquals(2, loadCount.get());
+    }
+
+}
@@ -1,9 +1,13 @@
 package com.alibaba.jvm.sandbox.qatest.api;
 
 import com.alibaba.jvm.sandbox.api.event.BeforeEvent;
+import com.alibaba.jvm.sandbox.api.event.CallBeforeEvent;
+import com.alibaba.jvm.sandbox.api.event.CallReturnEvent;
 import com.alibaba.jvm.sandbox.api.event.ReturnEvent;
 import com.alibaba.jvm.sandbox.api.event.ThrowsEvent;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.Advice;
+import com.alibaba.jvm.sandbox.api.listener.ext.AdviceAdapterListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder;
 import com.alibaba.jvm.sandbox.qatest.api.mock.MockForBuilderModuleEventWatcher;
@@ -96,4 +100,51 @@ public class AdviceListenerTestCase {
 
     }
 
+    @Test
+    public void test$$AdviceListener$$deepProcess$withCall() throws Throwable {
+
+        final StringBuilder traceSB = new StringBuilder();
+        final EventListener listener = new AdviceAdapterListener(new AdviceListener() {
+            @Override
+            protected void before(Advice advice) {
+                Assert.assertFalse(advice.hasMark("mark"));
+                advice.mark("mark");
+            }
+
+            @Override
+            protected void afterReturning(Advice advice) {
+                Assert.assertTrue(advice.unMark("mark"));
+                traceSB.append("return:").append(advice.getInvokeId()).append(";");
+            }
+
+            @Override
+            protected void beforeCall(Advice advice, int callLineNum, String callJavaClassName, String callJavaMethodName, String callJavaMethodDesc) {
+                traceSB.append("call:").append(advice.getInvokeId()).append(":").append(callJavaClassName).append(";");
+            }
+
+            @Override
+            protected void afterCallReturning(Advice advice, int callLineNum, String callJavaClassName, String callJavaMethodName, String callJavaMethodDesc) {
+                traceSB.append("callReturn:").append(advice.getInvokeId()).append(":").append(callLineNum).append(";");
+            }
+        });
+
+        // 超过通知堆栈的初始容量，每一层都有自己的CALL目标
+        final int deep = 40;
+        final StringBuilder expectSB = new StringBuilder();
+        for (int invokeId = 1; invokeId <= deep; invokeId++) {
+            listener.onEvent(new BeforeEvent(1, invokeId, getClass().getClassLoader(),
+                    "java.lang.String", "toString", "()Ljava/lang/String;", null, new Object[]{}));
+            listener.onEvent(new CallBeforeEvent(1, invokeId, invokeId, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;"));
+            expectSB.append("call:").append(invokeId).append(":java.lang.Integer;");
+        }
+        for (int invokeId = deep; invokeId >= 1; invokeId--) {
+            listener.onEvent(new CallReturnEvent(1, invokeId));
+            listener.onEvent(new ReturnEvent(1, invokeId, null));
+            expectSB.append("callReturn:").append(invokeId).append(":").append(invokeId).append(";");
+            expectSB.append("return:").append(invokeId).append(";");
+        }
+        Assert.assertEquals(expectSB.toString(), traceSB.toString());
+
+    }
+
 }
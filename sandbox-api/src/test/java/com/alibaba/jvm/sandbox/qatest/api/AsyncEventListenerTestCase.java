@@ -0,0 +1,303 @@
+package com.alibaba.jvm.sandbox.qatest.api;
+
+import com.alibaba.jvm.sandbox.api.event.BeforeEvent;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.event.ReturnEvent;
+import com.alibaba.jvm.sandbox.api.event.ThrowsEvent;
+import com.alibaba.jvm.sandbox.api.listener.ext.AsyncAdapterListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.AsyncConfig;
+import com.alibaba.jvm.sandbox.api.listener.ext.AsyncEventListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.EventSnapshot;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.alibaba.jvm.sandbox.api.listener.ext.AsyncConfig.Overflow.*;
+
+/**
+ * 异步事件监听器的测试
+ */
+public class AsyncEventListenerTestCase {
+
+    private static BeforeEvent newBeforeEvent(final int processId,
+                                              final int invokeId,
+                                              final Object... argumentArray) {
+        return new BeforeEvent(
+                processId,
+                invokeId,
+                AsyncEventListenerTestCase.class.getClassLoader(),
+                "com.alibaba.Target",
+                "say",
+                "(Ljava/lang/String;)V",
+                null,
+                argumentArray
+        );
+    }
+
+    // 等待缓冲区中的事件全部被处理
+    private static void awaitConsumed(final AsyncAdapterListener adapter) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (adapter.getConsumedCount() < adapter.getPublishedCount()) {
+            Assert.assertTrue("consume timeout", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void test$$async$$snapshot() throws Throwable {
+        final List<String> traces = Collections.synchronizedList(new ArrayList<String>());
+        final AsyncAdapterListener adapter = new AsyncAdapterListener(new AsyncEventListener() {
+            @Override
+            protected void onEvent(EventSnapshot snapshot) {
+                switch (snapshot.getType()) {
+                    case BEFORE:
+                        traces.add(snapshot.getType() + ":" + snapshot.getInvokeId() + ":" + snapshot.getJavaMethodName() + ":" + snapshot.getArgumentArray()[0]);
+                        break;
+                    case RETURN:
+                        traces.add(snapshot.getType() + ":" + snapshot.getInvokeId() + ":" + snapshot.getReturnObj());
+                        break;
+                    case THROWS:
+                        traces.add(snapshot.getType() + ":" + snapshot.getInvokeId() + ":" + snapshot.getThrowable().getMessage());
+                        break;
+                }
+            }
+        }, AsyncConfig.DEFAULT.withArgumentSnapshot());
+
+        final Object[] argumentArray = new Object[]{"hello"};
+        adapter.onEvent(newBeforeEvent(1, 1, argumentArray));
+
+        // 入参在业务线程中被改写，不影响已经写入的快照
+        argumentArray[0] = "changed";
+        adapter.onEvent(new ReturnEvent(1, 1, "world"));
+        adapter.onEvent(new ThrowsEvent(2, 2, new RuntimeException("error")));
+        awaitConsumed(adapter);
+
+        Assert.assertEquals(3, adapter.getPublishedCount());
+        Assert.assertEquals(0, adapter.getDroppedCount());
+        Assert.assertEquals(
+                new ArrayList<String>() {{
+                    add("BEFORE:1:say:hello");
+                    add("RETURN:1:world");
+                    add("THROWS:2:error");
+                }},
+                traces
+        );
+        adapter.shutdown();
+        Assert.assertTrue(adapter.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void test$$async$$withoutArgumentSnapshot() throws Throwable {
+        final AtomicInteger nullCount = new AtomicInteger();
+        final AsyncAdapterListener adapter = new AsyncAdapterListener(new AsyncEventListener() {
+            @Override
+            protected void onEvent(EventSnapshot snapshot) {
+                if (null == snapshot.getArgumentArray()
+                        && null == snapshot.getReturnObj()) {
+                    nullCount.incrementAndGet();
+                }
+            }
+        });
+        adapter.onEvent(newBeforeEvent(1, 1, "hello"));
+        adapter.onEvent(new ReturnEvent(1, 1, "world"));
+        awaitConsumed(adapter);
+        Assert.assertEquals(2, nullCount.get());
+        adapter.shutdown();
+    }
+
+    @Test
+    public void test$$async$$overflow$drop() throws Throwable {
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        final AsyncAdapterListener adapter = new AsyncAdapterListener(new AsyncEventListener() {
+            @Override
+            protected void onEvent(EventSnapshot snapshot) throws Throwable {
+                releaseLatch.await();
+            }
+        }, AsyncConfig.DEFAULT.withCapacity(8).withOverflow(DROP));
+
+        // 消费线程最多取走一个事件后被阻塞，缓冲区最多再容纳8个
+        for (int index = 0; index < 100; index++) {
+            adapter.onEvent(new ReturnEvent(index, index, null));
+        }
+        Assert.assertTrue(adapter.getDroppedCount() >= 100 - 9);
+        Assert.assertEquals(100, adapter.getPublishedCount() + adapter.getDroppedCount());
+
+        releaseLatch.countDown();
+        awaitConsumed(adapter);
+        Assert.assertEquals(adapter.getPublishedCount(), adapter.getConsumedCount());
+        adapter.shutdown();
+    }
+
+    @Test
+    public void test$$async$$overflow$sample() throws Throwable {
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        final List<Integer> processIds = Collections.synchronizedList(new ArrayList<Integer>());
+        final AsyncAdapterListener adapter = new AsyncAdapterListener(new AsyncEventListener() {
+            @Override
+            protected void onEvent(EventSnapshot snapshot) throws Throwable {
+                releaseLatch.await();
+                processIds.add(snapshot.getProcessId());
+            }
+        }, AsyncConfig.DEFAULT.withCapacity(64).withSampleOverflow(4));
+
+        for (int index = 0; index < 100; index++) {
+            adapter.onEvent(new ReturnEvent(index, index, null));
+        }
+        releaseLatch.countDown();
+        awaitConsumed(adapter);
+
+        // 缓冲区过半之后只保留采样到的调用过程
+        Assert.assertTrue(adapter.getDroppedCount() > 0);
+        Assert.assertEquals(100, adapter.getPublishedCount() + adapter.getDroppedCount());
+        for (final int processId : processIds.subList(33, processIds.size())) {
+            Assert.assertEquals(0, processId % 4);
+        }
+        adapter.shutdown();
+    }
+
+    @Test
+    public void test$$async$$overflow$block$concurrent() throws Throwable {
+        final AtomicLong sum = new AtomicLong();
+        final AtomicInteger batchCount = new AtomicInteger();
+        final AsyncAdapterListener adapter = new AsyncAdapterListener(new AsyncEventListener() {
+            @Override
+            protected void onEvent(EventSnapshot snapshot) {
+                sum.addAndGet(snapshot.getInvokeId());
+            }
+
+            @Override
+            protected void afterBatch(int count) {
+                batchCount.incrementAndGet();
+            }
+        }, AsyncConfig.DEFAULT.withCapacity(16).withConsumers(2).withBatchSize(8).withOverflow(BLOCK));
+
+        final int threadCount = 8;
+        final int loop = 5000;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int index = 0; index < threadCount; index++) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int invokeId = 1; invokeId <= loop; invokeId++) {
+                            adapter.onEvent(new ReturnEvent(invokeId, invokeId, null));
+                        }
+                    } catch (Throwable cause) {
+                        throw new RuntimeException(cause);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        startLatch.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        awaitConsumed(adapter);
+
+        // 阻塞策略不丢事件，多个生产者和消费者并发时每个事件都恰好处理一次
+        Assert.assertEquals(0, adapter.getDroppedCount());
+        Assert.assertEquals(threadCount * loop, adapter.getConsumedCount());
+        Assert.assertEquals((long) threadCount * loop * (loop + 1) / 2, sum.get());
+        Assert.assertTrue(batchCount.get() >= threadCount * loop / 8);
+        adapter.shutdown();
+        Assert.assertTrue(adapter.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void test$$async$$idleAndWakeup() throws Throwable {
+        final List<Thread> consumerThreads = Collections.synchronizedList(new ArrayList<Thread>());
+        final AsyncAdapterListener adapter = new AsyncAdapterListener(new AsyncEventListener() {
+            @Override
+            protected void onEvent(EventSnapshot snapshot) {
+                if (!consumerThreads.contains(Thread.currentThread())) {
+                    consumerThreads.add(Thread.currentThread());
+                }
+            }
+        }, AsyncConfig.DEFAULT.withConsumers(2));
+
+        // 每次都等消费线程空闲挂起后再写入，不能漏掉唤醒
+        for (int index = 0; index < 200; index++) {
+            adapter.onEvent(new ReturnEvent(index, index, null));
+            awaitConsumed(adapter);
+        }
+        Assert.assertEquals(200, adapter.getConsumedCount());
+
+        // 空闲的消费线程不带超时地挂起，不再轮询
+        final long deadline = System.currentTimeMillis() + 10000;
+        for (final Thread thread : consumerThreads) {
+            while (thread.getState() != Thread.State.WAITING) {
+                Assert.assertTrue("idle timeout", System.currentTimeMillis() < deadline);
+                Thread.sleep(1);
+            }
+        }
+        adapter.shutdown();
+        Assert.assertTrue(adapter.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void test$$async$$shutdown() throws Throwable {
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        final AtomicInteger count = new AtomicInteger();
+        final AsyncAdapterListener adapter = new AsyncAdapterListener(new AsyncEventListener() {
+            @Override
+            protected void onEvent(EventSnapshot snapshot) throws Throwable {
+                releaseLatch.await();
+                count.incrementAndGet();
+            }
+        });
+        for (int index = 0; index < 10; index++) {
+            adapter.onEvent(new ReturnEvent(index, index, null));
+        }
+        adapter.shutdown();
+
+        // 关闭后不再接收新的事件，已经接收的事件处理完后消费线程退出
+        adapter.onEvent(new ReturnEvent(10, 10, null));
+        releaseLatch.countDown();
+        Assert.assertTrue(adapter.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertTrue(adapter.isShutdown());
+        Assert.assertEquals(10, count.get());
+        Assert.assertEquals(1, adapter.getDroppedCount());
+    }
+
+    @Test
+    public void test$$async$$errorAndReentry() throws Throwable {
+        final AtomicInteger errorCount = new AtomicInteger();
+        final AsyncAdapterListener[] adapterRef = new AsyncAdapterListener[1];
+        final AsyncAdapterListener adapter = new AsyncAdapterListener(new AsyncEventListener() {
+            @Override
+            protected void onEvent(EventSnapshot snapshot) throws Throwable {
+
+                // 消费线程中触发的事件不会再进入缓冲区
+                adapterRef[0].onEvent(new ReturnEvent(snapshot.getProcessId(), snapshot.getInvokeId(), null));
+                throw new RuntimeException("error");
+            }
+
+            @Override
+            protected void onError(EventSnapshot snapshot, Throwable cause) {
+                if (snapshot.getType() == Event.Type.RETURN) {
+                    errorCount.incrementAndGet();
+                }
+            }
+        });
+        adapterRef[0] = adapter;
+        for (int index = 0; index < 10; index++) {
+            adapter.onEvent(new ReturnEvent(index, index, null));
+        }
+        awaitConsumed(adapter);
+        Assert.assertEquals(10, adapter.getPublishedCount());
+        Assert.assertEquals(10, errorCount.get());
+        adapter.shutdown();
+    }
+
+}
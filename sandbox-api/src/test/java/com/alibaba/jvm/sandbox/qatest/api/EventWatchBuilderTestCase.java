@@ -1,6 +1,8 @@
 package com.alibaba.jvm.sandbox.qatest.api;
 
+import com.alibaba.jvm.sandbox.api.event.Capture;
 import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.event.Sampling;
 import com.alibaba.jvm.sandbox.api.filter.AccessFlags;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
 import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
@@ -10,6 +12,8 @@ import com.alibaba.jvm.sandbox.qatest.api.util.ApiQaArrayUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.concurrent.TimeUnit;
+
 import static com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder.PatternType.REGEX;
 
 public class EventWatchBuilderTestCase {
@@ -59,6 +63,104 @@ public class EventWatchBuilderTestCase {
         Assert.assertEquals(1, mockForBuilderModuleEventWatcher.getEventWatchCondition().getOrFilterArray().length);
     }
 
+    @Test
+    public void test$$EventWatchBuilder$$capture$$default() {
+
+        final MockForBuilderModuleEventWatcher mockForBuilderModuleEventWatcher
+                = new MockForBuilderModuleEventWatcher();
+        new EventWatchBuilder(mockForBuilderModuleEventWatcher)
+                .onClass(String.class)
+                .onBehavior("toString")
+                .onWatching()
+                .onWatch(new AdviceListener());
+
+        Assert.assertEquals(3, mockForBuilderModuleEventWatcher.getCaptureArray().length);
+    }
+
+    @Test
+    public void test$$EventWatchBuilder$$capture$$declared() {
+
+        final MockForBuilderModuleEventWatcher mockForBuilderModuleEventWatcher
+                = new MockForBuilderModuleEventWatcher();
+        new EventWatchBuilder(mockForBuilderModuleEventWatcher)
+                .onClass(String.class)
+                .onBehavior("toString")
+                .onWatching()
+                .withCapture(Capture.ARGUMENTS)
+                .withCapture(Capture.ARGUMENTS, Capture.RETURN_VALUE)
+                .onWatch(new AdviceListener());
+
+        Assert.assertEquals(2, mockForBuilderModuleEventWatcher.getCaptureArray().length);
+        Assert.assertTrue(ApiQaArrayUtils.has(Capture.ARGUMENTS, mockForBuilderModuleEventWatcher.getCaptureArray()));
+        Assert.assertTrue(ApiQaArrayUtils.has(Capture.RETURN_VALUE, mockForBuilderModuleEventWatcher.getCaptureArray()));
+        Assert.assertEquals(5, mockForBuilderModuleEventWatcher.getEventTypeArray().length);
+    }
+
+    @Test
+    public void test$$EventWatchBuilder$$capture$$nothing() {
+
+        final MockForBuilderModuleEventWatcher mockForBuilderModuleEventWatcher
+                = new MockForBuilderModuleEventWatcher();
+        new EventWatchBuilder(mockForBuilderModuleEventWatcher)
+                .onClass(String.class)
+                .onBehavior("toString")
+                .onWatching()
+                .withCapture()
+                .onWatch(new AdviceListener());
+
+        Assert.assertEquals(0, mockForBuilderModuleEventWatcher.getCaptureArray().length);
+    }
+
+    @Test
+    public void test$$EventWatchBuilder$$sampling$$default() {
+
+        final MockForBuilderModuleEventWatcher mockForBuilderModuleEventWatcher
+                = new MockForBuilderModuleEventWatcher();
+        new EventWatchBuilder(mockForBuilderModuleEventWatcher)
+                .onClass(String.class)
+                .onBehavior("toString")
+                .onWatch(new AdviceListener());
+
+        Assert.assertTrue(mockForBuilderModuleEventWatcher.getSampling().isAll());
+    }
+
+    @Test
+    public void test$$EventWatchBuilder$$sampling$$declared() {
+
+        final MockForBuilderModuleEventWatcher mockForBuilderModuleEventWatcher
+                = new MockForBuilderModuleEventWatcher();
+        new EventWatchBuilder(mockForBuilderModuleEventWatcher)
+                .onClass(String.class)
+                .onBehavior("toString")
+                .onWatching()
+                .withSampling(Sampling.oneIn(100))
+                .onWatch(new AdviceListener());
+
+        Assert.assertEquals(100, mockForBuilderModuleEventWatcher.getSampling().getRate());
+        Assert.assertEquals(5, mockForBuilderModuleEventWatcher.getEventTypeArray().length);
+    }
+
+    @Test
+    public void test$$Sampling$$factories() {
+        Assert.assertSame(Sampling.ALL, Sampling.oneIn(1));
+        final Sampling budget = Sampling.budget(10, 1, TimeUnit.SECONDS);
+        Assert.assertFalse(budget.isAll());
+        Assert.assertEquals(10, budget.getBudget());
+        Assert.assertEquals(1000, budget.getPeriodMillis());
+        try {
+            Sampling.oneIn(0);
+            Assert.fail();
+        } catch (IllegalArgumentException cause) {
+            // expected
+        }
+        try {
+            Sampling.budget(10, 1, TimeUnit.MICROSECONDS);
+            Assert.fail();
+        } catch (IllegalArgumentException cause) {
+            // expected
+        }
+    }
+
     @Test
     public void test$$EventWatchBuilder$$normal$$CallOnly() {
 
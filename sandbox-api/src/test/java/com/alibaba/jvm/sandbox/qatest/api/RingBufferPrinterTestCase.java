@@ -0,0 +1,140 @@
+package com.alibaba.jvm.sandbox.qatest.api;
+
+import com.alibaba.jvm.sandbox.api.http.printer.RingBufferPrinter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 有界环形缓冲区文本输出的测试
+ */
+public class RingBufferPrinterTestCase {
+
+    @Test
+    public void test$$printer$$printAndFlush() {
+        final StringWriter stringWriter = new StringWriter();
+        final RingBufferPrinter printer = new RingBufferPrinter(new PrintWriter(stringWriter));
+        printer.print("hello").print(" ").println("world").print(null);
+        Assert.assertEquals("", stringWriter.toString());
+        printer.flush();
+        Assert.assertEquals("hello world\nnull", stringWriter.toString());
+        Assert.assertEquals(0, printer.getDroppedCount());
+    }
+
+    @Test
+    public void test$$printer$$overCapacity() {
+        final StringWriter stringWriter = new StringWriter();
+        final RingBufferPrinter printer = new RingBufferPrinter(new PrintWriter(stringWriter), 4);
+        for (int index = 0; index < 10; index++) {
+            printer.print(String.valueOf(index));
+        }
+
+        // 超过容量的输出被丢弃，腾出空间后可以继续输出
+        Assert.assertEquals(6, printer.getDroppedCount());
+        printer.flush();
+        printer.print("4").flush();
+        Assert.assertEquals("01234", stringWriter.toString());
+    }
+
+    @Test
+    public void test$$printer$$waitingForBroken$timeout() {
+        final StringWriter stringWriter = new StringWriter();
+        final RingBufferPrinter printer = new RingBufferPrinter(new PrintWriter(stringWriter));
+        printer.println("hello");
+        Assert.assertTrue(printer.waitingForBroken(50, TimeUnit.MILLISECONDS));
+        Assert.assertEquals("hello\n", stringWriter.toString());
+    }
+
+    @Test
+    public void test$$printer$$waitingForBroken$writerError() {
+        final RingBufferPrinter printer = new RingBufferPrinter(new PrintWriter(new Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                throw new IOException("broken pipe");
+            }
+
+            @Override
+            public void flush() throws IOException {
+                throw new IOException("broken pipe");
+            }
+
+            @Override
+            public void close() {
+            }
+        }));
+        printer.println("hello");
+        Assert.assertFalse(printer.waitingForBroken(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void test$$printer$$concurrent() throws Throwable {
+        final StringWriter stringWriter = new StringWriter();
+        final RingBufferPrinter printer = new RingBufferPrinter(new PrintWriter(stringWriter), 64);
+        final AtomicBoolean isTimeout = new AtomicBoolean(true);
+        final Thread waitingThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                isTimeout.set(printer.waitingForBroken(30, TimeUnit.SECONDS));
+            }
+        });
+        waitingThread.start();
+
+        final int threadCount = 8;
+        final int loop = 2000;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int index = 0; index < threadCount; index++) {
+            final int threadIndex = index;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int line = 0; line < loop; line++) {
+                        printer.println(threadIndex + ":" + line);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        startLatch.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        // 打断后输出线程立即返回
+        printer.broken();
+        waitingThread.join(TimeUnit.SECONDS.toMillis(5));
+        Assert.assertFalse(waitingThread.isAlive());
+        Assert.assertFalse(isTimeout.get());
+        printer.flush();
+
+        // 丢弃的输出加上写出的输出等于全部输出，每个线程写出的行保持先后顺序
+        final String[] lines = stringWriter.toString().split("\n");
+        Assert.assertEquals(threadCount * loop, lines.length + printer.getDroppedCount());
+        final Map<String, Integer> lastLines = new HashMap<String, Integer>();
+        for (final String line : lines) {
+            final String[] segments = line.split(":");
+            final Integer last = lastLines.get(segments[0]);
+            final int current = Integer.parseInt(segments[1]);
+            Assert.assertTrue(null == last || last < current);
+            lastLines.put(segments[0], current);
+        }
+    }
+
+}
@@ -1,9 +1,12 @@
 package com.alibaba.jvm.sandbox.qatest.api.mock;
 
+import com.alibaba.jvm.sandbox.api.event.Capture;
 import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.event.Sampling;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchCondition;
+import com.alibaba.jvm.sandbox.api.listener.ext.ExtEventWatchCondition;
 import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher;
 
 import java.util.concurrent.atomic.AtomicReference;
@@ -22,6 +25,12 @@ public class MockForBuilderModuleEventWatcher implements ModuleEventWatcher {
     private final AtomicReference<Event.Type[]> eventTypeArrayRef
             = new AtomicReference<Event.Type[]>();
 
+    private final AtomicReference<Capture[]> captureArrayRef
+            = new AtomicReference<Capture[]>();
+
+    private final AtomicReference<Sampling> samplingRef
+            = new AtomicReference<Sampling>();
+
     public EventWatchCondition getEventWatchCondition() {
         return eventWatchConditionRef.get();
     }
@@ -38,6 +47,14 @@ public class MockForBuilderModuleEventWatcher implements ModuleEventWatcher {
         return eventTypeArrayRef.get();
     }
 
+    public Capture[] getCaptureArray() {
+        return captureArrayRef.get();
+    }
+
+    public Sampling getSampling() {
+        return samplingRef.get();
+    }
+
     @Override
     public int watch(Filter filter, EventListener listener, Progress progress, Event.Type... eventType) {
         return 0;
@@ -53,6 +70,13 @@ public class MockForBuilderModuleEventWatcher implements ModuleEventWatcher {
         eventWatchConditionRef.set(condition);
         eventListenerRef.set(listener);
         progressRef.set(progress);
+        if (condition instanceof ExtEventWatchCondition) {
+            captureArrayRef.set(((ExtEventWatchCondition) condition).getCaptureArray());
+            samplingRef.set(((ExtEventWatchCondition) condition).getSampling());
+        } else {
+            captureArrayRef.set(Capture.values());
+            samplingRef.set(Sampling.ALL);
+        }
         eventTypeArrayRef.set(eventType);
         return 0;
     }
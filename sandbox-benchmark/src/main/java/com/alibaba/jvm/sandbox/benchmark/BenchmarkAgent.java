@@ -0,0 +1,33 @@
+package com.alibaba.jvm.sandbox.benchmark;
+
+import java.lang.instrument.Instrumentation;
+
+/**
+ * 基准测试代理
+ * <p>
+ * 由{@link BenchmarkLauncher}以-javaagent的方式挂载到被测JVM，只负责保存{@link Instrumentation}，
+ * 供需要真实类形变的基准测试使用
+ * </p>
+ */
+public class BenchmarkAgent {
+
+    private static volatile Instrumentation inst;
+
+    public static void premain(String featureString, Instrumentation inst) {
+        BenchmarkAgent.inst = inst;
+    }
+
+    /**
+     * 获取被测JVM的Instrumentation
+     *
+     * @return Instrumentation
+     * @throws IllegalStateException 基准测试没有通过{@link BenchmarkLauncher}启动
+     */
+    public static Instrumentation getInstrumentation() {
+        if (null == inst) {
+            throw new IllegalStateException("instrumentation not found, please launch benchmark by BenchmarkLauncher.");
+        }
+        return inst;
+    }
+
+}
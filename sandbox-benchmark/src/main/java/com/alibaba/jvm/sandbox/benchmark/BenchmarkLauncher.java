@@ -0,0 +1,54 @@
+package com.alibaba.jvm.sandbox.benchmark;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * 基准测试启动器
+ * <p>
+ * Spy的包路径以java.开头，只能由BootstrapClassLoader加载，
+ * 所以这里需要将sandbox-spy追加到被测JVM的BootClassPath中，其余参数与JMH命令行保持一致。
+ * 同时将benchmarks.jar自身作为{@link BenchmarkAgent}挂载，供需要Instrumentation的基准测试使用
+ * </p>
+ * <pre>
+ * mvn -pl sandbox-benchmark -am package -DskipTests
+ * java -jar sandbox-benchmark/target/benchmarks.jar [JMH参数]
+ * </pre>
+ */
+public class BenchmarkLauncher {
+
+    /**
+     * 指定sandbox-spy的jar路径，默认为benchmarks.jar同级的lib/sandbox-spy.jar
+     */
+    private static final String PROP_SPY_JAR = "sandbox.benchmark.spy.jar";
+
+    private static File getBenchmarkJarFile() {
+        return new File(
+                BenchmarkLauncher.class.getProtectionDomain().getCodeSource().getLocation().getPath()
+        );
+    }
+
+    private static String getSpyJarPath() {
+        final String spyJarPath = System.getProperty(PROP_SPY_JAR);
+        if (null != spyJarPath) {
+            return spyJarPath;
+        }
+        return new File(getBenchmarkJarFile().getParentFile(), "lib" + File.separator + "sandbox-spy.jar").getAbsolutePath();
+    }
+
+    public static void main(String... args) throws Exception {
+        final Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .jvmArgsAppend(
+                        "-Xbootclasspath/a:" + getSpyJarPath(),
+                        "-javaagent:" + getBenchmarkJarFile().getAbsolutePath()
+                )
+                .build();
+        new Runner(options).run();
+    }
+
+}
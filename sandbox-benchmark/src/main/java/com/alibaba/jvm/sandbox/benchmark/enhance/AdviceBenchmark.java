@@ -0,0 +1,96 @@
+package com.alibaba.jvm.sandbox.benchmark.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.ext.Advice;
+import com.alibaba.jvm.sandbox.api.listener.ext.AdviceAdapterListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
+import com.alibaba.jvm.sandbox.benchmark.enhance.target.Calculator;
+import com.alibaba.jvm.sandbox.benchmark.enhance.target.Operation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+
+/**
+ * 通知监听器的基准测试
+ * <p>
+ * 在当前进程中增强{@link Calculator#apply(int, int)}，由{@link AdviceListener}接收通知，
+ * 对比每次调用的耗时与内存分配(gc.alloc.rate.norm)
+ * </p>
+ * <ul>
+ * <li>tracing：plain为BEFORE/RETURN/THROWS通知；withCall为再加上apply()中调用add()的CALL通知</li>
+ * </ul>
+ * <pre>
+ * java -jar sandbox-benchmark/target/benchmarks.jar AdviceBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AdviceBenchmark {
+
+    private static final String NAMESPACE = "benchmark";
+
+    @Param({"plain", "withCall"})
+    private String tracing;
+
+    private Operation operation;
+
+    // 让通知中读取的数据不会被优化掉
+    private int consumed;
+
+    private int a = 1000;
+    private int b = 2000;
+
+    private static Event.Type[] toEventTypes(final String tracing) {
+        if ("plain".equals(tracing)) {
+            return new Event.Type[]{BEFORE, RETURN, THROWS};
+        } else if ("withCall".equals(tracing)) {
+            return new Event.Type[]{BEFORE, RETURN, THROWS, CALL_BEFORE, CALL_RETURN, CALL_THROWS};
+        }
+        throw new IllegalArgumentException("illegal tracing: " + tracing);
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        operation = (Operation) WeavingHelper.weave(
+                NAMESPACE,
+                Calculator.class,
+                new String[]{"apply"},
+                new AdviceAdapterListener(new AdviceListener() {
+
+                    @Override
+                    protected void before(Advice advice) {
+                        consumed += advice.getParameterArray().length;
+                    }
+
+                    @Override
+                    protected void afterReturning(Advice advice) {
+                        consumed += null == advice.getReturnObj() ? 0 : 1;
+                    }
+
+                    @Override
+                    protected void beforeCall(Advice advice, int callLineNum, String callJavaClassName, String callJavaMethodName, String callJavaMethodDesc) {
+                        consumed += callJavaClassName.length();
+                    }
+
+                    @Override
+                    protected void afterCallReturning(Advice advice, int callLineNum, String callJavaClassName, String callJavaMethodName, String callJavaMethodDesc) {
+                        consumed += callJavaMethodName.length();
+                    }
+
+                }),
+                toEventTypes(tracing)
+        ).newInstance();
+    }
+
+    @Benchmark
+    public int intercept() {
+        return operation.apply(a, b) + consumed;
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.alibaba.jvm.sandbox.benchmark.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.AsyncAdapterListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.AsyncConfig;
+import com.alibaba.jvm.sandbox.api.listener.ext.AsyncEventListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.EventSnapshot;
+import com.alibaba.jvm.sandbox.benchmark.enhance.target.Calculator;
+import com.alibaba.jvm.sandbox.benchmark.enhance.target.Operation;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+
+/**
+ * 异步事件监听器的基准测试
+ * <p>
+ * 在当前进程中增强{@link Calculator#apply(int, int)}，监听器处理每个事件都要消耗一段CPU，
+ * 对比同步处理与异步处理时业务调用的耗时与内存分配(gc.alloc.rate.norm)，
+ * 异步处理时一并输出每轮写入、处理和丢弃的事件数
+ * </p>
+ * <ul>
+ * <li>dispatch：sync为{@link EventListener}在业务线程中处理；async为{@link AsyncEventListener}在消费线程中处理，缓冲区写满时丢弃</li>
+ * </ul>
+ * <pre>
+ * java -jar sandbox-benchmark/target/benchmarks.jar AsyncListenerBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AsyncListenerBenchmark {
+
+    private static final String NAMESPACE = "benchmark";
+
+    // 监听器处理每个事件消耗的CPU
+    private static final long WORK_TOKENS = 100;
+
+    @Param({"sync", "async"})
+    private String dispatch;
+
+    private Operation operation;
+
+    private AsyncAdapterListener asyncAdapterListener;
+
+    private int a = 1000;
+    private int b = 2000;
+
+    /**
+     * 异步事件计数器，只统计本轮测量期间的增量
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class AsyncCounter {
+
+        public long published;
+        public long consumed;
+        public long dropped;
+
+        private AsyncAdapterListener listener;
+        private long beginPublished;
+        private long beginConsumed;
+        private long beginDropped;
+
+        @Setup(Level.Iteration)
+        public void begin(final AsyncListenerBenchmark benchmark) {
+            published = consumed = dropped = 0;
+            listener = benchmark.asyncAdapterListener;
+            if (null != listener) {
+                beginPublished = listener.getPublishedCount();
+                beginConsumed = listener.getConsumedCount();
+                beginDropped = listener.getDroppedCount();
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void end() {
+            if (null != listener) {
+                published = listener.getPublishedCount() - beginPublished;
+                consumed = listener.getConsumedCount() - beginConsumed;
+                dropped = listener.getDroppedCount() - beginDropped;
+            }
+        }
+
+    }
+
+    private EventListener toEventListener(final String dispatch) {
+        if ("sync".equals(dispatch)) {
+            return new EventListener() {
+                @Override
+                public void onEvent(Event event) {
+                    Blackhole.consumeCPU(WORK_TOKENS);
+                }
+            };
+        } else if ("async".equals(dispatch)) {
+            return asyncAdapterListener = new AsyncAdapterListener(new AsyncEventListener() {
+                @Override
+                protected void onEvent(EventSnapshot snapshot) {
+                    Blackhole.consumeCPU(WORK_TOKENS);
+                }
+            }, AsyncConfig.DEFAULT);
+        }
+        throw new IllegalArgumentException("illegal dispatch: " + dispatch);
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        operation = (Operation) WeavingHelper.weave(
+                NAMESPACE,
+                Calculator.class,
+                new String[]{"apply"},
+                toEventListener(dispatch),
+                BEFORE, RETURN, THROWS
+        ).newInstance();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (null != asyncAdapterListener) {
+            asyncAdapterListener.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int intercept(final AsyncCounter counter) {
+        return operation.apply(a, b);
+    }
+
+}
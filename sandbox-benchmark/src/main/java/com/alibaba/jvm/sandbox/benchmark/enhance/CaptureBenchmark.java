@@ -0,0 +1,84 @@
+package com.alibaba.jvm.sandbox.benchmark.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Capture;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.benchmark.enhance.target.Calculator;
+import com.alibaba.jvm.sandbox.benchmark.enhance.target.Operation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+
+/**
+ * 现场数据采集的基准测试
+ * <p>
+ * 在当前进程中增强{@link Calculator#apply(int, int)}并埋入BEFORE/RETURN/THROWS事件，
+ * 对比采集全部现场数据和什么都不采集时每次调用的耗时与内存分配(gc.alloc.rate.norm)。
+ * 参数取在Integer缓存之外，采集时参数和返回值的装箱都会产生分配
+ * </p>
+ * <ul>
+ * <li>capture：all为采集参数、触发对象和返回值；none为什么都不采集</li>
+ * <li>listener：noop为空的EventListener；frozen为冻结后的空监听器</li>
+ * </ul>
+ * <pre>
+ * java -jar sandbox-benchmark/target/benchmarks.jar CaptureBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CaptureBenchmark {
+
+    private static final String NAMESPACE = "benchmark";
+
+    @Param({"all", "none"})
+    private String capture;
+
+    @Param({"noop", "frozen"})
+    private String listener;
+
+    private Operation operation;
+
+    private int a = 1000;
+    private int b = 2000;
+
+    private static Capture[] toCaptures(final String capture) {
+        if ("all".equals(capture)) {
+            return Capture.values();
+        } else if ("none".equals(capture)) {
+            return new Capture[0];
+        }
+        throw new IllegalArgumentException("illegal capture: " + capture);
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        final EventListener eventListener = new EventListener() {
+            @Override
+            public void onEvent(Event event) {
+            }
+        };
+        operation = (Operation) WeavingHelper.weave(
+                NAMESPACE,
+                Calculator.class,
+                new String[]{"apply"},
+                eventListener,
+                toCaptures(capture),
+                BEFORE, RETURN, THROWS
+        ).newInstance();
+        if ("frozen".equals(listener)) {
+            WeavingHelper.frozen(eventListener);
+        }
+    }
+
+    @Benchmark
+    public int intercept() {
+        return operation.apply(a, b);
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.alibaba.jvm.sandbox.benchmark.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.event.ReturnEvent;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.benchmark.enhance.target.Calculator;
+import com.alibaba.jvm.sandbox.benchmark.enhance.target.Operation;
+import com.alibaba.jvm.sandbox.core.util.SandboxReflectUtils;
+import com.alibaba.jvm.sandbox.core.util.UnsafeUtils;
+import org.openjdk.jmh.annotations.*;
+import sun.misc.Unsafe;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.RETURN;
+
+/**
+ * RETURN事件回收的基准测试
+ * <p>
+ * {@link #reflection()}和{@link #unsafe()}对比单次清理{@link ReturnEvent#object}的开销，
+ * 前者为原先规避#130的反射写入，后者为缓存偏移量后的volatile写入；
+ * {@link #intercept()}为只监听RETURN事件时一次完整拦截的开销
+ * </p>
+ * <pre>
+ * java -jar sandbox-benchmark/target/benchmarks.jar EventRecyclingBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventRecyclingBenchmark {
+
+    private static final String NAMESPACE = "benchmark";
+
+    private final ReturnEvent returnEvent = new ReturnEvent(1000, 1000, null);
+
+    private Unsafe unsafe;
+    private long objectFieldInReturnEventOffset;
+    private Operation operation;
+
+    @Setup
+    public void setup() throws Exception {
+        unsafe = UnsafeUtils.getUnsafe();
+        objectFieldInReturnEventOffset = unsafe.objectFieldOffset(ReturnEvent.class.getDeclaredField("object"));
+        operation = (Operation) WeavingHelper.weave(
+                NAMESPACE,
+                Calculator.class,
+                new String[]{"apply"},
+                new EventListener() {
+                    @Override
+                    public void onEvent(Event event) {
+                    }
+                },
+                RETURN
+        ).newInstance();
+    }
+
+    @Benchmark
+    public ReturnEvent reflection() {
+        SandboxReflectUtils.unCaughtSetClassDeclaredJavaFieldValue(ReturnEvent.class, "object", returnEvent, null);
+        return returnEvent;
+    }
+
+    @Benchmark
+    public ReturnEvent unsafe() {
+        unsafe.putObjectVolatile(returnEvent, objectFieldInReturnEventOffset, null);
+        return returnEvent;
+    }
+
+    @Benchmark
+    public int intercept() {
+        return operation.apply(1, 2);
+    }
+
+}
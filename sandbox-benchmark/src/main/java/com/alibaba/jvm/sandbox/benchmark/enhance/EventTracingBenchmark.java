@@ -0,0 +1,70 @@
+package com.alibaba.jvm.sandbox.benchmark.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Capture;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.benchmark.enhance.target.Calculator;
+import com.alibaba.jvm.sandbox.benchmark.enhance.target.Operation;
+import com.alibaba.jvm.sandbox.core.CoreConfigure;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+
+/**
+ * 事件链路跟踪开关的基准测试
+ * <p>
+ * 增强后的方法每次调用都会经过Spy、EventListenerHandler到达一个空监听器，
+ * 对比event.tracing.enable开启和关闭时的耗时，配合{@code -prof gc}观察每次调用的内存分配(gc.alloc.rate.norm)
+ * </p>
+ * <ul>
+ * <li>capture=none：空监听器不采集任何现场数据，事件链路本身的分配，跟踪关闭时应为0 B/op</li>
+ * <li>capture=all：采集全部现场数据，增强代码为参数分配的Object[]仍然计入，与跟踪开关无关</li>
+ * </ul>
+ * <pre>
+ * java -jar sandbox-benchmark/target/benchmarks.jar EventTracingBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventTracingBenchmark {
+
+    private static final String NAMESPACE = "benchmark";
+
+    @Param({"false", "true"})
+    private boolean tracing;
+
+    @Param({"none", "all"})
+    private String capture;
+
+    private Operation operation;
+
+    @Setup
+    public void setup() throws Exception {
+        // 跟踪开关在首次使用时确定，必须先于增强和调用完成配置
+        CoreConfigure.toConfigure(String.format(";namespace=%s;event.tracing.enable=%s;", NAMESPACE, tracing), null);
+        operation = (Operation) WeavingHelper.weave(
+                NAMESPACE,
+                Calculator.class,
+                new String[]{"apply"},
+                new EventListener() {
+                    @Override
+                    public void onEvent(Event event) {
+                    }
+                },
+                "all".equals(capture) ? Capture.values() : new Capture[0],
+                BEFORE, RETURN, THROWS
+        ).newInstance();
+    }
+
+    @Benchmark
+    public int intercept() {
+        return operation.apply(1, 2);
+    }
+
+}
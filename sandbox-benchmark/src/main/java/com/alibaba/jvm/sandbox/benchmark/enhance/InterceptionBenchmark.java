@@ -0,0 +1,114 @@
+package com.alibaba.jvm.sandbox.benchmark.enhance;
+
+import com.alibaba.jvm.sandbox.api.ProcessController;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.AdviceAdapterListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
+import com.alibaba.jvm.sandbox.benchmark.enhance.target.Calculator;
+import com.alibaba.jvm.sandbox.benchmark.enhance.target.Operation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+
+/**
+ * 拦截链路的基准测试
+ * <p>
+ * 在当前进程中增强{@link Calculator#apply(int, int)}，测量Spy → EventListenerHandler → 监听器的完整往返耗时，
+ * 作为每次沙箱升级给线上应用带来的额外开销的度量。{@link #origin()}为未增强的对照组。
+ * 配合{@code -prof gc}观察每次调用的内存分配(gc.alloc.rate.norm)
+ * </p>
+ * <ul>
+ * <li>events：埋入的事件组合，BEFORE；THROWS；BEFORE+RETURN+THROWS；再加上CALL_*；再加上LINE</li>
+ * <li>listener：noop为空的EventListener；advice为空的AdviceListener；frozen为冻结后的空监听器；process-control为在BEFORE中立即返回的监听器</li>
+ * </ul>
+ * <pre>
+ * java -jar sandbox-benchmark/target/benchmarks.jar InterceptionBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InterceptionBenchmark {
+
+    private static final String NAMESPACE = "benchmark";
+
+    @Param({"BEFORE", "THROWS", "BEFORE_RETURN_THROWS", "CALL", "LINE"})
+    private String events;
+
+    @Param({"noop", "advice", "frozen", "process-control"})
+    private String listener;
+
+    private final Operation origin = new Calculator();
+
+    private Operation operation;
+
+    private static Event.Type[] toEventTypes(final String events) {
+        if ("BEFORE".equals(events)) {
+            return new Event.Type[]{BEFORE};
+        } else if ("THROWS".equals(events)) {
+            return new Event.Type[]{THROWS};
+        } else if ("BEFORE_RETURN_THROWS".equals(events)) {
+            return new Event.Type[]{BEFORE, RETURN, THROWS};
+        } else if ("CALL".equals(events)) {
+            return new Event.Type[]{BEFORE, RETURN, THROWS, CALL_BEFORE, CALL_RETURN, CALL_THROWS};
+        } else if ("LINE".equals(events)) {
+            return new Event.Type[]{BEFORE, RETURN, THROWS, LINE};
+        }
+        throw new IllegalArgumentException("illegal events: " + events);
+    }
+
+    private static EventListener toEventListener(final String listener) {
+        if ("noop".equals(listener)
+                || "frozen".equals(listener)) {
+            return new EventListener() {
+                @Override
+                public void onEvent(Event event) {
+                }
+            };
+        } else if ("advice".equals(listener)) {
+            return new AdviceAdapterListener(new AdviceListener());
+        } else if ("process-control".equals(listener)) {
+            return new EventListener() {
+                @Override
+                public void onEvent(Event event) throws Throwable {
+                    if (event.type == BEFORE) {
+                        ProcessController.returnImmediately(0);
+                    }
+                }
+            };
+        }
+        throw new IllegalArgumentException("illegal listener: " + listener);
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        final EventListener eventListener = toEventListener(listener);
+        operation = (Operation) WeavingHelper.weave(
+                NAMESPACE,
+                Calculator.class,
+                new String[]{"apply"},
+                eventListener,
+                toEventTypes(events)
+        ).newInstance();
+        if ("frozen".equals(listener)) {
+            WeavingHelper.frozen(eventListener);
+        }
+    }
+
+    @Benchmark
+    public int intercept() {
+        return operation.apply(1, 2);
+    }
+
+    @Benchmark
+    public int origin() {
+        return origin.apply(1, 2);
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.alibaba.jvm.sandbox.benchmark.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Capture;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.BehaviorStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+
+/**
+ * 大类少量行为增强的基准测试
+ * <p>
+ * 对若干个方法数较多的JDK类，只织入其中{@link #matchedBehaviors}个行为(all为全部行为)，
+ * 结果为每秒完成增强的类数量，配合{@code -prof gc}可以观察每个类增强的内存分配
+ * </p>
+ * <pre>
+ * java -jar sandbox-benchmark/target/benchmarks.jar LargeClassWeaveBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LargeClassWeaveBenchmark {
+
+    private static final String[] LARGE_CLASS_NAMES = new String[]{
+            "java.util.concurrent.ConcurrentHashMap",
+            "java.util.HashMap",
+            "java.util.Formatter",
+            "java.util.regex.Pattern",
+            "java.text.DecimalFormat",
+            "java.math.BigDecimal",
+            "javax.swing.JComponent",
+            "javax.swing.JTable"
+    };
+
+    private static final Event.Type[] EVENT_TYPES = new Event.Type[]{BEFORE, RETURN, THROWS};
+
+    @Param({"1", "2", "all"})
+    private String matchedBehaviors;
+
+    private final ClassLoader loader = ClassLoader.getSystemClassLoader();
+    private final EventEnhancer enhancer = new EventEnhancer();
+    private final List<byte[]> byteCodes = new ArrayList<byte[]>();
+    private final List<Set<String>> signCodes = new ArrayList<Set<String>>();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        final int limit = "all".equals(matchedBehaviors)
+                ? Integer.MAX_VALUE
+                : Integer.parseInt(matchedBehaviors);
+        for (final String className : LARGE_CLASS_NAMES) {
+            final InputStream is = loader.getResourceAsStream(className.replace('.', '/') + ".class");
+            final byte[] byteCode;
+            try {
+                byteCode = IOUtils.toByteArray(is);
+            } finally {
+                IOUtils.closeQuietly(is);
+            }
+
+            // 从最后声明的行为开始取，避免只命中构造函数
+            final List<BehaviorStructure> behaviorStructures = new ArrayList<BehaviorStructure>(
+                    ClassStructureFactory.createClassStructure(byteCode, loader).getBehaviorStructures()
+            );
+            Collections.reverse(behaviorStructures);
+            final Set<String> classSignCodes = new HashSet<String>();
+            for (final BehaviorStructure behaviorStructure : behaviorStructures) {
+                if (classSignCodes.size() >= limit) {
+                    break;
+                }
+                if (!behaviorStructure.getAccess().isAbstract()
+                        && !behaviorStructure.getAccess().isNative()) {
+                    classSignCodes.add(behaviorStructure.getSignCode());
+                }
+            }
+            byteCodes.add(byteCode);
+            signCodes.add(classSignCodes);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void weave(final Blackhole blackhole) {
+        for (int index = 0; index < LARGE_CLASS_NAMES.length; index++) {
+            blackhole.consume(enhancer.toByteCodeArray(
+                    loader,
+                    byteCodes.get(index),
+                    signCodes.get(index),
+                    "benchmark",
+                    1,
+                    EVENT_TYPES,
+                    Capture.values()
+            ));
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.alibaba.jvm.sandbox.benchmark.enhance;
+
+import com.alibaba.jvm.sandbox.api.ProcessController;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.benchmark.enhance.target.Calculator;
+import com.alibaba.jvm.sandbox.benchmark.enhance.target.Operation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+
+/**
+ * 流程控制的基准测试
+ * <p>
+ * 在当前进程中增强{@link Calculator#apply(int, int)}，模拟MOCK和故障注入模块在每次调用的BEFORE事件中改变流程，
+ * 对比每次调用的耗时与内存分配(gc.alloc.rate.norm)
+ * </p>
+ * <ul>
+ * <li>control：return为立即返回MOCK值；throws为立即抛出预先构造的异常</li>
+ * </ul>
+ * <pre>
+ * java -jar sandbox-benchmark/target/benchmarks.jar ProcessControlBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcessControlBenchmark {
+
+    private static final String NAMESPACE = "benchmark";
+
+    // MOCK值不在Integer缓存范围内，但只装箱一次
+    private static final Integer MOCK_RESPOND = 100000;
+
+    private static final RuntimeException MOCK_EXCEPTION = new RuntimeException("mock");
+
+    @Param({"return", "throws"})
+    private String control;
+
+    private Operation operation;
+
+    private int a = 1000;
+    private int b = 2000;
+
+    @Setup
+    public void setup() throws Exception {
+        final boolean isReturn = "return".equals(control);
+        operation = (Operation) WeavingHelper.weave(
+                NAMESPACE,
+                Calculator.class,
+                new String[]{"apply"},
+                new EventListener() {
+                    @Override
+                    public void onEvent(Event event) throws Throwable {
+                        if (isReturn) {
+                            ProcessController.returnImmediately(MOCK_RESPOND);
+                        } else {
+                            ProcessController.throwsImmediately(MOCK_EXCEPTION);
+                        }
+                    }
+                },
+                BEFORE, RETURN, THROWS
+        ).newInstance();
+    }
+
+    @Benchmark
+    public int intercept() {
+        try {
+            return operation.apply(a, b);
+        } catch (RuntimeException cause) {
+            return -1;
+        }
+    }
+
+}
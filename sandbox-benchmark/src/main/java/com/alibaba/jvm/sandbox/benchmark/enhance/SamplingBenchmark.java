@@ -0,0 +1,88 @@
+package com.alibaba.jvm.sandbox.benchmark.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.event.Sampling;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.benchmark.enhance.target.Calculator;
+import com.alibaba.jvm.sandbox.benchmark.enhance.target.Operation;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+
+/**
+ * 调用采样的基准测试
+ * <p>
+ * 在当前进程中增强{@link Calculator#apply(int, int)}并埋入BEFORE/RETURN/THROWS事件，
+ * 对比不同采样方式下每次调用的耗时与内存分配(gc.alloc.rate.norm)
+ * </p>
+ * <ul>
+ * <li>sampling：all为不采样；oneIn100为每100次采样一次；budget为每秒最多采样1000次</li>
+ * </ul>
+ * <pre>
+ * java -jar sandbox-benchmark/target/benchmarks.jar SamplingBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SamplingBenchmark {
+
+    private static final String NAMESPACE = "benchmark";
+
+    private static final Event.Type[] EVENT_TYPES = new Event.Type[]{BEFORE, RETURN, THROWS};
+
+    @Param({"all", "oneIn100", "budget"})
+    private String sampling;
+
+    private Operation operation;
+
+    private int a = 1000;
+    private int b = 2000;
+
+    private static Sampling toSampling(final String sampling) {
+        if ("all".equals(sampling)) {
+            return Sampling.ALL;
+        } else if ("oneIn100".equals(sampling)) {
+            return Sampling.oneIn(100);
+        } else if ("budget".equals(sampling)) {
+            return Sampling.budget(1000, 1, TimeUnit.SECONDS);
+        }
+        throw new IllegalArgumentException("illegal sampling: " + sampling);
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        final EventListener eventListener = new EventListener() {
+            @Override
+            public void onEvent(Event event) {
+            }
+        };
+        operation = (Operation) WeavingHelper.weave(
+                NAMESPACE,
+                Calculator.class,
+                new String[]{"apply"},
+                eventListener,
+                EVENT_TYPES
+        ).newInstance();
+
+        // 以采样方式重新激活监听器
+        EventListenerHandler.getSingleton().active(
+                WeavingHelper.getListenerId(eventListener),
+                eventListener,
+                EVENT_TYPES,
+                toSampling(sampling)
+        );
+    }
+
+    @Benchmark
+    public int intercept() {
+        return operation.apply(a, b);
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.alibaba.jvm.sandbox.benchmark.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Capture;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.benchmark.enhance.target.Calculator;
+import com.alibaba.jvm.sandbox.benchmark.enhance.target.Operation;
+import com.alibaba.jvm.sandbox.core.CoreConfigure;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+
+/**
+ * 间谍调用方式的基准测试
+ * <p>
+ * 在当前进程中增强{@link Calculator#apply(int, int)}并埋入BEFORE/RETURN/THROWS事件，
+ * 对比invokestatic和invokedynamic两种方式调用间谍时每次调用的耗时与内存分配(gc.alloc.rate.norm)。
+ * 冻结后invokestatic方式仍然要进入间谍查找处理器，invokedynamic方式的调用点已经被切换为空操作
+ * </p>
+ * <ul>
+ * <li>weaving：static为invokestatic方式；indy为invokedynamic方式</li>
+ * <li>listener：noop为空的EventListener；frozen为冻结后的空监听器</li>
+ * </ul>
+ * <pre>
+ * java -jar sandbox-benchmark/target/benchmarks.jar SpyCallSiteBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpyCallSiteBenchmark {
+
+    private static final String NAMESPACE = "benchmark";
+
+    @Param({"static", "indy"})
+    private String weaving;
+
+    @Param({"noop", "frozen"})
+    private String listener;
+
+    private Operation operation;
+
+    private int a = 1000;
+    private int b = 2000;
+
+    @Setup
+    public void setup() throws Exception {
+        // 调用点按增强代码中的命名空间下标切换，必须先完成命名空间和event.indy.enable的配置
+        CoreConfigure.toConfigure(String.format(";namespace=%s;event.indy.enable=%s;", NAMESPACE, "indy".equals(weaving)), null);
+        final EventListener eventListener = new EventListener() {
+            @Override
+            public void onEvent(Event event) {
+            }
+        };
+        operation = (Operation) WeavingHelper.weave(
+                NAMESPACE,
+                Calculator.class,
+                new String[]{"apply"},
+                eventListener,
+                Capture.values(),
+                "indy".equals(weaving),
+                BEFORE, RETURN, THROWS
+        ).newInstance();
+        if ("frozen".equals(listener)) {
+            WeavingHelper.frozen(eventListener);
+        }
+    }
+
+    @Benchmark
+    public int intercept() {
+        return operation.apply(a, b);
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.alibaba.jvm.sandbox.benchmark.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Capture;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.core.util.CommonSuperClassResolver;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.BehaviorStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureCache;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.objectweb.asm.ClassReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static org.objectweb.asm.Opcodes.ACC_INTERFACE;
+
+/**
+ * 类增强的基准测试
+ * <p>
+ * 从JDK和三方库(Guava、Commons、ASM)中各取{@link #CORPUS_SIZE}个真实的类作为语料，
+ * 对所有方法织入BEFORE/RETURN/THROWS事件，结果为每秒完成增强的类数量。
+ * 每次操作前清空类结构和共同父类的缓存，模拟一个批次的重新渲染
+ * </p>
+ * <pre>
+ * java -jar sandbox-benchmark/target/benchmarks.jar WeaveBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WeaveBenchmark {
+
+    private static final int CORPUS_SIZE = 1000;
+
+    private static final Event.Type[] EVENT_TYPES = new Event.Type[]{BEFORE, RETURN, THROWS};
+
+    @Param({"jdk", "library"})
+    private String corpus;
+
+    private final ClassLoader loader = ClassLoader.getSystemClassLoader();
+    private final EventEnhancer enhancer = new EventEnhancer();
+    private final List<byte[]> byteCodes = new ArrayList<byte[]>();
+    private final List<Set<String>> signCodes = new ArrayList<Set<String>>();
+
+    // 获取类所在的jar
+    private static JarFile getJarFile(final Class<?> clazz) throws Exception {
+        final URL url = clazz.getResource("/" + clazz.getName().replace('.', '/') + ".class");
+        if ("jar".equals(url.getProtocol())) {
+            return ((JarURLConnection) url.openConnection()).getJarFile();
+        }
+        return new JarFile(new File(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()));
+    }
+
+    private List<String> listClassResourceNames(final Class<?> anchor, final String... prefixes) throws Exception {
+        final List<String> names = new ArrayList<String>();
+        final Enumeration<JarEntry> entries = getJarFile(anchor).entries();
+        while (entries.hasMoreElements()) {
+            final String name = entries.nextElement().getName();
+            if (name.endsWith(".class")
+                    && !name.endsWith("package-info.class")
+                    && StringUtils.startsWithAny(name, prefixes)) {
+                names.add(name);
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        final List<String> names = "jdk".equals(corpus)
+                ? listClassResourceNames(Object.class, "java/util/", "java/io/", "java/net/", "java/text/", "javax/swing/")
+                : listClassResourceNames(ImmutableList.class, "com/google/common/", "org/apache/commons/", "org/objectweb/asm/");
+        for (final String name : names) {
+            if (byteCodes.size() >= CORPUS_SIZE) {
+                break;
+            }
+            final InputStream is = loader.getResourceAsStream(name);
+            if (null == is) {
+                continue;
+            }
+            final byte[] byteCode;
+            try {
+                byteCode = IOUtils.toByteArray(is);
+            } finally {
+                IOUtils.closeQuietly(is);
+            }
+            if ((new ClassReader(byteCode).getAccess() & ACC_INTERFACE) != 0) {
+                continue;
+            }
+            final Set<String> classSignCodes = new HashSet<String>();
+            for (final BehaviorStructure behaviorStructure : ClassStructureFactory.createClassStructure(byteCode, loader).getBehaviorStructures()) {
+                classSignCodes.add(behaviorStructure.getSignCode());
+            }
+            byteCodes.add(byteCode);
+            signCodes.add(classSignCodes);
+        }
+        if (byteCodes.size() < CORPUS_SIZE) {
+            throw new IllegalStateException("corpus too small: " + byteCodes.size());
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newBatch() {
+        ClassStructureCache.instance.setMaximumSize(ClassStructureCache.DEFAULT_MAXIMUM_SIZE);
+        CommonSuperClassResolver.clear();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void weave(final Blackhole blackhole) {
+        for (int index = 0; index < CORPUS_SIZE; index++) {
+            blackhole.consume(enhancer.toByteCodeArray(
+                    loader,
+                    byteCodes.get(index),
+                    signCodes.get(index),
+                    "benchmark",
+                    1,
+                    EVENT_TYPES,
+                    Capture.values()
+            ));
+        }
+    }
+
+}
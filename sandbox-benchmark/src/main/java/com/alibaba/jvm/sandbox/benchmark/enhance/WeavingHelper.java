@@ -0,0 +1,148 @@
+package com.alibaba.jvm.sandbox.benchmark.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Capture;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.util.SandboxReflectUtils;
+import com.alibaba.jvm.sandbox.core.util.SpyUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 在当前进程中增强目标类，与sandbox-core测试中的JvmHelper做法一致
+ * <p>
+ * 目标类的字节码经{@link EventEnhancer}增强后定义在一个新的ClassLoader中，
+ * 监听器直接激活在{@link EventListenerHandler}上，不经过模块管理
+ * </p>
+ */
+public class WeavingHelper {
+
+    // 监听器:事件处理器ID
+    private static final Map<EventListener, Integer> listenerIds = new IdentityHashMap<EventListener, Integer>();
+
+    /**
+     * 获取监听器的事件处理器ID，第一次获取时从{@link EventListenerHandler}中分配
+     *
+     * @param listener 事件监听器
+     * @return 事件处理器ID
+     */
+    public static int getListenerId(final EventListener listener) {
+        synchronized (listenerIds) {
+            Integer listenerId = listenerIds.get(listener);
+            if (null == listenerId) {
+                listenerIds.put(listener, listenerId = EventListenerHandler.getSingleton().allocateListenerId());
+            }
+            return listenerId;
+        }
+    }
+
+    /**
+     * 增强目标类
+     *
+     * @param namespace        命名空间
+     * @param targetClass      目标类
+     * @param javaMethodNames  需要增强的方法名
+     * @param listener         事件监听器
+     * @param eventTypes       需要埋入的事件类型
+     * @return 增强后的类
+     * @throws Exception 增强失败
+     */
+    public static Class<?> weave(final String namespace,
+                                 final Class<?> targetClass,
+                                 final String[] javaMethodNames,
+                                 final EventListener listener,
+                                 final Event.Type... eventTypes) throws Exception {
+        return weave(namespace, targetClass, javaMethodNames, listener, Capture.values(), eventTypes);
+    }
+
+    /**
+     * 增强目标类，只采集声明的现场数据
+     *
+     * @param namespace        命名空间
+     * @param targetClass      目标类
+     * @param javaMethodNames  需要增强的方法名
+     * @param listener         事件监听器
+     * @param captures         需要采集的现场数据
+     * @param eventTypes       需要埋入的事件类型
+     * @return 增强后的类
+     * @throws Exception 增强失败
+     */
+    public static Class<?> weave(final String namespace,
+                                 final Class<?> targetClass,
+                                 final String[] javaMethodNames,
+                                 final EventListener listener,
+                                 final Capture[] captures,
+                                 final Event.Type... eventTypes) throws Exception {
+        return weave(namespace, targetClass, javaMethodNames, listener, captures, false, eventTypes);
+    }
+
+    /**
+     * 增强目标类，可以选择以invokedynamic方式埋入事件探针
+     *
+     * @param namespace        命名空间
+     * @param targetClass      目标类
+     * @param javaMethodNames  需要增强的方法名
+     * @param listener         事件监听器
+     * @param captures         需要采集的现场数据
+     * @param isIndyEnable     是否以invokedynamic方式埋入事件探针
+     * @param eventTypes       需要埋入的事件类型
+     * @return 增强后的类
+     * @throws Exception 增强失败
+     */
+    public static Class<?> weave(final String namespace,
+                                 final Class<?> targetClass,
+                                 final String[] javaMethodNames,
+                                 final EventListener listener,
+                                 final Capture[] captures,
+                                 final boolean isIndyEnable,
+                                 final Event.Type... eventTypes) throws Exception {
+        SpyUtils.init(namespace);
+
+        final int listenerId = getListenerId(listener);
+        EventListenerHandler.getSingleton().active(listenerId, listener, eventTypes);
+
+        final Set<String> signCodes = new HashSet<String>();
+        for (final String javaMethodName : javaMethodNames) {
+            signCodes.add(targetClass.getName() + "#" + javaMethodName + "(int,int)");
+        }
+
+        final ClassLoader loader = new ClassLoader(targetClass.getClassLoader()) {
+        };
+        final byte[] byteCodes = new EventEnhancer(isIndyEnable).toByteCodeArray(
+                loader,
+                toByteArray(targetClass),
+                signCodes,
+                namespace,
+                listenerId,
+                eventTypes,
+                captures
+        );
+        return SandboxReflectUtils.defineClass(loader, targetClass.getName(), byteCodes);
+    }
+
+    /**
+     * 冻结监听器，冻结后增强代码仍然存在，但不再派发事件
+     *
+     * @param listener 事件监听器
+     */
+    public static void frozen(final EventListener listener) {
+        EventListenerHandler.getSingleton().frozen(getListenerId(listener));
+    }
+
+    private static byte[] toByteArray(final Class<?> clazz) throws Exception {
+        final InputStream is = clazz.getResourceAsStream("/" + clazz.getName().replace('.', '/') + ".class");
+        try {
+            return IOUtils.toByteArray(is);
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.alibaba.jvm.sandbox.benchmark.enhance.target;
+
+/**
+ * 被增强的目标类
+ */
+public class Calculator implements Operation {
+
+    @Override
+    public int apply(int a, int b) {
+        return add(a, b);
+    }
+
+    private int add(int a, int b) {
+        return a + b;
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.alibaba.jvm.sandbox.benchmark.enhance.target;
+
+/**
+ * 被测操作
+ * <p>
+ * 由AppClassLoader加载，基准测试通过它调用增强后的{@link Calculator}，避免反射调用的干扰
+ * </p>
+ */
+public interface Operation {
+
+    int apply(int a, int b);
+
+}
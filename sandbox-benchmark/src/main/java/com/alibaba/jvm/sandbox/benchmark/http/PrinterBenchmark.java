@@ -0,0 +1,101 @@
+package com.alibaba.jvm.sandbox.benchmark.http;
+
+import com.alibaba.jvm.sandbox.api.http.printer.ConcurrentLinkedQueuePrinter;
+import com.alibaba.jvm.sandbox.api.http.printer.Printer;
+import com.alibaba.jvm.sandbox.api.http.printer.RingBufferPrinter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文本输出的基准测试
+ * <p>
+ * 模拟debug-trace/debug-watch：多个业务线程并发输出，一个输出线程挂起在{@link Printer#waitingForBroken()}上写出文本，
+ * 对比业务线程每次输出的耗时
+ * </p>
+ * <ul>
+ * <li>printer：queue为{@link ConcurrentLinkedQueuePrinter}；ring为{@link RingBufferPrinter}</li>
+ * </ul>
+ * <pre>
+ * java -jar sandbox-benchmark/target/benchmarks.jar PrinterBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class PrinterBenchmark {
+
+    @Param({"queue", "ring"})
+    private String printer;
+
+    private Printer target;
+
+    private Thread waitingThread;
+
+    private String line = "`---+Tracing for : benchmark.target.Calculator.apply by main";
+
+    // 写出的文本直接丢弃，只计数
+    private static class CountingWriter extends Writer {
+
+        private long count;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Printer toPrinter(final String printer, final PrintWriter writer) {
+        if ("queue".equals(printer)) {
+            return new ConcurrentLinkedQueuePrinter(writer);
+        } else if ("ring".equals(printer)) {
+            return new RingBufferPrinter(writer);
+        }
+        throw new IllegalArgumentException("illegal printer: " + printer);
+    }
+
+    @Setup
+    public void setup() {
+        target = toPrinter(printer, new PrintWriter(new CountingWriter()));
+        waitingThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                target.waitingForBroken();
+            }
+        }, "printer-benchmark-waiting");
+        waitingThread.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        target.broken();
+        waitingThread.join();
+    }
+
+    @Benchmark
+    public Printer println() {
+        return target.println(line);
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.alibaba.jvm.sandbox.benchmark.manager;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.benchmark.BenchmarkAgent;
+import com.alibaba.jvm.sandbox.core.CoreModule;
+import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreLoadedClassDataSource;
+import com.alibaba.jvm.sandbox.core.manager.impl.DefaultModuleEventWatcher;
+import com.alibaba.jvm.sandbox.core.util.SandboxClassUtils;
+import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
+import org.apache.commons.io.FileUtils;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.BEFORE;
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * 批量类形变的基准测试
+ * <p>
+ * 生成指定数量的类并完成加载，测量一次完整的watch()+delete()耗时，以及期间JVM进入安全点的次数。
+ * reTransformBatchSize=1等价于原来的逐个形变。
+ * 单次操作耗时远大于迭代时长，所以每次迭代只会执行一次操作，safepoints即为单次watch()+delete()的安全点次数
+ * </p>
+ * <pre>
+ * java -jar sandbox-benchmark/target/benchmarks.jar ReTransformBenchmark -p classCount=1000
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 1, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 3, time = 1, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReTransformBenchmark {
+
+    private static final String TARGET_PACKAGE = "benchmark.target";
+
+    @Param({"1000", "5000", "20000"})
+    private int classCount;
+
+    @Param({"1", "64"})
+    private int reTransformBatchSize;
+
+    // 持有生成的类，避免被卸载
+    private List<Class<?>> targetClasses;
+
+    private DefaultModuleEventWatcher watcher;
+
+    /**
+     * 安全点计数器
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class SafepointCounter {
+
+        public long safepoints;
+
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        final Instrumentation inst = BenchmarkAgent.getInstrumentation();
+
+        // SANDBOX与被测类处在同一个ClassLoader中，需要提前加载形变入口用到的类，
+        // 否则这些类在形变过程中首次加载时会再次进入形变，导致重复定义
+        Class.forName(SandboxProtector.class.getName());
+        Class.forName(SandboxClassUtils.class.getName());
+
+        final String packageName = TARGET_PACKAGE + ".p" + classCount + "_" + reTransformBatchSize;
+        targetClasses = defineTargetClasses(packageName, classCount);
+        watcher = new DefaultModuleEventWatcher(
+                inst,
+                new DefaultCoreLoadedClassDataSource(inst, false),
+                new CoreModule("benchmark", null, null, null),
+                false,
+                "default",
+                reTransformBatchSize
+        );
+    }
+
+    @Benchmark
+    public int watchAndDelete(final SafepointCounter counter) throws Exception {
+        final long begin = getSafepointCount();
+        final int watchId = watcher.watch(
+                new NameRegexFilter(TARGET_PACKAGE.replace(".", "\\.") + "\\.p" + classCount + "_" + reTransformBatchSize + "\\..*", "call"),
+                new EventListener() {
+                    @Override
+                    public void onEvent(Event event) {
+
+                    }
+                },
+                BEFORE
+        );
+        watcher.delete(watchId);
+        counter.safepoints += getSafepointCount() - begin;
+        return watchId;
+    }
+
+    /*
+     * 生成并加载{@code count}个只包含一个call()方法的类
+     * 被测类必须由普通的URLClassLoader加载，com.alibaba.jvm.sandbox开头的ClassLoader所加载的类会被SANDBOX忽略
+     */
+    private static List<Class<?>> defineTargetClasses(final String packageName,
+                                                      final int count) throws Exception {
+        final File classPathDir = new File(System.getProperty("java.io.tmpdir"), "sandbox-benchmark-" + System.nanoTime());
+        final List<String> javaClassNames = new ArrayList<String>(count);
+        for (int index = 0; index < count; index++) {
+            final String javaClassName = packageName + ".Target" + index;
+            final String internalClassName = javaClassName.replace('.', '/');
+            FileUtils.writeByteArrayToFile(
+                    new File(classPathDir, internalClassName + ".class"),
+                    toByteCodeArray(internalClassName)
+            );
+            javaClassNames.add(javaClassName);
+        }
+        FileUtils.forceDeleteOnExit(classPathDir);
+
+        final ClassLoader loader = new URLClassLoader(
+                new URL[]{classPathDir.toURI().toURL()},
+                ReTransformBenchmark.class.getClassLoader()
+        );
+        final List<Class<?>> classes = new ArrayList<Class<?>>(count);
+        for (final String javaClassName : javaClassNames) {
+            // 需要完成类初始化，确保类已出现在JVM的已加载类列表中
+            classes.add(Class.forName(javaClassName, true, loader));
+        }
+        return classes;
+    }
+
+    private static byte[] toByteCodeArray(final String internalClassName) {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_6, ACC_PUBLIC | ACC_SUPER, internalClassName, null, "java/lang/Object", null);
+        final MethodVisitor init = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+        final MethodVisitor call = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, "call", "()I", null, null);
+        call.visitCode();
+        call.visitInsn(ICONST_1);
+        call.visitInsn(IRETURN);
+        call.visitMaxs(0, 0);
+        call.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /*
+     * 获取JVM启动以来进入安全点的次数，只有HotSpot才支持，其余JVM返回0
+     */
+    private static long getSafepointCount() {
+        try {
+            final Class<?> helperClass = Class.forName("sun.management.ManagementFactoryHelper");
+            final Object runtimeMBean = helperClass.getMethod("getHotspotRuntimeMBean").invoke(null);
+            final Method method = runtimeMBean.getClass().getMethod("getSafepointCount");
+            method.setAccessible(true);
+            return (Long) method.invoke(runtimeMBean);
+        } catch (Throwable cause) {
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.alibaba.jvm.sandbox.benchmark.spy;
+
+import java.com.alibaba.jvm.sandbox.spy.Spy;
+import java.com.alibaba.jvm.sandbox.spy.SpyHandler;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * sandbox-spy:1.3.3中基于分段锁实现的SelfCallBarrier
+ * <p>
+ * 原样保留用于和当前{@link Spy}的实现进行对比
+ * </p>
+ */
+public class LegacySpy {
+
+    private static final ConcurrentHashMap<String, SpyHandler> namespaceSpyHandlerMap
+            = new ConcurrentHashMap<String, SpyHandler>();
+
+    private static final SelfCallBarrier selfCallBarrier = new SelfCallBarrier();
+
+    public static void init(final String namespace,
+                            final SpyHandler spyHandler) {
+        namespaceSpyHandlerMap.putIfAbsent(namespace, spyHandler);
+    }
+
+    public static Spy.Ret spyMethodOnReturn(final Object object,
+                                            final String namespace,
+                                            final int listenerId) throws Throwable {
+        final Thread thread = Thread.currentThread();
+        if (selfCallBarrier.isEnter(thread)) {
+            return Spy.Ret.newInstanceForNone();
+        }
+        final SelfCallBarrier.Node node = selfCallBarrier.enter(thread);
+        try {
+            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            if (null == spyHandler) {
+                return Spy.Ret.newInstanceForNone();
+            }
+            return spyHandler.handleOnReturn(listenerId, object);
+        } finally {
+            selfCallBarrier.exit(thread, node);
+        }
+    }
+
+    static class SelfCallBarrier {
+
+        static class Node {
+            private final Thread thread;
+            private final ReentrantLock lock;
+            private Node pre;
+            private Node next;
+
+            Node(final Thread thread) {
+                this(thread, null);
+            }
+
+            Node(final Thread thread, final ReentrantLock lock) {
+                this.thread = thread;
+                this.lock = lock;
+            }
+
+        }
+
+        void delete(final Node node) {
+            node.pre.next = node.next;
+            if (null != node.next) {
+                node.next.pre = node.pre;
+            }
+            node.pre = (node.next = null);
+        }
+
+        void insert(final Node top, final Node node) {
+            if (null != top.next) {
+                top.next.pre = node;
+            }
+            node.next = top.next;
+            node.pre = top;
+            top.next = node;
+        }
+
+        static final int THREAD_LOCAL_ARRAY_LENGTH = 512;
+
+        final Node[] nodeArray = new Node[THREAD_LOCAL_ARRAY_LENGTH];
+
+        SelfCallBarrier() {
+            for (int i = 0; i < THREAD_LOCAL_ARRAY_LENGTH; i++) {
+                nodeArray[i] = new Node(null, new ReentrantLock());
+            }
+        }
+
+        int abs(int val) {
+            return val < 0
+                    ? val * -1
+                    : val;
+        }
+
+        boolean isEnter(Thread thread) {
+            final Node top = nodeArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
+            Node node = top;
+            try {
+                while (!top.lock.tryLock()) ;
+                while (null != node.next) {
+                    node = node.next;
+                    if (thread == node.thread) {
+                        return true;
+                    }
+                }
+                return false;
+            } finally {
+                top.lock.unlock();
+            }
+        }
+
+        Node enter(Thread thread) {
+            final Node top = nodeArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
+            final Node node = new Node(thread);
+            try {
+                while (!top.lock.tryLock()) ;
+                insert(top, node);
+            } finally {
+                top.lock.unlock();
+            }
+            return node;
+        }
+
+        void exit(Thread thread, Node node) {
+            final Node top = nodeArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
+            try {
+                while (!top.lock.tryLock()) ;
+                delete(node);
+            } finally {
+                top.lock.unlock();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.alibaba.jvm.sandbox.benchmark.spy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.com.alibaba.jvm.sandbox.spy.Spy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spy重入屏障的基准测试
+ * <p>
+ * 对比{@link LegacySpy}(分段锁)和{@link Spy}(线程本地标记)在不同并发线程数下一次完整Spy调用的开销
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public abstract class SelfCallBarrierBenchmark {
+
+    private static final String NAMESPACE = "benchmark";
+    private static final int LISTENER_ID = 1;
+
+    private int namespaceIndex;
+
+    @Setup
+    public void setup() {
+        final NoopSpyHandler spyHandler = new NoopSpyHandler();
+        Spy.init(NAMESPACE, spyHandler);
+        namespaceIndex = Spy.getNamespaceIndex(NAMESPACE);
+        LegacySpy.init(NAMESPACE, spyHandler);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Spy.clean(NAMESPACE);
+    }
+
+    @Benchmark
+    public Spy.Ret legacy() throws Throwable {
+        return LegacySpy.spyMethodOnReturn(null, NAMESPACE, LISTENER_ID);
+    }
+
+    @Benchmark
+    public Spy.Ret current() throws Throwable {
+        return Spy.spyMethodOnReturn(null, namespaceIndex, LISTENER_ID);
+    }
+
+    @Threads(1)
+    public static class Threads1 extends SelfCallBarrierBenchmark {
+    }
+
+    @Threads(8)
+    public static class Threads8 extends SelfCallBarrierBenchmark {
+    }
+
+    @Threads(64)
+    public static class Threads64 extends SelfCallBarrierBenchmark {
+    }
+
+    @Threads(512)
+    public static class Threads512 extends SelfCallBarrierBenchmark {
+    }
+
+}
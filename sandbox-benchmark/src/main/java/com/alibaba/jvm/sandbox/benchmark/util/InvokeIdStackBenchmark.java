@@ -0,0 +1,63 @@
+package com.alibaba.jvm.sandbox.benchmark.util;
+
+import com.alibaba.jvm.sandbox.core.util.collection.GaStack;
+import com.alibaba.jvm.sandbox.core.util.collection.ThreadUnsafeGaStack;
+import com.alibaba.jvm.sandbox.core.util.collection.ThreadUnsafeIntStack;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调用ID堆栈的基准测试
+ * <p>
+ * 模拟嵌套调用的跟踪：逐层压入调用ID，每层访问栈顶和栈底(对应RETURN/CALL/LINE事件取调用ID和调用过程ID)，再逐层弹出。
+ * 调用ID从1000开始递增，超出了Integer的缓存范围，
+ * 对比{@link ThreadUnsafeGaStack}(装箱)和{@link ThreadUnsafeIntStack}，配合{@code -prof gc}观察内存分配
+ * </p>
+ * <pre>
+ * java -jar sandbox-benchmark/target/benchmarks.jar InvokeIdStackBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InvokeIdStackBenchmark {
+
+    @Param({"1", "8", "32"})
+    private int deep;
+
+    private final GaStack<Integer> boxedStack = new ThreadUnsafeGaStack<Integer>();
+    private final ThreadUnsafeIntStack intStack = new ThreadUnsafeIntStack();
+
+    private int invokeIdSequencer = 1000;
+
+    @Benchmark
+    public int boxed() {
+        int sum = 0;
+        for (int index = 0; index < deep; index++) {
+            boxedStack.push(invokeIdSequencer++);
+            sum += boxedStack.peek() + boxedStack.peekLast();
+        }
+        while (!boxedStack.isEmpty()) {
+            sum += boxedStack.pop();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int primitive() {
+        int sum = 0;
+        for (int index = 0; index < deep; index++) {
+            intStack.push(invokeIdSequencer++);
+            sum += intStack.peek() + intStack.peekLast();
+        }
+        while (!intStack.isEmpty()) {
+            sum += intStack.pop();
+        }
+        return sum;
+    }
+
+}
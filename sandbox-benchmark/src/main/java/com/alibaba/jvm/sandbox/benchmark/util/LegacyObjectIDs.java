@@ -0,0 +1,125 @@
+package com.alibaba.jvm.sandbox.benchmark.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * sandbox-core:1.3.3中基于全局读写锁实现的ObjectIDs
+ * <p>
+ * 原样保留用于和当前{@link com.alibaba.jvm.sandbox.core.util.ObjectIDs}的实现进行对比
+ * </p>
+ */
+public class LegacyObjectIDs {
+
+    public static final int NULL_ID = 0;
+
+    private final AtomicInteger objectIDSequencer = new AtomicInteger(1000);
+
+    private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+
+    private final WeakHashMap<Object, Integer> objectIDMapping
+            = new WeakHashMap<Object, Integer>();
+
+    private final ReferenceQueue<Object> rQueue = new ReferenceQueue<Object>();
+    private final HashMap<Integer, IdentityWeakReference> identityObjectMapping
+            = new HashMap<Integer, IdentityWeakReference>();
+
+    public int identity(final Object object) {
+
+        if (null == object) {
+            return NULL_ID;
+        }
+
+        rwLock.readLock().lock();
+        try {
+            final Integer objectID = objectIDMapping.get(object);
+            if (null != objectID) {
+                return objectID;
+            }
+        } finally {
+            rwLock.readLock().unlock();
+            expungeIdentityObjectMapping();
+        }
+
+        rwLock.writeLock().lock();
+        try {
+            final Integer nextObjectID;
+            if (objectIDMapping.containsKey(object)) {
+                nextObjectID = objectIDMapping.get(object);
+            } else {
+                mapping(
+                        nextObjectID = objectIDSequencer.getAndIncrement(),
+                        object
+                );
+            }
+            return nextObjectID;
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    private void mapping(final Integer objectID,
+                         final Object object) {
+        rwLock.writeLock().lock();
+        try {
+            objectIDMapping.put(object, objectID);
+            identityObjectMapping.put(objectID, new IdentityWeakReference(objectID, object));
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    private void expungeIdentityObjectMapping() {
+        for (Object x; (x = rQueue.poll()) != null; ) {
+            synchronized (rQueue) {
+                rwLock.writeLock().lock();
+                try {
+                    identityObjectMapping.remove(((IdentityWeakReference) x).objectID);
+                } finally {
+                    rwLock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    public <T> T getObject(final int objectID) {
+
+        if (NULL_ID == objectID) {
+            return null;
+        }
+
+        rwLock.readLock().lock();
+        try {
+            final Object object;
+            final IdentityWeakReference reference = identityObjectMapping.get(objectID);
+            if (null != reference
+                    && null != (object = reference.get())) {
+                return (T) object;
+            } else {
+                return null;
+            }
+        } finally {
+            rwLock.readLock().unlock();
+            expungeIdentityObjectMapping();
+        }
+
+    }
+
+    private class IdentityWeakReference extends WeakReference<Object> {
+
+        private final Integer objectID;
+
+        private IdentityWeakReference(final Integer objectID,
+                                      final Object referent) {
+            super(referent, rQueue);
+            this.objectID = objectID;
+        }
+
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.alibaba.jvm.sandbox.benchmark.util;
+
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ObjectIDs的基准测试
+ * <p>
+ * 模拟织入和BEFORE事件的访问模式：少量稳定的ClassLoader和监听器，多个线程并发读取，
+ * 对比{@link LegacyObjectIDs}(全局读写锁)和{@link ObjectIDs}(无锁读)
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ObjectIDsBenchmark {
+
+    private static final int CLASSLOADER_COUNT = 4;
+    private static final int LISTENER_COUNT = 32;
+
+    private final LegacyObjectIDs legacyObjectIDs = new LegacyObjectIDs();
+
+    private ClassLoader[] classLoaders;
+    private Object[] listeners;
+    private int[] legacyClassLoaderIDs;
+    private int[] classLoaderIDs;
+
+    @Setup
+    public void setup() {
+        classLoaders = new ClassLoader[CLASSLOADER_COUNT];
+        legacyClassLoaderIDs = new int[CLASSLOADER_COUNT];
+        classLoaderIDs = new int[CLASSLOADER_COUNT];
+        for (int index = 0; index < CLASSLOADER_COUNT; index++) {
+            classLoaders[index] = new ClassLoader() {
+            };
+            legacyClassLoaderIDs[index] = legacyObjectIDs.identity(classLoaders[index]);
+            classLoaderIDs[index] = ObjectIDs.instance.identity(classLoaders[index]);
+        }
+        listeners = new Object[LISTENER_COUNT];
+        for (int index = 0; index < LISTENER_COUNT; index++) {
+            listeners[index] = new Object();
+            legacyObjectIDs.identity(listeners[index]);
+            ObjectIDs.instance.identity(listeners[index]);
+        }
+    }
+
+    /**
+     * 每个线程各自轮转访问的下标
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int index;
+
+        int next(final int length) {
+            if (++index >= length) {
+                index = 0;
+            }
+            return index;
+        }
+
+    }
+
+    @Benchmark
+    public int legacyIdentityClassLoader(final Cursor cursor) {
+        return legacyObjectIDs.identity(classLoaders[cursor.next(CLASSLOADER_COUNT)]);
+    }
+
+    @Benchmark
+    public int currentIdentityClassLoader(final Cursor cursor) {
+        return ObjectIDs.instance.identity(classLoaders[cursor.next(CLASSLOADER_COUNT)]);
+    }
+
+    @Benchmark
+    public int legacyIdentityListener(final Cursor cursor) {
+        return legacyObjectIDs.identity(listeners[cursor.next(LISTENER_COUNT)]);
+    }
+
+    @Benchmark
+    public int currentIdentityListener(final Cursor cursor) {
+        return ObjectIDs.instance.identity(listeners[cursor.next(LISTENER_COUNT)]);
+    }
+
+    @Benchmark
+    public ClassLoader legacyGetClassLoader(final Cursor cursor) {
+        return legacyObjectIDs.getObject(legacyClassLoaderIDs[cursor.next(CLASSLOADER_COUNT)]);
+    }
+
+    @Benchmark
+    public ClassLoader currentGetClassLoader(final Cursor cursor) {
+        return ObjectIDs.instance.getObject(classLoaderIDs[cursor.next(CLASSLOADER_COUNT)]);
+    }
+
+}
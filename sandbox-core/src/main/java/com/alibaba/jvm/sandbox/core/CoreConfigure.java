@@ -38,6 +38,18 @@ public class CoreConfigure {
 
     private static final String KEY_UNSAFE_ENABLE = "unsafe.enable";
 
+    private static final String KEY_RETRANSFORM_BATCH_SIZE = "retransform.batch.size";
+    private static final int DEFAULT_VAL_RETRANSFORM_BATCH_SIZE = 64;
+
+    private static final String KEY_MATCHING_PARALLELISM = "matching.parallelism";
+    private static final int DEFAULT_VAL_MATCHING_PARALLELISM = Math.min(4, Runtime.getRuntime().availableProcessors());
+    private static final String KEY_CLASS_STRUCTURE_CACHE_SIZE = "class.structure.cache.size";
+    private static final long DEFAULT_VAL_CLASS_STRUCTURE_CACHE_SIZE = 1024;
+
+    private static final String KEY_EVENT_TRACING_ENABLE = "event.tracing.enable";
+
+    private static final String KEY_EVENT_INDY_ENABLE = "event.indy.enable";
+
     // 受保护key数组，在保护key范围之内，以用户传递的配置为准，系统配置不允许覆盖
     private static final String[] PROTECT_KEY_ARRAY = {KEY_NAMESPACE, KEY_SANDBOX_HOME, KEY_LAUNCH_MODE, KEY_SERVER_IP, KEY_SERVER_PORT, KEY_SERVER_CHARSET};
 
@@ -287,6 +299,56 @@ public class CoreConfigure {
         return BooleanUtils.toBoolean(featureMap.get(KEY_UNSAFE_ENABLE));
     }
 
+    /**
+     * 获取每批重新渲染类的数量
+     * <p>同一批的类通过一次{@code Instrumentation#retransformClasses(Class[])}完成渲染，最小为1(逐个渲染)</p>
+     *
+     * @return retransform.batch.size
+     */
+    public int getReTransformBatchSize() {
+        return Math.max(1, NumberUtils.toInt(featureMap.get(KEY_RETRANSFORM_BATCH_SIZE), DEFAULT_VAL_RETRANSFORM_BATCH_SIZE));
+    }
+
+    /**
+     * 获取查找待渲染类时的匹配并行度
+     * <p>默认为CPU核数，但不超过4；最小为1(串行匹配)</p>
+     *
+     * @return matching.parallelism
+     */
+    public int getMatchingParallelism() {
+        return Math.max(1, NumberUtils.toInt(featureMap.get(KEY_MATCHING_PARALLELISM), DEFAULT_VAL_MATCHING_PARALLELISM));
+    }
+
+    /**
+     * 是否开启事件链路跟踪
+     * <p>开启后事件处理链路才会输出DEBUG日志，默认关闭</p>
+     *
+     * @return event.tracing.enable
+     */
+    public boolean isEnableEventTracing() {
+        return BooleanUtils.toBoolean(featureMap.get(KEY_EVENT_TRACING_ENABLE));
+    }
+
+    /**
+     * 是否以invokedynamic方式埋入事件探针
+     * <p>开启后冻结事件监听器时只需切换调用点，不必等待重新渲染，需要JDK7+，默认关闭</p>
+     *
+     * @return event.indy.enable
+     */
+    public boolean isEnableEventIndy() {
+        return BooleanUtils.toBoolean(featureMap.get(KEY_EVENT_INDY_ENABLE));
+    }
+
+    /**
+     * 获取类结构缓存的容量
+     * <p>匹配子类、接口和注解时需要读取父类等关联类的结构，这些结构会按ClassLoader缓存；最小为0(不缓存)</p>
+     *
+     * @return class.structure.cache.size
+     */
+    public long getClassStructureCacheSize() {
+        return Math.max(0, NumberUtils.toLong(featureMap.get(KEY_CLASS_STRUCTURE_CACHE_SIZE), DEFAULT_VAL_CLASS_STRUCTURE_CACHE_SIZE));
+    }
+
     /**
      * 获取沙箱安装目录
      *
@@ -5,8 +5,11 @@ import com.alibaba.jvm.sandbox.core.manager.CoreModuleManager;
 import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreLoadedClassDataSource;
 import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreModuleManager;
 import com.alibaba.jvm.sandbox.core.manager.impl.DefaultProviderManager;
+import com.alibaba.jvm.sandbox.core.manager.impl.LoadedClassIndex;
+import com.alibaba.jvm.sandbox.core.util.CommonSuperClassResolver;
 import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
 import com.alibaba.jvm.sandbox.core.util.SpyUtils;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureCache;
 
 import java.lang.instrument.Instrumentation;
 import java.util.ArrayList;
@@ -28,16 +31,22 @@ public class JvmSandbox {
     }
 
     private final CoreConfigure cfg;
+    private final Instrumentation inst;
+    private final LoadedClassIndex loadedClassIndex;
+    private final DefaultCoreLoadedClassDataSource classDataSource;
     private final CoreModuleManager coreModuleManager;
 
     public JvmSandbox(final CoreConfigure cfg,
                       final Instrumentation inst) {
         EventListenerHandler.getSingleton();
         this.cfg = cfg;
+        this.inst = inst;
+        this.loadedClassIndex = new LoadedClassIndex(inst);
+        this.classDataSource = new DefaultCoreLoadedClassDataSource(inst, cfg.isEnableUnsafe(), cfg.getMatchingParallelism(), loadedClassIndex);
         this.coreModuleManager = SandboxProtector.instance.protectProxy(CoreModuleManager.class, new DefaultCoreModuleManager(
                 cfg,
                 inst,
-                new DefaultCoreLoadedClassDataSource(inst, cfg.isEnableUnsafe()),
+                classDataSource,
                 new DefaultProviderManager(cfg)
         ));
 
@@ -47,6 +56,10 @@ public class JvmSandbox {
     private void init() {
         doEarlyLoadSandboxClass();
         SpyUtils.init(cfg.getNamespace());
+        ClassStructureCache.instance.setMaximumSize(cfg.getClassStructureCacheSize());
+
+        // 已加载类索引只需要感知新定义的类，不参与类的重新形变
+        inst.addTransformer(loadedClassIndex, false);
     }
 
     /**
@@ -79,9 +92,18 @@ public class JvmSandbox {
         // 卸载所有的模块
         coreModuleManager.unloadAll();
 
+        // 移除已加载类索引
+        inst.removeTransformer(loadedClassIndex);
+
+        // 关闭类匹配线程池
+        classDataSource.destroy();
+
         // 清理Spy
         SpyUtils.clean(cfg.getNamespace());
 
+        // 清理共同父类解析缓存
+        CommonSuperClassResolver.clear();
+
     }
 
 }
@@ -1,39 +1,83 @@
 package com.alibaba.jvm.sandbox.core.classloader;
 
+import com.alibaba.jvm.sandbox.core.util.SandboxThreadContext;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.lang.ref.WeakReference;
+
 /**
+ * 业务类加载器持有者
+ * <p>
+ * 当前业务ClassLoader保存在{@link SandboxThreadContext}中，{@link DelegateBizClassLoader}按业务ClassLoader缓存复用，
+ * 只在{@link RoutingURLClassLoader}需要回退到业务ClassLoader加载类时才会获取
+ * </p>
+ *
  * @author zhuangpeng
  * @since 2020/1/15
  */
 public class BusinessClassLoaderHolder {
 
-    private static final ThreadLocal<DelegateBizClassLoader> holder = new ThreadLocal<DelegateBizClassLoader>();
+    // 业务ClassLoader:DelegateBizClassLoader缓存
+    // 缓存是DelegateBizClassLoader唯一的持有者，Value必须是强引用，否则每次GC后都要重新创建；
+    // DelegateBizClassLoader只弱引用业务ClassLoader，不会阻止业务ClassLoader被回收，回收后对应的缓存项随之清除
+    private static final LoadingCache<ClassLoader, DelegateBizClassLoader> delegateBizClassLoaderCache
+            = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<ClassLoader, DelegateBizClassLoader>() {
+                @Override
+                public DelegateBizClassLoader load(ClassLoader classLoader) {
+                    return new DelegateBizClassLoader(classLoader);
+                }
+            });
 
     public static void setBussinessClassLoader(ClassLoader classLoader){
         if(null == classLoader){
             return;
         }
-        DelegateBizClassLoader delegateBizClassLoader = new DelegateBizClassLoader(classLoader);
-        holder.set(delegateBizClassLoader);
+        SandboxThreadContext.get().setBusinessClassLoader(classLoader);
     }
 
 
     public static void removeBussinessClassLoader(){
-        holder.remove();
+        SandboxThreadContext.get().setBusinessClassLoader(null);
     }
 
     public static DelegateBizClassLoader getBussinessClassLoader(){
-
-        return holder.get();
+        final ClassLoader classLoader = SandboxThreadContext.get().getBusinessClassLoader();
+        if (null == classLoader) {
+            return null;
+        }
+        return delegateBizClassLoaderCache.getUnchecked(classLoader);
     }
 
-    public static class DelegateBizClassLoader extends ClassLoader{
-        public DelegateBizClassLoader(ClassLoader parent){
-            super(parent);
+    /**
+     * 委托给业务ClassLoader加载类
+     * <p>
+     * 业务ClassLoader不能作为parent，parent是强引用，会让缓存中的业务ClassLoader永远无法被回收
+     * </p>
+     */
+    public static class DelegateBizClassLoader extends ClassLoader {
+
+        private final WeakReference<ClassLoader> bizClassLoaderRef;
+
+        public DelegateBizClassLoader(ClassLoader bizClassLoader) {
+            super(null);
+            this.bizClassLoaderRef = new WeakReference<ClassLoader>(bizClassLoader);
         }
 
         @Override
         public Class<?> loadClass(final String javaClassName, final boolean resolve) throws ClassNotFoundException {
-            return super.loadClass(javaClassName,resolve);
+            final ClassLoader bizClassLoader = bizClassLoaderRef.get();
+            if (null == bizClassLoader) {
+                throw new ClassNotFoundException(javaClassName);
+            }
+            final Class<?> clazz = bizClassLoader.loadClass(javaClassName);
+            if (resolve) {
+                resolveClass(clazz);
+            }
+            return clazz;
         }
     }
 }
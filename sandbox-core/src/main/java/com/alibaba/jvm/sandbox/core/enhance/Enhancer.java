@@ -1,5 +1,6 @@
 package com.alibaba.jvm.sandbox.core.enhance;
 
+import com.alibaba.jvm.sandbox.api.event.Capture;
 import com.alibaba.jvm.sandbox.api.event.Event;
 
 import java.util.Set;
@@ -19,13 +20,15 @@ public interface Enhancer {
      * @param namespace        命名空间
      * @param listenerId       需要埋入的监听器ID
      * @param eventTypeArray   需要配埋入的事件类型
-     * @return 增强后的字节码数组
+     * @param captures         需要采集的现场数据
+     * @return 增强后的字节码数组；如果没有行为被增强则返回源字节码数组
      */
     byte[] toByteCodeArray(ClassLoader loader,
                            byte[] srcByteCodeArray,
                            Set<String> signCodes,
                            String namespace,
                            int listenerId,
-                           Event.Type[] eventTypeArray);
+                           Event.Type[] eventTypeArray,
+                           Capture[] captures);
 
 }
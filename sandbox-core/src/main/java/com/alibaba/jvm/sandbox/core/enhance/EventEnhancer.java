@@ -1,5 +1,6 @@
 package com.alibaba.jvm.sandbox.core.enhance;
 
+import com.alibaba.jvm.sandbox.api.event.Capture;
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.core.enhance.weaver.asm.EventWeaver;
 import com.alibaba.jvm.sandbox.core.util.AsmUtils;
@@ -14,7 +15,7 @@ import java.io.IOException;
 import java.util.Set;
 
 import static org.apache.commons.io.FileUtils.writeByteArrayToFile;
-import static org.objectweb.asm.ClassReader.EXPAND_FRAMES;
+import static org.objectweb.asm.ClassReader.SKIP_FRAMES;
 import static org.objectweb.asm.ClassWriter.COMPUTE_FRAMES;
 import static org.objectweb.asm.ClassWriter.COMPUTE_MAXS;
 import static org.objectweb.asm.Opcodes.ASM7;
@@ -28,6 +29,23 @@ public class EventEnhancer implements Enhancer {
 
     private static final Logger logger = LoggerFactory.getLogger(EventEnhancer.class);
 
+    // 是否以invokedynamic方式埋入事件探针
+    private final boolean isIndyEnable;
+
+    public EventEnhancer() {
+        this(false);
+    }
+
+    /**
+     * 构造事件代码增强器
+     *
+     * @param isIndyEnable 是否以invokedynamic方式埋入事件探针，
+     *                     只对JDK7+版本的类生效，低版本的类依旧以invokestatic方式埋入
+     */
+    public EventEnhancer(final boolean isIndyEnable) {
+        this.isIndyEnable = isIndyEnable;
+    }
+
     /**
      * 创建ClassWriter for asm
      *
@@ -92,21 +110,30 @@ public class EventEnhancer implements Enhancer {
                                   final Set<String> signCodes,
                                   final String namespace,
                                   final int listenerId,
-                                  final Event.Type[] eventTypeArray) {
+                                  final Event.Type[] eventTypeArray,
+                                  final Capture[] captures) {
         // 返回增强后字节码
         final ClassReader cr = new ClassReader(byteCodeArray);
         final ClassWriter cw = createClassWriter(targetClassLoader, cr);
         final int targetClassLoaderObjectID = ObjectIDs.instance.identity(targetClassLoader);
-        cr.accept(
-                new EventWeaver(
-                        ASM7, cw, namespace, listenerId,
-                        targetClassLoaderObjectID,
-                        cr.getClassName(),
-                        signCodes,
-                        eventTypeArray
-                ),
-                EXPAND_FRAMES
+        final EventWeaver weaver = new EventWeaver(
+                ASM7, cw, namespace, listenerId,
+                targetClassLoaderObjectID,
+                cr.getClassName(),
+                signCodes,
+                eventTypeArray,
+                captures,
+                isIndyEnable
         );
+
+        // 未改写的行为由ASM原样拷贝，改写的行为由ClassWriter重新计算栈帧，
+        // 所以原有的栈帧都用不上，直接跳过以免展开
+        cr.accept(weaver, SKIP_FRAMES);
+
+        // 没有行为被改写则返回原字节码
+        if (!weaver.isRewritten()) {
+            return byteCodeArray;
+        }
         return dumpClassIfNecessary(cr.getClassName(), cw.toByteArray());
     }
 
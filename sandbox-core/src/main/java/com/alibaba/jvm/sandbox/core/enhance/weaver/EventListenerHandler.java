@@ -4,25 +4,22 @@ import com.alibaba.jvm.sandbox.api.ProcessControlException;
 import com.alibaba.jvm.sandbox.api.event.BeforeEvent;
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.event.InvokeEvent;
+import com.alibaba.jvm.sandbox.api.event.Sampling;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
-import com.alibaba.jvm.sandbox.core.classloader.BusinessClassLoaderHolder;
 import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
-import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
+import com.alibaba.jvm.sandbox.core.util.SandboxThreadContext;
+import com.alibaba.jvm.sandbox.core.util.SandboxTracing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.com.alibaba.jvm.sandbox.spy.Spy;
 import java.com.alibaba.jvm.sandbox.spy.SpyHandler;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.BitSet;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.alibaba.jvm.sandbox.api.event.Event.Type.IMMEDIATELY_RETURN;
 import static com.alibaba.jvm.sandbox.api.event.Event.Type.IMMEDIATELY_THROWS;
-import static com.alibaba.jvm.sandbox.core.util.SandboxReflectUtils.isInterruptEventHandler;
 import static java.com.alibaba.jvm.sandbox.spy.Spy.Ret.newInstanceForNone;
-import static java.com.alibaba.jvm.sandbox.spy.Spy.Ret.newInstanceForThrows;
-import static org.apache.commons.lang3.ArrayUtils.contains;
 import static org.apache.commons.lang3.StringUtils.join;
 
 /**
@@ -38,9 +35,102 @@ public class EventListenerHandler implements SpyHandler {
     // private final Sequencer invokeIdSequencer = new Sequencer();
     private final AtomicInteger invokeIdSequencer = new AtomicInteger(1000);
 
-    // 全局处理器ID:处理器映射集合
-    private final Map<Integer/*LISTENER_ID*/, EventProcessor> mappingOfEventProcessor
-            = new ConcurrentHashMap<Integer, EventProcessor>();
+    // 全局处理器集合，以处理器ID为下标
+    // 注册和取消时整体替换(写时复制)，事件派发只需一次数组访问
+    private volatile EventProcessor[] eventProcessors = new EventProcessor[0];
+
+    // 已分配的处理器ID，每个观察占用一个，删除观察后回收复用，数组的长度不会超过同时存在的观察数
+    private final BitSet allocatedListenerIds = new BitSet();
+
+    // 已分配的线程上下文槽位，每个事件处理器占用一个，冻结后回收复用
+    private final BitSet allocatedSlotIndexes = new BitSet();
+
+    private int allocateSlotIndex() {
+        final int slotIndex = allocatedSlotIndexes.nextClearBit(0);
+        allocatedSlotIndexes.set(slotIndex);
+        return slotIndex;
+    }
+
+    private void releaseSlotIndex(final int slotIndex) {
+        SandboxThreadContext.releaseSlot(slotIndex);
+        allocatedSlotIndexes.clear(slotIndex);
+    }
+
+    /**
+     * 分配事件处理器ID
+     * <p>
+     * 处理器ID会被织入增强代码中，只能在观察删除、增强代码还原之后通过{@link #releaseListenerId(int)}回收
+     * </p>
+     *
+     * @return 事件处理器ID
+     */
+    public synchronized int allocateListenerId() {
+        final int listenerId = allocatedListenerIds.nextClearBit(0);
+        allocatedListenerIds.set(listenerId);
+        return listenerId;
+    }
+
+    /**
+     * 回收事件处理器ID
+     *
+     * @param listenerId 事件处理器ID
+     */
+    public synchronized void releaseListenerId(final int listenerId) {
+        if (listenerId < 0) {
+            return;
+        }
+        final EventProcessor exist = replaceEventProcessor(listenerId, null);
+        if (null != exist) {
+            releaseSlotIndex(exist.slotIndex);
+        }
+        allocatedListenerIds.clear(listenerId);
+        shrinkEventProcessors();
+    }
+
+    // 末尾的处理器ID都已回收时，缩短处理器数组
+    private void shrinkEventProcessors() {
+        final EventProcessor[] current = eventProcessors;
+        int length = current.length;
+        while (length > 0
+                && null == current[length - 1]
+                && !allocatedListenerIds.get(length - 1)) {
+            length--;
+        }
+        if (length < current.length) {
+            final EventProcessor[] replace = new EventProcessor[length];
+            System.arraycopy(current, 0, replace, 0, length);
+            eventProcessors = replace;
+        }
+    }
+
+    // 替换处理器，返回被替换的处理器
+    private EventProcessor replaceEventProcessor(final int listenerId, final EventProcessor processor) {
+        final EventProcessor[] current = eventProcessors;
+        final EventProcessor exist = listenerId < current.length
+                ? current[listenerId]
+                : null;
+        if (null == exist && null == processor) {
+            return null;
+        }
+        final EventProcessor[] replace = new EventProcessor[Math.max(current.length, listenerId + 1)];
+        System.arraycopy(current, 0, replace, 0, current.length);
+        replace[listenerId] = processor;
+        eventProcessors = replace;
+        return exist;
+    }
+
+    /**
+     * 获取事件处理器
+     *
+     * @param listenerId 事件处理器ID
+     * @return 事件处理器，如果尚未注册则返回null
+     */
+    private EventProcessor getEventProcessor(final int listenerId) {
+        final EventProcessor[] current = eventProcessors;
+        return listenerId >= 0 && listenerId < current.length
+                ? current[listenerId]
+                : null;
+    }
 
     /**
      * 注册事件处理器
@@ -52,11 +142,37 @@ public class EventListenerHandler implements SpyHandler {
     public void active(final int listenerId,
                        final EventListener listener,
                        final Event.Type[] eventTypes) {
-        mappingOfEventProcessor.put(listenerId, new EventProcessor(listenerId, listener, eventTypes));
-        logger.info("activated listener[id={};target={};] event={}",
+        active(listenerId, listener, eventTypes, Sampling.ALL);
+    }
+
+    /**
+     * 注册事件处理器，只处理被采样的调用
+     *
+     * @param listenerId 事件监听器ID
+     * @param listener   事件监听器
+     * @param eventTypes 监听事件集合
+     * @param sampling   调用采样
+     */
+    public synchronized void active(final int listenerId,
+                                    final EventListener listener,
+                                    final Event.Type[] eventTypes,
+                                    final Sampling sampling) {
+        if (listenerId < 0) {
+            throw new IllegalArgumentException("illegal listener id: " + listenerId);
+        }
+        final EventProcessor exist = replaceEventProcessor(
+                listenerId,
+                new EventProcessor(listenerId, allocateSlotIndex(), listener, eventTypes, sampling)
+        );
+        if (null != exist) {
+            releaseSlotIndex(exist.slotIndex);
+        }
+        SpyCallSiteSwitcher.active(listenerId);
+        logger.info("activated listener[id={};target={};] event={};sampling={};",
                 listenerId,
                 listener,
-                join(eventTypes, ",")
+                join(eventTypes, ","),
+                sampling
         );
     }
 
@@ -65,8 +181,11 @@ public class EventListenerHandler implements SpyHandler {
      *
      * @param listenerId 事件处理器ID
      */
-    public void frozen(int listenerId) {
-        final EventProcessor processor = mappingOfEventProcessor.remove(listenerId);
+    public synchronized void frozen(int listenerId) {
+        final EventProcessor processor = listenerId < 0
+                ? null
+                : replaceEventProcessor(listenerId, null);
+        SpyCallSiteSwitcher.frozen(listenerId);
         if (null == processor) {
             logger.debug("ignore frozen listener={}, because not found.", listenerId);
             return;
@@ -77,36 +196,41 @@ public class EventListenerHandler implements SpyHandler {
                 processor.listener
         );
 
-        // processor.clean();
+        // 回收各线程中该事件处理器的处理单元
+        releaseSlotIndex(processor.slotIndex);
     }
 
     /**
      * 调用出发事件处理&调用执行流程控制
      *
+     * @param context    线程上下文
      * @param listenerId 处理器ID
      * @param processId  调用过程ID
      * @param invokeId   调用ID
      * @param event      调用事件
      * @param processor  事件处理器
+     * @param process    处理单元
      * @return 处理返回结果
      * @throws Throwable 当出现未知异常时,且事件处理器为中断流程事件时抛出
      */
-    private Spy.Ret handleEvent(final int listenerId,
+    private Spy.Ret handleEvent(final SandboxThreadContext context,
+                                final int listenerId,
                                 final int processId,
                                 final int invokeId,
                                 final Event event,
-                                final EventProcessor processor) throws Throwable {
+                                final EventProcessor processor,
+                                final EventProcessor.Process process) throws Throwable {
         // 获取事件监听器
         final EventListener listener = processor.listener;
 
         // 如果当前事件不在事件监听器处理列表中，则直接返回，不处理事件
-        if (!contains(processor.eventTypes, event.type)) {
+        if (!processor.isListening(event.type)) {
             return newInstanceForNone();
         }
 
         // 调用事件处理
         try {
-            if (logger.isDebugEnabled()) {
+            if (SandboxTracing.isEnabled && logger.isDebugEnabled()) {
                 logger.debug("on-event: event|{}|{}|{}|{}",
                         event.type,
                         processId,
@@ -120,20 +244,24 @@ public class EventListenerHandler implements SpyHandler {
         // 代码执行流程变更
         catch (ProcessControlException pce) {
 
-            final EventProcessor.Process process = processor.processRef.get();
-
+            // 流程控制异常由线程复用，取出后立即归还
             final ProcessControlException.State state = pce.getState();
-            logger.debug("on-event: event|{}|{}|{}|{}, process-changed: {}. isIgnoreProcessEvent={};",
-                    event.type,
-                    processId,
-                    invokeId,
-                    listenerId,
-                    state,
-                    pce.isIgnoreProcessEvent()
-            );
+            final Object respond = pce.getRespond();
+            final boolean isIgnoreProcessEvent = pce.isIgnoreProcessEvent();
+            pce.recycle();
+            if (SandboxTracing.isEnabled) {
+                logger.debug("on-event: event|{}|{}|{}|{}, process-changed: {}. isIgnoreProcessEvent={};",
+                        event.type,
+                        processId,
+                        invokeId,
+                        listenerId,
+                        state,
+                        isIgnoreProcessEvent
+                );
+            }
 
             // 如果流程控制要求忽略后续处理所有事件，则需要在此处进行标记
-            if (pce.isIgnoreProcessEvent()) {
+            if (isIgnoreProcessEvent) {
                 process.markIgnoreProcess();
             }
 
@@ -143,16 +271,18 @@ public class EventListenerHandler implements SpyHandler {
                 case RETURN_IMMEDIATELY: {
 
                     // 如果已经禁止后续返回任何事件了，则不进行后续的操作
-                    if (pce.isIgnoreProcessEvent()) {
-                        logger.debug("on-event: event|{}|{}|{}|{}, ignore immediately-return-event, isIgnored.",
-                                event.type,
-                                processId,
-                                invokeId,
-                                listenerId
-                        );
+                    if (isIgnoreProcessEvent) {
+                        if (SandboxTracing.isEnabled) {
+                            logger.debug("on-event: event|{}|{}|{}|{}, ignore immediately-return-event, isIgnored.",
+                                    event.type,
+                                    processId,
+                                    invokeId,
+                                    listenerId
+                            );
+                        }
                     } else {
                         // 补偿立即返回事件
-                        compensateProcessControlEvent(pce, processor, process, event);
+                        compensateProcessControlEvent(state, respond, processor, process, event);
                     }
 
                     // 如果是在BEFORE中立即返回，则后续不会再有RETURN事件产生
@@ -162,23 +292,25 @@ public class EventListenerHandler implements SpyHandler {
                     }
 
                     // 让流程立即返回
-                    return Spy.Ret.newInstanceForReturn(pce.getRespond());
+                    return context.reuseRetForReturn(respond);
 
                 }
 
                 // 立即抛出异常
                 case THROWS_IMMEDIATELY: {
 
-                    final Throwable throwable = (Throwable) pce.getRespond();
+                    final Throwable throwable = (Throwable) respond;
 
                     // 如果已经禁止后续返回任何事件了，则不进行后续的操作
-                    if (pce.isIgnoreProcessEvent()) {
-                        logger.debug("on-event: event|{}|{}|{}|{}, ignore immediately-throws-event, isIgnored.",
-                                event.type,
-                                processId,
-                                invokeId,
-                                listenerId
-                        );
+                    if (isIgnoreProcessEvent) {
+                        if (SandboxTracing.isEnabled) {
+                            logger.debug("on-event: event|{}|{}|{}|{}, ignore immediately-throws-event, isIgnored.",
+                                    event.type,
+                                    processId,
+                                    invokeId,
+                                    listenerId
+                            );
+                        }
                     } else {
 
                         // 如果是在BEFORE中立即抛出，则后续不会再有THROWS事件产生
@@ -193,11 +325,11 @@ public class EventListenerHandler implements SpyHandler {
                         }
 
                         // 补偿立即抛出事件
-                        compensateProcessControlEvent(pce, processor, process, event);
+                        compensateProcessControlEvent(state, respond, processor, process, event);
                     }
 
                     // 让流程立即抛出
-                    return Spy.Ret.newInstanceForThrows(throwable);
+                    return context.reuseRetForThrows(throwable);
 
                 }
 
@@ -215,7 +347,7 @@ public class EventListenerHandler implements SpyHandler {
 
             // 如果当前事件处理器是可中断的事件处理器,则对外抛出UnCaughtException
             // 中断当前方法
-            if (isInterruptEventHandler(listener.getClass())) {
+            if (processor.isInterrupted) {
                 throw throwable;
             }
 
@@ -237,11 +369,11 @@ public class EventListenerHandler implements SpyHandler {
 
     // 补偿事件
     // 随着历史版本的演进，一些事件已经过期，但为了兼容API，需要在这里进行补偿
-    private void compensateProcessControlEvent(ProcessControlException pce, EventProcessor processor, EventProcessor.Process process, Event event) {
+    private void compensateProcessControlEvent(ProcessControlException.State state, Object respond, EventProcessor processor, EventProcessor.Process process, Event event) {
 
         // 核对是否需要补偿，如果目标监听器没监听过这类事件，则不需要进行补偿
         if (!(event instanceof InvokeEvent)
-                || !contains(processor.eventTypes, event.type)) {
+                || !processor.isListening(event.type)) {
             return;
         }
 
@@ -249,19 +381,19 @@ public class EventListenerHandler implements SpyHandler {
         final Event compensateEvent;
 
         // 补偿立即返回事件
-        if (pce.getState() == ProcessControlException.State.RETURN_IMMEDIATELY
-                && contains(processor.eventTypes, IMMEDIATELY_RETURN)) {
+        if (state == ProcessControlException.State.RETURN_IMMEDIATELY
+                && processor.isListening(IMMEDIATELY_RETURN)) {
             compensateEvent = process
                     .getEventFactory()
-                    .makeImmediatelyReturnEvent(iEvent.processId, iEvent.invokeId, pce.getRespond());
+                    .makeImmediatelyReturnEvent(iEvent.processId, iEvent.invokeId, respond);
         }
 
         // 补偿立即抛出事件
-        else if (pce.getState() == ProcessControlException.State.THROWS_IMMEDIATELY
-                && contains(processor.eventTypes, IMMEDIATELY_THROWS)) {
+        else if (state == ProcessControlException.State.THROWS_IMMEDIATELY
+                && processor.isListening(IMMEDIATELY_THROWS)) {
             compensateEvent = process
                     .getEventFactory()
-                    .makeImmediatelyThrowsEvent(iEvent.processId, iEvent.invokeId, (Throwable) pce.getRespond());
+                    .makeImmediatelyThrowsEvent(iEvent.processId, iEvent.invokeId, (Throwable) respond);
         }
 
         // 异常情况不补偿
@@ -270,13 +402,15 @@ public class EventListenerHandler implements SpyHandler {
         }
 
         try {
-            logger.debug("compensate-event: event|{}|{}|{}|{} when ori-event:{}",
-                    compensateEvent.type,
-                    iEvent.processId,
-                    iEvent.invokeId,
-                    processor.listenerId,
-                    event.type
-            );
+            if (SandboxTracing.isEnabled) {
+                logger.debug("compensate-event: event|{}|{}|{}|{} when ori-event:{}",
+                        compensateEvent.type,
+                        iEvent.processId,
+                        iEvent.invokeId,
+                        processor.listenerId,
+                        event.type
+                );
+            }
             processor.listener.onEvent(compensateEvent);
         } catch (Throwable cause) {
             logger.warn("compensate-event: event|{}|{}|{}|{} when ori-event:{} occur error.",
@@ -306,26 +440,47 @@ public class EventListenerHandler implements SpyHandler {
     public Spy.Ret handleOnBefore(int listenerId, int targetClassLoaderObjectID, Object[] argumentArray, String javaClassName, String javaMethodName, String javaMethodDesc, Object target) throws Throwable {
 
         // 在守护区内产生的事件不需要响应
-        if (SandboxProtector.instance.isInProtecting()) {
-            logger.debug("listener={} is in protecting, ignore processing before-event", listenerId);
+        final SandboxThreadContext context = SandboxThreadContext.get();
+        if (context.isInProtecting()) {
+            if (SandboxTracing.isEnabled) {
+                logger.debug("listener={} is in protecting, ignore processing before-event", listenerId);
+            }
             return newInstanceForNone();
         }
 
         // 获取事件处理器
-        final EventProcessor processor = mappingOfEventProcessor.get(listenerId);
+        final EventProcessor processor = getEventProcessor(listenerId);
 
         // 如果尚未注册,则直接返回,不做任何处理
         if (null == processor) {
-            logger.debug("listener={} is not activated, ignore processing before-event.", listenerId);
+            if (SandboxTracing.isEnabled) {
+                logger.debug("listener={} is not activated, ignore processing before-event.", listenerId);
+            }
             return newInstanceForNone();
         }
 
         // 获取调用跟踪信息
-        final EventProcessor.Process process = processor.processRef.get();
+        final EventProcessor.Process process = processor.getProcess(context);
+
+        // 采样在产生事件之前决定
+        // 跟踪调用堆栈时只在调用过程开始时采样，未被采样的调用过程只记录嵌套深度，不入栈也不产生过程中的任何事件
+        if (processor.isSampling) {
+            if (processor.isTracingInvoke) {
+                if (process.isInUnsampledProcess()
+                        || (process.isEmptyStack() && !processor.isSampled(process))) {
+                    process.enterUnsampled();
+                    return newInstanceForNone();
+                }
+            } else if (!processor.isSampled(process)) {
+                return newInstanceForNone();
+            }
+        }
 
         // 如果当前处理ID被忽略，则立即返回
         if (process.isIgnoreProcess()) {
-            logger.debug("listener={} is marked ignore process!", listenerId);
+            if (SandboxTracing.isEnabled) {
+                logger.debug("listener={} is marked ignore process!", listenerId);
+            }
             return newInstanceForNone();
         }
 
@@ -338,7 +493,9 @@ public class EventListenerHandler implements SpyHandler {
 
         final ClassLoader javaClassLoader = ObjectIDs.instance.getObject(targetClassLoaderObjectID);
         //放置业务类加载器
-        BusinessClassLoaderHolder.setBussinessClassLoader(javaClassLoader);
+        if (null != javaClassLoader) {
+            context.setBusinessClassLoader(javaClassLoader);
+        }
         final BeforeEvent event = process.getEventFactory().makeBeforeEvent(
                 processId,
                 invokeId,
@@ -350,50 +507,84 @@ public class EventListenerHandler implements SpyHandler {
                 argumentArray
         );
         try {
-            return handleEvent(listenerId, processId, invokeId, event, processor);
+            return handleEvent(context, listenerId, processId, invokeId, event, processor, process);
         } finally {
             process.getEventFactory().returnEvent(event);
+            // 不跟踪调用堆栈时没有RETURN/THROWS事件来出栈，BEFORE事件自成一次调用过程
+            // 在BEFORE中立即返回或抛出时已经出栈
+            // 同样也没有RETURN/THROWS事件来清理业务类加载器
+            if (!processor.isTracingInvoke) {
+                if (!process.isEmptyStack()) {
+                    process.popInvokeId();
+                }
+                context.setBusinessClassLoader(null);
+            }
         }
     }
 
     @Override
     public Spy.Ret handleOnThrows(int listenerId, Throwable throwable) throws Throwable {
-        try{
-            return handleOnEnd(listenerId, throwable, false);
-        }finally {
-            BusinessClassLoaderHolder.removeBussinessClassLoader();
+        final SandboxThreadContext context = SandboxThreadContext.get();
+        try {
+            return handleOnEnd(context, listenerId, throwable, false);
+        } finally {
+            context.setBusinessClassLoader(null);
         }
     }
 
     @Override
     public Spy.Ret handleOnReturn(int listenerId, Object object) throws Throwable {
-        try{
-            return handleOnEnd(listenerId, object, true);
-        }finally {
-            BusinessClassLoaderHolder.removeBussinessClassLoader();
+        final SandboxThreadContext context = SandboxThreadContext.get();
+        try {
+            return handleOnEnd(context, listenerId, object, true);
+        } finally {
+            context.setBusinessClassLoader(null);
         }
     }
 
 
-    private Spy.Ret handleOnEnd(final int listenerId,
+    private Spy.Ret handleOnEnd(final SandboxThreadContext context,
+                                final int listenerId,
                                 final Object object,
                                 final boolean isReturn) throws Throwable {
 
         // 在守护区内产生的事件不需要响应
-        if (SandboxProtector.instance.isInProtecting()) {
-            logger.debug("listener={} is in protecting, ignore processing {}-event", listenerId, isReturn ? "return" : "throws");
+        if (context.isInProtecting()) {
+            if (SandboxTracing.isEnabled) {
+                logger.debug("listener={} is in protecting, ignore processing {}-event", listenerId, isReturn ? "return" : "throws");
+            }
             return newInstanceForNone();
         }
 
-        final EventProcessor wrap = mappingOfEventProcessor.get(listenerId);
+        final EventProcessor wrap = getEventProcessor(listenerId);
 
         // 如果尚未注册,则直接返回,不做任何处理
         if (null == wrap) {
-            logger.debug("listener={} is not activated, ignore processing return-event|throws-event.", listenerId);
+            if (SandboxTracing.isEnabled) {
+                logger.debug("listener={} is not activated, ignore processing return-event|throws-event.", listenerId);
+            }
             return newInstanceForNone();
         }
 
-        final EventProcessor.Process process = wrap.processRef.get();
+        final EventProcessor.Process process = wrap.getProcess(context);
+
+        // 不跟踪调用堆栈时没有BEFORE事件入栈，RETURN/THROWS事件自成一次调用过程
+        // 入栈会重置调用过程的标记，所以要先核对异常是否来自于ImmediatelyException
+        if (!wrap.isTracingInvoke) {
+            if (!isReturn && process.rollingIsExceptionFromImmediately()) {
+                return context.reuseRetForThrows((Throwable) object);
+            }
+            if (wrap.isSampling && !wrap.isSampled(process)) {
+                return newInstanceForNone();
+            }
+            process.pushInvokeId(invokeIdSequencer.getAndIncrement());
+        }
+
+        // 未被采样的调用过程，与BEFORE中记录的嵌套深度对齐
+        else if (process.isInUnsampledProcess()) {
+            process.exitUnsampled();
+            return newInstanceForNone();
+        }
 
         // 如果当前调用过程信息堆栈是空的,说明
         // 1. BEFORE/RETURN错位
@@ -406,7 +597,7 @@ public class EventListenerHandler implements SpyHandler {
         // 如果异常来自于ImmediatelyException，则忽略处理直接返回抛异常
         final boolean isExceptionFromImmediately = !isReturn && process.rollingIsExceptionFromImmediately();
         if (isExceptionFromImmediately) {
-            return newInstanceForThrows((Throwable) object);
+            return context.reuseRetForThrows((Throwable) object);
         }
 
         // 继续异常处理
@@ -434,7 +625,7 @@ public class EventListenerHandler implements SpyHandler {
                 : process.getEventFactory().makeThrowsEvent(processId, invokeId, (Throwable) object);
 
         try {
-            return handleEvent(listenerId, processId, invokeId, event, wrap);
+            return handleEvent(context, listenerId, processId, invokeId, event, wrap, process);
         } finally {
             process.getEventFactory().returnEvent(event);
         }
@@ -446,18 +637,23 @@ public class EventListenerHandler implements SpyHandler {
     public void handleOnCallBefore(int listenerId, int lineNumber, String owner, String name, String desc) throws Throwable {
 
         // 在守护区内产生的事件不需要响应
-        if (SandboxProtector.instance.isInProtecting()) {
-            logger.debug("listener={} is in protecting, ignore processing call-before-event", listenerId);
+        final SandboxThreadContext context = SandboxThreadContext.get();
+        if (context.isInProtecting()) {
+            if (SandboxTracing.isEnabled) {
+                logger.debug("listener={} is in protecting, ignore processing call-before-event", listenerId);
+            }
             return;
         }
 
-        final EventProcessor wrap = mappingOfEventProcessor.get(listenerId);
+        final EventProcessor wrap = getEventProcessor(listenerId);
         if (null == wrap) {
-            logger.debug("listener={} is not activated, ignore processing call-before-event.", listenerId);
+            if (SandboxTracing.isEnabled) {
+                logger.debug("listener={} is not activated, ignore processing call-before-event.", listenerId);
+            }
             return;
         }
 
-        final EventProcessor.Process process = wrap.processRef.get();
+        final EventProcessor.Process process = wrap.getProcess(context);
 
         // 如果当前调用过程信息堆栈是空的,有两种情况
         // 1. CALL_BEFORE事件和BEFORE事件错位
@@ -480,7 +676,7 @@ public class EventListenerHandler implements SpyHandler {
                 .getEventFactory()
                 .makeCallBeforeEvent(processId, invokeId, lineNumber, owner, name, desc);
         try {
-            handleEvent(listenerId, processId, invokeId, event, wrap);
+            handleEvent(context, listenerId, processId, invokeId, event, wrap, process);
         } finally {
             process.getEventFactory().returnEvent(event);
         }
@@ -490,18 +686,23 @@ public class EventListenerHandler implements SpyHandler {
     public void handleOnCallReturn(int listenerId) throws Throwable {
 
         // 在守护区内产生的事件不需要响应
-        if (SandboxProtector.instance.isInProtecting()) {
-            logger.debug("listener={} is in protecting, ignore processing call-return-event", listenerId);
+        final SandboxThreadContext context = SandboxThreadContext.get();
+        if (context.isInProtecting()) {
+            if (SandboxTracing.isEnabled) {
+                logger.debug("listener={} is in protecting, ignore processing call-return-event", listenerId);
+            }
             return;
         }
 
-        final EventProcessor wrap = mappingOfEventProcessor.get(listenerId);
+        final EventProcessor wrap = getEventProcessor(listenerId);
         if (null == wrap) {
-            logger.debug("listener={} is not activated, ignore processing call-return-event.", listenerId);
+            if (SandboxTracing.isEnabled) {
+                logger.debug("listener={} is not activated, ignore processing call-return-event.", listenerId);
+            }
             return;
         }
 
-        final EventProcessor.Process process = wrap.processRef.get();
+        final EventProcessor.Process process = wrap.getProcess(context);
         if (process.isEmptyStack()) {
             return;
         }
@@ -518,7 +719,7 @@ public class EventListenerHandler implements SpyHandler {
                 .getEventFactory()
                 .makeCallReturnEvent(processId, invokeId);
         try {
-            handleEvent(listenerId, processId, invokeId, event, wrap);
+            handleEvent(context, listenerId, processId, invokeId, event, wrap, process);
         } finally {
             process.getEventFactory().returnEvent(event);
         }
@@ -528,18 +729,23 @@ public class EventListenerHandler implements SpyHandler {
     public void handleOnCallThrows(int listenerId, String throwException) throws Throwable {
 
         // 在守护区内产生的事件不需要响应
-        if (SandboxProtector.instance.isInProtecting()) {
-            logger.debug("listener={} is in protecting, ignore processing call-throws-event", listenerId);
+        final SandboxThreadContext context = SandboxThreadContext.get();
+        if (context.isInProtecting()) {
+            if (SandboxTracing.isEnabled) {
+                logger.debug("listener={} is in protecting, ignore processing call-throws-event", listenerId);
+            }
             return;
         }
 
-        final EventProcessor wrap = mappingOfEventProcessor.get(listenerId);
+        final EventProcessor wrap = getEventProcessor(listenerId);
         if (null == wrap) {
-            logger.debug("listener={} is not activated, ignore processing call-throws-event.", listenerId);
+            if (SandboxTracing.isEnabled) {
+                logger.debug("listener={} is not activated, ignore processing call-throws-event.", listenerId);
+            }
             return;
         }
 
-        final EventProcessor.Process process = wrap.processRef.get();
+        final EventProcessor.Process process = wrap.getProcess(context);
         if (process.isEmptyStack()) {
             return;
         }
@@ -556,7 +762,7 @@ public class EventListenerHandler implements SpyHandler {
                 .getEventFactory()
                 .makeCallThrowsEvent(processId, invokeId, throwException);
         try {
-            handleEvent(listenerId, processId, invokeId, event, wrap);
+            handleEvent(context, listenerId, processId, invokeId, event, wrap, process);
         } finally {
             process.getEventFactory().returnEvent(event);
         }
@@ -566,18 +772,23 @@ public class EventListenerHandler implements SpyHandler {
     public void handleOnLine(int listenerId, int lineNumber) throws Throwable {
 
         // 在守护区内产生的事件不需要响应
-        if (SandboxProtector.instance.isInProtecting()) {
-            logger.debug("listener={} is in protecting, ignore processing call-line-event", listenerId);
+        final SandboxThreadContext context = SandboxThreadContext.get();
+        if (context.isInProtecting()) {
+            if (SandboxTracing.isEnabled) {
+                logger.debug("listener={} is in protecting, ignore processing call-line-event", listenerId);
+            }
             return;
         }
 
-        final EventProcessor wrap = mappingOfEventProcessor.get(listenerId);
+        final EventProcessor wrap = getEventProcessor(listenerId);
         if (null == wrap) {
-            logger.debug("listener={} is not activated, ignore processing line-event.", listenerId);
+            if (SandboxTracing.isEnabled) {
+                logger.debug("listener={} is not activated, ignore processing line-event.", listenerId);
+            }
             return;
         }
 
-        final EventProcessor.Process process = wrap.processRef.get();
+        final EventProcessor.Process process = wrap.getProcess(context);
 
         // 如果当前调用过程信息堆栈是空的,说明BEFORE/LINE错位
         // 处理方式是直接返回,不做任何事件的处理和代码流程的改变
@@ -595,7 +806,7 @@ public class EventListenerHandler implements SpyHandler {
 
         final Event event = process.getEventFactory().makeLineEvent(processId, invokeId, lineNumber);
         try {
-            handleEvent(listenerId, processId, invokeId, event, wrap);
+            handleEvent(context, listenerId, processId, invokeId, event, wrap, process);
         } finally {
             process.getEventFactory().returnEvent(event);
         }
@@ -604,7 +815,7 @@ public class EventListenerHandler implements SpyHandler {
     // ---- 自检查
     public void checkEventProcessor(final int... listenerIds) {
         for (int listenerId : listenerIds) {
-            final EventProcessor processor = mappingOfEventProcessor.get(listenerId);
+            final EventProcessor processor = getEventProcessor(listenerId);
             if (null == processor) {
                 throw new IllegalStateException(String.format("listener=%s not existed.", listenerId));
             }
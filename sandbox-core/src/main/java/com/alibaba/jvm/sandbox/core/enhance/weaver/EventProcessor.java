@@ -1,13 +1,19 @@
 package com.alibaba.jvm.sandbox.core.enhance.weaver;
 
 import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.event.Sampling;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.core.enhance.annotation.Interrupted;
-import com.alibaba.jvm.sandbox.core.util.collection.GaStack;
-import com.alibaba.jvm.sandbox.core.util.collection.ThreadUnsafeGaStack;
+import com.alibaba.jvm.sandbox.core.util.SandboxThreadContext;
+import com.alibaba.jvm.sandbox.core.util.SandboxTracing;
+import com.alibaba.jvm.sandbox.core.util.collection.ThreadUnsafeIntStack;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.alibaba.jvm.sandbox.core.util.EventTypeUtils.isTracingInvoke;
 import static com.alibaba.jvm.sandbox.core.util.SandboxReflectUtils.isInterruptEventHandler;
 
 /**
@@ -19,6 +25,9 @@ class EventProcessor {
 
     /**
      * 处理单元
+     * <p>
+     * 保存在{@link SandboxThreadContext}的槽位中，每个线程每个事件处理器一个，调用过程结束后重置并复用
+     * </p>
      */
     class Process {
 
@@ -26,9 +35,9 @@ class EventProcessor {
         private final SingleEventFactory eventFactory
                 = new SingleEventFactory();
 
-        // 调用堆栈
-        private final GaStack<Integer> stack
-                = new ThreadUnsafeGaStack<Integer>();
+        // 调用堆栈，调用ID从1000开始递增，超出了Integer的缓存范围，用int堆栈避免每次压栈都装箱
+        private final ThreadUnsafeIntStack stack
+                = new ThreadUnsafeIntStack();
 
         // 是否需要忽略整个调用过程
         private boolean isIgnoreProcess = false;
@@ -36,14 +45,24 @@ class EventProcessor {
         // 是否来自ImmediatelyThrowsException所抛出的异常
         private boolean isExceptionFromImmediately = false;
 
+        // 按比例采样的倒计数，归零时采样
+        private int sampleCountdown = 0;
+
+        // 未被采样的调用过程的嵌套深度，大于0时说明正处于未被采样的调用过程中
+        private int unsampledDeep = 0;
+
         /**
          * 压入调用ID
          *
          * @param invokeId 调用ID
          */
         void pushInvokeId(int invokeId) {
+            // 开始新的调用过程，丢弃上一个调用过程结束后遗留的标记
+            if (stack.isEmpty()) {
+                reset();
+            }
             stack.push(invokeId);
-            if (logger.isDebugEnabled()) {
+            if (SandboxTracing.isEnabled && logger.isDebugEnabled()) {
                 logger.debug("push process-stack, process-id={};invoke-id={};deep={};listener={};",
                         stack.peekLast(),
                         invokeId,
@@ -60,7 +79,7 @@ class EventProcessor {
          */
         int popInvokeId() {
             final int invokeId;
-            if (logger.isDebugEnabled()) {
+            if (SandboxTracing.isEnabled && logger.isDebugEnabled()) {
                 final int processId = stack.peekLast();
                 invokeId = stack.pop();
                 logger.debug("pop process-stack, process-id={};invoke-id={};deep={};listener={};",
@@ -73,12 +92,32 @@ class EventProcessor {
                 invokeId = stack.pop();
             }
             if (stack.isEmpty()) {
-                processRef.remove();
-                logger.debug("clean TLS: event-processor, listener={};", listenerId);
+                reset();
+                if (SandboxTracing.isEnabled) {
+                    logger.debug("reset process: event-processor, listener={};", listenerId);
+                }
             }
             return invokeId;
         }
 
+        /**
+         * 重置调用过程的标记
+         */
+        private void reset() {
+            isIgnoreProcess = false;
+            isExceptionFromImmediately = false;
+        }
+
+        /**
+         * 是否属于当前事件处理器
+         *
+         * @param processor 事件处理器
+         * @return TRUE:是；FALSE：否
+         */
+        boolean isBelongTo(EventProcessor processor) {
+            return EventProcessor.this == processor;
+        }
+
         /**
          * 获取调用ID
          *
@@ -143,6 +182,43 @@ class EventProcessor {
             isExceptionFromImmediately = true;
         }
 
+        /**
+         * 按比例采样，每{@code rate}次采样一次
+         *
+         * @param rate 采样比例
+         * @return TRUE:采样；FALSE：不采样
+         */
+        boolean countdownSample(final int rate) {
+            if (--sampleCountdown > 0) {
+                return false;
+            }
+            sampleCountdown = rate;
+            return true;
+        }
+
+        /**
+         * 是否正处于未被采样的调用过程中
+         *
+         * @return TRUE：是；FALSE：否
+         */
+        boolean isInUnsampledProcess() {
+            return unsampledDeep > 0;
+        }
+
+        /**
+         * 进入未被采样的调用
+         */
+        void enterUnsampled() {
+            unsampledDeep++;
+        }
+
+        /**
+         * 离开未被采样的调用
+         */
+        void exitUnsampled() {
+            unsampledDeep--;
+        }
+
         /**
          * 获取事件工厂
          *
@@ -171,26 +247,120 @@ class EventProcessor {
     }
 
     final int listenerId;
+    final int slotIndex;
     final EventListener listener;
-    final Event.Type[] eventTypes;
-    final ThreadLocal<Process> processRef = new ThreadLocal<Process>() {
-        @Override
-        protected Process initialValue() {
-            return new Process();
-        }
-    };
+
+    // 监听事件类型的位掩码，按Event.Type的序号置位
+    final int eventTypeMask;
+
+    // 是否中断式事件处理器
+    final boolean isInterrupted;
+
+    // 是否跟踪调用堆栈，与增强代码是否埋入成对的BEFORE/RETURN/THROWS保持一致
+    final boolean isTracingInvoke;
+
+    // 是否采样，不采样时观察所有的调用
+    final boolean isSampling;
+
+    // 按比例采样：每N次调用过程采样一次，计数放在各线程的处理单元中
+    private final int sampleRate;
+
+    // 按时间预算采样：每个周期内最多采样的调用过程数，所有线程共享
+    private static final int SAMPLE_CLOCK_INTERVAL = 64;
+    private final int sampleBudget;
+    private final long samplePeriodMillis;
+    private final AtomicLong sampleWindowBegin = new AtomicLong();
+    private final AtomicInteger sampleWindowCount = new AtomicInteger();
 
     EventProcessor(final int listenerId,
+                   final int slotIndex,
                    final EventListener listener,
-                   final Event.Type[] eventTypes) {
+                   final Event.Type[] eventTypes,
+                   final Sampling sampling) {
 
         this.listenerId = listenerId;
-        this.eventTypes = eventTypes;
-        this.listener = isInterruptEventHandler(listener.getClass())
+        this.slotIndex = slotIndex;
+        this.eventTypeMask = toEventTypeMask(eventTypes);
+        this.isTracingInvoke = isTracingInvoke(eventTypes);
+        this.isSampling = null != sampling && !sampling.isAll();
+        this.sampleRate = isSampling ? sampling.getRate() : 1;
+        this.sampleBudget = isSampling ? sampling.getBudget() : 0;
+        this.samplePeriodMillis = isSampling ? sampling.getPeriodMillis() : 0;
+        this.isInterrupted = isInterruptEventHandler(listener.getClass());
+        this.listener = isInterrupted
                 ? new InterruptedEventListenerImpl(listener)
                 : listener;
     }
 
+    private static int toEventTypeMask(final Event.Type[] eventTypes) {
+        int eventTypeMask = 0;
+        for (final Event.Type eventType : eventTypes) {
+            eventTypeMask |= 1 << eventType.ordinal();
+        }
+        return eventTypeMask;
+    }
+
+    /**
+     * 是否监听了指定类型的事件
+     *
+     * @param eventType 事件类型
+     * @return TRUE:监听；FALSE：未监听
+     */
+    boolean isListening(final Event.Type eventType) {
+        return (eventTypeMask & (1 << eventType.ordinal())) != 0;
+    }
+
+    /**
+     * 当前调用过程是否被采样
+     * <p>
+     * 按时间预算采样时，预算耗尽后大多数调用只需读取共享计数，只有被采样的调用才会修改共享计数
+     * </p>
+     *
+     * @param process 处理单元
+     * @return TRUE:采样；FALSE：不采样
+     */
+    boolean isSampled(final Process process) {
+        if (sampleRate > 1) {
+            return process.countdownSample(sampleRate);
+        }
+        if (sampleBudget <= 0) {
+            return true;
+        }
+        // 预算耗尽后，每个线程每SAMPLE_CLOCK_INTERVAL次调用过程才读取一次时钟
+        if (sampleWindowCount.get() >= sampleBudget
+                && !process.countdownSample(SAMPLE_CLOCK_INTERVAL)) {
+            return false;
+        }
+        final long now = System.currentTimeMillis();
+        final long windowBegin = sampleWindowBegin.get();
+        if (now - windowBegin >= samplePeriodMillis
+                && sampleWindowBegin.compareAndSet(windowBegin, now)) {
+            sampleWindowCount.set(0);
+        }
+        return sampleWindowCount.get() < sampleBudget
+                && sampleWindowCount.incrementAndGet() <= sampleBudget;
+    }
+
+    /**
+     * 获取线程上下文中的处理单元
+     * <p>
+     * 槽位中可能残留着已冻结的事件处理器的处理单元，此时需要替换
+     * </p>
+     *
+     * @param context 线程上下文
+     * @return 处理单元
+     */
+    Process getProcess(final SandboxThreadContext context) {
+        final Object exist = context.getSlot(slotIndex);
+        if (null != exist
+                && ((Process) exist).isBelongTo(this)) {
+            return (Process) exist;
+        }
+        final Process process = new Process();
+        context.setSlot(slotIndex, process);
+        return process;
+    }
+
 
     /**
      * 校验器，用于校验事件处理器状态是否正确
@@ -200,8 +370,8 @@ class EventProcessor {
 
         void check() {
 
-            final EventProcessor.Process process = processRef.get();
-            final ThreadUnsafeGaStack<Integer> stack = (ThreadUnsafeGaStack<Integer>) process.stack;
+            final EventProcessor.Process process = getProcess(SandboxThreadContext.get());
+            final ThreadUnsafeIntStack stack = process.stack;
 
             if (!process.isEmptyStack()) {
                 throw new IllegalStateException(String.format("process-stack is not empty! listener=%s;\n%s",
@@ -210,18 +380,19 @@ class EventProcessor {
                 ));
             }
 
+            // 调用ID从1000开始，不会为0，出栈后的位置会被清为0
             for (int index = 0; index < stack.getElementArray().length; index++) {
                 if (index <= stack.getCurrent()) {
-                    if (null == stack.getElementArray()[index]) {
-                        throw new IllegalStateException(String.format("process-stack element is null at index=[%d], listener=%s;\n%s",
+                    if (0 == stack.getElementArray()[index]) {
+                        throw new IllegalStateException(String.format("process-stack element is empty at index=[%d], listener=%s;\n%s",
                                 index,
                                 listenerId,
                                 toString(stack)
                         ));
                     }
                 } else {
-                    if (null != stack.getElementArray()[index]) {
-                        throw new IllegalStateException(String.format("process-stack element is not null at index=[%d], listener=%s;\n%s",
+                    if (0 != stack.getElementArray()[index]) {
+                        throw new IllegalStateException(String.format("process-stack element is not empty at index=[%d], listener=%s;\n%s",
                                 index,
                                 listenerId,
                                 toString(stack)
@@ -234,10 +405,14 @@ class EventProcessor {
                 throw new IllegalStateException(String.format("process isIgnoreProcess is not false!"));
             }
 
+            if (process.unsampledDeep != 0) {
+                throw new IllegalStateException(String.format("process unsampledDeep is not zero! unsampledDeep=%d;", process.unsampledDeep));
+            }
+
 
         }
 
-        String toString(ThreadUnsafeGaStack<Integer> stack) {
+        String toString(ThreadUnsafeIntStack stack) {
             final StringBuilder stackSB = new StringBuilder(String.format("stack[deep=%d;current=%d;]{\n", stack.deep(), stack.getCurrent()));
             for (int index = 0; index < stack.getElementArray().length; index++) {
                 stackSB.append("\t[").append(index).append("] = ").append(stack.getElementArray()[index]).append("\n");
@@ -4,8 +4,6 @@ import com.alibaba.jvm.sandbox.api.event.*;
 import com.alibaba.jvm.sandbox.core.util.UnsafeUtils;
 import sun.misc.Unsafe;
 
-import static com.alibaba.jvm.sandbox.core.util.SandboxReflectUtils.unCaughtSetClassDeclaredJavaFieldValue;
-
 /**
  * 单例事件工厂
  */
@@ -198,17 +196,16 @@ class SingleEventFactory {
                 unsafe.putObject(event, targetFieldInBeforeEventOffset, null);
                 unsafe.putObject(event, argumentArrayFieldInBeforeEventOffset, null);
                 break;
+            // FIXED #130
+            // 原先通过反射Field.set()清理final字段来规避#130，反射对final字段的写入最终落在Unsafe.putObjectVolatile()上，
+            // 这里直接使用预先计算好的偏移量做同样的volatile写入，保留修复的同时省去每次的反射查找
             case IMMEDIATELY_THROWS:
             case THROWS:
-                // FIXED #130
-                // unsafe.putObject(event, throwableFieldInThrowsEventOffset, null);
-                unCaughtSetClassDeclaredJavaFieldValue(ThrowsEvent.class, "throwable", event, null);
+                unsafe.putObjectVolatile(event, throwableFieldInThrowsEventOffset, null);
                 break;
             case IMMEDIATELY_RETURN:
             case RETURN:
-                // FIXED #130
-                // unsafe.putObject(event, objectFieldInReturnEventOffset, null);
-                unCaughtSetClassDeclaredJavaFieldValue(ReturnEvent.class, "object", event, null);
+                unsafe.putObjectVolatile(event, objectFieldInReturnEventOffset, null);
                 break;
         }
     }
@@ -0,0 +1,102 @@
+package com.alibaba.jvm.sandbox.core.enhance.weaver;
+
+import com.alibaba.jvm.sandbox.core.CoreConfigure;
+
+import java.com.alibaba.jvm.sandbox.spy.Spy;
+import java.com.alibaba.jvm.sandbox.spy.SpyCallSites;
+
+/**
+ * 间谍调用点开关
+ * <p>
+ * 开启{@code event.indy.enable}后，增强代码通过invokedynamic调用间谍，调用点由{@link SpyCallSites}管理。
+ * 冻结事件监听器时调用点被切换为空操作，JIT会把探针整体消除，不需要等待重新渲染；激活时再切换回间谍方法。
+ * </p>
+ * <p>
+ * invokedynamic需要JDK7+，低版本JVM上不会加载{@link SpyCallSites}，增强代码依旧通过invokestatic调用间谍
+ * </p>
+ *
+ * @author luanjia@taobao.com
+ */
+public class SpyCallSiteSwitcher {
+
+    /**
+     * 当前JVM是否支持invokedynamic调用点
+     */
+    public static final boolean isSupported = isSupportMutableCallSite();
+
+    private static boolean isSupportMutableCallSite() {
+        try {
+            Class.forName("java.lang.invoke.MutableCallSite");
+            return true;
+        } catch (Throwable cause) {
+            return false;
+        }
+    }
+
+    /**
+     * 是否以invokedynamic方式埋入事件探针，由{@code event.indy.enable}确定
+     * <p>未开启时不会触碰{@link SpyCallSites}，也就不会加载java.lang.invoke</p>
+     *
+     * @return TRUE:以invokedynamic方式埋入;FALSE:以invokestatic方式埋入
+     */
+    public static boolean isEnabled() {
+        final CoreConfigure cfg = CoreConfigure.getInstance();
+        return isSupported
+                && null != cfg
+                && cfg.isEnableEventIndy();
+    }
+
+    // 增强代码中携带的命名空间下标，沙箱尚未完成配置时返回-1
+    private static int getNamespaceIndex() {
+        final CoreConfigure cfg = CoreConfigure.getInstance();
+        return null == cfg
+                ? -1
+                : Spy.getNamespaceIndex(cfg.getNamespace());
+    }
+
+    /**
+     * 激活事件监听器的调用点
+     *
+     * @param listenerId 事件监听器ID
+     */
+    static void active(final int listenerId) {
+        if (!isEnabled()) {
+            return;
+        }
+        final int namespaceIndex = getNamespaceIndex();
+        if (namespaceIndex >= 0) {
+            SpyCallSites.active(namespaceIndex, listenerId);
+        }
+    }
+
+    /**
+     * 冻结事件监听器的调用点
+     *
+     * @param listenerId 事件监听器ID
+     */
+    static void frozen(final int listenerId) {
+        if (!isEnabled()) {
+            return;
+        }
+        final int namespaceIndex = getNamespaceIndex();
+        if (namespaceIndex >= 0) {
+            SpyCallSites.frozen(namespaceIndex, listenerId);
+        }
+    }
+
+    /**
+     * 移除事件监听器的调用点
+     *
+     * @param listenerId 事件监听器ID
+     */
+    public static void remove(final int listenerId) {
+        if (!isEnabled()) {
+            return;
+        }
+        final int namespaceIndex = getNamespaceIndex();
+        if (namespaceIndex >= 0) {
+            SpyCallSites.remove(namespaceIndex, listenerId);
+        }
+    }
+
+}
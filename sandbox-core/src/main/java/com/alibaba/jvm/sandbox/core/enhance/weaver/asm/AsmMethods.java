@@ -26,67 +26,83 @@ public interface AsmMethods {
     }
 
     /**
-     * asm method of {@link Spy#spyMethodOnBefore(Object[], String, int, int, String, String, String, Object)}
+     * asm method of {@link Spy#spyMethodOnBefore(Object[], int, int, int, String, String, String, Object)}
      */
     Method ASM_METHOD_Spy$spyMethodOnBefore = getAsmMethod(
             Spy.class,
             "spyMethodOnBefore",
-            Object[].class, String.class, int.class, int.class, String.class, String.class, String.class, Object.class
+            Object[].class, int.class, int.class, int.class, String.class, String.class, String.class, Object.class
     );
 
     /**
-     * asm method of {@link Spy#spyMethodOnReturn(Object, String, int)}
+     * asm method of {@link Spy#spyMethodOnReturn(Object, int, int)}
      */
     Method ASM_METHOD_Spy$spyMethodOnReturn = getAsmMethod(
             Spy.class,
             "spyMethodOnReturn",
-            Object.class, String.class, int.class
+            Object.class, int.class, int.class
     );
 
     /**
-     * asm method of {@link Spy#spyMethodOnThrows(Throwable, String, int)}
+     * asm method of {@link Spy#spyMethodOnThrows(Throwable, int, int)}
      */
     Method ASM_METHOD_Spy$spyMethodOnThrows = getAsmMethod(
             Spy.class,
             "spyMethodOnThrows",
-            Throwable.class, String.class, int.class
+            Throwable.class, int.class, int.class
     );
 
 
     /**
-     * asm method of {@link Spy#spyMethodOnLine(int, String, int)}
+     * asm method of {@link Spy#spyMethodOnLine(int, int, int)}
      */
     Method ASM_METHOD_Spy$spyMethodOnLine = getAsmMethod(
             Spy.class,
             "spyMethodOnLine",
-            int.class, String.class, int.class
+            int.class, int.class, int.class
     );
 
     /**
-     * asm method of {@link Spy#spyMethodOnCallBefore(int, String, String, String, String, int)}
+     * asm method of {@link Spy#spyMethodOnCallBefore(int, String, String, String, int, int)}
      */
     Method ASM_METHOD_Spy$spyMethodOnCallBefore = getAsmMethod(
             Spy.class,
             "spyMethodOnCallBefore",
-            int.class, String.class, String.class, String.class, String.class, int.class
+            int.class, String.class, String.class, String.class, int.class, int.class
     );
 
     /**
-     * asm method of {@link Spy#spyMethodOnCallReturn(String, int)}
+     * asm method of {@link Spy#spyMethodOnCallReturn(int, int)}
      */
     Method ASM_METHOD_Spy$spyMethodOnCallReturn = getAsmMethod(
             Spy.class,
             "spyMethodOnCallReturn",
-            String.class, int.class
+            int.class, int.class
     );
 
     /**
-     * asm method of {@link Spy#spyMethodOnCallThrows(String, String, int)}
+     * asm method of {@link Spy#spyMethodOnCallThrows(String, int, int)}
      */
     Method ASM_METHOD_Spy$spyMethodOnCallThrows = getAsmMethod(
             Spy.class,
             "spyMethodOnCallThrows",
-            String.class, String.class, int.class
+            String.class, int.class, int.class
+    );
+
+    /**
+     * asm method of {@link Spy.Ret#getState()}
+     */
+    Method ASM_METHOD_Spy$Ret$getState = getAsmMethod(
+            Spy.Ret.class,
+            "getState"
+    );
+
+    /**
+     * asm method of {@link Spy.Ret#getRespond()}
+     */
+    Method ASM_METHOD_Spy$Ret$getRespond = getAsmMethod(
+            Spy.Ret.class,
+            "getRespond"
     );
 
 //    /**
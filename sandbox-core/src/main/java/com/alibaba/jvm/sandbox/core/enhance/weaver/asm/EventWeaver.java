@@ -1,17 +1,21 @@
 package com.alibaba.jvm.sandbox.core.enhance.weaver.asm;
 
+import com.alibaba.jvm.sandbox.api.event.Capture;
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.core.enhance.weaver.CodeLock;
 import org.objectweb.asm.*;
 import org.objectweb.asm.commons.AdviceAdapter;
 import org.objectweb.asm.commons.JSRInlinerAdapter;
+import org.objectweb.asm.commons.Method;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.com.alibaba.jvm.sandbox.spy.Spy;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Set;
 
+import static com.alibaba.jvm.sandbox.core.util.EventTypeUtils.isTracingInvoke;
 import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toJavaClassName;
 import static org.apache.commons.lang3.ArrayUtils.contains;
 import static org.apache.commons.lang3.StringUtils.join;
@@ -61,13 +65,33 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
+    // invokedynamic探针的引导方法，这里不能引用SpyCallSites类，否则会在JDK6上加载java.lang.invoke
+    private static final Handle SPY_CALL_SITES_BOOTSTRAP = new Handle(
+            H_INVOKESTATIC,
+            "java/com/alibaba/jvm/sandbox/spy/SpyCallSites",
+            "bootstrap",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;II)Ljava/lang/invoke/CallSite;",
+            false
+    );
+
     private final int targetClassLoaderObjectID;
-    private final String namespace;
+    // 命名空间在Spy中的下标，增强代码携带下标而不是命名空间字符串
+    private final int namespaceIndex;
     private final int listenerId;
     private final String targetJavaClassName;
     private final Set<String> signCodes;
+    private final Set<String> behaviorNames;
     private final Event.Type[] eventTypeArray;
 
+    // 是否有行为被改写
+    private boolean isRewritten = false;
+
+    // 是否埋入BEFORE/RETURN/THROWS事件
+    // 需要跟踪调用堆栈时三者成对埋入，否则只埋入监听的事件
+    private final boolean isBeforeEnable;
+    private final boolean isReturnEnable;
+    private final boolean isThrowsEnable;
+
     // 是否支持LINE_EVENT
     // LINE_EVENT需要对Class做特殊的增强，所以需要在这里做特殊的判断
     private final boolean isLineEnable;
@@ -79,6 +103,16 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
     private final boolean hasCallReturn;
     private final boolean isCallEnable;
 
+    // 是否采集方法参数、触发对象、返回值
+    // 不采集时增强代码传递null，省去参数数组的构造和基本类型的装箱
+    private final boolean isCaptureArguments;
+    private final boolean isCaptureTarget;
+    private final boolean isCaptureReturnValue;
+
+    // 是否以invokedynamic方式调用间谍
+    // 只有JDK7+版本的类才能使用invokedynamic，在visit()中根据类版本最终确定
+    private boolean isIndyEnable;
+
     public EventWeaver(final int api,
                        final ClassVisitor cv,
                        final String namespace,
@@ -86,20 +120,64 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                        final int targetClassLoaderObjectID,
                        final String targetClassInternalName,
                        final Set<String/*BehaviorStructure#getSignCode()*/> signCodes,
-                       final Event.Type[] eventTypeArray) {
+                       final Event.Type[] eventTypeArray,
+                       final Capture[] captures,
+                       final boolean isIndyEnable) {
         super(api, cv);
         this.targetClassLoaderObjectID = targetClassLoaderObjectID;
-        this.namespace = namespace;
+        this.namespaceIndex = Spy.getNamespaceIndex(namespace);
         this.listenerId = listenerId;
         this.targetJavaClassName = toJavaClassName(targetClassInternalName);
         this.signCodes = signCodes;
+        this.behaviorNames = toBehaviorNames(signCodes);
         this.eventTypeArray = eventTypeArray;
 
+        final boolean isTracingInvoke = isTracingInvoke(eventTypeArray);
+        this.isBeforeEnable = isTracingInvoke || contains(eventTypeArray, Event.Type.BEFORE);
+        this.isReturnEnable = isTracingInvoke || contains(eventTypeArray, Event.Type.RETURN);
+        this.isThrowsEnable = isTracingInvoke || contains(eventTypeArray, Event.Type.THROWS);
+
         this.isLineEnable = contains(eventTypeArray, Event.Type.LINE);
         this.hasCallBefore = contains(eventTypeArray, Event.Type.CALL_BEFORE);
         this.hasCallReturn = contains(eventTypeArray, Event.Type.CALL_RETURN);
         this.hasCallThrows = contains(eventTypeArray, Event.Type.CALL_THROWS);
         this.isCallEnable = hasCallBefore || hasCallReturn || hasCallThrows;
+
+        this.isCaptureArguments = contains(captures, Capture.ARGUMENTS);
+        this.isCaptureTarget = contains(captures, Capture.TARGET);
+        this.isCaptureReturnValue = contains(captures, Capture.RETURN_VALUE);
+        this.isIndyEnable = isIndyEnable;
+    }
+
+    @Override
+    public void visit(final int version, final int access, final String name, final String signature, final String superName, final String[] interfaces) {
+        // 类版本的低16位为主版本号
+        isIndyEnable = isIndyEnable && (version & 0xFFFF) >= V1_7;
+        super.visit(version, access, name, signature, superName, interfaces);
+    }
+
+    // 从行为签名中提取行为名称，用于在拼装签名之前快速排除不匹配的行为
+    private static Set<String> toBehaviorNames(final Set<String> signCodes) {
+        final Set<String> behaviorNames = new HashSet<String>();
+        for (final String signCode : signCodes) {
+            final int beginIndex = signCode.indexOf('#');
+            final int endIndex = signCode.indexOf('(', beginIndex);
+            if (beginIndex < 0 || endIndex < 0) {
+                continue;
+            }
+            behaviorNames.add(signCode.substring(beginIndex + 1, endIndex));
+        }
+        return behaviorNames;
+    }
+
+    /**
+     * 是否有行为被改写
+     * <p>没有行为被改写时，增强后的字节码与原字节码等价</p>
+     *
+     * @return TRUE:有行为被改写;FALSE:没有行为被改写
+     */
+    public boolean isRewritten() {
+        return isRewritten;
     }
 
     private boolean isMatchedBehavior(final String signCode) {
@@ -124,7 +202,13 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
     @Override
     public MethodVisitor visitMethod(final int access, final String name, final String desc, final String signature, final String[] exceptions) {
 
+        // 不改写的行为直接返回ClassWriter的MethodVisitor，
+        // 此时ASM会原样拷贝行为的字节码，不需要重新解析指令和计算栈帧
         final MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
+        if (!behaviorNames.contains(name)) {
+            return mv;
+        }
+
         final String signCode = getBehaviorSignCode(name, desc);
         if (!isMatchedBehavior(signCode)) {
             logger.debug("non-rewrite method {} for listener[id={}];",
@@ -140,6 +224,7 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                 join(eventTypeArray, ",")
         );
 
+        isRewritten = true;
         return new ReWriteMethod(api, new JSRInlinerAdapter(mv, access, name, desc, signature, exceptions), access, name, desc) {
 
             private final Label beginLabel = new Label();
@@ -157,6 +242,18 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
             // 代码锁
             private final CodeLock codeLockForTracing = new CallAsmCodeLock(this);
 
+            /**
+             * 调用间谍方法
+             * <p>invokedynamic方式下调用点按监听器绑定，冻结监听器时切换为空操作</p>
+             */
+            private void invokeSpy(final Method method) {
+                if (isIndyEnable) {
+                    invokeDynamic(method.getName(), method.getDescriptor(), SPY_CALL_SITES_BOOTSTRAP, namespaceIndex, listenerId);
+                } else {
+                    invokeStatic(ASM_TYPE_SPY, method);
+                }
+            }
+
             /**
              * 流程控制
              */
@@ -165,7 +262,7 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                 final Label returnLabel = new Label();
                 final Label throwsLabel = new Label();
                 dup();
-                visitFieldInsn(GETFIELD, ASM_TYPE_SPY_RET, "state", ASM_TYPE_INT);
+                invokeVirtual(ASM_TYPE_SPY_RET, ASM_METHOD_Spy$Ret$getState);
                 dup();
                 push(Spy.Ret.RET_STATE_RETURN);
                 ifICmp(EQ, returnLabel);
@@ -174,11 +271,11 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                 goTo(finishLabel);
                 mark(returnLabel);
                 pop();
-                visitFieldInsn(GETFIELD, ASM_TYPE_SPY_RET, "respond", ASM_TYPE_OBJECT);
+                invokeVirtual(ASM_TYPE_SPY_RET, ASM_METHOD_Spy$Ret$getRespond);
                 checkCastReturn(Type.getReturnType(desc));
                 goTo(finishLabel);
                 mark(throwsLabel);
-                visitFieldInsn(GETFIELD, ASM_TYPE_SPY_RET, "respond", ASM_TYPE_OBJECT);
+                invokeVirtual(ASM_TYPE_SPY_RET, ASM_METHOD_Spy$Ret$getRespond);
                 checkCast(ASM_TYPE_THROWABLE);
                 throwException();
                 mark(finishLabel);
@@ -190,25 +287,46 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                 push(targetClassLoaderObjectID);
             }
 
+            // 加载触发对象
+            private void loadTarget() {
+                if (isCaptureTarget) {
+                    loadThisOrPushNullIfIsStatic();
+                } else {
+                    pushNull();
+                }
+            }
+
             @Override
             protected void onMethodEnter() {
+                if (!isBeforeEnable) {
+                    mark(beginLabel);
+                    isMethodEnter = true;
+                    return;
+                }
                 codeLockForTracing.lock(new CodeLock.Block() {
                     @Override
                     public void code() {
                         mark(beginLabel);
-                        loadArgArray();
-                        dup();
-                        push(namespace);
+                        if (isCaptureArguments) {
+                            loadArgArray();
+                            dup();
+                        } else {
+                            pushNull();
+                        }
+                        push(namespaceIndex);
                         push(listenerId);
                         loadClassLoader();
                         push(targetJavaClassName);
                         push(name);
                         push(desc);
-                        loadThisOrPushNullIfIsStatic();
-                        invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnBefore);
-                        swap();
-                        storeArgArray();
-                        pop();
+                        loadTarget();
+                        invokeSpy(ASM_METHOD_Spy$spyMethodOnBefore);
+                        // 没有采集参数也就不存在被修改的参数需要写回
+                        if (isCaptureArguments) {
+                            swap();
+                            storeArgArray();
+                            pop();
+                        }
                         processControl();
                         isMethodEnter = true;
                     }
@@ -230,6 +348,10 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
              * @param opcode 操作吗
              */
             private void loadReturn(int opcode) {
+                if (!isCaptureReturnValue) {
+                    pushNull();
+                    return;
+                }
                 switch (opcode) {
 
                     case RETURN: {
@@ -260,14 +382,14 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
 
             @Override
             protected void onMethodExit(final int opcode) {
-                if (!isThrow(opcode)) {
+                if (isReturnEnable && !isThrow(opcode)) {
                     codeLockForTracing.lock(new CodeLock.Block() {
                         @Override
                         public void code() {
                             loadReturn(opcode);
-                            push(namespace);
+                            push(namespaceIndex);
                             push(listenerId);
-                            invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnReturn);
+                            invokeSpy(ASM_METHOD_Spy$spyMethodOnReturn);
                             processControl();
                         }
                     });
@@ -276,6 +398,10 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
 
             @Override
             public void visitMaxs(int maxStack, int maxLocals) {
+                if (!isThrowsEnable) {
+                    super.visitMaxs(maxStack, maxLocals);
+                    return;
+                }
                 mark(endLabel);
                 mv.visitLabel(startCatchBlock);
                 visitTryCatchBlock(beginLabel, endLabel, startCatchBlock, ASM_TYPE_THROWABLE.getInternalName());
@@ -286,9 +412,9 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                         newlocal = newLocal(ASM_TYPE_THROWABLE);
                         storeLocal(newlocal);
                         loadLocal(newlocal);
-                        push(namespace);
+                        push(namespaceIndex);
                         push(listenerId);
-                        invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnThrows);
+                        invokeSpy(ASM_METHOD_Spy$spyMethodOnThrows);
                         processControl();
                         loadLocal(newlocal);
                     }
@@ -309,9 +435,9 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                         @Override
                         public void code() {
                             push(lineNumber);
-                            push(namespace);
+                            push(namespaceIndex);
                             push(listenerId);
-                            invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnLine);
+                            invokeSpy(ASM_METHOD_Spy$spyMethodOnLine);
                         }
                     });
                 }
@@ -348,9 +474,9 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                             push(toJavaClassName(owner));
                             push(name);
                             push(desc);
-                            push(namespace);
+                            push(namespaceIndex);
                             push(listenerId);
-                            invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnCallBefore);
+                            invokeSpy(ASM_METHOD_Spy$spyMethodOnCallBefore);
                         }
                     });
                 }
@@ -362,9 +488,9 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                     codeLockForTracing.lock(new CodeLock.Block() {
                         @Override
                         public void code() {
-                            push(namespace);
+                            push(namespaceIndex);
                             push(listenerId);
-                            invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnCallReturn);
+                            invokeSpy(ASM_METHOD_Spy$spyMethodOnCallReturn);
                         }
                     });
                     return;
@@ -388,9 +514,9 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                     codeLockForTracing.lock(new CodeLock.Block() {
                         @Override
                         public void code() {
-                            push(namespace);
+                            push(namespaceIndex);
                             push(listenerId);
-                            invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnCallReturn);
+                            invokeSpy(ASM_METHOD_Spy$spyMethodOnCallReturn);
                         }
                     });
                 }
@@ -407,9 +533,9 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                         dup();
                         invokeVirtual(ASM_TYPE_OBJECT, ASM_METHOD_Object$getClass);
                         invokeVirtual(ASM_TYPE_CLASS, ASM_METHOD_Class$getName);
-                        push(namespace);
+                        push(namespaceIndex);
                         push(listenerId);
-                        invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnCallThrows);
+                        invokeSpy(ASM_METHOD_Spy$spyMethodOnCallThrows);
                     }
                 });
 
@@ -439,7 +565,9 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                 for (AsmTryCatchBlock tcb : asmTryCatchBlocks) {
                     super.visitTryCatchBlock(tcb.start, tcb.end, tcb.handler, tcb.type);
                 }
-                super.visitLocalVariable("t",ASM_TYPE_THROWABLE.getDescriptor(),null,startCatchBlock,endCatchBlock,newlocal);
+                if (isThrowsEnable) {
+                    super.visitLocalVariable("t",ASM_TYPE_THROWABLE.getDescriptor(),null,startCatchBlock,endCatchBlock,newlocal);
+                }
                 super.visitEnd();
             }
 
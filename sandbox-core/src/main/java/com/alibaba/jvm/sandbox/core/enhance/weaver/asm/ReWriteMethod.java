@@ -29,6 +29,20 @@ public class ReWriteMethod extends AdviceAdapter implements Opcodes, AsmTypes, A
         this.argumentTypeArray = Type.getArgumentTypes(desc);
     }
 
+    /**
+     * 装箱基本类型
+     * <p>
+     * {@link org.objectweb.asm.commons.GeneratorAdapter#box(Type)}每次都会new一个包装对象，
+     * 这里改用包装类型的valueOf方法，{@link #loadArgArray()}和返回值的装箱都可以复用包装类型缓存的对象
+     * </p>
+     *
+     * @param type 需要装箱的类型
+     */
+    @Override
+    public void box(final Type type) {
+        valueOf(type);
+    }
+
     /**
      * 将NULL压入栈
      */
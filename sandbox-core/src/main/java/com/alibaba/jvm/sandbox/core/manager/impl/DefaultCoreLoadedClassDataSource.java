@@ -1,9 +1,11 @@
 package com.alibaba.jvm.sandbox.core.manager.impl;
 
 import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.filter.ThreadSafeFilter;
 import com.alibaba.jvm.sandbox.core.manager.CoreLoadedClassDataSource;
 import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
 import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.GroupMatcher;
 import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
 import com.alibaba.jvm.sandbox.core.util.matcher.UnsupportedMatcher;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
@@ -12,6 +14,8 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.instrument.Instrumentation;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
 import static com.alibaba.jvm.sandbox.core.util.SandboxClassUtils.isComeFromSandboxFamily;
@@ -19,19 +23,87 @@ import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalCla
 
 /**
  * 已加载类数据源默认实现
+ * <p>
+ * 已加载的类较多时，类的匹配会被切分成多段，交给数据源持有的匹配线程池并行完成，
+ * 各段结果按原始顺序合并，所以匹配结果的顺序与串行匹配一致。
+ * 只有匹配器中所有的过滤器都标记了{@link ThreadSafeFilter}时才会并行匹配，否则仍然在当前线程中串行匹配
+ * </p>
  *
  * @author luanjia@taobao.com
  */
 public class DefaultCoreLoadedClassDataSource implements CoreLoadedClassDataSource {
 
+    // 已加载类少于此数量时直接串行匹配，并行的收益抵不上线程的开销
+    private static final int PARALLEL_MATCHING_THRESHOLD = 4096;
+
+    // 每段最少匹配的类数量
+    private static final int MIN_MATCHING_SEGMENT_SIZE = 512;
+
+    // 匹配线程空闲多久后退出
+    private static final long MATCHING_KEEP_ALIVE_SECONDS = 60L;
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final Instrumentation inst;
     private final boolean isEnableUnsafe;
+    private final int matchingParallelism;
+    private final LoadedClassIndex loadedClassIndex;
+
+    // 匹配线程池，线程数不超过匹配并行度，空闲的线程会自动退出；串行匹配时为null
+    private final ThreadPoolExecutor matchingExecutor;
 
     public DefaultCoreLoadedClassDataSource(final Instrumentation inst,
                                             final boolean isEnableUnsafe) {
+        this(inst, isEnableUnsafe, 1, null);
+    }
+
+    public DefaultCoreLoadedClassDataSource(final Instrumentation inst,
+                                            final boolean isEnableUnsafe,
+                                            final int matchingParallelism) {
+        this(inst, isEnableUnsafe, matchingParallelism, null);
+    }
+
+    /**
+     * 构造已加载类数据源
+     *
+     * @param inst                inst
+     * @param isEnableUnsafe      是否允许增强Bootstrap的类
+     * @param matchingParallelism 匹配的并行度
+     * @param loadedClassIndex    已加载类索引，为null时每次都遍历所有已加载的类
+     */
+    public DefaultCoreLoadedClassDataSource(final Instrumentation inst,
+                                            final boolean isEnableUnsafe,
+                                            final int matchingParallelism,
+                                            final LoadedClassIndex loadedClassIndex) {
         this.inst = inst;
         this.isEnableUnsafe = isEnableUnsafe;
+        this.matchingParallelism = Math.max(1, matchingParallelism);
+        this.loadedClassIndex = loadedClassIndex;
+        this.matchingExecutor = this.matchingParallelism > 1
+                ? newMatchingExecutor(this.matchingParallelism)
+                : null;
+    }
+
+    private static ThreadPoolExecutor newMatchingExecutor(final int matchingParallelism) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                matchingParallelism,
+                matchingParallelism,
+                MATCHING_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new MatchingThreadFactory()
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 关闭匹配线程池
+     * <p>沙箱销毁时调用，之后的匹配都在当前线程中串行完成</p>
+     */
+    public void destroy() {
+        if (null != matchingExecutor) {
+            matchingExecutor.shutdownNow();
+        }
     }
 
     @Override
@@ -79,53 +151,189 @@ public class DefaultCoreLoadedClassDataSource implements CoreLoadedClassDataSour
         SandboxProtector.instance.enterProtecting();
         try {
 
-            final List<Class<?>> classes = new ArrayList<Class<?>>();
             if (null == matcher) {
-                return classes;
+                return new ArrayList<Class<?>>();
             }
 
-            final Iterator<Class<?>> itForLoaded = iteratorForLoadedClasses();
-            while (itForLoaded.hasNext()) {
-                final Class<?> clazz = itForLoaded.next();
+            final Class<?>[] loadedClasses = getWaitingMatchClasses(matcher);
+            if (null == matchingExecutor
+                    || matchingExecutor.isShutdown()
+                    || loadedClasses.length < PARALLEL_MATCHING_THRESHOLD
+                    || !isThreadSafe(matcher)) {
+                return find(matcher, isRemoveUnsupported, loadedClasses, 0, loadedClasses.length);
+            }
+            return parallelFind(matcher, isRemoveUnsupported, loadedClasses);
 
-                // #242 的建议，过滤掉sandbox家族的类
-                if (isComeFromSandboxFamily(toInternalClassName(clazz.getName()), clazz.getClassLoader())) {
-                    continue;
-                }
+        } finally {
+            SandboxProtector.instance.exitProtecting();
+        }
+
+    }
 
-                // 过滤掉对于JVM认为不可修改的类
-                if (isRemoveUnsupported
-                        && !inst.isModifiableClass(clazz)) {
-                    // logger.debug("remove from findForReTransform, because class:{} is unModifiable", clazz.getName());
-                    continue;
+    /*
+     * 获取待匹配的类
+     * 优先从已加载类索引中获取候选类，索引无法缩小范围时才需要遍历所有已加载的类
+     */
+    private Class<?>[] getWaitingMatchClasses(final Matcher matcher) {
+        if (null != loadedClassIndex) {
+            final Class<?>[] candidates = loadedClassIndex.findCandidates(matcher);
+            if (null != candidates) {
+                return candidates;
+            }
+        }
+        return inst.getAllLoadedClasses();
+    }
+
+    /*
+     * 匹配器是否可以被并发调用
+     * Filter并没有要求实现线程安全，只有所有的过滤器都明确标记了ThreadSafeFilter才可以并行匹配
+     */
+    private static boolean isThreadSafe(final Matcher matcher) {
+        if (matcher instanceof ExtFilterMatcher) {
+            return ((ExtFilterMatcher) matcher).getExtFilter() instanceof ThreadSafeFilter;
+        }
+        if (matcher instanceof GroupMatcher) {
+            final Matcher[] matcherArray = ((GroupMatcher) matcher).getMatcherArray();
+            if (null == matcherArray) {
+                return true;
+            }
+            for (final Matcher subMatcher : matcherArray) {
+                if (!isThreadSafe(subMatcher)) {
+                    return false;
                 }
-                try {
-                    if (isRemoveUnsupported) {
-                        if (new UnsupportedMatcher(clazz.getClassLoader(), isEnableUnsafe)
-                                .and(matcher)
-                                .matching(ClassStructureFactory.createClassStructure(clazz))
-                                .isMatched()) {
-                            classes.add(clazz);
-                        }
-                    } else {
-                        if (matcher.matching(ClassStructureFactory.createClassStructure(clazz)).isMatched()) {
-                            classes.add(clazz);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /*
+     * 并行匹配
+     * 每段的匹配结果按段的顺序合并，保证结果的顺序稳定；多次匹配共用数据源的匹配线程池，线程数不会超过匹配并行度
+     */
+    private List<Class<?>> parallelFind(final Matcher matcher,
+                                        final boolean isRemoveUnsupported,
+                                        final Class<?>[] loadedClasses) {
+
+        final int total = loadedClasses.length;
+        final int segmentSize = Math.max(
+                MIN_MATCHING_SEGMENT_SIZE,
+                (total + matchingParallelism * 4 - 1) / (matchingParallelism * 4)
+        );
+        final int segmentCount = (total + segmentSize - 1) / segmentSize;
+
+        final List<Future<List<Class<?>>>> futures = new ArrayList<Future<List<Class<?>>>>(segmentCount);
+        try {
+
+            for (int from = 0; from < total; from += segmentSize) {
+                final int begin = from;
+                final int end = Math.min(from + segmentSize, total);
+                futures.add(matchingExecutor.submit(new Callable<List<Class<?>>>() {
+                    @Override
+                    public List<Class<?>> call() {
+                        SandboxProtector.instance.enterProtecting();
+                        try {
+                            return find(matcher, isRemoveUnsupported, loadedClasses, begin, end);
+                        } finally {
+                            SandboxProtector.instance.exitProtecting();
                         }
                     }
+                }));
+            }
+
+        } catch (RejectedExecutionException cause) {
+            // 线程池已经关闭，没有提交成功的段在下面串行匹配
+            logger.debug("matching executor was shutdown, remaining segments will match in current thread.", cause);
+        }
 
-                } catch (Throwable cause) {
-                    // 在这里可能会遇到非常坑爹的模块卸载错误
-                    // 当一个URLClassLoader被动态关闭之后，但JVM已经加载的类并不知情（因为没有GC）
-                    // 所以当尝试获取这个类更多详细信息的时候会引起关联类的ClassNotFoundException等未知的错误（取决于底层ClassLoader的实现）
-                    // 这里没有办法穷举出所有的异常情况，所以catch Throwable来完成异常容灾处理
-                    // 当解析类出现异常的时候，直接简单粗暴的认为根本没有这个类就好了
-                    logger.debug("remove from findForReTransform, because loading class:{} occur an exception", clazz.getName(), cause);
+        final List<Class<?>> classes = new ArrayList<Class<?>>();
+        for (int index = 0; index < segmentCount; index++) {
+            final int begin = index * segmentSize;
+            final int end = Math.min(begin + segmentSize, total);
+            if (index >= futures.size()) {
+                classes.addAll(find(matcher, isRemoveUnsupported, loadedClasses, begin, end));
+                continue;
+            }
+            try {
+                classes.addAll(futures.get(index).get());
+            } catch (Throwable cause) {
+                // 并行匹配失败(例如当前线程被中断)，当前段退化为在本线程中串行匹配
+                logger.warn("parallel matching classes failed at segment={};total={}, will match in current thread.",
+                        index, segmentCount, cause);
+                if (cause instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
                 }
+                futures.get(index).cancel(true);
+                classes.addAll(find(matcher, isRemoveUnsupported, loadedClasses, begin, end));
             }
-            return classes;
+        }
+        return classes;
 
-        } finally {
-            SandboxProtector.instance.exitProtecting();
+    }
+
+    /*
+     * 匹配[from,to)区间内的类
+     */
+    private List<Class<?>> find(final Matcher matcher,
+                                final boolean isRemoveUnsupported,
+                                final Class<?>[] loadedClasses,
+                                final int from,
+                                final int to) {
+
+        final List<Class<?>> classes = new ArrayList<Class<?>>();
+        for (int index = from; index < to; index++) {
+            final Class<?> clazz = loadedClasses[index];
+
+            // #242 的建议，过滤掉sandbox家族的类
+            if (isComeFromSandboxFamily(toInternalClassName(clazz.getName()), clazz.getClassLoader())) {
+                continue;
+            }
+
+            // 过滤掉对于JVM认为不可修改的类
+            if (isRemoveUnsupported
+                    && !inst.isModifiableClass(clazz)) {
+                // logger.debug("remove from findForReTransform, because class:{} is unModifiable", clazz.getName());
+                continue;
+            }
+            try {
+                if (isRemoveUnsupported) {
+                    if (new UnsupportedMatcher(clazz.getClassLoader(), isEnableUnsafe)
+                            .and(matcher)
+                            .matching(ClassStructureFactory.createClassStructure(clazz))
+                            .isMatched()) {
+                        classes.add(clazz);
+                    }
+                } else {
+                    if (matcher.matching(ClassStructureFactory.createClassStructure(clazz)).isMatched()) {
+                        classes.add(clazz);
+                    }
+                }
+
+            } catch (Throwable cause) {
+                // 在这里可能会遇到非常坑爹的模块卸载错误
+                // 当一个URLClassLoader被动态关闭之后，但JVM已经加载的类并不知情（因为没有GC）
+                // 所以当尝试获取这个类更多详细信息的时候会引起关联类的ClassNotFoundException等未知的错误（取决于底层ClassLoader的实现）
+                // 这里没有办法穷举出所有的异常情况，所以catch Throwable来完成异常容灾处理
+                // 当解析类出现异常的时候，直接简单粗暴的认为根本没有这个类就好了
+                logger.debug("remove from findForReTransform, because loading class:{} occur an exception", clazz.getName(), cause);
+            }
+        }
+        return classes;
+
+    }
+
+    /**
+     * 类匹配线程工厂
+     */
+    private static class MatchingThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger sequence = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "sandbox-class-matcher-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
         }
 
     }
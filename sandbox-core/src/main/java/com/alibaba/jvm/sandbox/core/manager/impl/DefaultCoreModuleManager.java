@@ -13,6 +13,7 @@ import com.alibaba.jvm.sandbox.core.manager.CoreModuleManager;
 import com.alibaba.jvm.sandbox.core.manager.ProviderManager;
 import com.alibaba.jvm.sandbox.core.manager.impl.ModuleLibLoader.ModuleJarLoadCallback;
 import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureCache;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
@@ -216,7 +217,7 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
                             new ReleaseResource<ModuleEventWatcher>(
                                     SandboxProtector.instance.protectProxy(
                                             ModuleEventWatcher.class,
-                                            new DefaultModuleEventWatcher(inst, classDataSource, coreModule, cfg.isEnableUnsafe(), cfg.getNamespace())
+                                            new DefaultModuleEventWatcher(inst, classDataSource, coreModule, cfg.isEnableUnsafe(), cfg.getNamespace(), cfg.getReTransformBatchSize())
                                     )
                             ) {
                                 @Override
@@ -305,6 +306,52 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
                     );
                 }
 
+                // CacheMonitor注入
+                else if (CacheMonitor.class.isAssignableFrom(fieldType)) {
+                    writeField(
+                            resourceField,
+                            module,
+                            new CacheMonitor() {
+                                @Override
+                                public CacheInfo getClassStructureCacheInfo() {
+                                    final ClassStructureCache.Stats stats = ClassStructureCache.instance.getStats();
+                                    return new CacheInfo() {
+                                        @Override
+                                        public long getSize() {
+                                            return stats.getSize();
+                                        }
+
+                                        @Override
+                                        public long getMaximumSize() {
+                                            return stats.getMaximumSize();
+                                        }
+
+                                        @Override
+                                        public long getHitCount() {
+                                            return stats.getHitCount();
+                                        }
+
+                                        @Override
+                                        public long getNegativeHitCount() {
+                                            return stats.getNegativeHitCount();
+                                        }
+
+                                        @Override
+                                        public long getMissCount() {
+                                            return stats.getMissCount();
+                                        }
+
+                                        @Override
+                                        public long getEvictionCount() {
+                                            return stats.getEvictionCount();
+                                        }
+                                    };
+                                }
+                            },
+                            true
+                    );
+                }
+
                 // 其他情况需要输出日志警告
                 else {
                     logger.warn("module inject @Resource ignored: field not found. module={};class={};type={};field={};",
@@ -427,7 +474,8 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
             EventListenerHandler.getSingleton().active(
                     sandboxClassFileTransformer.getListenerId(),
                     sandboxClassFileTransformer.getEventListener(),
-                    sandboxClassFileTransformer.getEventTypeArray()
+                    sandboxClassFileTransformer.getEventTypeArray(),
+                    sandboxClassFileTransformer.getSampling()
             );
         }
 
@@ -1,12 +1,17 @@
 package com.alibaba.jvm.sandbox.core.manager.impl;
 
+import com.alibaba.jvm.sandbox.api.event.Capture;
 import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.event.Sampling;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.AsyncAdapterListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchCondition;
+import com.alibaba.jvm.sandbox.api.listener.ext.ExtEventWatchCondition;
 import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher;
 import com.alibaba.jvm.sandbox.core.CoreModule;
 import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.SpyCallSiteSwitcher;
 import com.alibaba.jvm.sandbox.core.manager.CoreLoadedClassDataSource;
 import com.alibaba.jvm.sandbox.core.util.Sequencer;
 import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
@@ -17,6 +22,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -39,20 +45,23 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
     private final CoreModule coreModule;
     private final boolean isEnableUnsafe;
     private final String namespace;
+    private final int reTransformBatchSize;
 
     // 观察ID序列生成器
     private final Sequencer watchIdSequencer = new Sequencer();
 
-    DefaultModuleEventWatcher(final Instrumentation inst,
-                              final CoreLoadedClassDataSource classDataSource,
-                              final CoreModule coreModule,
-                              final boolean isEnableUnsafe,
-                              final String namespace) {
+    public DefaultModuleEventWatcher(final Instrumentation inst,
+                                     final CoreLoadedClassDataSource classDataSource,
+                                     final CoreModule coreModule,
+                                     final boolean isEnableUnsafe,
+                                     final String namespace,
+                                     final int reTransformBatchSize) {
         this.inst = inst;
         this.classDataSource = classDataSource;
         this.coreModule = coreModule;
         this.isEnableUnsafe = isEnableUnsafe;
         this.namespace = namespace;
+        this.reTransformBatchSize = Math.max(1, reTransformBatchSize);
     }
 
 
@@ -81,6 +90,7 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
 
     /*
      * 形变观察所影响的类
+     * 每{@link #reTransformBatchSize}个类合并为一次retransformClasses()调用，减少JVM进入安全点的次数
      */
     private void reTransformClasses(
         final int watchId,
@@ -95,52 +105,100 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
         }
 
         if (logger.isDebugEnabled()) {
-            logger.debug("reTransformClasses={};module={};watch={};",
-                    waitingReTransformClasses, coreModule.getUniqueId(), watchId);
+            logger.debug("reTransformClasses={};module={};watch={};batch-size={};",
+                    waitingReTransformClasses, coreModule.getUniqueId(), watchId, reTransformBatchSize);
         }
 
-        int index = 0;
-        for (final Class<?> waitingReTransformClass : waitingReTransformClasses) {
-            index++;
-            try {
-                if (null != progress) {
-                    try {
-                        progress.progressOnSuccess(waitingReTransformClass, index);
-                    } catch (Throwable cause) {
-                        // 在进行进度汇报的过程中抛出异常,直接进行忽略,因为不影响形变的主体流程
-                        // 仅仅只是一个汇报作用而已
-                        logger.warn("watch={} in module={} on {} report progressOnSuccess occur exception at index={};total={};",
-                                watchId, coreModule.getUniqueId(), waitingReTransformClass,
-                                index - 1, total,
-                                cause
-                        );
-                    }
-                }
-                inst.retransformClasses(waitingReTransformClass);
-                logger.info("watch={} in module={} single reTransform {} success, at index={};total={};",
-                        watchId, coreModule.getUniqueId(), waitingReTransformClass,
-                        index - 1, total
+        for (int from = 0; from < total; from += reTransformBatchSize) {
+            reTransformClasses(watchId, waitingReTransformClasses, from, Math.min(from + reTransformBatchSize, total), progress);
+        }
+
+    }
+
+    /*
+     * 形变[from,to)区间内的类
+     * JVM保证一次retransformClasses()要么全部成功要么全部失败，所以当批量形变失败时，
+     * 将区间一分为二后分别重试，直至定位到具体形变失败的类
+     */
+    private void reTransformClasses(
+        final int watchId,
+        final List<Class<?>> waitingReTransformClasses,
+        final int from,
+        final int to,
+        final Progress progress) {
+        final int total = waitingReTransformClasses.size();
+        final List<Class<?>> batchReTransformClasses = waitingReTransformClasses.subList(from, to);
+        try {
+            inst.retransformClasses(batchReTransformClasses.toArray(new Class<?>[0]));
+            logger.info("watch={} in module={} batch reTransform {} classes success, at index=[{},{});total={};",
+                    watchId, coreModule.getUniqueId(), batchReTransformClasses.size(),
+                    from, to, total
+            );
+            for (int index = from; index < to; index++) {
+                progressOnSuccess(watchId, progress, waitingReTransformClasses.get(index), index, total);
+            }
+        } catch (Throwable causeOfReTransform) {
+
+            // 批量形变失败，拆分后重试
+            if (to - from > 1) {
+                logger.info("watch={} in module={} batch reTransform {} classes failed, at index=[{},{});total={}. split and retry.",
+                        watchId, coreModule.getUniqueId(), batchReTransformClasses.size(),
+                        from, to, total
                 );
-            } catch (Throwable causeOfReTransform) {
-                logger.warn("watch={} in module={} single reTransform {} failed, at index={};total={}. ignore this class.",
-                        watchId, coreModule.getUniqueId(), waitingReTransformClass,
-                        index - 1, total,
-                        causeOfReTransform
+                final int middle = (from + to) >>> 1;
+                reTransformClasses(watchId, waitingReTransformClasses, from, middle, progress);
+                reTransformClasses(watchId, waitingReTransformClasses, middle, to, progress);
+                return;
+            }
+
+            final Class<?> waitingReTransformClass = waitingReTransformClasses.get(from);
+            logger.warn("watch={} in module={} single reTransform {} failed, at index={};total={}. ignore this class.",
+                    watchId, coreModule.getUniqueId(), waitingReTransformClass,
+                    from, total,
+                    causeOfReTransform
+            );
+            progressOnFailed(watchId, progress, waitingReTransformClass, from, total, causeOfReTransform);
+        }
+    }
+
+    // 进度汇报(成功)
+    // 在进行进度汇报的过程中抛出异常,直接进行忽略,因为不影响形变的主体流程，仅仅只是一个汇报作用而已
+    private void progressOnSuccess(final int watchId,
+                                   final Progress progress,
+                                   final Class<?> clazz,
+                                   final int index,
+                                   final int total) {
+        if (null != progress) {
+            try {
+                progress.progressOnSuccess(clazz, index + 1);
+            } catch (Throwable cause) {
+                logger.warn("watch={} in module={} on {} report progressOnSuccess occur exception at index={};total={};",
+                        watchId, coreModule.getUniqueId(), clazz,
+                        index, total,
+                        cause
                 );
-                if (null != progress) {
-                    try {
-                        progress.progressOnFailed(waitingReTransformClass, index, causeOfReTransform);
-                    } catch (Throwable cause) {
-                        logger.warn("watch={} in module={} on {} report progressOnFailed occur exception, at index={};total={};",
-                                watchId, coreModule.getUniqueId(), waitingReTransformClass,
-                                index - 1, total,
-                                cause
-                        );
-                    }
-                }
             }
-        }//for
+        }
+    }
 
+    // 进度汇报(失败)
+    private void progressOnFailed(final int watchId,
+                                  final Progress progress,
+                                  final Class<?> clazz,
+                                  final int index,
+                                  final int total,
+                                  final Throwable causeOfReTransform) {
+        if (null != progress) {
+            try {
+                progress.progressOnFailed(clazz, index + 1, causeOfReTransform);
+            } catch (Throwable cause) {
+                logger.warn("watch={} in module={} on {} report progressOnFailed occur exception, at index={};total={};",
+                        watchId, coreModule.getUniqueId(), clazz,
+                        index, total,
+                        cause
+                );
+            }
+        }
     }
 
     @Override
@@ -155,7 +213,7 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                      final EventListener listener,
                      final Progress progress,
                      final Event.Type... eventType) {
-        return watch(new ExtFilterMatcher(make(filter)), listener, progress, eventType);
+        return watch(new ExtFilterMatcher(make(filter)), listener, progress, Capture.values(), Sampling.ALL, eventType);
     }
 
     @Override
@@ -163,18 +221,34 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                      final EventListener listener,
                      final Progress progress,
                      final Event.Type... eventType) {
-        return watch(toOrGroupMatcher(condition.getOrFilterArray()), listener, progress, eventType);
+        final Capture[] captures;
+        final Sampling sampling;
+        if (condition instanceof ExtEventWatchCondition) {
+            final ExtEventWatchCondition extCondition = (ExtEventWatchCondition) condition;
+            captures = null == extCondition.getCaptureArray()
+                    ? Capture.values()
+                    : extCondition.getCaptureArray();
+            sampling = null == extCondition.getSampling()
+                    ? Sampling.ALL
+                    : extCondition.getSampling();
+        } else {
+            captures = Capture.values();
+            sampling = Sampling.ALL;
+        }
+        return watch(toOrGroupMatcher(condition.getOrFilterArray()), listener, progress, captures, sampling, eventType);
     }
 
     // 这里是用matcher重制过后的watch
     private int watch(final Matcher matcher,
                       final EventListener listener,
                       final Progress progress,
+                      final Capture[] captures,
+                      final Sampling sampling,
                       final Event.Type... eventType) {
         final int watchId = watchIdSequencer.next();
         // 给对应的模块追加ClassFileTransformer
         final SandboxClassFileTransformer sandClassFileTransformer = new SandboxClassFileTransformer(
-                watchId, coreModule.getUniqueId(), matcher, listener, isEnableUnsafe, eventType, namespace);
+                watchId, coreModule.getUniqueId(), matcher, listener, isEnableUnsafe, eventType, captures, sampling, namespace);
 
         // 注册到CoreModule中
         coreModule.getSandboxClassFileTransformers().add(sandClassFileTransformer);
@@ -208,7 +282,7 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
             if (coreModule.isActivated()) {
                 final int listenerId = sandClassFileTransformer.getListenerId();
                 EventListenerHandler.getSingleton()
-                        .active(listenerId, listener, eventType);
+                        .active(listenerId, listener, eventType, sampling);
             }
 
         } finally {
@@ -223,6 +297,8 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                        final Progress progress) {
 
         final Set<Matcher> waitingRemoveMatcherSet = new LinkedHashSet<Matcher>();
+        final List<Integer> waitingRemoveListenerIds = new ArrayList<Integer>();
+        final List<AsyncAdapterListener> waitingShutdownListeners = new ArrayList<AsyncAdapterListener>();
 
         // 找出待删除的SandboxClassFileTransformer
         final Iterator<SandboxClassFileTransformer> cftIt = coreModule.getSandboxClassFileTransformers().iterator();
@@ -244,6 +320,10 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
 
                 // 追加到待删除过滤器集合
                 waitingRemoveMatcherSet.add(sandboxClassFileTransformer.getMatcher());
+                waitingRemoveListenerIds.add(sandboxClassFileTransformer.getListenerId());
+                if (sandboxClassFileTransformer.getEventListener() instanceof AsyncAdapterListener) {
+                    waitingShutdownListeners.add((AsyncAdapterListener) sandboxClassFileTransformer.getEventListener());
+                }
 
                 // 清除掉该SandboxClassFileTransformer
                 cftIt.remove();
@@ -268,6 +348,18 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
         } finally {
             finishProgress(progress, cCnt, mCnt);
         }
+
+        // 调用点已经冻结，移除登记即可，不影响仍未还原的增强代码
+        // 增强代码已经还原，处理器ID可以回收给新的观察使用
+        for (final int listenerId : waitingRemoveListenerIds) {
+            SpyCallSiteSwitcher.remove(listenerId);
+            EventListenerHandler.getSingleton().releaseListenerId(listenerId);
+        }
+
+        // 异步监听器不会再收到新的事件，通知消费线程处理完剩余事件后退出
+        for (final AsyncAdapterListener asyncAdapterListener : waitingShutdownListeners) {
+            asyncAdapterListener.shutdown();
+        }
     }
 
     @Override
@@ -287,7 +379,7 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                          final WatchCallback watchCb,
                          final Progress dProgress,
                          final Event.Type... eventType) throws Throwable {
-        final int watchId = watch(new ExtFilterMatcher(make(filter)), listener, wProgress, eventType);
+        final int watchId = watch(new ExtFilterMatcher(make(filter)), listener, wProgress, Capture.values(), Sampling.ALL, eventType);
         try {
             watchCb.watchCompleted();
         } finally {
@@ -0,0 +1,560 @@
+package com.alibaba.jvm.sandbox.core.manager.impl;
+
+import com.alibaba.jvm.sandbox.api.filter.ClassIndexHint;
+import com.alibaba.jvm.sandbox.api.filter.ExtFilter;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.GroupMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.annotation.Annotation;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.security.ProtectionDomain;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 已加载类索引
+ * <p>
+ * 按类名(可按包名前缀检索)、父类、接口和标注对JVM中已加载的类建立索引，
+ * 过滤器实现了{@link ClassIndexHint}时，可以直接从索引中找出候选类，而不用逐个匹配所有已加载的类
+ * </p>
+ * <p>
+ * 1. 索引本身作为一个不参与形变的{@link ClassFileTransformer}注册到JVM中，只记录新定义的类名和定义它的ClassLoader，不修改字节码
+ * 2. 查询时才将新定义的类合并到索引中，合并时按类名直接到定义它的ClassLoader中查找，不需要遍历所有已加载的类
+ * 3. 索引只弱引用类，当有类(ClassLoader)被回收后，下一次查询时整体重建
+ * 4. 按标注的索引需要反射获取类的标注，代价较高，只在第一次需要时才会建立
+ * </p>
+ *
+ * @author luanjia@taobao.com
+ */
+public class LoadedClassIndex implements ClassFileTransformer {
+
+    // 待合并队列的最大长度，超过之后只记录定义类的ClassLoader，合并时扫描这个ClassLoader加载的类
+    private static final int PENDING_LIMIT = 4096;
+
+    // 待合并的类最多等待的合并次数，超过之后认为这个类定义失败
+    private static final int PENDING_MAX_AGE = 3;
+
+    // ClassLoader#findLoadedClass(String)，只查找已经定义的类，不会触发类加载；无法访问时为null
+    private static final Method FIND_LOADED_CLASS_METHOD = getFindLoadedClassMethod();
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Instrumentation inst;
+
+    // ---- 以下由JVM类定义线程并发写入 ----
+
+    // 新定义的类
+    private final Queue<Defined> definedQueue = new ConcurrentLinkedQueue<Defined>();
+    private final AtomicInteger definedCount = new AtomicInteger();
+
+    // 待合并队列溢出时定义类的ClassLoader(null为BootstrapClassLoader)，只在溢出时加锁写入
+    private final Map<ClassLoader, Boolean> overflowLoaders = new WeakHashMap<ClassLoader, Boolean>();
+    private volatile boolean isDefinedOverflow = false;
+
+    // ---- 以下只在持有索引锁的情况下访问 ----
+
+    private final ReferenceQueue<Class<?>> rQueue = new ReferenceQueue<Class<?>>();
+
+    // 已索引的类
+    private final WeakHashMap<Class<?>, Entry> indexed = new WeakHashMap<Class<?>, Entry>();
+
+    // 类名:类(同名的类可以被不同的ClassLoader加载)
+    private final TreeMap<String, List<Entry>> nameIndex = new TreeMap<String, List<Entry>>();
+
+    // 父类或接口名:直接子类或实现类
+    private final Map<String, List<Entry>> subTypeIndex = new HashMap<String, List<Entry>>();
+
+    // 标注类名:直接被标注的类，null表示尚未建立
+    private Map<String, List<Entry>> annotationIndex = null;
+
+    // 无法获取父类和接口的类，这些类在按类型检索时总是作为候选
+    private final List<Entry> unknownTypeEntries = new ArrayList<Entry>();
+
+    // 无法获取标注的类，这些类在按标注检索时总是作为候选
+    private final List<Entry> unknownAnnotationEntries = new ArrayList<Entry>();
+
+    // 等待合并的类
+    private final List<Defined> pendingDefines = new ArrayList<Defined>();
+
+    // 需要在下一次合并时再扫描一次的ClassLoader
+    private final Map<ClassLoader, Boolean> rescanLoaders = new WeakHashMap<ClassLoader, Boolean>();
+
+    private boolean isBuilt = false;
+    private int sequence = 0;
+
+    public LoadedClassIndex(final Instrumentation inst) {
+        this.inst = inst;
+    }
+
+    private static Method getFindLoadedClassMethod() {
+        try {
+            final Method method = ClassLoader.class.getDeclaredMethod("findLoadedClass", String.class);
+            method.setAccessible(true);
+            return method;
+        } catch (Throwable cause) {
+            return null;
+        }
+    }
+
+    @Override
+    public byte[] transform(final ClassLoader loader,
+                            final String internalClassName,
+                            final Class<?> classBeingRedefined,
+                            final ProtectionDomain protectionDomain,
+                            final byte[] classfileBuffer) {
+        // 只关心新定义的类，这里处在类加载的热点路径上，不做任何多余的事情
+        if (null == classBeingRedefined
+                && null != internalClassName) {
+            if (definedCount.incrementAndGet() <= PENDING_LIMIT) {
+                definedQueue.offer(new Defined(loader, internalClassName));
+            } else {
+                synchronized (overflowLoaders) {
+                    overflowLoaders.put(loader, Boolean.TRUE);
+                }
+                isDefinedOverflow = true;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 找出可能被匹配器匹配上的候选类
+     *
+     * @param matcher 匹配器
+     * @return 候选类数组(按加入索引的顺序排列)，null表示无法通过索引缩小查找范围
+     */
+    public synchronized Class<?>[] findCandidates(final Matcher matcher) {
+        refresh();
+        final Set<Entry> entries = plan(matcher);
+        return null == entries
+                ? null
+                : toClassArray(entries);
+    }
+
+    /*
+     * 合并新定义的类，如果有类被回收则整体重建
+     * 只有第一次建立索引和整体重建时才需要遍历所有已加载的类
+     */
+    private void refresh() {
+
+        boolean isRescan = !isBuilt;
+
+        // 有类被回收，需要整体重建
+        if (null != rQueue.poll()) {
+            while (null != rQueue.poll()) ;
+            clear();
+            isRescan = true;
+        }
+
+        Defined defined;
+        int drained = 0;
+        while (null != (defined = definedQueue.poll())) {
+            pendingDefines.add(defined);
+            drained++;
+        }
+        definedCount.addAndGet(-drained);
+
+        // 有类因为队列溢出没有记录，只扫描定义这些类的ClassLoader
+        // 其中可能有正在定义还未出现在已加载类中的类，下一次合并时需要再扫描一次
+        final Map<ClassLoader, Boolean> scanLoaders = new WeakHashMap<ClassLoader, Boolean>(rescanLoaders);
+        rescanLoaders.clear();
+        if (isDefinedOverflow) {
+            synchronized (overflowLoaders) {
+                isDefinedOverflow = false;
+                rescanLoaders.putAll(overflowLoaders);
+                overflowLoaders.clear();
+            }
+            scanLoaders.putAll(rescanLoaders);
+        }
+
+        if (!isRescan
+                && pendingDefines.isEmpty()
+                && scanLoaders.isEmpty()) {
+            return;
+        }
+
+        // 无法按类名直接查找的ClassLoader(包括BootstrapClassLoader)，扫描一次它加载的类
+        if (!isRescan) {
+            for (final Defined pending : pendingDefines) {
+                final ClassLoader loader = pending.getLoader();
+                if (!pending.isLoaderCollected()
+                        && !isFindLoadedClassSupported(loader)) {
+                    scanLoaders.put(loader, Boolean.TRUE);
+                }
+            }
+        }
+
+        final long beginMills = System.currentTimeMillis();
+        int added = 0;
+        if (isRescan) {
+            for (final Class<?> clazz : inst.getAllLoadedClasses()) {
+                added += addIfAbsent(clazz);
+            }
+            isBuilt = true;
+        } else {
+            for (final ClassLoader loader : new ArrayList<ClassLoader>(scanLoaders.keySet())) {
+                added += scan(loader);
+            }
+        }
+
+        // 类在transform()时还未完成定义，不会出现在已加载类中，所以这里需要继续等待
+        final Iterator<Defined> pendingIt = pendingDefines.iterator();
+        while (pendingIt.hasNext()) {
+            final Defined pending = pendingIt.next();
+            final ClassLoader loader = pending.getLoader();
+            if (pending.isLoaderCollected()) {
+                pendingIt.remove();
+                continue;
+            }
+            final Class<?> clazz = isRescan || !isFindLoadedClassSupported(loader)
+                    ? findIndexed(loader, pending.javaClassName)
+                    : findLoadedClass(loader, pending.javaClassName);
+            if (null != clazz) {
+                added += addIfAbsent(clazz);
+                pendingIt.remove();
+            } else if (pending.age++ >= PENDING_MAX_AGE) {
+                pendingIt.remove();
+            }
+        }
+
+        logger.debug("loaded class index refreshed, added={};total={};pending={};rescan={};cost={}ms;",
+                added, indexed.size(), pendingDefines.size(), isRescan, System.currentTimeMillis() - beginMills);
+    }
+
+    private int addIfAbsent(final Class<?> clazz) {
+        if (indexed.containsKey(clazz)) {
+            return 0;
+        }
+        add(clazz);
+        return 1;
+    }
+
+    // 将ClassLoader定义的类合并到索引中
+    private int scan(final ClassLoader loader) {
+        int added = 0;
+        for (final Class<?> clazz : inst.getInitiatedClasses(loader)) {
+            if (clazz.getClassLoader() == loader) {
+                added += addIfAbsent(clazz);
+            }
+        }
+        return added;
+    }
+
+    private static boolean isFindLoadedClassSupported(final ClassLoader loader) {
+        return null != loader
+                && null != FIND_LOADED_CLASS_METHOD;
+    }
+
+    // 通过ClassLoader#findLoadedClass(String)按类名查找已经定义的类
+    private Class<?> findLoadedClass(final ClassLoader loader,
+                                     final String javaClassName) {
+        try {
+            final Class<?> clazz = (Class<?>) FIND_LOADED_CLASS_METHOD.invoke(loader, javaClassName);
+            return null != clazz && clazz.getClassLoader() == loader
+                    ? clazz
+                    : null;
+        } catch (Throwable cause) {
+            logger.debug("find loaded class:{} from loader:{} failed.", javaClassName, loader, cause);
+            return null;
+        }
+    }
+
+    // 从索引中查找由ClassLoader定义的类
+    private Class<?> findIndexed(final ClassLoader loader,
+                                 final String javaClassName) {
+        final List<Entry> entries = nameIndex.get(javaClassName);
+        if (null != entries) {
+            for (final Entry entry : entries) {
+                final Class<?> clazz = entry.get();
+                if (null != clazz
+                        && clazz.getClassLoader() == loader) {
+                    return clazz;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void clear() {
+        indexed.clear();
+        nameIndex.clear();
+        subTypeIndex.clear();
+        if (null != annotationIndex) {
+            annotationIndex.clear();
+        }
+        unknownTypeEntries.clear();
+        unknownAnnotationEntries.clear();
+        sequence = 0;
+    }
+
+    private void add(final Class<?> clazz) {
+        final Entry entry = new Entry(clazz, sequence++, rQueue);
+        indexed.put(clazz, entry);
+        put(nameIndex, entry.javaClassName, entry);
+        try {
+            final Class<?> superClass = clazz.getSuperclass();
+            if (null != superClass) {
+                put(subTypeIndex, superClass.getName(), entry);
+            }
+            for (final Class<?> interfaceClass : clazz.getInterfaces()) {
+                put(subTypeIndex, interfaceClass.getName(), entry);
+            }
+        } catch (Throwable cause) {
+            unknownTypeEntries.add(entry);
+        }
+        if (null != annotationIndex) {
+            indexAnnotations(clazz, entry);
+        }
+    }
+
+    private void indexAnnotations(final Class<?> clazz, final Entry entry) {
+        try {
+            for (final Annotation annotation : clazz.getDeclaredAnnotations()) {
+                put(annotationIndex, annotation.annotationType().getName(), entry);
+            }
+        } catch (Throwable cause) {
+            unknownAnnotationEntries.add(entry);
+        }
+    }
+
+    private Map<String, List<Entry>> getAnnotationIndex() {
+        if (null == annotationIndex) {
+            annotationIndex = new HashMap<String, List<Entry>>();
+            for (final Map.Entry<Class<?>, Entry> entry : new ArrayList<Map.Entry<Class<?>, Entry>>(indexed.entrySet())) {
+                indexAnnotations(entry.getKey(), entry.getValue());
+            }
+        }
+        return annotationIndex;
+    }
+
+    private static void put(final Map<String, List<Entry>> index,
+                            final String key,
+                            final Entry entry) {
+        List<Entry> entries = index.get(key);
+        if (null == entries) {
+            index.put(key, entries = new ArrayList<Entry>(1));
+        }
+        entries.add(entry);
+    }
+
+    /*
+     * 规划候选类集合
+     * 返回null表示无法通过索引规划
+     */
+    private Set<Entry> plan(final Matcher matcher) {
+        if (matcher instanceof ExtFilterMatcher) {
+            return plan(((ExtFilterMatcher) matcher).getExtFilter());
+        }
+        if (matcher instanceof GroupMatcher.Or) {
+            final Set<Entry> union = new HashSet<Entry>();
+            final Matcher[] matcherArray = ((GroupMatcher) matcher).getMatcherArray();
+            if (null != matcherArray) {
+                for (final Matcher subMatcher : matcherArray) {
+                    final Set<Entry> entries = plan(subMatcher);
+                    if (null == entries) {
+                        return null;
+                    }
+                    union.addAll(entries);
+                }
+            }
+            return union;
+        }
+        if (matcher instanceof GroupMatcher.And) {
+            Set<Entry> smallest = null;
+            final Matcher[] matcherArray = ((GroupMatcher) matcher).getMatcherArray();
+            if (null == matcherArray) {
+                return new HashSet<Entry>();
+            }
+            for (final Matcher subMatcher : matcherArray) {
+                final Set<Entry> entries = plan(subMatcher);
+                if (null != entries
+                        && (null == smallest || entries.size() < smallest.size())) {
+                    smallest = entries;
+                }
+            }
+            return smallest;
+        }
+        return null;
+    }
+
+    /*
+     * 根据过滤器的提示规划候选类集合
+     * 被匹配的类可以是候选类本身，也可以是(开启子类匹配时)候选类的祖先，所以按类型规划时需要带上所有的子类
+     */
+    private Set<Entry> plan(final ExtFilter extFilter) {
+        if (!(extFilter instanceof ClassIndexHint)) {
+            return null;
+        }
+        final ClassIndexHint hint = (ClassIndexHint) extFilter;
+
+        Set<Entry> candidates = null;
+
+        // 按类名规划
+        final String prefix = hint.getJavaClassNamePrefix();
+        if (null != prefix) {
+            final Set<Entry> entries = new HashSet<Entry>();
+            if (hint.isExactJavaClassName()) {
+                addAll(entries, nameIndex.get(prefix));
+            } else {
+                for (final List<Entry> sameNameEntries : nameIndex.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+                    entries.addAll(sameNameEntries);
+                }
+            }
+            candidates = extFilter.isIncludeSubClasses()
+                    ? withSubTypes(entries)
+                    : entries;
+        }
+
+        // 按接口规划
+        final String[] interfaceTypeJavaClassNames = hint.getInterfaceTypeJavaClassNames();
+        if (null != interfaceTypeJavaClassNames) {
+            for (final String interfaceTypeJavaClassName : interfaceTypeJavaClassNames) {
+                final Set<Entry> entries = withSubTypes(Collections.<String>singleton(interfaceTypeJavaClassName), new HashSet<Entry>());
+                if (null == candidates || entries.size() < candidates.size()) {
+                    candidates = entries;
+                }
+            }
+        }
+
+        // 按标注规划，只有在没有其他提示的情况下才会使用
+        final String[] annotationTypeJavaClassNames = hint.getAnnotationTypeJavaClassNames();
+        if (null == candidates
+                && null != annotationTypeJavaClassNames) {
+            for (final String annotationTypeJavaClassName : annotationTypeJavaClassNames) {
+                final Set<Entry> annotated = new HashSet<Entry>(unknownAnnotationEntries);
+                addAll(annotated, getAnnotationIndex().get(annotationTypeJavaClassName));
+                final Set<Entry> entries = withSubTypes(annotated);
+                if (null == candidates || entries.size() < candidates.size()) {
+                    candidates = entries;
+                }
+            }
+        }
+
+        // 不搜索Bootstrap的类，这里可以直接过滤掉
+        if (null != candidates
+                && !extFilter.isIncludeBootstrap()) {
+            final Iterator<Entry> it = candidates.iterator();
+            while (it.hasNext()) {
+                if (it.next().isFromBootstrap) {
+                    it.remove();
+                }
+            }
+        }
+
+        return candidates;
+    }
+
+    private static void addAll(final Set<Entry> entries, final List<Entry> adding) {
+        if (null != adding) {
+            entries.addAll(adding);
+        }
+    }
+
+    private Set<Entry> withSubTypes(final Set<Entry> entries) {
+        final Set<String> javaClassNames = new HashSet<String>();
+        for (final Entry entry : entries) {
+            javaClassNames.add(entry.javaClassName);
+        }
+        return withSubTypes(javaClassNames, entries);
+    }
+
+    /*
+     * 找出所有子类(包括间接的子类和实现类)，追加到结果集合中
+     */
+    private Set<Entry> withSubTypes(final Collection<String> javaClassNames,
+                                    final Set<Entry> result) {
+        final Set<String> visited = new HashSet<String>(javaClassNames);
+        final LinkedList<String> waiting = new LinkedList<String>(javaClassNames);
+        while (!waiting.isEmpty()) {
+            final List<Entry> subTypeEntries = subTypeIndex.get(waiting.removeFirst());
+            if (null == subTypeEntries) {
+                continue;
+            }
+            for (final Entry subTypeEntry : subTypeEntries) {
+                result.add(subTypeEntry);
+                if (visited.add(subTypeEntry.javaClassName)) {
+                    waiting.add(subTypeEntry.javaClassName);
+                }
+            }
+        }
+        result.addAll(unknownTypeEntries);
+        return result;
+    }
+
+    private static Class<?>[] toClassArray(final Set<Entry> entries) {
+        final Entry[] entryArray = entries.toArray(new Entry[0]);
+        Arrays.sort(entryArray, new Comparator<Entry>() {
+            @Override
+            public int compare(final Entry o1, final Entry o2) {
+                return o1.sequence < o2.sequence ? -1 : (o1.sequence == o2.sequence ? 0 : 1);
+            }
+        });
+        final List<Class<?>> classes = new ArrayList<Class<?>>(entryArray.length);
+        for (final Entry entry : entryArray) {
+            final Class<?> clazz = entry.get();
+            if (null != clazz) {
+                classes.add(clazz);
+            }
+        }
+        return classes.toArray(new Class<?>[0]);
+    }
+
+    /**
+     * 索引项，弱引用已加载的类
+     */
+    private static class Entry extends WeakReference<Class<?>> {
+
+        private final String javaClassName;
+        private final int sequence;
+        private final boolean isFromBootstrap;
+
+        Entry(final Class<?> clazz,
+              final int sequence,
+              final ReferenceQueue<Class<?>> rQueue) {
+            super(clazz, rQueue);
+            this.javaClassName = clazz.getName();
+            this.sequence = sequence;
+            this.isFromBootstrap = null == clazz.getClassLoader();
+        }
+
+    }
+
+    /**
+     * 新定义的类，弱引用定义它的ClassLoader
+     */
+    private static class Defined {
+
+        private final WeakReference<ClassLoader> loaderRef;
+        private final String javaClassName;
+        private int age = 0;
+
+        Defined(final ClassLoader loader,
+                final String internalClassName) {
+            this.loaderRef = null == loader
+                    ? null
+                    : new WeakReference<ClassLoader>(loader);
+            this.javaClassName = internalClassName.replace('/', '.');
+        }
+
+        ClassLoader getLoader() {
+            return null == loaderRef
+                    ? null
+                    : loaderRef.get();
+        }
+
+        boolean isLoaderCollected() {
+            return null != loaderRef
+                    && null == loaderRef.get();
+        }
+
+    }
+
+}
@@ -1,9 +1,12 @@
 package com.alibaba.jvm.sandbox.core.manager.impl;
 
+import com.alibaba.jvm.sandbox.api.event.Capture;
 import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.event.Sampling;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
-import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.SpyCallSiteSwitcher;
 import com.alibaba.jvm.sandbox.core.util.SandboxClassUtils;
 import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
 import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
@@ -34,6 +37,8 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
     private final EventListener eventListener;
     private final boolean isEnableUnsafe;
     private final Event.Type[] eventTypeArray;
+    private final Capture[] captures;
+    private final Sampling sampling;
 
     private final String namespace;
     private final int listenerId;
@@ -45,6 +50,8 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
                                 final EventListener eventListener,
                                 final boolean isEnableUnsafe,
                                 final Event.Type[] eventTypeArray,
+                                final Capture[] captures,
+                                final Sampling sampling,
                                 final String namespace) {
         this.watchId = watchId;
         this.uniqueId = uniqueId;
@@ -52,8 +59,10 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
         this.eventListener = eventListener;
         this.isEnableUnsafe = isEnableUnsafe;
         this.eventTypeArray = eventTypeArray;
+        this.captures = captures;
+        this.sampling = sampling;
         this.namespace = namespace;
-        this.listenerId = ObjectIDs.instance.identity(eventListener);
+        this.listenerId = EventListenerHandler.getSingleton().allocateListenerId();
     }
 
     // 获取当前类结构
@@ -126,13 +135,14 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
 
         // 开始进行类匹配
         try {
-            final byte[] toByteCodeArray = new EventEnhancer().toByteCodeArray(
+            final byte[] toByteCodeArray = new EventEnhancer(SpyCallSiteSwitcher.isEnabled()).toByteCodeArray(
                     loader,
                     srcByteCodeArray,
                     behaviorSignCodes,
                     namespace,
                     listenerId,
-                    eventTypeArray
+                    eventTypeArray,
+                    captures
             );
             if (srcByteCodeArray == toByteCodeArray) {
                 logger.debug("transform ignore {}, nothing changed in loader={}", internalClassName, loader);
@@ -196,6 +206,15 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
         return eventTypeArray;
     }
 
+    /**
+     * 获取本次观察的调用采样
+     *
+     * @return 调用采样
+     */
+    Sampling getSampling() {
+        return sampling;
+    }
+
     /**
      * 获取本次增强的影响统计
      *
@@ -0,0 +1,200 @@
+package com.alibaba.jvm.sandbox.core.util;
+
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.apache.commons.io.IOUtils;
+
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
+
+/**
+ * 共同父类解析器
+ * <p>
+ * 增强时计算栈帧需要反复求两个类型的共同父类，一个大方法就可能上百次。
+ * 每个ClassLoader对应一个解析器，缓存类型的继承关系和两两类型的计算结果，
+ * 同一批次重新渲染的类之间共享，避免反复读取和解析同一个类
+ * </p>
+ *
+ * @author luanjia@taobao.com
+ */
+public class CommonSuperClassResolver {
+
+    private static final String OBJECT_INTERNAL_CLASS_NAME = "java/lang/Object";
+
+    // 每个ClassLoader缓存的类型继承关系数量
+    private static final long MAXIMUM_TYPE_HIERARCHY_SIZE = 4096;
+
+    // 每个ClassLoader缓存的共同父类计算结果数量
+    private static final long MAXIMUM_COMMON_SUPER_CLASS_SIZE = 16384;
+
+    // 找不到的类型继承关系占位
+    private static final TypeHierarchy NOT_FOUND = new TypeHierarchy(
+            false,
+            Collections.<String>emptyList(),
+            Collections.<String>emptySet()
+    );
+
+    // 解析器只弱引用ClassLoader，ClassLoader被回收后解析器随之清理
+    private static final LoadingCache<ClassLoader, CommonSuperClassResolver> resolvers = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<ClassLoader, CommonSuperClassResolver>() {
+                @Override
+                public CommonSuperClassResolver load(final ClassLoader loader) {
+                    return new CommonSuperClassResolver(loader);
+                }
+            });
+
+    /**
+     * 获取ClassLoader对应的共同父类解析器
+     *
+     * @param loader 所在ClassLoader
+     * @return 共同父类解析器；如果无法获取ClassLoader则返回null
+     */
+    public static CommonSuperClassResolver getResolver(final ClassLoader loader) {
+        //loader 为null，说明是BootStrapClassLoader，不能显式引用，故使用系统类加载器间接引用
+        final ClassLoader targetClassLoader = null == loader
+                ? ClassLoader.getSystemClassLoader()
+                : loader;
+        return null == targetClassLoader
+                ? null
+                : resolvers.getUnchecked(targetClassLoader);
+    }
+
+    /**
+     * 清空所有ClassLoader的解析缓存
+     */
+    public static void clear() {
+        resolvers.invalidateAll();
+    }
+
+    private final WeakReference<ClassLoader> loaderRef;
+    private final Cache<String, TypeHierarchy> typeHierarchyCache = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_TYPE_HIERARCHY_SIZE)
+            .build();
+    private final Cache<String, String> commonSuperClassCache = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_COMMON_SUPER_CLASS_SIZE)
+            .build();
+
+    private CommonSuperClassResolver(final ClassLoader loader) {
+        this.loaderRef = new WeakReference<ClassLoader>(loader);
+    }
+
+    /**
+     * 获取两个类型的共同父类
+     *
+     * @param type1 类型1
+     * @param type2 类型2
+     * @return 共同的父类
+     */
+    public String getCommonSuperClass(final String type1, final String type2) {
+        final String key = type1 + ";" + type2;
+        final String exist = commonSuperClassCache.getIfPresent(key);
+        if (null != exist) {
+            return exist;
+        }
+        final String commonSuperClass = resolve(type1, type2);
+        commonSuperClassCache.put(key, commonSuperClass);
+        return commonSuperClass;
+    }
+
+    private String resolve(final String type1, final String type2) {
+        final TypeHierarchy hierarchyOfType1 = getTypeHierarchy(type1);
+        if (NOT_FOUND == hierarchyOfType1) {
+            return OBJECT_INTERNAL_CLASS_NAME;
+        }
+        final TypeHierarchy hierarchyOfType2 = getTypeHierarchy(type2);
+        if (NOT_FOUND == hierarchyOfType2) {
+            return OBJECT_INTERNAL_CLASS_NAME;
+        }
+        if (hierarchyOfType2.familyTypes.contains(type1)) {
+            return type1;
+        }
+        if (hierarchyOfType1.familyTypes.contains(type2)) {
+            return type2;
+        }
+        if (hierarchyOfType1.isInterface
+                || hierarchyOfType2.isInterface) {
+            return OBJECT_INTERNAL_CLASS_NAME;
+        }
+        for (final String superType : hierarchyOfType1.superTypes) {
+            if (hierarchyOfType2.familyTypes.contains(superType)) {
+                return superType;
+            }
+        }
+        return OBJECT_INTERNAL_CLASS_NAME;
+    }
+
+    private TypeHierarchy getTypeHierarchy(final String type) {
+        final TypeHierarchy exist = typeHierarchyCache.getIfPresent(type);
+        if (null != exist) {
+            return exist;
+        }
+        final TypeHierarchy typeHierarchy = newTypeHierarchy(type);
+        typeHierarchyCache.put(type, typeHierarchy);
+        return typeHierarchy;
+    }
+
+    private TypeHierarchy newTypeHierarchy(final String type) {
+        final ClassLoader loader = loaderRef.get();
+        if (null == loader) {
+            return NOT_FOUND;
+        }
+        final InputStream is = loader.getResourceAsStream(type + ".class");
+        if (null == is) {
+            return NOT_FOUND;
+        }
+        try {
+            final ClassStructure classStructure = ClassStructureFactory.createClassStructure(is, loader);
+            if (null == classStructure) {
+                return NOT_FOUND;
+            }
+
+            final List<String> superTypes = new ArrayList<String>();
+            for (ClassStructure superClassStructure = classStructure.getSuperClassStructure();
+                 null != superClassStructure;
+                 superClassStructure = superClassStructure.getSuperClassStructure()) {
+                superTypes.add(toInternalClassName(superClassStructure.getJavaClassName()));
+            }
+
+            final Set<String> familyTypes = new HashSet<String>();
+            for (final ClassStructure familyTypeClassStructure : classStructure.getFamilyTypeClassStructures()) {
+                familyTypes.add(toInternalClassName(familyTypeClassStructure.getJavaClassName()));
+            }
+
+            return new TypeHierarchy(classStructure.getAccess().isInterface(), superTypes, familyTypes);
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+    /**
+     * 类型继承关系
+     */
+    private static class TypeHierarchy {
+
+        private final boolean isInterface;
+
+        // 父类链，由近及远
+        private final List<String> superTypes;
+
+        // 所有祖先类和接口，不包含自身
+        private final Set<String> familyTypes;
+
+        TypeHierarchy(final boolean isInterface,
+                      final List<String> superTypes,
+                      final Set<String> familyTypes) {
+            this.isInterface = isInterface;
+            this.superTypes = superTypes;
+            this.familyTypes = familyTypes;
+        }
+
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.alibaba.jvm.sandbox.core.util;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+
+import static org.apache.commons.lang3.ArrayUtils.contains;
+
+/**
+ * 事件类型工具类
+ *
+ * @author luanjia@taobao.com
+ */
+public class EventTypeUtils {
+
+    /**
+     * 判断是否需要跟踪调用堆栈
+     * <p>
+     * BEFORE和RETURN/THROWS同时监听时需要配对，LINE和CALL系列事件需要知道当前所在的调用，
+     * 这些情况下BEFORE/RETURN/THROWS必须全部埋入，由调用堆栈对齐每一次调用。
+     * 其余情况下只埋入监听的事件，每个事件自成一次调用过程(processId == invokeId)
+     * </p>
+     *
+     * @param eventTypes 监听的事件类型
+     * @return TRUE:需要跟踪调用堆栈;FALSE:不需要
+     */
+    public static boolean isTracingInvoke(final Event.Type[] eventTypes) {
+        return contains(eventTypes, Event.Type.BEFORE)
+                && (contains(eventTypes, Event.Type.RETURN) || contains(eventTypes, Event.Type.THROWS))
+                || contains(eventTypes, Event.Type.LINE)
+                || contains(eventTypes, Event.Type.CALL_BEFORE)
+                || contains(eventTypes, Event.Type.CALL_RETURN)
+                || contains(eventTypes, Event.Type.CALL_THROWS);
+    }
+
+}
@@ -2,10 +2,7 @@ package com.alibaba.jvm.sandbox.core.util;
 
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.HashMap;
-import java.util.WeakHashMap;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * 给指定的Java对象分配JVM唯一ID <br>
@@ -15,6 +12,12 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * 3. int为[0,{@link Integer#MAX_VALUE}]之间的整数
  * 4. 这个类当前无需考虑对象溢出的情况，因为我不需要，我放入的对象数量很少，就这么简单
  * </p>
+ * <p>
+ * {@link #identity(Object)}和{@link #getObject(int)}处在代码织入和BEFORE事件的热点路径上，
+ * 所以读操作不加锁：映射关系保存在两张开放寻址的散列表中(按对象身份/按ID)，只有写入新映射时才需要加锁，
+ * 失效映射的清理也只在写入时顺带完成。
+ * ClassLoader是最主要的查询对象且数量很少，额外维护了一个小数组用于快速命中。
+ * </p>
  *
  * @author luanjia@taobao.com
  */
@@ -25,30 +28,24 @@ public class ObjectIDs {
      */
     public static final int NULL_ID = 0;
 
+    // 散列表初始容量，必须为2的幂
+    private static final int INITIAL_CAPACITY = 64;
+
+    // 快速命中ClassLoader的最大数量
+    private static final int HOT_CLASSLOADER_LIMIT = 8;
+
     /**
      * 对象ID序列生成器，生成范围[1,{@link Integer#MAX_VALUE}]之间的整数
      */
     private final Sequencer objectIDSequencer = new Sequencer();
 
-    /**
-     * 全局读写锁:用于维护世界的和平
-     * <p>
-     * 用于维护{@link #identityObjectMapping}和{@link #objectIDMapping}之间数据的一致性
-     * </p>
-     */
-    private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
-
-    // 全局<对象:ID>映射表
-    private final WeakHashMap<Object, Integer> objectIDMapping
-            = new WeakHashMap<Object, Integer>();
+    private final ReferenceQueue<Object> rQueue = new ReferenceQueue<Object>();
 
+    // 当前映射表，扩容和清理时整体替换
+    private volatile Table table = new Table(INITIAL_CAPACITY);
 
-    // --- ObjectID : Object 的映射关系维护 ----------------------------------------+
-    private final ReferenceQueue<Object> rQueue = new ReferenceQueue<Object>(); //|
-    private final HashMap<Integer, IdentityWeakReference> identityObjectMapping //|
-            = new HashMap<Integer, IdentityWeakReference>();                    //|
-    // ---------------------------------------------------------------------------+
-
+    // 快速命中的ClassLoader映射，数组发布后不再修改
+    private volatile IdentityWeakReference[] hotClassLoaderReferences = new IdentityWeakReference[0];
 
     private ObjectIDs() {
 
@@ -71,68 +68,86 @@ public class ObjectIDs {
             return NULL_ID;
         }
 
-        rwLock.readLock().lock();
-        try {
-            final Integer objectID = objectIDMapping.get(object);
-            if (null != objectID) {
-                return objectID;
-            }
-        } finally {
-            rwLock.readLock().unlock();
-            expungeIdentityObjectMapping();
-        }
-
-        rwLock.writeLock().lock();
-        try {
-            final Integer nextObjectID;
-            if (objectIDMapping.containsKey(object)) {
-                nextObjectID = objectIDMapping.get(object);
-            } else {
-                mapping(
-                        nextObjectID = objectIDSequencer.next(),
-                        object
-                );
+        if (object instanceof ClassLoader) {
+            for (final IdentityWeakReference reference : hotClassLoaderReferences) {
+                if (reference.get() == object) {
+                    return reference.objectID;
+                }
             }
-            return nextObjectID;
-        } finally {
-            rwLock.writeLock().unlock();
         }
+
+        final IdentityWeakReference reference = table.getByObject(object);
+        if (null != reference) {
+            return reference.objectID;
+        }
+
+        return mapping(object);
     }
 
     /**
-     * 维持{@code [object:objectID]}和{@code [objectID:object]}两个集合的映射关系
+     * 为对象分配ID并建立{@code [object:objectID]}和{@code [objectID:object]}两个映射关系
      *
-     * @param objectID 对象ID
-     * @param object   对象
+     * @param object 对象
+     * @return 对象ID
      */
-    private void mapping(final Integer objectID,
-                         final Object object) {
-        rwLock.writeLock().lock();
-        try {
-            // 映射 [object : objectID]
-            objectIDMapping.put(object, objectID);
-
-            // 映射 [objectID : object]
-            identityObjectMapping.put(objectID, new IdentityWeakReference(objectID, object));
-        } finally {
-            rwLock.writeLock().unlock();
+    private synchronized int mapping(final Object object) {
+
+        // 加锁后需要重新检查一遍，有可能已经被其他线程映射
+        final IdentityWeakReference exist = table.getByObject(object);
+        if (null != exist) {
+            return exist.objectID;
+        }
+
+        expungeIfNecessary();
+
+        final IdentityWeakReference reference = new IdentityWeakReference(objectIDSequencer.next(), object);
+        if (!table.put(reference)) {
+            final Table newTable = table.resize(table.size + 1);
+            newTable.put(reference);
+            table = newTable;
         }
+
+        if (object instanceof ClassLoader
+                && hotClassLoaderReferences.length < HOT_CLASSLOADER_LIMIT) {
+            hotClassLoaderReferences = append(hotClassLoaderReferences, reference);
+        }
+
+        return reference.objectID;
     }
 
     /**
-     * 清理失效的 [objectID : object] 映射
+     * 清理失效的映射
+     * <p>只在写入时进行，如果引用队列中有已被回收的对象，则重建映射表</p>
      */
-    private void expungeIdentityObjectMapping() {
-        for (Object x; (x = rQueue.poll()) != null; ) {
-            synchronized (rQueue) {
-                rwLock.writeLock().lock();
-                try {
-                    identityObjectMapping.remove(((IdentityWeakReference) x).objectID);
-                } finally {
-                    rwLock.writeLock().unlock();
-                }
+    private void expungeIfNecessary() {
+        if (null == rQueue.poll()) {
+            return;
+        }
+        // 已经决定要重建，剩余的引用一并出队即可
+        while (null != rQueue.poll()) ;
+        table = table.resize(0);
+
+        int alive = 0;
+        final IdentityWeakReference[] references = hotClassLoaderReferences;
+        final IdentityWeakReference[] aliveReferences = new IdentityWeakReference[references.length];
+        for (final IdentityWeakReference reference : references) {
+            if (null != reference.get()) {
+                aliveReferences[alive++] = reference;
             }
         }
+        if (alive != references.length) {
+            final IdentityWeakReference[] newReferences = new IdentityWeakReference[alive];
+            System.arraycopy(aliveReferences, 0, newReferences, 0, alive);
+            hotClassLoaderReferences = newReferences;
+        }
+    }
+
+    private static IdentityWeakReference[] append(final IdentityWeakReference[] references,
+                                                  final IdentityWeakReference reference) {
+        final IdentityWeakReference[] newReferences = new IdentityWeakReference[references.length + 1];
+        System.arraycopy(references, 0, newReferences, 0, references.length);
+        newReferences[references.length] = reference;
+        return newReferences;
     }
 
     /**
@@ -149,33 +164,138 @@ public class ObjectIDs {
             return null;
         }
 
-        rwLock.readLock().lock();
-        try {
-            final Object object;
-            final IdentityWeakReference reference = identityObjectMapping.get(objectID);
-            if (null != reference
-                    && null != (object = reference.get())) {
-                return (T) object;
-            } else {
-                return null;
+        for (final IdentityWeakReference reference : hotClassLoaderReferences) {
+            if (reference.objectID == objectID) {
+                return (T) reference.get();
             }
-        } finally {
-            rwLock.readLock().unlock();
-            expungeIdentityObjectMapping();
         }
 
+        final IdentityWeakReference reference = table.getById(objectID);
+        return null == reference
+                ? null
+                : (T) reference.get();
     }
 
     // 带ObjectID标记的弱对象引用
     private class IdentityWeakReference extends WeakReference<Object> {
 
         // 对应的对象ID
-        private final Integer objectID;
+        private final int objectID;
+
+        // 对象的身份散列值
+        private final int identityHashCode;
 
-        private IdentityWeakReference(final Integer objectID,
+        private IdentityWeakReference(final int objectID,
                                       final Object referent) {
             super(referent, rQueue);
             this.objectID = objectID;
+            this.identityHashCode = System.identityHashCode(referent);
+        }
+
+    }
+
+    /**
+     * 映射表
+     * <p>
+     * 由两张线性探测的散列表组成，写入只发生在持有{@link ObjectIDs}锁的情况下，
+     * 读取通过{@link AtomicReferenceArray}保证可见性，无需加锁。表中的元素只增不删，
+     * 失效的引用在下一次重建时被丢弃
+     * </p>
+     */
+    private static class Table {
+
+        private final AtomicReferenceArray<IdentityWeakReference> objectTable;
+        private final AtomicReferenceArray<IdentityWeakReference> idTable;
+        private final int mask;
+        private int size;
+
+        private Table(final int capacity) {
+            this.objectTable = new AtomicReferenceArray<IdentityWeakReference>(capacity);
+            this.idTable = new AtomicReferenceArray<IdentityWeakReference>(capacity);
+            this.mask = capacity - 1;
+        }
+
+        private int hash(final int h) {
+            // 打散低位，避免连续的ID和对象地址聚集
+            final int x = h * 0x9E3779B9;
+            return x ^ (x >>> 16);
+        }
+
+        IdentityWeakReference getByObject(final Object object) {
+            int index = hash(System.identityHashCode(object)) & mask;
+            IdentityWeakReference reference;
+            while (null != (reference = objectTable.get(index))) {
+                if (reference.get() == object) {
+                    return reference;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        IdentityWeakReference getById(final int objectID) {
+            int index = hash(objectID) & mask;
+            IdentityWeakReference reference;
+            while (null != (reference = idTable.get(index))) {
+                if (reference.objectID == objectID) {
+                    return reference;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * 写入映射，负载因子超过0.5时拒绝写入
+         *
+         * @param reference 对象引用
+         * @return TRUE:写入成功;FALSE:需要扩容
+         */
+        boolean put(final IdentityWeakReference reference) {
+            if ((size + 1) << 1 > mask + 1) {
+                return false;
+            }
+            int index = hash(reference.identityHashCode) & mask;
+            while (null != objectTable.get(index)) {
+                index = (index + 1) & mask;
+            }
+            objectTable.set(index, reference);
+
+            index = hash(reference.objectID) & mask;
+            while (null != idTable.get(index)) {
+                index = (index + 1) & mask;
+            }
+            idTable.set(index, reference);
+            size++;
+            return true;
+        }
+
+        /**
+         * 重建映射表，丢弃已失效的引用
+         *
+         * @param expect 需要额外预留的容量
+         * @return 新的映射表
+         */
+        Table resize(final int expect) {
+            int alive = expect;
+            for (int index = 0; index <= mask; index++) {
+                final IdentityWeakReference reference = idTable.get(index);
+                if (null != reference && null != reference.get()) {
+                    alive++;
+                }
+            }
+            int capacity = INITIAL_CAPACITY;
+            while (capacity < alive << 2) {
+                capacity <<= 1;
+            }
+            final Table newTable = new Table(capacity);
+            for (int index = 0; index <= mask; index++) {
+                final IdentityWeakReference reference = idTable.get(index);
+                if (null != reference && null != reference.get()) {
+                    newTable.put(reference);
+                }
+            }
+            return newTable;
         }
 
     }
@@ -6,7 +6,6 @@ import org.slf4j.LoggerFactory;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Sandbox守护者
@@ -20,21 +19,17 @@ public class SandboxProtector {
 
     private Logger logger = LoggerFactory.getLogger(getClass());
 
-    private final ThreadLocal<AtomicInteger> isInProtectingThreadLocal = new ThreadLocal<AtomicInteger>() {
-        @Override
-        protected AtomicInteger initialValue() {
-            return new AtomicInteger(0);
-        }
-    };
-
     /**
      * 进入守护区域
+     * <p>
+     * 引用计数保存在{@link SandboxThreadContext}中
+     * </p>
      *
      * @return 守护区域当前引用计数
      */
     public int enterProtecting() {
-        final int referenceCount = isInProtectingThreadLocal.get().getAndIncrement();
-        if (logger.isDebugEnabled()) {
+        final int referenceCount = SandboxThreadContext.get().enterProtecting();
+        if (SandboxTracing.isEnabled && logger.isDebugEnabled()) {
             logger.debug("thread:{} enter protect:{}", Thread.currentThread(), referenceCount);
         }
         return referenceCount;
@@ -46,15 +41,14 @@ public class SandboxProtector {
      * @return 守护区域当前引用计数
      */
     public int exitProtecting() {
-        final int referenceCount = isInProtectingThreadLocal.get().decrementAndGet();
+        final int referenceCount = SandboxThreadContext.get().exitProtecting();
         assert referenceCount >= 0;
         if (referenceCount == 0) {
-            isInProtectingThreadLocal.remove();
-            if (logger.isDebugEnabled()) {
+            if (SandboxTracing.isEnabled && logger.isDebugEnabled()) {
                 logger.debug("thread:{} exit protect:{} with clean", Thread.currentThread(), referenceCount);
             }
         } else if (referenceCount > 0) {
-            if (logger.isDebugEnabled()) {
+            if (SandboxTracing.isEnabled && logger.isDebugEnabled()) {
                 logger.debug("thread:{} exit protect:{}", Thread.currentThread(), referenceCount);
             }
         } else {
@@ -69,7 +63,7 @@ public class SandboxProtector {
      * @return TRUE:在守护区域中；FALSE：非守护区域中
      */
     public boolean isInProtecting() {
-        return isInProtectingThreadLocal.get().get() > 0;
+        return SandboxThreadContext.get().isInProtecting();
     }
 
     /**
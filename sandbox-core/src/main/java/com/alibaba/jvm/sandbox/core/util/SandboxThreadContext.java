@@ -0,0 +1,200 @@
+package com.alibaba.jvm.sandbox.core.util;
+
+import java.com.alibaba.jvm.sandbox.spy.Spy;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import static java.lang.System.arraycopy;
+
+/**
+ * 线程上下文
+ * <p>
+ * 一次拦截需要的所有线程私有状态都集中在这里：守护区域的引用计数、当前业务ClassLoader、各个事件监听器的调用跟踪槽位、
+ * 改变流程时返回给增强代码的{@link Spy.Ret}。
+ * 每个事件只需要在入口处获取一次，避免每个事件反复查询和增删多个ThreadLocal，
+ * 也不会随着监听器的激活和冻结在线程池的长寿线程中堆积失效的ThreadLocal条目
+ * </p>
+ * <p>
+ * 上下文由{@link #contexts}强引用，线程结束后随之清理；ThreadLocal中只放弱引用，
+ * 这样线程的ThreadLocalMap不会强引用SANDBOX的类，不会导致SANDBOX的ClassLoader无法卸载
+ * </p>
+ *
+ * @author luanjia@taobao.com
+ */
+public class SandboxThreadContext {
+
+    private static final int DEFAULT_SLOT_SIZE = 8;
+
+    // 线程:上下文
+    private static final Map<Thread, SandboxThreadContext> contexts
+            = new WeakHashMap<Thread, SandboxThreadContext>();
+
+    private static final ThreadLocal<WeakReference<SandboxThreadContext>> contextRef
+            = new ThreadLocal<WeakReference<SandboxThreadContext>>();
+
+    /**
+     * 获取当前线程的上下文，不存在则创建
+     *
+     * @return 当前线程的上下文
+     */
+    public static SandboxThreadContext get() {
+        final WeakReference<SandboxThreadContext> reference = contextRef.get();
+        if (null != reference) {
+            final SandboxThreadContext context = reference.get();
+            if (null != context) {
+                return context;
+            }
+        }
+        return register();
+    }
+
+    private static SandboxThreadContext register() {
+        final SandboxThreadContext context = new SandboxThreadContext();
+        synchronized (contexts) {
+            contexts.put(Thread.currentThread(), context);
+        }
+        contextRef.set(new WeakReference<SandboxThreadContext>(context));
+        return context;
+    }
+
+    /**
+     * 清空所有线程上下文中的指定槽位
+     * <p>
+     * 槽位的持有者被释放时调用(例如冻结事件监听器)。
+     * 线程正在写入槽位时可能错过本次清理，所以槽位的使用者需要自行校验取出的对象是否仍然属于自己
+     * </p>
+     *
+     * @param index 槽位
+     */
+    public static void releaseSlot(final int index) {
+        synchronized (contexts) {
+            for (final SandboxThreadContext context : contexts.values()) {
+                final Object[] slots = context.slots;
+                if (index < slots.length) {
+                    slots[index] = null;
+                }
+            }
+        }
+    }
+
+    // 守护区域引用计数
+    private int protectingCount;
+
+    // 当前业务ClassLoader
+    private ClassLoader businessClassLoader;
+
+    // 槽位
+    private Object[] slots = new Object[DEFAULT_SLOT_SIZE];
+
+    // 改变流程的返回结果，增强代码读取完毕后才会再次改写
+    private final ReusableRet ret = new ReusableRet();
+
+    private SandboxThreadContext() {
+
+    }
+
+    /**
+     * 进入守护区域
+     *
+     * @return 进入前的守护区域引用计数
+     */
+    public int enterProtecting() {
+        return protectingCount++;
+    }
+
+    /**
+     * 离开守护区域
+     *
+     * @return 离开后的守护区域引用计数
+     */
+    public int exitProtecting() {
+        return --protectingCount;
+    }
+
+    /**
+     * 判断当前是否处于守护区域中
+     *
+     * @return TRUE:在守护区域中；FALSE：非守护区域中
+     */
+    public boolean isInProtecting() {
+        return protectingCount > 0;
+    }
+
+    public ClassLoader getBusinessClassLoader() {
+        return businessClassLoader;
+    }
+
+    public void setBusinessClassLoader(final ClassLoader businessClassLoader) {
+        this.businessClassLoader = businessClassLoader;
+    }
+
+    /**
+     * 获取槽位中的对象
+     *
+     * @param index 槽位
+     * @return 槽位中的对象，槽位为空返回null
+     */
+    public Object getSlot(final int index) {
+        final Object[] slots = this.slots;
+        return index < slots.length
+                ? slots[index]
+                : null;
+    }
+
+    /**
+     * 设置槽位中的对象
+     *
+     * @param index  槽位
+     * @param object 对象
+     */
+    public void setSlot(final int index, final Object object) {
+        if (index >= slots.length) {
+            final Object[] newSlots = new Object[Math.max(slots.length * 2, index + 1)];
+            arraycopy(slots, 0, newSlots, 0, slots.length);
+            slots = newSlots;
+        }
+        slots[index] = object;
+    }
+
+    /**
+     * 获取本线程的返回结果，改写为立即返回
+     *
+     * @param object 返回对象
+     * @return 返回结果
+     */
+    public Spy.Ret reuseRetForReturn(final Object object) {
+        return ret.reuseForReturn(object);
+    }
+
+    /**
+     * 获取本线程的返回结果，改写为立即抛出异常
+     *
+     * @param throwable 抛出的异常
+     * @return 返回结果
+     */
+    public Spy.Ret reuseRetForThrows(final Throwable throwable) {
+        return ret.reuseForThrows(throwable);
+    }
+
+    /**
+     * 由线程持有、可以改写的返回结果
+     * <p>只在容器内部创建，模块代码拿不到改写的入口</p>
+     */
+    private static final class ReusableRet extends Spy.Ret {
+
+        ReusableRet() {
+            super(RET_STATE_NONE, null);
+        }
+
+        Spy.Ret reuseForReturn(final Object object) {
+            return reuse(RET_STATE_RETURN, object);
+        }
+
+        Spy.Ret reuseForThrows(final Throwable throwable) {
+            return reuse(RET_STATE_THROWS, throwable);
+        }
+
+    }
+
+}
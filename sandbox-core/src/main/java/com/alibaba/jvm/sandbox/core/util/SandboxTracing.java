@@ -0,0 +1,28 @@
+package com.alibaba.jvm.sandbox.core.util;
+
+import com.alibaba.jvm.sandbox.core.CoreConfigure;
+
+/**
+ * 事件链路跟踪开关
+ * <p>
+ * 开启后事件处理链路(EventListenerHandler、EventProcessor、SandboxProtector)才会输出DEBUG日志。
+ * 开关是一个静态常量，关闭时链路上的日志语句及其参数装箱都会被JIT作为死代码消除。
+ * 开关在沙箱启动时由{@code event.tracing.enable}确定，运行期间不可修改
+ * </p>
+ *
+ * @author luanjia@taobao.com
+ */
+public class SandboxTracing {
+
+    /**
+     * 是否开启事件链路跟踪
+     */
+    public static final boolean isEnabled = isEnableEventTracing();
+
+    private static boolean isEnableEventTracing() {
+        final CoreConfigure cfg = CoreConfigure.getInstance();
+        return null != cfg
+                && cfg.isEnableEventTracing();
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.alibaba.jvm.sandbox.core.util.collection;
+
+import java.util.NoSuchElementException;
+
+import static java.lang.System.arraycopy;
+
+/**
+ * 线程不安全不固定栈深的int堆栈实现
+ * <p>
+ * 与{@link ThreadUnsafeGaStack}行为一致，但直接以int[]存放元素，
+ * 压栈和出栈都不需要装箱拆箱，用于调用ID这类每次拦截都会访问的堆栈
+ * </p>
+ */
+public class ThreadUnsafeIntStack {
+
+    private final static int EMPTY_INDEX = -1;
+    private final static int DEFAULT_STACK_DEEP = 12;
+
+    private int[] elementArray;
+    private int current = EMPTY_INDEX;
+
+    public ThreadUnsafeIntStack() {
+        this(DEFAULT_STACK_DEEP);
+    }
+
+    public ThreadUnsafeIntStack(int stackSize) {
+        this.elementArray = new int[stackSize];
+    }
+
+    /**
+     * 自动扩容
+     * 当前堆栈最大深度不满足期望时会自动扩容(2倍扩容)
+     *
+     * @param expectDeep 期望堆栈深度
+     */
+    private void ensureCapacityInternal(int expectDeep) {
+        final int currentStackSize = elementArray.length;
+        if (elementArray.length <= expectDeep) {
+            final int[] newElementArray = new int[Math.max(currentStackSize * 2, expectDeep + 1)];
+            arraycopy(elementArray, 0, newElementArray, 0, currentStackSize);
+            this.elementArray = newElementArray;
+        }
+    }
+
+    private void checkForPopOrPeek() {
+        // stack is empty
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+    }
+
+    public int pop() {
+        checkForPopOrPeek();
+        final int e = elementArray[current];
+        elementArray[current] = 0;
+        current--;
+        return e;
+    }
+
+    public void push(int e) {
+        ensureCapacityInternal(current + 1);
+        elementArray[++current] = e;
+    }
+
+    public int peek() {
+        checkForPopOrPeek();
+        return elementArray[current];
+    }
+
+    public boolean isEmpty() {
+        return current == EMPTY_INDEX;
+    }
+
+    public boolean isLast() {
+        return current == 0;
+    }
+
+    public int peekLast() {
+        checkForPopOrPeek();
+        return elementArray[0];
+    }
+
+    public int deep() {
+        return current + 1;
+    }
+
+    public int[] getElementArray() {
+        return elementArray;
+    }
+
+    public int getCurrent() {
+        return current;
+    }
+
+}
@@ -30,6 +30,15 @@ public class ExtFilterMatcher implements Matcher {
         this.extFilter = extFilter;
     }
 
+    /**
+     * 获取增强过滤器
+     *
+     * @return 增强过滤器
+     */
+    public ExtFilter getExtFilter() {
+        return extFilter;
+    }
+
     // 获取需要匹配的类结构
     // 如果要匹配子类就需要将这个类的所有家族成员找出
     private Collection<ClassStructure> getWaitingMatchClassStructures(final ClassStructure classStructure) {
@@ -0,0 +1,236 @@
+package com.alibaba.jvm.sandbox.core.util.matcher.structure;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 类结构缓存
+ * <p>
+ * 1. 以{@code [ClassLoader:类名]}为键缓存用ASM构造的类结构，ClassLoader只被弱引用，被回收后对应的缓存随之清理
+ * 2. 找不到或解析失败的类也会被缓存，避免反复读取和解析
+ * 3. 缓存容量由{@link #setMaximumSize(long)}指定，超出后按LRU淘汰
+ * </p>
+ *
+ * @author luanjia@taobao.com
+ */
+public class ClassStructureCache {
+
+    /**
+     * 默认缓存容量
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 1024;
+
+    // 找不到或解析失败的类结构占位，Guava的Cache不允许存放null
+    private static final Object NULL_CLASS_STRUCTURE = new Object();
+
+    private final ReferenceQueue<ClassLoader> rQueue = new ReferenceQueue<ClassLoader>();
+    private final AtomicLong negativeHitCount = new AtomicLong();
+    private volatile Cache<Key, Object> cache;
+    private volatile long maximumSize;
+
+    private ClassStructureCache(final long maximumSize) {
+        setMaximumSize(maximumSize);
+    }
+
+    /**
+     * 设置缓存容量，已缓存的类结构和统计数据会被清空
+     *
+     * @param maximumSize 缓存容量
+     */
+    public synchronized void setMaximumSize(final long maximumSize) {
+        this.maximumSize = Math.max(0, maximumSize);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(this.maximumSize)
+                .recordStats()
+                .build();
+        this.negativeHitCount.set(0);
+    }
+
+    /**
+     * 获取缓存的类结构
+     *
+     * @param loader        ClassLoader
+     * @param javaClassName 类名
+     * @return 缓存的类结构；如果没有缓存则返回null；如果缓存了找不到的结果则返回{@link #isNegative(Object)}为true的占位
+     */
+    Object get(final ClassLoader loader, final String javaClassName) {
+        expungeStaleEntries();
+        final Object value = cache.getIfPresent(new Key(loader, javaClassName, null));
+        if (NULL_CLASS_STRUCTURE == value) {
+            negativeHitCount.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * 缓存类结构
+     *
+     * @param loader         ClassLoader
+     * @param javaClassName  类名
+     * @param classStructure 类结构，null表示找不到或解析失败
+     */
+    void put(final ClassLoader loader, final String javaClassName, final ClassStructure classStructure) {
+        cache.put(
+                new Key(loader, javaClassName, rQueue),
+                null == classStructure
+                        ? NULL_CLASS_STRUCTURE
+                        : classStructure
+        );
+    }
+
+    /**
+     * 是否为找不到或解析失败的占位
+     *
+     * @param value 缓存值
+     * @return TRUE:是占位;FALSE:是类结构
+     */
+    static boolean isNegative(final Object value) {
+        return NULL_CLASS_STRUCTURE == value;
+    }
+
+    /*
+     * 清理ClassLoader已被回收的缓存
+     */
+    private void expungeStaleEntries() {
+        Object reference;
+        while (null != (reference = rQueue.poll())) {
+            cache.invalidate(reference);
+        }
+    }
+
+    /**
+     * 获取缓存统计
+     *
+     * @return 缓存统计
+     */
+    public Stats getStats() {
+        expungeStaleEntries();
+        final Cache<Key, Object> cache = this.cache;
+        final CacheStats stats = cache.stats();
+        return new Stats(
+                cache.size(),
+                maximumSize,
+                stats.hitCount(),
+                negativeHitCount.get(),
+                stats.missCount(),
+                stats.evictionCount()
+        );
+    }
+
+    /**
+     * 缓存统计
+     */
+    public static class Stats {
+
+        private final long size;
+        private final long maximumSize;
+        private final long hitCount;
+        private final long negativeHitCount;
+        private final long missCount;
+        private final long evictionCount;
+
+        Stats(final long size,
+              final long maximumSize,
+              final long hitCount,
+              final long negativeHitCount,
+              final long missCount,
+              final long evictionCount) {
+            this.size = size;
+            this.maximumSize = maximumSize;
+            this.hitCount = hitCount;
+            this.negativeHitCount = negativeHitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        /**
+         * @return 命中次数，包含命中找不到的类
+         */
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        /**
+         * @return 命中找不到或解析失败的类的次数
+         */
+        public long getNegativeHitCount() {
+            return negativeHitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+    }
+
+    /**
+     * 缓存键，弱引用ClassLoader
+     */
+    private static class Key extends WeakReference<ClassLoader> {
+
+        private final boolean isBootstrap;
+        private final String javaClassName;
+        private final int hashCode;
+
+        Key(final ClassLoader loader,
+            final String javaClassName,
+            final ReferenceQueue<ClassLoader> rQueue) {
+            super(loader, null == loader ? null : rQueue);
+            this.isBootstrap = null == loader;
+            this.javaClassName = javaClassName;
+            this.hashCode = 31 * System.identityHashCode(loader) + javaClassName.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) object;
+            if (isBootstrap != key.isBootstrap
+                    || hashCode != key.hashCode
+                    || !javaClassName.equals(key.javaClassName)) {
+                return false;
+            }
+            if (isBootstrap) {
+                return true;
+            }
+            // ClassLoader已被回收的键只和自己相等
+            final ClassLoader loader = get();
+            return null != loader
+                    && loader == key.get();
+        }
+
+    }
+
+    /**
+     * 全局单例
+     */
+    public static final ClassStructureCache instance = new ClassStructureCache(DEFAULT_MAXIMUM_SIZE);
+
+}
@@ -2,10 +2,7 @@ package com.alibaba.jvm.sandbox.core.util.matcher.structure;
 
 import com.alibaba.jvm.sandbox.api.util.LazyGet;
 import com.alibaba.jvm.sandbox.core.util.BitUtils;
-import com.alibaba.jvm.sandbox.core.util.collection.Pair;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.PrimitiveClassStructure.Primitive;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.objectweb.asm.*;
@@ -14,6 +11,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -233,7 +231,9 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final ClassReader classReader;
-    private final ClassLoader loader;
+    private final boolean isBootstrapClassLoader;
+    // 类结构会被全局缓存，这里不能强引用ClassLoader，否则ClassLoader将无法被回收
+    private final WeakReference<ClassLoader> loaderRef;
     private final Access access;
 
     ClassStructureImplByAsm(final InputStream classInputStream,
@@ -244,7 +244,8 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
     ClassStructureImplByAsm(final byte[] classByteArray,
                             final ClassLoader loader) {
         this.classReader = new ClassReader(classByteArray);
-        this.loader = loader;
+        this.isBootstrapClassLoader = null == loader;
+        this.loaderRef = new WeakReference<ClassLoader>(loader);
         this.access = fixAccess();
     }
 
@@ -267,15 +268,12 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
         return new AccessImplByAsm(accessRef.get());
     }
 
-    private boolean isBootstrapClassLoader() {
-        return null == loader;
-    }
-
     // 获取资源数据流
     // 一般而言可以从loader直接获取，如果获取不到那么这个类也会能加载成功
     // 但如果遇到来自BootstrapClassLoader的类就必须从java.lang.Object来获取
-    private InputStream getResourceAsStream(final String resourceName) {
-        return isBootstrapClassLoader()
+    private InputStream getResourceAsStream(final ClassLoader loader,
+                                            final String resourceName) {
+        return isBootstrapClassLoader
                 ? Object.class.getResourceAsStream("/" + resourceName)
                 : loader.getResourceAsStream(resourceName);
     }
@@ -285,12 +283,6 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
         return internalClassName + ".class";
     }
 
-    private final static Cache<Pair, ClassStructure> classStructureCache
-            = CacheBuilder.newBuilder().maximumSize(1024).build();
-
-//    private final static GaLRUCache<Pair, ClassStructure> classStructureCache
-//            = new GaLRUCache<Pair, ClassStructure>(1024);
-
     // 构造一个类结构实例
     private ClassStructure newInstance(final String javaClassName) {
 
@@ -310,31 +302,36 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
             return new PrimitiveClassStructure(primitive);
         }
 
-        final Pair pair = new Pair(loader, javaClassName);
-        final ClassStructure existClassStructure = classStructureCache.getIfPresent(pair);
-        if (null != existClassStructure) {
-            return existClassStructure;
-        } else {
-
-            final InputStream is = getResourceAsStream(internalClassNameToResourceName(toInternalClassName(javaClassName)));
-            if (null != is) {
-                try {
-                    final ClassStructure classStructure = new ClassStructureImplByAsm(is, loader);
-                    classStructureCache.put(pair, classStructure);
-                    return classStructure;
-                } catch (Throwable cause) {
-                    // ignore
-                    logger.warn("new instance class structure by using ASM failed, will return null. class={};loader={};",
-                            javaClassName, loader, cause);
-                    classStructureCache.put(pair, null);
-                } finally {
-                    IOUtils.closeQuietly(is);
-                }
+        // ClassLoader已经被回收
+        final ClassLoader loader = loaderRef.get();
+        if (!isBootstrapClassLoader && null == loader) {
+            return null;
+        }
+
+        final Object exist = ClassStructureCache.instance.get(loader, javaClassName);
+        if (null != exist) {
+            return ClassStructureCache.isNegative(exist)
+                    ? null
+                    : (ClassStructure) exist;
+        }
+
+        ClassStructure classStructure = null;
+        final InputStream is = getResourceAsStream(loader, internalClassNameToResourceName(toInternalClassName(javaClassName)));
+        if (null != is) {
+            try {
+                classStructure = new ClassStructureImplByAsm(is, loader);
+            } catch (Throwable cause) {
+                // ignore
+                logger.warn("new instance class structure by using ASM failed, will return null. class={};loader={};",
+                        javaClassName, loader, cause);
+            } finally {
+                IOUtils.closeQuietly(is);
             }
         }
 
-        // 出现异常或者找不到
-        return null;
+        // 出现异常或者找不到时同样缓存，避免反复查找
+        ClassStructureCache.instance.put(loader, javaClassName, classStructure);
+        return classStructure;
     }
 
     // 构造一个类结构实例数组
@@ -364,7 +361,7 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
 
     @Override
     public ClassLoader getClassLoader() {
-        return loader;
+        return loaderRef.get();
     }
 
     private final LazyGet<ClassStructure> superClassStructureLazyGet
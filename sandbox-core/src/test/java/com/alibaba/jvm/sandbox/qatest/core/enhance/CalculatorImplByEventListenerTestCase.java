@@ -1,13 +1,16 @@
 package com.alibaba.jvm.sandbox.qatest.core.enhance;
 
 import com.alibaba.jvm.sandbox.api.event.BeforeEvent;
+import com.alibaba.jvm.sandbox.api.event.Capture;
 import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.event.ReturnEvent;
 import com.alibaba.jvm.sandbox.qatest.core.enhance.listener.LineNumTracingEventListener;
 import com.alibaba.jvm.sandbox.qatest.core.enhance.listener.TracingAdviceListener;
 import com.alibaba.jvm.sandbox.qatest.core.enhance.listener.TracingEventListener;
 import com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator;
 import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
 import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper.ThirdTransformer;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper.Transformer;
 
 import org.junit.Ignore;
 import org.junit.Test;
@@ -20,6 +23,8 @@ import static com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator.Test
 import static com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator.TestCase.SUM$EXCEPTION;
 import static com.alibaba.jvm.sandbox.qatest.core.util.CalculatorHelper.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 public class CalculatorImplByEventListenerTestCase implements ICalculatorTestCase {
 
@@ -996,4 +1001,142 @@ public class CalculatorImplByEventListenerTestCase implements ICalculatorTestCas
             RETURN
         );
     }
+
+    @Test
+    public void cal$pow$capture$nothing() throws Throwable {
+        final TracingEventListener listener;
+        final Class<?> calculatorClass = JvmHelper
+                .createJvm()
+                .defineClass(
+                        Calculator.class,
+                        new Transformer(
+                                CALCULATOR_POW_FILTER,
+                                listener = new TracingEventListener() {
+                                    @Override
+                                    public void onEvent(Event event) throws Throwable {
+                                        super.onEvent(event);
+                                        if (event instanceof BeforeEvent) {
+                                            assertNull(((BeforeEvent) event).argumentArray);
+                                            assertNull(((BeforeEvent) event).target);
+                                        } else if (event instanceof ReturnEvent) {
+                                            assertNull(((ReturnEvent) event).object);
+                                        }
+                                    }
+                                },
+                                BEFORE, RETURN, THROWS
+                        ).withCapture()
+                )
+                .loadClass(CALCULATOR_CLASS_NAME);
+
+        assertEquals(25, pow(newInstance(calculatorClass), 5, 2));
+        listener.assertEventTracing(
+                BEFORE,
+                BEFORE,
+                BEFORE,
+                RETURN,
+                RETURN,
+                RETURN
+        );
+    }
+
+    @Test
+    public void cal$pow$capture$arguments() throws Throwable {
+        final TracingEventListener listener;
+        final Class<?> calculatorClass = JvmHelper
+                .createJvm()
+                .defineClass(
+                        Calculator.class,
+                        new Transformer(
+                                CALCULATOR_POW_FILTER,
+                                listener = new TracingEventListener() {
+                                    @Override
+                                    public void onEvent(Event event) throws Throwable {
+                                        super.onEvent(event);
+                                        if (event instanceof BeforeEvent) {
+                                            assertNull(((BeforeEvent) event).target);
+                                            ((BeforeEvent) event).changeParameter(0, 3);
+                                        } else if (event instanceof ReturnEvent) {
+                                            assertNull(((ReturnEvent) event).object);
+                                        }
+                                    }
+                                },
+                                BEFORE, RETURN
+                        ).withCapture(Capture.ARGUMENTS)
+                )
+                .loadClass(CALCULATOR_CLASS_NAME);
+
+        assertEquals(9, pow(newInstance(calculatorClass), 5, 2));
+        listener.assertEventTracing(
+                BEFORE,
+                BEFORE,
+                BEFORE,
+                RETURN,
+                RETURN,
+                RETURN
+        );
+    }
+
+    @Test
+    public void cal$pow$capture$targetAndReturnValue() throws Throwable {
+        final TracingEventListener listener;
+        final Class<?> calculatorClass = JvmHelper
+                .createJvm()
+                .defineClass(
+                        Calculator.class,
+                        new Transformer(
+                                CALCULATOR_POW_FILTER,
+                                listener = new TracingEventListener() {
+                                    @Override
+                                    public void onEvent(Event event) throws Throwable {
+                                        super.onEvent(event);
+                                        if (event instanceof BeforeEvent) {
+                                            assertNull(((BeforeEvent) event).argumentArray);
+                                            assertNotNull(((BeforeEvent) event).target);
+                                        } else if (event instanceof ReturnEvent) {
+                                            assertNotNull(((ReturnEvent) event).object);
+                                        }
+                                    }
+                                },
+                                BEFORE, RETURN
+                        ).withCapture(Capture.TARGET, Capture.RETURN_VALUE)
+                )
+                .loadClass(CALCULATOR_CLASS_NAME);
+
+        assertEquals(25, pow(newInstance(calculatorClass), 5, 2));
+        listener.assertEventTracing(
+                BEFORE,
+                BEFORE,
+                BEFORE,
+                RETURN,
+                RETURN,
+                RETURN
+        );
+    }
+
+    @Test
+    public void cal$pow$capture$returnImmediately() throws Throwable {
+        final TracingEventListener listener;
+        final Class<?> calculatorClass = JvmHelper
+                .createJvm()
+                .defineClass(
+                        Calculator.class,
+                        new Transformer(
+                                CALCULATOR_POW_FILTER,
+                                listener = new TracingEventListener() {
+                                    @Override
+                                    public void onEvent(Event event) throws Throwable {
+                                        super.onEvent(event);
+                                        returnImmediately(100);
+                                    }
+                                },
+                                BEFORE
+                        ).withCapture()
+                )
+                .loadClass(CALCULATOR_CLASS_NAME);
+
+        assertEquals(100, pow(newInstance(calculatorClass), 5, 2));
+        listener.assertEventTracing(
+                BEFORE
+        );
+    }
 }
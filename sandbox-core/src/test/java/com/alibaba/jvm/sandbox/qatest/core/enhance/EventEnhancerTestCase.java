@@ -0,0 +1,90 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Capture;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toBehaviorTexts;
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
+import static java.util.Arrays.asList;
+
+public class EventEnhancerTestCase {
+
+    private static final String CALCULATOR_CLASS_NAME = Calculator.class.getName();
+
+    private static final Event.Type[] EVENT_TYPES = new Event.Type[]{BEFORE, RETURN, THROWS, LINE};
+
+    private static byte[] enhance(final byte[] srcByteCodes, final String... signCodes) {
+        return new EventEnhancer().toByteCodeArray(
+                EventEnhancerTestCase.class.getClassLoader(),
+                srcByteCodes,
+                new HashSet<String>(asList(signCodes)),
+                "default",
+                1,
+                EVENT_TYPES,
+                Capture.values()
+        );
+    }
+
+    @Test
+    public void test$$EventEnhancer$$copyUnmatchedBehaviors() throws IOException {
+        final byte[] srcByteCodes = toByteArray(Calculator.class);
+        final byte[] enhancedByteCodes = enhance(
+                srcByteCodes,
+                CALCULATOR_CLASS_NAME + "#sum(int[])",
+                CALCULATOR_CLASS_NAME + "#pow(int,int)"
+        );
+
+        final Map<String, String> srcBehaviorTexts = toBehaviorTexts(srcByteCodes);
+        final Map<String, String> enhancedBehaviorTexts = toBehaviorTexts(enhancedByteCodes);
+        Assert.assertEquals(srcBehaviorTexts.keySet(), enhancedBehaviorTexts.keySet());
+        for (final Map.Entry<String, String> entry : srcBehaviorTexts.entrySet()) {
+            final String behavior = entry.getKey();
+            if (behavior.equals("sum([I)I")
+                    || behavior.equals("pow(II)I")) {
+                Assert.assertFalse(behavior, entry.getValue().equals(enhancedBehaviorTexts.get(behavior)));
+            } else {
+                Assert.assertEquals(behavior, entry.getValue(), enhancedBehaviorTexts.get(behavior));
+            }
+        }
+    }
+
+    @Test
+    public void test$$EventEnhancer$$sameNameOtherDesc() throws IOException {
+        final byte[] srcByteCodes = toByteArray(Calculator.class);
+        final Map<String, String> srcBehaviorTexts = toBehaviorTexts(srcByteCodes);
+        final Map<String, String> enhancedBehaviorTexts = toBehaviorTexts(
+                enhance(srcByteCodes, CALCULATOR_CLASS_NAME + "#<init>(java.lang.String)")
+        );
+        Assert.assertFalse(srcBehaviorTexts.get("<init>(Ljava/lang/String;)V").equals(enhancedBehaviorTexts.get("<init>(Ljava/lang/String;)V")));
+        Assert.assertEquals(srcBehaviorTexts.get("<init>()V"), enhancedBehaviorTexts.get("<init>()V"));
+    }
+
+    @Test
+    public void test$$EventEnhancer$$nothingRewritten() throws IOException {
+        final byte[] srcByteCodes = toByteArray(Calculator.class);
+        Assert.assertSame(srcByteCodes, enhance(srcByteCodes));
+        Assert.assertSame(srcByteCodes, enhance(srcByteCodes, CALCULATOR_CLASS_NAME + "#add(long,long)"));
+    }
+
+    @Test
+    public void test$$EventEnhancer$$boxWithValueOf() throws IOException {
+        final String powText = toBehaviorTexts(enhance(
+                toByteArray(Calculator.class),
+                CALCULATOR_CLASS_NAME + "#pow(int,int)"
+        )).get("pow(II)I");
+
+        // 参数和返回值通过valueOf装箱，可以复用包装类型缓存的对象
+        Assert.assertTrue(powText.contains("INVOKESTATIC java/lang/Integer.valueOf (I)Ljava/lang/Integer;"));
+        Assert.assertFalse(powText.contains("NEW java/lang/Integer"));
+    }
+
+}
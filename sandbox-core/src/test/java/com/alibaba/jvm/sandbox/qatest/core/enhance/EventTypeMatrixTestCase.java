@@ -0,0 +1,174 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Capture;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.util.SandboxThreadContext;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.listener.RecordingEventListener;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static com.alibaba.jvm.sandbox.core.util.EventTypeUtils.isTracingInvoke;
+import static com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator.ERROR_EXCEPTION_MESSAGE;
+import static com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator.TestCase.POW$EXCEPTION$AT_LAST;
+import static com.alibaba.jvm.sandbox.qatest.core.util.CalculatorHelper.*;
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toBehaviorTexts;
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
+
+/**
+ * 按事件类型埋点的测试矩阵
+ * <p>
+ * 遍历BEFORE/RETURN/THROWS/LINE/CALL_*的所有组合，
+ * 核对增强代码只埋入需要的探针、事件序列与全量埋入时一致、调用堆栈始终对齐
+ * </p>
+ */
+public class EventTypeMatrixTestCase {
+
+    private static final Event.Type[] MATRIX_EVENT_TYPES = new Event.Type[]{
+            BEFORE, RETURN, THROWS, LINE, CALL_BEFORE, CALL_RETURN, CALL_THROWS
+    };
+
+    // 枚举所有事件类型组合，不包含空集
+    private static List<Event.Type[]> listEventTypeSubsets() {
+        final List<Event.Type[]> subsets = new ArrayList<Event.Type[]>();
+        for (int mask = 1; mask < 1 << MATRIX_EVENT_TYPES.length; mask++) {
+            final List<Event.Type> subset = new ArrayList<Event.Type>();
+            for (int index = 0; index < MATRIX_EVENT_TYPES.length; index++) {
+                if ((mask & 1 << index) != 0) {
+                    subset.add(MATRIX_EVENT_TYPES[index]);
+                }
+            }
+            subsets.add(subset.toArray(new Event.Type[0]));
+        }
+        return subsets;
+    }
+
+    private static List<Event.Type> filter(final List<Event.Type> types, final Event.Type[] eventTypes) {
+        final List<Event.Type> filtered = new ArrayList<Event.Type>();
+        for (final Event.Type type : types) {
+            if (Arrays.asList(eventTypes).contains(type)) {
+                filtered.add(type);
+            }
+        }
+        return filtered;
+    }
+
+    // 执行pow(5,2)，isThrows为TRUE时在最内层抛出异常
+    private static RecordingEventListener runPow(final Event.Type[] eventTypes,
+                                                 final boolean isThrows) throws Throwable {
+        final RecordingEventListener listener = new RecordingEventListener();
+        final Class<?> calculatorClass = defineCalculator(CALCULATOR_POW_FILTER, listener, eventTypes);
+        if (isThrows) {
+            try {
+                pow(newInstance(calculatorClass, POW$EXCEPTION$AT_LAST), 5, 2);
+                Assert.fail();
+            } catch (RuntimeException cause) {
+                Assert.assertEquals(ERROR_EXCEPTION_MESSAGE, cause.getMessage());
+            }
+        } else {
+            Assert.assertEquals(25, pow(newInstance(calculatorClass), 5, 2));
+        }
+        EventListenerHandler.getSingleton().checkEventProcessor(JvmHelper.getListenerId(listener));
+        return listener;
+    }
+
+    // 核对调用ID：跟踪调用堆栈时RETURN/THROWS与BEFORE成对出入栈；否则每个事件自成一次调用过程
+    // 只有BEFORE/RETURN/THROWS都监听时才能从事件中还原出完整的调用堆栈
+    private static void assertInvokeIds(final Event.Type[] eventTypes,
+                                        final RecordingEventListener listener) {
+        final String message = Arrays.toString(eventTypes);
+        final boolean isPaired = Arrays.asList(eventTypes).containsAll(Arrays.asList(BEFORE, RETURN, THROWS));
+        final Stack<Integer> stack = new Stack<Integer>();
+        for (int index = 0; index < listener.getTypes().size(); index++) {
+            final Event.Type type = listener.getTypes().get(index);
+            final int processId = listener.getIds().get(index)[0];
+            final int invokeId = listener.getIds().get(index)[1];
+            if (!isTracingInvoke(eventTypes)) {
+                Assert.assertEquals(message, processId, invokeId);
+            } else if (isPaired && type == BEFORE) {
+                stack.push(invokeId);
+                Assert.assertEquals(message, (int) stack.firstElement(), processId);
+            } else if (isPaired && (type == RETURN || type == THROWS)) {
+                Assert.assertEquals(message, (int) stack.firstElement(), processId);
+                Assert.assertEquals(message, (int) stack.pop(), invokeId);
+            } else if (isPaired) {
+                Assert.assertEquals(message, (int) stack.firstElement(), processId);
+                Assert.assertEquals(message, (int) stack.peek(), invokeId);
+            }
+        }
+        Assert.assertTrue(message, stack.isEmpty());
+    }
+
+    @Test
+    public void test$$EventTypeMatrix$$events() throws Throwable {
+        final List<Event.Type> fullReturnTypes = runPow(MATRIX_EVENT_TYPES, false).getTypes();
+        final List<Event.Type> fullThrowsTypes = runPow(MATRIX_EVENT_TYPES, true).getTypes();
+        Assert.assertTrue(fullReturnTypes.containsAll(Arrays.asList(BEFORE, RETURN, LINE, CALL_BEFORE, CALL_RETURN)));
+        Assert.assertTrue(fullThrowsTypes.containsAll(Arrays.asList(BEFORE, THROWS, LINE, CALL_BEFORE, CALL_THROWS)));
+
+        for (final Event.Type[] eventTypes : listEventTypeSubsets()) {
+            final RecordingEventListener returnListener = runPow(eventTypes, false);
+            Assert.assertEquals(Arrays.toString(eventTypes), filter(fullReturnTypes, eventTypes), returnListener.getTypes());
+            assertInvokeIds(eventTypes, returnListener);
+
+            final RecordingEventListener throwsListener = runPow(eventTypes, true);
+            Assert.assertEquals(Arrays.toString(eventTypes), filter(fullThrowsTypes, eventTypes), throwsListener.getTypes());
+            assertInvokeIds(eventTypes, throwsListener);
+        }
+    }
+
+    @Test
+    public void test$$EventTypeMatrix$$beforeOnlyClearBusinessClassLoader() throws Throwable {
+        final List<ClassLoader> businessClassLoaders = new ArrayList<ClassLoader>();
+        final Class<?> calculatorClass = defineCalculator(CALCULATOR_POW_FILTER, new EventListener() {
+            @Override
+            public void onEvent(Event event) {
+                businessClassLoaders.add(SandboxThreadContext.get().getBusinessClassLoader());
+            }
+        }, BEFORE);
+        Assert.assertEquals(25, pow(newInstance(calculatorClass), 5, 2));
+
+        // 只埋入BEFORE探针时没有RETURN/THROWS事件，业务类加载器要在BEFORE结束时清理
+        Assert.assertFalse(businessClassLoaders.isEmpty());
+        for (final ClassLoader businessClassLoader : businessClassLoaders) {
+            Assert.assertSame(calculatorClass.getClassLoader(), businessClassLoader);
+        }
+        Assert.assertNull(SandboxThreadContext.get().getBusinessClassLoader());
+    }
+
+    // 以文本形式输出pow方法增强后的字节码
+    private static String toPowText(final Event.Type[] eventTypes) throws Exception {
+        return toBehaviorTexts(new EventEnhancer().toByteCodeArray(
+                EventTypeMatrixTestCase.class.getClassLoader(),
+                toByteArray(Calculator.class),
+                new HashSet<String>(Collections.singleton(CALCULATOR_CLASS_NAME + "#pow(int,int)")),
+                "default",
+                1,
+                eventTypes,
+                Capture.values()
+        )).get("pow(II)I");
+    }
+
+    @Test
+    public void test$$EventTypeMatrix$$probes() throws Exception {
+        for (final Event.Type[] eventTypes : listEventTypeSubsets()) {
+            final String message = Arrays.toString(eventTypes);
+            final List<Event.Type> eventTypeList = Arrays.asList(eventTypes);
+            final boolean isTracingInvoke = isTracingInvoke(eventTypes);
+            final String powText = toPowText(eventTypes);
+            Assert.assertEquals(message, isTracingInvoke || eventTypeList.contains(BEFORE), powText.contains("spyMethodOnBefore"));
+            Assert.assertEquals(message, isTracingInvoke || eventTypeList.contains(RETURN), powText.contains("spyMethodOnReturn"));
+            Assert.assertEquals(message, isTracingInvoke || eventTypeList.contains(THROWS), powText.contains("spyMethodOnThrows"));
+            Assert.assertEquals(message, isTracingInvoke || eventTypeList.contains(THROWS), powText.contains("TRYCATCHBLOCK"));
+            Assert.assertEquals(message, eventTypeList.contains(LINE), powText.contains("spyMethodOnLine"));
+        }
+    }
+
+}
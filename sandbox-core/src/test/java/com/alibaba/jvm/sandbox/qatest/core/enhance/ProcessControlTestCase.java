@@ -0,0 +1,183 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.ProcessControlException;
+import com.alibaba.jvm.sandbox.api.ProcessController;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.alibaba.jvm.sandbox.api.ProcessControlException.State.RETURN_IMMEDIATELY;
+import static com.alibaba.jvm.sandbox.api.ProcessControlException.State.THROWS_IMMEDIATELY;
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static com.alibaba.jvm.sandbox.qatest.core.util.CalculatorHelper.*;
+
+/**
+ * 流程控制的测试
+ * <p>
+ * 立即返回和立即抛出时，流程控制异常和返回给增强代码的结果都由线程复用，每次改变流程的结果不能互相干扰
+ * </p>
+ */
+public class ProcessControlTestCase {
+
+    @Test
+    public void processControlException$reuse() {
+        ProcessControlException first = null;
+        try {
+            ProcessController.returnImmediately(1);
+            Assert.fail();
+        } catch (ProcessControlException pce) {
+            first = pce;
+            Assert.assertEquals(RETURN_IMMEDIATELY, pce.getState());
+            Assert.assertEquals(1, pce.getRespond());
+            Assert.assertFalse(pce.isIgnoreProcessEvent());
+            Assert.assertEquals(0, pce.getStackTrace().length);
+            pce.recycle();
+        }
+
+        final Throwable throwable = new Throwable();
+        try {
+            ProcessController.throwsImmediatelyWithIgnoreProcessEvent(throwable);
+            Assert.fail();
+        } catch (ProcessControlException pce) {
+            Assert.assertSame(first, pce);
+            Assert.assertEquals(THROWS_IMMEDIATELY, pce.getState());
+            Assert.assertSame(throwable, pce.getRespond());
+            Assert.assertTrue(pce.isIgnoreProcessEvent());
+        }
+    }
+
+    @Test
+    public void processControlException$nested() {
+        ProcessControlException first = null;
+        try {
+            ProcessController.returnImmediately(1);
+            Assert.fail();
+        } catch (ProcessControlException pce) {
+            first = pce;
+        }
+
+        // 第一个异常还没有归还，再次改变流程不能改写它
+        try {
+            ProcessController.throwsImmediately(new RuntimeException());
+            Assert.fail();
+        } catch (ProcessControlException pce) {
+            Assert.assertNotSame(first, pce);
+            Assert.assertEquals(THROWS_IMMEDIATELY, pce.getState());
+            pce.recycle();
+        }
+        Assert.assertEquals(RETURN_IMMEDIATELY, first.getState());
+        Assert.assertEquals(1, first.getRespond());
+        first.recycle();
+    }
+
+    @Test
+    public void processControlException$reuse$perThread() throws Throwable {
+        final AtomicReference<ProcessControlException> reference = new AtomicReference<ProcessControlException>();
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ProcessController.returnImmediately(2);
+                } catch (ProcessControlException pce) {
+                    reference.set(pce);
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+
+        try {
+            ProcessController.returnImmediately(1);
+            Assert.fail();
+        } catch (ProcessControlException pce) {
+            Assert.assertNotSame(reference.get(), pce);
+            Assert.assertEquals(1, pce.getRespond());
+            Assert.assertEquals(2, reference.get().getRespond());
+        }
+    }
+
+    @Test
+    public void cal$pow$before$returnImmediately$everyCall() throws Throwable {
+        final Object calculatorObject = newInstance(defineCalculator(CALCULATOR_POW_FILTER, new EventListener() {
+
+            private int count;
+
+            @Override
+            public void onEvent(Event event) throws Throwable {
+                ProcessController.returnImmediately(count++);
+            }
+
+        }, BEFORE));
+        for (int index = 0; index < 10; index++) {
+            Assert.assertEquals(index, pow(calculatorObject, 5, 2));
+        }
+    }
+
+    @Test
+    public void cal$pow$return$throwsImmediately$everyCall() throws Throwable {
+        final Object calculatorObject = newInstance(defineCalculator(CALCULATOR_POW_FILTER, new EventListener() {
+
+            private int count;
+
+            @Override
+            public void onEvent(Event event) throws Throwable {
+                ProcessController.throwsImmediately(new RuntimeException(String.valueOf(count++)));
+            }
+
+        }, RETURN));
+        for (int index = 0; index < 10; index++) {
+            try {
+                pow(calculatorObject, 5, 2);
+                Assert.fail();
+            } catch (RuntimeException cause) {
+                Assert.assertEquals(String.valueOf(index), cause.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void cal$pow$before$returnImmediately$changedByCompensateEvent() throws Throwable {
+        final Object calculatorObject = newInstance(defineCalculator(CALCULATOR_POW_FILTER, new EventListener() {
+            @Override
+            public void onEvent(Event event) throws Throwable {
+
+                // 补偿事件中再次改变流程，会改写本线程复用的流程控制异常
+                ProcessController.returnImmediately(event.type == BEFORE ? 100 : -1);
+            }
+        }, BEFORE, IMMEDIATELY_RETURN));
+        Assert.assertEquals(100, pow(calculatorObject, 5, 2));
+        Assert.assertEquals(100, pow(calculatorObject, 5, 2));
+    }
+
+    @Test
+    public void cal$pow$before$nestedProcessControl() throws Throwable {
+        final Object calculatorObject = newInstance(defineCalculator(CALCULATOR_POW_FILTER, new EventListener() {
+
+            private int count;
+
+            @Override
+            public void onEvent(Event event) throws Throwable {
+                try {
+                    ProcessController.returnImmediately(count++);
+                } catch (ProcessControlException first) {
+
+                    // 捕获后再次改变流程，最终抛出第一个流程控制异常
+                    try {
+                        ProcessController.throwsImmediately(new RuntimeException());
+                    } catch (ProcessControlException ignore) {
+                        // ignore
+                    }
+                    throw first;
+                }
+            }
+
+        }, BEFORE));
+        for (int index = 0; index < 10; index++) {
+            Assert.assertEquals(index, pow(calculatorObject, 5, 2));
+        }
+    }
+
+}
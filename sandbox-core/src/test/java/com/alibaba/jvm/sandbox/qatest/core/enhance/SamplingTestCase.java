@@ -0,0 +1,148 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.event.Sampling;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.Advice;
+import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.listener.RecordingEventListener;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator.ERROR_EXCEPTION_MESSAGE;
+import static com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator.TestCase.POW$EXCEPTION$AT_LAST;
+import static com.alibaba.jvm.sandbox.qatest.core.util.CalculatorHelper.*;
+
+/**
+ * 调用采样的测试
+ * <p>
+ * pow(5,2)会递归调用3次pow，一次调用过程中包含3个BEFORE和3个RETURN/THROWS
+ * </p>
+ */
+public class SamplingTestCase {
+
+    private static Class<?> defineSamplingCalculator(final EventListener listener,
+                                                     final Sampling sampling,
+                                                     final Event.Type... eventTypes) throws Throwable {
+        return defineCalculator(new JvmHelper.Transformer(CALCULATOR_POW_FILTER, listener, eventTypes).withSampling(sampling));
+    }
+
+    @Test
+    public void cal$pow$sampling$oneIn() throws Throwable {
+        final RecordingEventListener listener = new RecordingEventListener();
+        final Object calculatorObject = newInstance(defineSamplingCalculator(listener, Sampling.oneIn(3), BEFORE, RETURN, THROWS));
+        for (int index = 0; index < 6; index++) {
+            Assert.assertEquals(25, pow(calculatorObject, 5, 2));
+        }
+
+        // 6次调用过程采样2次，未被采样的调用过程中递归的pow也不会产生事件
+        Assert.assertEquals(6, listener.count(BEFORE));
+        Assert.assertEquals(6, listener.count(RETURN));
+        EventListenerHandler.getSingleton().checkEventProcessor(JvmHelper.getListenerId(listener));
+    }
+
+    @Test
+    public void cal$pow$sampling$oneIn$withLineAndCall() throws Throwable {
+        final RecordingEventListener fullListener = new RecordingEventListener();
+        pow(newInstance(defineSamplingCalculator(fullListener, Sampling.ALL, BEFORE, RETURN, LINE, CALL_BEFORE, CALL_RETURN)), 5, 2);
+
+        final RecordingEventListener listener = new RecordingEventListener();
+        final Object calculatorObject = newInstance(defineSamplingCalculator(listener, Sampling.oneIn(2), BEFORE, RETURN, LINE, CALL_BEFORE, CALL_RETURN));
+        for (int index = 0; index < 4; index++) {
+            Assert.assertEquals(25, pow(calculatorObject, 5, 2));
+        }
+
+        // 被采样的调用过程与不采样时完全一致，未被采样的调用过程连LINE和CALL事件一起跳过
+        Assert.assertEquals(2 * fullListener.getTypes().size(), listener.getTypes().size());
+        Assert.assertEquals(fullListener.getTypes(), listener.getTypes().subList(0, fullListener.getTypes().size()));
+        EventListenerHandler.getSingleton().checkEventProcessor(JvmHelper.getListenerId(listener));
+    }
+
+    @Test
+    public void cal$pow$sampling$oneIn$throws() throws Throwable {
+        final RecordingEventListener listener = new RecordingEventListener();
+        final Object calculatorObject = newInstance(
+                defineSamplingCalculator(listener, Sampling.oneIn(2), BEFORE, RETURN, THROWS),
+                POW$EXCEPTION$AT_LAST
+        );
+        for (int index = 0; index < 4; index++) {
+            try {
+                pow(calculatorObject, 5, 2);
+                Assert.fail();
+            } catch (RuntimeException cause) {
+                Assert.assertEquals(ERROR_EXCEPTION_MESSAGE, cause.getMessage());
+            }
+        }
+        Assert.assertEquals(6, listener.count(BEFORE));
+        Assert.assertEquals(6, listener.count(THROWS));
+        EventListenerHandler.getSingleton().checkEventProcessor(JvmHelper.getListenerId(listener));
+    }
+
+    @Test
+    public void cal$pow$sampling$budget() throws Throwable {
+        final RecordingEventListener listener = new RecordingEventListener();
+        final Object calculatorObject = newInstance(defineSamplingCalculator(listener, Sampling.budget(2, 1, TimeUnit.HOURS), BEFORE, RETURN, THROWS));
+        for (int index = 0; index < 5; index++) {
+            Assert.assertEquals(25, pow(calculatorObject, 5, 2));
+        }
+
+        // 预算在调用过程开始时扣减，一次调用过程只占一个预算
+        Assert.assertEquals(6, listener.count(BEFORE));
+        Assert.assertEquals(6, listener.count(RETURN));
+        EventListenerHandler.getSingleton().checkEventProcessor(JvmHelper.getListenerId(listener));
+    }
+
+    @Test
+    public void cal$pow$sampling$returnOnly() throws Throwable {
+        final RecordingEventListener listener = new RecordingEventListener();
+        final Object calculatorObject = newInstance(defineSamplingCalculator(listener, Sampling.oneIn(2), RETURN));
+        for (int index = 0; index < 2; index++) {
+            Assert.assertEquals(25, pow(calculatorObject, 5, 2));
+        }
+
+        // 不跟踪调用堆栈时每个事件自成一次调用过程，逐个采样
+        Assert.assertEquals(3, listener.count(RETURN));
+        EventListenerHandler.getSingleton().checkEventProcessor(JvmHelper.getListenerId(listener));
+    }
+
+    @Test
+    public void cal$pow$sampling$adviceListener() throws Throwable {
+        final List<String> traces = new ArrayList<String>();
+        final AdviceListener adviceListener = new AdviceListener() {
+            @Override
+            protected void before(Advice advice) {
+                traces.add("before:" + advice.getParameterArray()[1] + ":" + advice.isProcessTop());
+            }
+
+            @Override
+            protected void afterReturning(Advice advice) {
+                traces.add("return:" + advice.getReturnObj() + ":" + advice.isProcessTop());
+            }
+        };
+        final Object calculatorObject = newInstance(defineCalculator(
+                new JvmHelper.Transformer(CALCULATOR_POW_FILTER, adviceListener).withSampling(Sampling.oneIn(2))
+        ));
+        for (int index = 0; index < 4; index++) {
+            Assert.assertEquals(25, pow(calculatorObject, 5, 2));
+        }
+
+        final List<String> expects = new ArrayList<String>();
+        for (int index = 0; index < 2; index++) {
+            expects.add("before:2:true");
+            expects.add("before:1:false");
+            expects.add("before:0:false");
+            expects.add("return:1:false");
+            expects.add("return:5:false");
+            expects.add("return:25:true");
+        }
+        Assert.assertEquals(expects, traces);
+    }
+
+}
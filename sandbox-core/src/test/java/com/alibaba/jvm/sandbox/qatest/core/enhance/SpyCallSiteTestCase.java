@@ -0,0 +1,171 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.ProcessController;
+import com.alibaba.jvm.sandbox.api.event.Capture;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.core.CoreConfigure;
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.util.SpyUtils;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.listener.RecordingEventListener;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+
+import java.util.Collections;
+import java.util.HashSet;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static com.alibaba.jvm.sandbox.qatest.core.util.CalculatorHelper.*;
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toBehaviorTexts;
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
+import static org.objectweb.asm.ClassWriter.COMPUTE_FRAMES;
+import static org.objectweb.asm.Opcodes.ASM7;
+import static org.objectweb.asm.Opcodes.V1_7;
+
+/**
+ * invokedynamic方式埋入事件探针的测试
+ * <p>
+ * 测试类以JDK6版本编译，需要先升级到JDK7版本才会以invokedynamic方式埋入
+ * </p>
+ */
+public class SpyCallSiteTestCase {
+
+    private static final Event.Type[] EVENT_TYPES = new Event.Type[]{BEFORE, RETURN, THROWS};
+
+    /**
+     * 将类升级到JDK7版本，并重新计算栈帧
+     */
+    private static class Java7Transformer extends JvmHelper.Transformer {
+
+        Java7Transformer() {
+            super(null, (EventListener) null);
+        }
+
+        @Override
+        public byte[] transform(final String namespace, final ClassLoader loader, final byte[] byteCodes) {
+            return toJava7ByteArray(byteCodes);
+        }
+
+    }
+
+    private static byte[] toJava7ByteArray(final byte[] byteCodes) {
+        final ClassWriter cw = new ClassWriter(COMPUTE_FRAMES);
+        new ClassReader(byteCodes).accept(new ClassVisitor(ASM7, cw) {
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                super.visit(V1_7, access, name, signature, superName, interfaces);
+            }
+        }, ClassReader.SKIP_FRAMES);
+        return cw.toByteArray();
+    }
+
+    private static Class<?> defineIndyCalculator(final String namespace,
+                                                 final EventListener listener) throws Throwable {
+        return defineCalculator(
+                JvmHelper.createIndyJvm(namespace),
+                new Java7Transformer(),
+                new JvmHelper.Transformer(CALCULATOR_POW_FILTER, listener, EVENT_TYPES).withIndy()
+        );
+    }
+
+    // 恢复为默认配置，不影响其他测试
+    @After
+    public void resetConfigure() {
+        CoreConfigure.toConfigure(";namespace=default;", "");
+    }
+
+    @Test
+    public void cal$pow$indy$frozenAndActive() throws Throwable {
+        final RecordingEventListener listener = new RecordingEventListener();
+        final int listenerId = JvmHelper.getListenerId(listener);
+        final Object calculatorObject = newInstance(defineIndyCalculator(null, listener));
+
+        Assert.assertEquals(25, pow(calculatorObject, 5, 2));
+        Assert.assertEquals(6, listener.getTypes().size());
+        Assert.assertEquals(BEFORE, listener.getTypes().get(0));
+        Assert.assertEquals(RETURN, listener.getTypes().get(5));
+
+        // 冻结后调用点切换为空操作，不再有事件
+        listener.clear();
+        EventListenerHandler.getSingleton().frozen(listenerId);
+        Assert.assertEquals(25, pow(calculatorObject, 5, 2));
+        Assert.assertTrue(listener.getTypes().isEmpty());
+
+        // 重新激活后不需要重新渲染，事件恢复
+        EventListenerHandler.getSingleton().active(listenerId, listener, EVENT_TYPES);
+        Assert.assertEquals(25, pow(calculatorObject, 5, 2));
+        Assert.assertEquals(6, listener.getTypes().size());
+        EventListenerHandler.getSingleton().checkEventProcessor(listenerId);
+    }
+
+    @Test
+    public void cal$pow$indy$cleanNamespace() throws Throwable {
+        final String namespace = "spy-call-site-clean";
+        final RecordingEventListener listener = new RecordingEventListener();
+        final int listenerId = JvmHelper.getListenerId(listener);
+        final Object calculatorObject = newInstance(defineIndyCalculator(namespace, listener));
+        Assert.assertEquals(25, pow(calculatorObject, 5, 2));
+        Assert.assertEquals(6, listener.getTypes().size());
+
+        // 清理命名空间时冻结并移除调用点，重新初始化后残留的增强代码也不再派发事件
+        listener.clear();
+        SpyUtils.clean(namespace);
+        SpyUtils.init(namespace);
+        Assert.assertEquals(25, pow(calculatorObject, 5, 2));
+        Assert.assertTrue(listener.getTypes().isEmpty());
+        EventListenerHandler.getSingleton().frozen(listenerId);
+    }
+
+    @Test
+    public void cal$pow$indy$returnImmediately() throws Throwable {
+        final Object calculatorObject = newInstance(defineIndyCalculator(
+                null,
+                new EventListener() {
+                    @Override
+                    public void onEvent(Event event) throws Throwable {
+                        if (event.type == BEFORE) {
+                            ProcessController.returnImmediately(100);
+                        }
+                    }
+                }
+        ));
+        Assert.assertEquals(100, pow(calculatorObject, 5, 2));
+    }
+
+    // 以文本形式输出pow方法增强后的字节码
+    private static String toPowText(final byte[] srcByteCodes) {
+        return toBehaviorTexts(new EventEnhancer(true).toByteCodeArray(
+                SpyCallSiteTestCase.class.getClassLoader(),
+                srcByteCodes,
+                new HashSet<String>(Collections.singleton(CALCULATOR_CLASS_NAME + "#pow(int,int)")),
+                "default",
+                1,
+                EVENT_TYPES,
+                Capture.values()
+        )).get("pow(II)I");
+    }
+
+    @Test
+    public void cal$pow$indy$probes() throws Exception {
+        final String powText = toPowText(toJava7ByteArray(toByteArray(Calculator.class)));
+        Assert.assertTrue(powText.contains("INVOKEDYNAMIC spyMethodOnBefore"));
+        Assert.assertTrue(powText.contains("INVOKEDYNAMIC spyMethodOnReturn"));
+        Assert.assertTrue(powText.contains("INVOKEDYNAMIC spyMethodOnThrows"));
+        Assert.assertFalse(powText.contains("INVOKESTATIC java/com/alibaba/jvm/sandbox/spy/Spy"));
+    }
+
+    @Test
+    public void cal$pow$indy$fallbackForJava6() throws Exception {
+        final String powText = toPowText(toByteArray(Calculator.class));
+        Assert.assertFalse(powText.contains("INVOKEDYNAMIC"));
+        Assert.assertTrue(powText.contains("INVOKESTATIC java/com/alibaba/jvm/sandbox/spy/Spy.spyMethodOnBefore"));
+    }
+
+}
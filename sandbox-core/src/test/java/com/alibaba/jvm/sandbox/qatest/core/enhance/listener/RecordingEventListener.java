@@ -0,0 +1,70 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance.listener;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.event.InvokeEvent;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 记录事件类型和调用ID的监听器
+ * <p>
+ * 事件对象会被回收复用，所以只记录值
+ * </p>
+ */
+public class RecordingEventListener implements EventListener {
+
+    private final List<Event.Type> types = new ArrayList<Event.Type>();
+    private final List<int[]> ids = new ArrayList<int[]>();
+
+    @Override
+    public void onEvent(Event event) throws Throwable {
+        final InvokeEvent iEvent = (InvokeEvent) event;
+        types.add(event.type);
+        ids.add(new int[]{iEvent.processId, iEvent.invokeId});
+    }
+
+    /**
+     * 获取记录的事件类型
+     *
+     * @return 事件类型
+     */
+    public List<Event.Type> getTypes() {
+        return types;
+    }
+
+    /**
+     * 获取记录的调用ID
+     *
+     * @return [0]:调用过程ID;[1]:调用ID
+     */
+    public List<int[]> getIds() {
+        return ids;
+    }
+
+    /**
+     * 统计某种事件的数量
+     *
+     * @param type 事件类型
+     * @return 事件数量
+     */
+    public int count(final Event.Type type) {
+        int count = 0;
+        for (final Event.Type exist : types) {
+            if (exist == type) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 清空记录
+     */
+    public void clear() {
+        types.clear();
+        ids.clear();
+    }
+
+}
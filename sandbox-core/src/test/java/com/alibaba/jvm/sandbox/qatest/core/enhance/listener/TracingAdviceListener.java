@@ -4,7 +4,7 @@ import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.Advice;
 import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
 import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
-import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
 import org.objectweb.asm.Type;
 
 import java.util.ArrayList;
@@ -258,7 +258,7 @@ public class TracingAdviceListener extends AdviceListener {
     private void assertEventProcessor() {
         EventListenerHandler
                 .getSingleton()
-                .checkEventProcessor(ObjectIDs.instance.identity(eventListener));
+                .checkEventProcessor(JvmHelper.getListenerId(eventListener));
     }
 
 }
@@ -1,15 +1,18 @@
 package com.alibaba.jvm.sandbox.qatest.core.issues;
 
 import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.event.ReturnEvent;
+import com.alibaba.jvm.sandbox.api.event.ThrowsEvent;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator;
 import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
 import org.junit.Test;
 
-import static com.alibaba.jvm.sandbox.api.event.Event.Type.CALL_BEFORE;
-import static com.alibaba.jvm.sandbox.api.event.Event.Type.LINE;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
 import static com.alibaba.jvm.sandbox.qatest.core.util.CalculatorHelper.*;
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 /**
  * 修复<a href="https://github.com/alibaba/jvm-sandbox/issues/130">#130</a>
@@ -88,4 +91,70 @@ public class TestIssues130 {
         }
     }
 
+    @Test
+    public void cal$sum$return_recycled() throws Throwable {
+        final AtomicReference<ReturnEvent> eventRef = new AtomicReference<ReturnEvent>();
+        final AtomicReference<Object> objectRef = new AtomicReference<Object>();
+        final Class<?> calculatorClass = JvmHelper
+                .createJvm()
+                .defineClass(
+                        Calculator.class,
+                        CALCULATOR_SUM_FILTER,
+                        new EventListener() {
+
+                            @Override
+                            public void onEvent(Event event) throws Throwable {
+                                final ReturnEvent returnEvent = (ReturnEvent) event;
+                                eventRef.set(returnEvent);
+                                objectRef.set(returnEvent.object);
+                            }
+                        },
+                        RETURN
+                )
+                .loadClass(CALCULATOR_CLASS_NAME);
+
+        final Object objectOfCal = newInstance(calculatorClass);
+        for (int i = 0; i < 1000000; i++) {
+            assertEquals(1000 + i, sum(objectOfCal, 1000, i));
+
+            // 事件中看到的返回值正确，方法返回后事件不再持有返回值
+            assertEquals(1000 + i, objectRef.get());
+            assertNull(eventRef.get().object);
+        }
+    }
+
+    @Test
+    public void cal$sum$throws_recycled() throws Throwable {
+        final AtomicReference<ThrowsEvent> eventRef = new AtomicReference<ThrowsEvent>();
+        final AtomicReference<Throwable> throwableRef = new AtomicReference<Throwable>();
+        final Class<?> calculatorClass = JvmHelper
+                .createJvm()
+                .defineClass(
+                        Calculator.class,
+                        CALCULATOR_SUM_FILTER,
+                        new EventListener() {
+
+                            @Override
+                            public void onEvent(Event event) throws Throwable {
+                                final ThrowsEvent throwsEvent = (ThrowsEvent) event;
+                                eventRef.set(throwsEvent);
+                                throwableRef.set(throwsEvent.throwable);
+                            }
+                        },
+                        THROWS
+                )
+                .loadClass(CALCULATOR_CLASS_NAME);
+
+        final Object objectOfCal = newInstance(calculatorClass, Calculator.TestCase.SUM$EXCEPTION);
+        for (int i = 0; i < 100000; i++) {
+            try {
+                sum(objectOfCal, 1000, i);
+                fail();
+            } catch (RuntimeException cause) {
+                assertSame(cause, throwableRef.get());
+                assertNull(eventRef.get().throwable);
+            }
+        }
+    }
+
 }
@@ -2,15 +2,20 @@ package com.alibaba.jvm.sandbox.qatest.core.manager;
 
 import com.alibaba.jvm.sandbox.api.filter.ExtFilter;
 import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
+import com.alibaba.jvm.sandbox.api.filter.ThreadSafeFilter;
 import com.alibaba.jvm.sandbox.core.manager.CoreLoadedClassDataSource;
 import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreLoadedClassDataSource;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
 import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyInstrumentation;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
 
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.*;
+
+import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
 
 class MockLoadedClassesOnlyInstrumentation extends EmptyInstrumentation {
 
@@ -282,4 +287,128 @@ public class CoreLoadedClassDataSourceTestCase {
 
     }
 
+    /**
+     * 大量已加载类(包含重复)，所有类都可修改
+     */
+    static class MockManyLoadedClassesInstrumentation extends EmptyInstrumentation {
+
+        private final Class<?>[] loadedClasses;
+
+        MockManyLoadedClassesInstrumentation(final int total, final Class<?>... classes) {
+            loadedClasses = new Class<?>[total];
+            for (int index = 0; index < total; index++) {
+                loadedClasses[index] = classes[index % classes.length];
+            }
+        }
+
+        @Override
+        public Class[] getAllLoadedClasses() {
+            return loadedClasses;
+        }
+
+        @Override
+        public boolean isModifiableClass(Class<?> theClass) {
+            return true;
+        }
+
+    }
+
+    /**
+     * 记录匹配线程的过滤器
+     */
+    static class MatchingThreadRecordFilter extends NameRegexFilter {
+
+        final Set<String> threadNames = Collections.synchronizedSet(new HashSet<String>());
+
+        MatchingThreadRecordFilter(final String javaNameRegex, final String javaMethodRegex) {
+            super(javaNameRegex, javaMethodRegex);
+        }
+
+        @Override
+        public boolean doClassFilter(final int access,
+                                     final String javaClassName,
+                                     final String superClassTypeJavaClassName,
+                                     final String[] interfaceTypeJavaClassNameArray,
+                                     final String[] annotationTypeJavaClassNameArray) {
+            threadNames.add(Thread.currentThread().getName());
+            return super.doClassFilter(access, javaClassName, superClassTypeJavaClassName, interfaceTypeJavaClassNameArray, annotationTypeJavaClassNameArray);
+        }
+
+    }
+
+    static class ThreadSafeMatchingThreadRecordFilter extends MatchingThreadRecordFilter implements ThreadSafeFilter {
+
+        ThreadSafeMatchingThreadRecordFilter(final String javaNameRegex, final String javaMethodRegex) {
+            super(javaNameRegex, javaMethodRegex);
+        }
+
+    }
+
+    private static void assertFoundClasses(final List<Class<?>> foundClasses) {
+        Assert.assertEquals(20000 / 7 * 3, foundClasses.size());
+        for (int index = 0; index < foundClasses.size(); index++) {
+            Assert.assertEquals(
+                    new Class<?>[]{Assert.class, JUnitCore.class, Description.class}[index % 3],
+                    foundClasses.get(index)
+            );
+        }
+    }
+
+    @Test
+    public void test$$CoreLoadedClassDataSource$$findForReTransform$$parallel() {
+        final MockManyLoadedClassesInstrumentation inst = new MockManyLoadedClassesInstrumentation(
+                20000,
+                String.class, Assert.class, Integer.class, JUnitCore.class, Human.class, Description.class, Thread.class
+        );
+        final DefaultCoreLoadedClassDataSource classDataSource = new DefaultCoreLoadedClassDataSource(inst, false, 4);
+        try {
+
+            final List<Class<?>> serialFoundClasses = new DefaultCoreLoadedClassDataSource(inst, false, 1)
+                    .findForReTransform(new ExtFilterMatcher(make(new NameRegexFilter("org\\.junit\\..*", ".*"))));
+            assertFoundClasses(serialFoundClasses);
+
+            // 标记了线程安全的过滤器在匹配线程池中并行匹配，多次匹配共用同一个线程池
+            final Set<String> threadNames = new HashSet<String>();
+            for (int loop = 0; loop < 3; loop++) {
+                final MatchingThreadRecordFilter filter = new ThreadSafeMatchingThreadRecordFilter("org\\.junit\\..*", ".*");
+                final List<Class<?>> parallelFoundClasses = classDataSource.findForReTransform(new ExtFilterMatcher(make(filter)));
+                Assert.assertEquals(serialFoundClasses, parallelFoundClasses);
+                Assert.assertFalse(filter.threadNames.contains(Thread.currentThread().getName()));
+                threadNames.addAll(filter.threadNames);
+            }
+            Assert.assertTrue(threadNames.size() <= 4);
+            for (final String threadName : threadNames) {
+                Assert.assertTrue(threadName.startsWith("sandbox-class-matcher-"));
+            }
+
+        } finally {
+            classDataSource.destroy();
+        }
+    }
+
+    @Test
+    public void test$$CoreLoadedClassDataSource$$findForReTransform$$serialWhenNotThreadSafe() {
+        final MockManyLoadedClassesInstrumentation inst = new MockManyLoadedClassesInstrumentation(
+                20000,
+                String.class, Assert.class, Integer.class, JUnitCore.class, Human.class, Description.class, Thread.class
+        );
+        final DefaultCoreLoadedClassDataSource classDataSource = new DefaultCoreLoadedClassDataSource(inst, false, 4);
+        try {
+
+            // 没有标记线程安全的过滤器只在当前线程中被调用
+            final MatchingThreadRecordFilter filter = new MatchingThreadRecordFilter("org\\.junit\\..*", ".*");
+            assertFoundClasses(classDataSource.findForReTransform(new ExtFilterMatcher(make(filter))));
+            Assert.assertEquals(Collections.singleton(Thread.currentThread().getName()), filter.threadNames);
+
+            // 沙箱销毁后线程安全的过滤器也退化为串行匹配
+            classDataSource.destroy();
+            final MatchingThreadRecordFilter threadSafeFilter = new ThreadSafeMatchingThreadRecordFilter("org\\.junit\\..*", ".*");
+            assertFoundClasses(classDataSource.findForReTransform(new ExtFilterMatcher(make(threadSafeFilter))));
+            Assert.assertEquals(Collections.singleton(Thread.currentThread().getName()), threadSafeFilter.threadNames);
+
+        } finally {
+            classDataSource.destroy();
+        }
+    }
+
 }
@@ -0,0 +1,311 @@
+package com.alibaba.jvm.sandbox.qatest.core.manager;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder;
+import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchCondition;
+import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreLoadedClassDataSource;
+import com.alibaba.jvm.sandbox.core.manager.impl.LoadedClassIndex;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
+import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyInstrumentation;
+import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyModuleEventWatcher;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
+import static com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder.PatternType.REGEX;
+import static com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher.toOrGroupMatcher;
+import static java.util.Arrays.asList;
+
+public class LoadedClassIndexTestCase {
+
+    /**
+     * 可以动态追加已加载类的Instrumentation
+     */
+    static class MockDefiningInstrumentation extends EmptyInstrumentation {
+
+        final List<Class<?>> loadedClasses = new ArrayList<Class<?>>();
+        int getAllLoadedClassesCount = 0;
+        final List<ClassLoader> initiatedLoaders = new ArrayList<ClassLoader>();
+
+        MockDefiningInstrumentation(Class<?>... classes) {
+            loadedClasses.addAll(asList(classes));
+        }
+
+        @Override
+        public Class[] getAllLoadedClasses() {
+            getAllLoadedClassesCount++;
+            return loadedClasses.toArray(new Class<?>[0]);
+        }
+
+        @Override
+        public Class[] getInitiatedClasses(ClassLoader loader) {
+            initiatedLoaders.add(loader);
+            final List<Class<?>> classes = new ArrayList<Class<?>>();
+            for (final Class<?> clazz : loadedClasses) {
+                if (clazz.getClassLoader() == loader) {
+                    classes.add(clazz);
+                }
+            }
+            return classes.toArray(new Class<?>[0]);
+        }
+
+        @Override
+        public boolean isModifiableClass(Class<?> theClass) {
+            return true;
+        }
+
+    }
+
+    /**
+     * 截获EventWatchBuilder生成的观察条件
+     */
+    static class CaptureModuleEventWatcher extends EmptyModuleEventWatcher {
+
+        EventWatchCondition condition;
+
+        @Override
+        public int watch(EventWatchCondition condition, EventListener listener, Progress progress, Event.Type... eventType) {
+            this.condition = condition;
+            return 0;
+        }
+
+    }
+
+    private static final EventListener EMPTY_LISTENER = new EventListener() {
+        @Override
+        public void onEvent(Event event) {
+
+        }
+    };
+
+    private static Matcher toMatcher(final CaptureModuleEventWatcher watcher) {
+        return toOrGroupMatcher(watcher.condition.getOrFilterArray());
+    }
+
+    private final MockDefiningInstrumentation inst = new MockDefiningInstrumentation(
+            Object.class,
+            AbstractCollection.class,
+            AbstractList.class,
+            AbstractSequentialList.class,
+            ArrayList.class,
+            LinkedList.class,
+            HashMap.class,
+            String.class,
+            Assert.class
+    );
+
+    private final LoadedClassIndex index = new LoadedClassIndex(inst);
+
+    @Test
+    public void test$$LoadedClassIndex$$exactName() {
+        final CaptureModuleEventWatcher watcher = new CaptureModuleEventWatcher();
+        new EventWatchBuilder(watcher)
+                .onClass(ArrayList.class).includeBootstrap()
+                .onAnyBehavior()
+                .onWatch(EMPTY_LISTENER);
+        Assert.assertEquals(
+                Collections.<Class<?>>singletonList(ArrayList.class),
+                asList(index.findCandidates(toMatcher(watcher)))
+        );
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$exactName$$regex() {
+        final CaptureModuleEventWatcher watcher = new CaptureModuleEventWatcher();
+        new EventWatchBuilder(watcher, REGEX)
+                .onClass(LinkedList.class).includeBootstrap()
+                .onAnyBehavior()
+                .onWatch(EMPTY_LISTENER);
+        Assert.assertEquals(
+                Collections.<Class<?>>singletonList(LinkedList.class),
+                asList(index.findCandidates(toMatcher(watcher)))
+        );
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$prefix() {
+        final CaptureModuleEventWatcher watcher = new CaptureModuleEventWatcher();
+        new EventWatchBuilder(watcher)
+                .onClass("java.util.Abstract*").includeBootstrap()
+                .onAnyBehavior()
+                .onWatch(EMPTY_LISTENER);
+        Assert.assertEquals(
+                asList(AbstractCollection.class, AbstractList.class, AbstractSequentialList.class),
+                asList(index.findCandidates(toMatcher(watcher)))
+        );
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$subClasses() {
+        final CaptureModuleEventWatcher watcher = new CaptureModuleEventWatcher();
+        new EventWatchBuilder(watcher)
+                .onClass(AbstractList.class).includeBootstrap().includeSubClasses()
+                .onAnyBehavior()
+                .onWatch(EMPTY_LISTENER);
+        Assert.assertEquals(
+                asList(AbstractList.class, AbstractSequentialList.class, ArrayList.class, LinkedList.class),
+                asList(index.findCandidates(toMatcher(watcher)))
+        );
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$interface() {
+        final CaptureModuleEventWatcher watcher = new CaptureModuleEventWatcher();
+        new EventWatchBuilder(watcher)
+                .onAnyClass().includeBootstrap().hasInterfaceTypes(List.class)
+                .onAnyBehavior()
+                .onWatch(EMPTY_LISTENER);
+        Assert.assertEquals(
+                asList(AbstractList.class, AbstractSequentialList.class, ArrayList.class, LinkedList.class),
+                asList(index.findCandidates(toMatcher(watcher)))
+        );
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$excludeBootstrap() {
+        final CaptureModuleEventWatcher watcher = new CaptureModuleEventWatcher();
+        new EventWatchBuilder(watcher)
+                .onClass("java.util.*")
+                .onAnyBehavior()
+                .onWatch(EMPTY_LISTENER);
+        Assert.assertEquals(0, index.findCandidates(toMatcher(watcher)).length);
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$noHint() {
+        Assert.assertNull(index.findCandidates(new ExtFilterMatcher(
+                make(new NameRegexFilter("java\\.util\\..*", ".*"))
+        )));
+        final CaptureModuleEventWatcher watcher = new CaptureModuleEventWatcher();
+        new EventWatchBuilder(watcher)
+                .onClass("*List").includeBootstrap()
+                .onAnyBehavior()
+                .onWatch(EMPTY_LISTENER);
+        Assert.assertNull(index.findCandidates(toMatcher(watcher)));
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$incremental() {
+        final CaptureModuleEventWatcher watcher = new CaptureModuleEventWatcher();
+        new EventWatchBuilder(watcher)
+                .onClass(Vector.class).includeBootstrap()
+                .onAnyBehavior()
+                .onWatch(EMPTY_LISTENER);
+
+        Assert.assertEquals(0, index.findCandidates(toMatcher(watcher)).length);
+        Assert.assertEquals(1, inst.getAllLoadedClassesCount);
+
+        // 没有新定义的类，不需要重新扫描
+        Assert.assertEquals(0, index.findCandidates(toMatcher(watcher)).length);
+        Assert.assertEquals(1, inst.getAllLoadedClassesCount);
+
+        // 新定义的类在下一次查询时合并到索引中，Bootstrap的类只需要扫描BootstrapClassLoader加载的类
+        index.transform(null, "java/util/Vector", null, null, new byte[0]);
+        inst.loadedClasses.add(Vector.class);
+        Assert.assertEquals(
+                Collections.<Class<?>>singletonList(Vector.class),
+                asList(index.findCandidates(toMatcher(watcher)))
+        );
+        Assert.assertEquals(1, inst.getAllLoadedClassesCount);
+        Assert.assertEquals(Collections.<ClassLoader>singletonList(null), inst.initiatedLoaders);
+
+        // 重新形变的类不需要合并
+        index.transform(null, "java/util/Vector", Vector.class, null, new byte[0]);
+        index.findCandidates(toMatcher(watcher));
+        Assert.assertEquals(1, inst.getAllLoadedClassesCount);
+        Assert.assertEquals(1, inst.initiatedLoaders.size());
+    }
+
+    public static class Defined {
+
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$findLoadedClassByName() {
+        final CaptureModuleEventWatcher watcher = new CaptureModuleEventWatcher();
+        new EventWatchBuilder(watcher)
+                .onClass(Defined.class)
+                .onAnyBehavior()
+                .onWatch(EMPTY_LISTENER);
+        Assert.assertEquals(0, index.findCandidates(toMatcher(watcher)).length);
+
+        // 新定义的类按类名直接从定义它的ClassLoader中找出，不需要遍历任何已加载的类
+        index.transform(Defined.class.getClassLoader(), Defined.class.getName().replace('.', '/'), null, null, new byte[0]);
+        inst.loadedClasses.add(Defined.class);
+        Assert.assertEquals(
+                Collections.<Class<?>>singletonList(Defined.class),
+                asList(index.findCandidates(toMatcher(watcher)))
+        );
+        Assert.assertEquals(1, inst.getAllLoadedClassesCount);
+        Assert.assertEquals(0, inst.initiatedLoaders.size());
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$overflow() {
+        final CaptureModuleEventWatcher watcher = new CaptureModuleEventWatcher();
+        new EventWatchBuilder(watcher)
+                .onClass(Defined.class)
+                .onAnyBehavior()
+                .onWatch(EMPTY_LISTENER);
+        Assert.assertEquals(0, index.findCandidates(toMatcher(watcher)).length);
+
+        // 队列溢出后只扫描定义类的ClassLoader，并且在下一次查询时再扫描一次
+        final ClassLoader loader = Defined.class.getClassLoader();
+        for (int count = 0; count <= 4096; count++) {
+            index.transform(loader, "not/defined/Class" + count, null, null, new byte[0]);
+        }
+        index.transform(loader, Defined.class.getName().replace('.', '/'), null, null, new byte[0]);
+        inst.loadedClasses.add(Defined.class);
+        Assert.assertEquals(
+                Collections.<Class<?>>singletonList(Defined.class),
+                asList(index.findCandidates(toMatcher(watcher)))
+        );
+        index.findCandidates(toMatcher(watcher));
+        index.findCandidates(toMatcher(watcher));
+        Assert.assertEquals(1, inst.getAllLoadedClassesCount);
+        Assert.assertEquals(asList(loader, loader), inst.initiatedLoaders);
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$pending() {
+        final CaptureModuleEventWatcher watcher = new CaptureModuleEventWatcher();
+        new EventWatchBuilder(watcher)
+                .onClass(Vector.class).includeBootstrap()
+                .onAnyBehavior()
+                .onWatch(EMPTY_LISTENER);
+        index.findCandidates(toMatcher(watcher));
+
+        // 类已经通过transform()但还没有出现在已加载类中，后续的查询需要继续扫描直到类出现
+        index.transform(null, "java/util/Vector", null, null, new byte[0]);
+        Assert.assertEquals(0, index.findCandidates(toMatcher(watcher)).length);
+        inst.loadedClasses.add(Vector.class);
+        Assert.assertEquals(
+                Collections.<Class<?>>singletonList(Vector.class),
+                asList(index.findCandidates(toMatcher(watcher)))
+        );
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$sameAsFullScan() {
+        final CaptureModuleEventWatcher watcher = new CaptureModuleEventWatcher();
+        new EventWatchBuilder(watcher)
+                .onClass(AbstractCollection.class).includeSubClasses()
+                .onAnyBehavior()
+                .onClass(Assert.class)
+                .onAnyBehavior()
+                .onWatch(EMPTY_LISTENER);
+
+        final List<Class<?>> fullScanFoundClasses = new DefaultCoreLoadedClassDataSource(inst, true, 1)
+                .findForReTransform(toMatcher(watcher));
+        final List<Class<?>> indexFoundClasses = new DefaultCoreLoadedClassDataSource(inst, true, 1, index)
+                .findForReTransform(toMatcher(watcher));
+        Assert.assertEquals(Collections.<Class<?>>singletonList(Assert.class), fullScanFoundClasses);
+        Assert.assertEquals(fullScanFoundClasses, indexFoundClasses);
+    }
+
+}
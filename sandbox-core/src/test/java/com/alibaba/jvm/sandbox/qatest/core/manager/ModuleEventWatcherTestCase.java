@@ -0,0 +1,167 @@
+package com.alibaba.jvm.sandbox.qatest.core.manager;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher;
+import com.alibaba.jvm.sandbox.core.CoreModule;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.manager.impl.DefaultModuleEventWatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
+import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyCoreLoadedClassDataSource;
+import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyInstrumentation;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.instrument.UnmodifiableClassException;
+import java.util.*;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.BEFORE;
+
+public class ModuleEventWatcherTestCase {
+
+    private static final List<Class<?>> WAITING_RE_TRANSFORM_CLASSES = Arrays.<Class<?>>asList(
+            String.class, Integer.class, Long.class, Short.class, Byte.class,
+            Double.class, Float.class, Boolean.class, Character.class, Number.class
+    );
+
+    /**
+     * 模拟JVM的批量形变：只要批次中包含不可修改的类，整批失败
+     */
+    static class BatchReTransformInstrumentation extends EmptyInstrumentation {
+
+        final Set<Class<?>> unmodifiableClasses = new HashSet<Class<?>>();
+        final List<Class<?>> reTransformedClasses = new ArrayList<Class<?>>();
+        int reTransformCount = 0;
+
+        @Override
+        public void retransformClasses(Class<?>... classes) throws UnmodifiableClassException {
+            reTransformCount++;
+            for (final Class<?> clazz : classes) {
+                if (unmodifiableClasses.contains(clazz)) {
+                    throw new UnmodifiableClassException(clazz.getName());
+                }
+            }
+            reTransformedClasses.addAll(Arrays.asList(classes));
+        }
+
+    }
+
+    static class TracingProgress implements ModuleEventWatcher.Progress {
+
+        final Map<Integer, Class<?>> successes = new TreeMap<Integer, Class<?>>();
+        final Map<Integer, Class<?>> fails = new TreeMap<Integer, Class<?>>();
+        int total = -1;
+
+        @Override
+        public void begin(int total) {
+            this.total = total;
+        }
+
+        @Override
+        public void progressOnSuccess(Class<?> clazz, int index) {
+            successes.put(index, clazz);
+        }
+
+        @Override
+        public void progressOnFailed(Class<?> clazz, int index, Throwable cause) {
+            fails.put(index, clazz);
+        }
+
+        @Override
+        public void finish(int cCnt, int mCnt) {
+
+        }
+
+    }
+
+    private ModuleEventWatcher newModuleEventWatcher(final BatchReTransformInstrumentation inst,
+                                                     final int reTransformBatchSize) {
+        return new DefaultModuleEventWatcher(
+                inst,
+                new EmptyCoreLoadedClassDataSource() {
+                    @Override
+                    public List<Class<?>> findForReTransform(Matcher matcher) {
+                        return new ArrayList<Class<?>>(WAITING_RE_TRANSFORM_CLASSES);
+                    }
+                },
+                new CoreModule("test-module", null, null, null),
+                false,
+                "default",
+                reTransformBatchSize
+        );
+    }
+
+    private int watch(final ModuleEventWatcher watcher, final TracingProgress progress) {
+        return watcher.watch(
+                new NameRegexFilter("java\\.lang\\..*", ".*"),
+                new EventListener() {
+                    @Override
+                    public void onEvent(Event event) {
+
+                    }
+                },
+                progress,
+                BEFORE
+        );
+    }
+
+    @Test
+    public void test$batch$success() {
+        final BatchReTransformInstrumentation inst = new BatchReTransformInstrumentation();
+        final TracingProgress progress = new TracingProgress();
+        watch(newModuleEventWatcher(inst, 4), progress);
+
+        Assert.assertEquals(10, progress.total);
+        Assert.assertEquals(3, inst.reTransformCount);
+        Assert.assertEquals(WAITING_RE_TRANSFORM_CLASSES, inst.reTransformedClasses);
+        Assert.assertEquals(WAITING_RE_TRANSFORM_CLASSES, new ArrayList<Class<?>>(progress.successes.values()));
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), new ArrayList<Integer>(progress.successes.keySet()));
+        Assert.assertTrue(progress.fails.isEmpty());
+    }
+
+    @Test
+    public void test$batch$split$when$failed() {
+        final BatchReTransformInstrumentation inst = new BatchReTransformInstrumentation();
+        inst.unmodifiableClasses.add(Double.class);
+        final TracingProgress progress = new TracingProgress();
+        watch(newModuleEventWatcher(inst, 4), progress);
+
+        // [0,4) [4,8)x [4,6) [6,8)x [6,7)x [7,8) [8,10)
+        Assert.assertEquals(7, inst.reTransformCount);
+        Assert.assertEquals(9, inst.reTransformedClasses.size());
+        Assert.assertFalse(inst.reTransformedClasses.contains(Double.class));
+        Assert.assertEquals(9, progress.successes.size());
+        Assert.assertEquals(Collections.<Integer, Class<?>>singletonMap(6, Double.class), progress.fails);
+    }
+
+    @Test
+    public void test$single() {
+        final BatchReTransformInstrumentation inst = new BatchReTransformInstrumentation();
+        inst.unmodifiableClasses.add(String.class);
+        final TracingProgress progress = new TracingProgress();
+        watch(newModuleEventWatcher(inst, 1), progress);
+
+        Assert.assertEquals(10, inst.reTransformCount);
+        Assert.assertEquals(9, progress.successes.size());
+        Assert.assertEquals(Collections.<Integer, Class<?>>singletonMap(1, String.class), progress.fails);
+    }
+
+    @Test
+    public void test$listenerId$recycled() {
+        final EventListenerHandler handler = EventListenerHandler.getSingleton();
+        final int listenerId = handler.allocateListenerId();
+        handler.releaseListenerId(listenerId);
+
+        // 观察占用最小的空闲处理器ID，删除观察后回收，下一次分配复用同一个ID
+        final ModuleEventWatcher watcher = newModuleEventWatcher(new BatchReTransformInstrumentation(), 4);
+        final int watchId = watch(watcher, new TracingProgress());
+        final int otherListenerId = handler.allocateListenerId();
+        Assert.assertFalse(listenerId == otherListenerId);
+        handler.releaseListenerId(otherListenerId);
+        watcher.delete(watchId);
+        Assert.assertEquals(listenerId, handler.allocateListenerId());
+        handler.releaseListenerId(listenerId);
+    }
+
+}
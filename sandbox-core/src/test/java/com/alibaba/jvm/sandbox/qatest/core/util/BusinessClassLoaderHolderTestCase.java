@@ -0,0 +1,55 @@
+package com.alibaba.jvm.sandbox.qatest.core.util;
+
+import com.alibaba.jvm.sandbox.core.classloader.BusinessClassLoaderHolder;
+import com.alibaba.jvm.sandbox.core.classloader.BusinessClassLoaderHolder.DelegateBizClassLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+public class BusinessClassLoaderHolderTestCase {
+
+    private static DelegateBizClassLoader getDelegate(final ClassLoader bizClassLoader) {
+        BusinessClassLoaderHolder.setBussinessClassLoader(bizClassLoader);
+        try {
+            return BusinessClassLoaderHolder.getBussinessClassLoader();
+        } finally {
+            BusinessClassLoaderHolder.removeBussinessClassLoader();
+        }
+    }
+
+    private static boolean isCollected(final WeakReference<?> reference) throws InterruptedException {
+        for (int index = 0; index < 50 && null != reference.get(); index++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        return null == reference.get();
+    }
+
+    @Test
+    public void test$$BusinessClassLoaderHolder$$reuseAfterGc() throws Exception {
+        final ClassLoader bizClassLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        final WeakReference<DelegateBizClassLoader> delegateRef
+                = new WeakReference<DelegateBizClassLoader>(getDelegate(bizClassLoader));
+
+        // 业务ClassLoader还活着，缓存的DelegateBizClassLoader不能被回收
+        Assert.assertFalse(isCollected(delegateRef));
+        Assert.assertSame(delegateRef.get(), getDelegate(bizClassLoader));
+        Assert.assertSame(String.class, getDelegate(bizClassLoader).loadClass(String.class.getName(), false));
+        Assert.assertSame(getClass(), getDelegate(bizClassLoader).loadClass(getClass().getName(), true));
+    }
+
+    @Test
+    public void test$$BusinessClassLoaderHolder$$bizClassLoaderCollectable() throws Exception {
+        ClassLoader bizClassLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        final WeakReference<ClassLoader> bizClassLoaderRef = new WeakReference<ClassLoader>(bizClassLoader);
+        Assert.assertNotNull(getDelegate(bizClassLoader));
+
+        // 缓存中的DelegateBizClassLoader不能阻止业务ClassLoader被回收
+        bizClassLoader = null;
+        Assert.assertTrue(isCollected(bizClassLoaderRef));
+    }
+
+}
@@ -6,6 +6,7 @@ import com.alibaba.jvm.sandbox.api.event.ReturnEvent;
 import com.alibaba.jvm.sandbox.api.event.ThrowsEvent;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
 import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.core.util.UnCaughtException;
 import com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator;
 import com.alibaba.jvm.sandbox.qatest.core.enhance.target.MyCalculator;
@@ -251,6 +252,65 @@ public class CalculatorHelper {
         }
     }
 
+    /**
+     * 在JVM中定义计算器类
+     *
+     * @param jvm          JVM
+     * @param transformers 依次作用于计算器类的形变器
+     * @return 计算器类
+     * @throws Throwable 定义失败
+     */
+    public static Class<?> defineCalculator(final JvmHelper jvm,
+                                            final JvmHelper.Transformer... transformers) throws Throwable {
+        return jvm
+                .defineClass(Calculator.class, transformers)
+                .loadClass(CALCULATOR_CLASS_NAME);
+    }
+
+    /**
+     * 在新的JVM中定义计算器类
+     *
+     * @param namespace    命名空间
+     * @param transformers 依次作用于计算器类的形变器
+     * @return 计算器类
+     * @throws Throwable 定义失败
+     */
+    public static Class<?> defineCalculator(final String namespace,
+                                            final JvmHelper.Transformer... transformers) throws Throwable {
+        return defineCalculator(
+                null == namespace
+                        ? JvmHelper.createJvm()
+                        : JvmHelper.createJvm(namespace),
+                transformers
+        );
+    }
+
+    /**
+     * 在默认命名空间的新JVM中定义计算器类
+     *
+     * @param transformers 依次作用于计算器类的形变器
+     * @return 计算器类
+     * @throws Throwable 定义失败
+     */
+    public static Class<?> defineCalculator(final JvmHelper.Transformer... transformers) throws Throwable {
+        return defineCalculator((String) null, transformers);
+    }
+
+    /**
+     * 在默认命名空间的新JVM中定义计算器类
+     *
+     * @param filter     观察类和方法过滤器
+     * @param listener   事件监听器
+     * @param eventTypes 观察事件类型
+     * @return 计算器类
+     * @throws Throwable 定义失败
+     */
+    public static Class<?> defineCalculator(final Filter filter,
+                                            final EventListener listener,
+                                            final Event.Type... eventTypes) throws Throwable {
+        return defineCalculator(new JvmHelper.Transformer(filter, listener, eventTypes));
+    }
+
     public static Object newInstance(final Class<?> calculatorClass) throws Throwable {
         try {
             return calculatorClass.getConstructor().newInstance();
@@ -0,0 +1,114 @@
+package com.alibaba.jvm.sandbox.qatest.core.util;
+
+import com.alibaba.jvm.sandbox.core.util.AsmUtils;
+import com.alibaba.jvm.sandbox.core.util.CommonSuperClassResolver;
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CommonSuperClassResolverTestCase {
+
+    /**
+     * 记录读取类资源次数的ClassLoader
+     */
+    static class CountingClassLoader extends ClassLoader {
+
+        final AtomicInteger getResourceCount = new AtomicInteger();
+
+        CountingClassLoader() {
+            super(CommonSuperClassResolverTestCase.class.getClassLoader());
+        }
+
+        @Override
+        public InputStream getResourceAsStream(String name) {
+            getResourceCount.incrementAndGet();
+            return super.getResourceAsStream(name);
+        }
+
+    }
+
+    /**
+     * ASM默认通过反射计算共同父类，作为对照
+     */
+    static class ReflectionClassWriter extends ClassWriter {
+
+        ReflectionClassWriter() {
+            super(0);
+        }
+
+        @Override
+        public String getCommonSuperClass(String type1, String type2) {
+            return super.getCommonSuperClass(type1, type2);
+        }
+
+    }
+
+    private static final ReflectionClassWriter REFLECTION_CLASS_WRITER = new ReflectionClassWriter();
+
+    private static final String[][] TYPE_PAIRS = new String[][]{
+            {"java/util/ArrayList", "java/util/LinkedList"},
+            {"java/util/ArrayList", "java/util/AbstractList"},
+            {"java/util/AbstractList", "java/util/ArrayList"},
+            {"java/util/List", "java/util/ArrayList"},
+            {"java/util/ArrayList", "java/util/List"},
+            {"java/util/List", "java/util/Set"},
+            {"java/lang/Integer", "java/lang/Long"},
+            {"java/lang/Integer", "java/lang/String"},
+            {"java/io/FileNotFoundException", "java/net/SocketException"},
+            {"java/lang/IllegalArgumentException", "java/lang/NullPointerException"},
+    };
+
+    @Test
+    public void test$$CommonSuperClassResolver$$sameAsReflection() {
+        final CountingClassLoader loader = new CountingClassLoader();
+        for (final String[] pair : TYPE_PAIRS) {
+            Assert.assertEquals(
+                    pair[0] + " & " + pair[1],
+                    REFLECTION_CLASS_WRITER.getCommonSuperClass(pair[0], pair[1]),
+                    AsmUtils.getCommonSuperClass(pair[0], pair[1], loader)
+            );
+        }
+    }
+
+    @Test
+    public void test$$CommonSuperClassResolver$$notFound() {
+        Assert.assertEquals(
+                "java/lang/Object",
+                AsmUtils.getCommonSuperClass("java/util/ArrayList", "not/exist/Type", new CountingClassLoader())
+        );
+    }
+
+    @Test
+    public void test$$CommonSuperClassResolver$$cached() {
+        final CountingClassLoader loader = new CountingClassLoader();
+        Assert.assertEquals(
+                "java/util/AbstractList",
+                AsmUtils.getCommonSuperClass("java/util/ArrayList", "java/util/LinkedList", loader)
+        );
+        final int getResourceCount = loader.getResourceCount.get();
+        Assert.assertTrue(getResourceCount > 0);
+
+        // 同一对类型不再读取类资源
+        Assert.assertEquals(
+                "java/util/AbstractList",
+                AsmUtils.getCommonSuperClass("java/util/ArrayList", "java/util/LinkedList", loader)
+        );
+        Assert.assertEquals(getResourceCount, loader.getResourceCount.get());
+
+        // 已解析过的类型的继承关系可以共享
+        Assert.assertEquals(
+                "java/util/AbstractList",
+                AsmUtils.getCommonSuperClass("java/util/LinkedList", "java/util/ArrayList", loader)
+        );
+        Assert.assertEquals(getResourceCount, loader.getResourceCount.get());
+
+        // 清空后需要重新解析
+        CommonSuperClassResolver.clear();
+        AsmUtils.getCommonSuperClass("java/util/ArrayList", "java/util/LinkedList", loader);
+        Assert.assertTrue(loader.getResourceCount.get() > getResourceCount);
+    }
+
+}
@@ -1,13 +1,14 @@
 package com.alibaba.jvm.sandbox.qatest.core.util;
 
+import com.alibaba.jvm.sandbox.api.event.Capture;
 import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.event.Sampling;
 import com.alibaba.jvm.sandbox.api.event.Event.Type;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
 import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
 import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
-import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
 import com.alibaba.jvm.sandbox.core.util.SandboxReflectUtils;
 import com.alibaba.jvm.sandbox.core.util.SpyUtils;
 import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
@@ -45,14 +46,38 @@ public class JvmHelper {
 
     private static final Logger logger = LoggerFactory.getLogger(JvmHelper.class);
 
+    // 监听器:事件处理器ID，同一个监听器总是使用同一个处理器ID
+    private static final Map<EventListener, Integer> listenerIds = new IdentityHashMap<EventListener, Integer>();
+
+    /**
+     * 获取监听器的事件处理器ID，第一次获取时从{@link EventListenerHandler}中分配
+     *
+     * @param listener 事件监听器
+     * @return 事件处理器ID
+     */
+    public static int getListenerId(final EventListener listener) {
+        synchronized (listenerIds) {
+            Integer listenerId = listenerIds.get(listener);
+            if (null == listenerId) {
+                listenerIds.put(listener, listenerId = EventListenerHandler.getSingleton().allocateListenerId());
+            }
+            return listenerId;
+        }
+    }
+
     private final String namespace;
     private final PrivateClassLoader classLoader
             = new PrivateClassLoader();
 
     public JvmHelper(final String namespace) {
+        this(namespace, false);
+    }
+
+    public JvmHelper(final String namespace,
+                     final boolean isIndyEnable) {
         this.namespace = namespace;
         SpyUtils.init(namespace);
-        toConfigure(String.format(";namespace=%s;", namespace), "");
+        toConfigure(String.format(";namespace=%s;event.indy.enable=%s;", namespace, isIndyEnable), "");
     }
 
     public JvmHelper defineClass(final Class<?> clazz) throws IOException, InvocationTargetException, IllegalAccessException {
@@ -93,6 +118,9 @@ public class JvmHelper {
         protected final Filter filter;
         private final EventListener listener;
         private final Event.Type[] eventTypes;
+        private Capture[] captures = Capture.values();
+        private boolean isIndyEnable = false;
+        private Sampling sampling = Sampling.ALL;
 
         public Transformer(final Filter filter,
                            final EventListener listener,
@@ -113,6 +141,21 @@ public class JvmHelper {
             this.eventTypes = eventTypeList.toArray(new Event.Type[]{});
         }
 
+        public Transformer withCapture(final Capture... captures) {
+            this.captures = captures;
+            return this;
+        }
+
+        public Transformer withIndy() {
+            this.isIndyEnable = true;
+            return this;
+        }
+
+        public Transformer withSampling(final Sampling sampling) {
+            this.sampling = sampling;
+            return this;
+        }
+
         public byte[] transform(final String namespace,
                                 final ClassLoader loader,
                                 final byte[] byteCodes) {
@@ -120,21 +163,23 @@ public class JvmHelper {
             final MatchingResult matchingResult = new ExtFilterMatcher(make(filter))
                     .matching(ClassStructureFactory.createClassStructure(byteCodes, loader));
 
-            final int listenerId = ObjectIDs.instance.identity(listener);
+            final int listenerId = getListenerId(listener);
             EventListenerHandler.getSingleton().active(
                     listenerId,
                     listener,
-                    eventTypes
+                    eventTypes,
+                    sampling
             );
 
             if (matchingResult.isMatched()) {
-                return new EventEnhancer().toByteCodeArray(
+                return new EventEnhancer(isIndyEnable).toByteCodeArray(
                         loader,
                         byteCodes,
                         matchingResult.getBehaviorSignCodes(),
                         namespace,
                         listenerId,
-                        eventTypes
+                        eventTypes,
+                        captures
                 );
             } else {
                 return byteCodes;
@@ -267,6 +312,16 @@ public class JvmHelper {
         return new JvmHelper(StringUtils.isBlank(namespace) ? "default" : namespace);
     }
 
+    /**
+     * 创建开启{@code event.indy.enable}的JVM，监听器激活和冻结时会切换invokedynamic调用点
+     *
+     * @param namespace 命名空间
+     * @return JVM
+     */
+    public static JvmHelper createIndyJvm(final String namespace) {
+        return new JvmHelper(StringUtils.isBlank(namespace) ? "default" : namespace, true);
+    }
+
     public static JvmHelper createJvm() {
         Spy.isSpyThrowException = true;
         return createJvm("default");
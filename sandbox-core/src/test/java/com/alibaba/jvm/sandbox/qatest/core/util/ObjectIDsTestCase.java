@@ -0,0 +1,77 @@
+package com.alibaba.jvm.sandbox.qatest.core.util;
+
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.alibaba.jvm.sandbox.core.util.ObjectIDs.NULL_ID;
+
+public class ObjectIDsTestCase {
+
+    @Test
+    public void test$identity$null() {
+        Assert.assertEquals(NULL_ID, ObjectIDs.instance.identity(null));
+        Assert.assertNull(ObjectIDs.instance.getObject(NULL_ID));
+    }
+
+    @Test
+    public void test$identity$stable() {
+        final ClassLoader loader = new ClassLoader() {
+        };
+        final Object object = new Object();
+        final int loaderId = ObjectIDs.instance.identity(loader);
+        final int objectId = ObjectIDs.instance.identity(object);
+        Assert.assertTrue(loaderId != objectId);
+        Assert.assertEquals(loaderId, ObjectIDs.instance.identity(loader));
+        Assert.assertEquals(objectId, ObjectIDs.instance.identity(object));
+        Assert.assertSame(loader, ObjectIDs.instance.getObject(loaderId));
+        Assert.assertSame(object, ObjectIDs.instance.getObject(objectId));
+    }
+
+    @Test
+    public void test$identity$resize() {
+        final List<Object> objects = new ArrayList<Object>();
+        final List<Integer> ids = new ArrayList<Integer>();
+        final Set<Integer> uniqueIds = new HashSet<Integer>();
+        for (int i = 0; i < 10000; i++) {
+            final Object object = i % 10 == 0
+                    ? new ClassLoader() {
+            }
+                    : new Object();
+            final int id = ObjectIDs.instance.identity(object);
+            objects.add(object);
+            ids.add(id);
+            uniqueIds.add(id);
+        }
+        Assert.assertEquals(objects.size(), uniqueIds.size());
+        for (int i = 0; i < objects.size(); i++) {
+            Assert.assertEquals((int) ids.get(i), ObjectIDs.instance.identity(objects.get(i)));
+            Assert.assertSame(objects.get(i), ObjectIDs.instance.getObject(ids.get(i)));
+        }
+    }
+
+    @Test
+    public void test$identity$gc() throws InterruptedException {
+        Object object = new Object();
+        final int id = ObjectIDs.instance.identity(object);
+        Assert.assertSame(object, ObjectIDs.instance.getObject(id));
+        object = null;
+        for (int i = 0; i < 10 && null != ObjectIDs.instance.getObject(id); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull(ObjectIDs.instance.getObject(id));
+
+        // 触发一次写入，让失效的映射被清理
+        final Object alive = new Object();
+        final int aliveId = ObjectIDs.instance.identity(alive);
+        Assert.assertSame(alive, ObjectIDs.instance.getObject(aliveId));
+        Assert.assertNull(ObjectIDs.instance.getObject(id));
+    }
+
+}
@@ -1,11 +1,21 @@
 package com.alibaba.jvm.sandbox.qatest.core.util;
 
 import org.apache.commons.io.IOUtils;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.util.Textifier;
+import org.objectweb.asm.util.TraceMethodVisitor;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.TreeMap;
 
 import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
+import static org.objectweb.asm.Opcodes.ASM7;
 
 public class QaClassUtils {
 
@@ -29,4 +39,29 @@ public class QaClassUtils {
         return toInternalClassName(javaClassName).concat(".class");
     }
 
+    /**
+     * 以文本形式输出每个行为的字节码，包含原有的栈帧
+     *
+     * @param byteCodes 字节码数组
+     * @return 行为名称+描述:字节码文本
+     */
+    public static Map<String, String> toBehaviorTexts(final byte[] byteCodes) {
+        final Map<String, String> behaviorTexts = new TreeMap<String, String>();
+        new ClassReader(byteCodes).accept(new ClassVisitor(ASM7) {
+            @Override
+            public MethodVisitor visitMethod(final int access, final String name, final String desc, final String signature, final String[] exceptions) {
+                return new TraceMethodVisitor(new Textifier(ASM7) {
+                    @Override
+                    public void visitMethodEnd() {
+                        super.visitMethodEnd();
+                        final StringWriter writer = new StringWriter();
+                        print(new PrintWriter(writer));
+                        behaviorTexts.put(name + desc, writer.toString());
+                    }
+                });
+            }
+        }, 0);
+        return behaviorTexts;
+    }
+
 }
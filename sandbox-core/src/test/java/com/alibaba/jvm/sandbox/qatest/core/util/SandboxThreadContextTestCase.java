@@ -0,0 +1,83 @@
+package com.alibaba.jvm.sandbox.qatest.core.util;
+
+import com.alibaba.jvm.sandbox.core.util.SandboxThreadContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SandboxThreadContextTestCase {
+
+    private static final int SLOT_INDEX = 100;
+
+    private static SandboxThreadContext getInOtherThread() throws InterruptedException {
+        final AtomicReference<SandboxThreadContext> contextRef = new AtomicReference<SandboxThreadContext>();
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                contextRef.set(SandboxThreadContext.get());
+            }
+        });
+        thread.start();
+        thread.join();
+        return contextRef.get();
+    }
+
+    @Test
+    public void test$$SandboxThreadContext$$perThread() throws InterruptedException {
+        final SandboxThreadContext context = SandboxThreadContext.get();
+        Assert.assertSame(context, SandboxThreadContext.get());
+        Assert.assertNotSame(context, getInOtherThread());
+    }
+
+    @Test
+    public void test$$SandboxThreadContext$$protecting() {
+        final SandboxThreadContext context = SandboxThreadContext.get();
+        Assert.assertFalse(context.isInProtecting());
+        Assert.assertEquals(0, context.enterProtecting());
+        Assert.assertEquals(1, context.enterProtecting());
+        Assert.assertTrue(context.isInProtecting());
+        Assert.assertEquals(1, context.exitProtecting());
+        Assert.assertEquals(0, context.exitProtecting());
+        Assert.assertFalse(context.isInProtecting());
+    }
+
+    @Test
+    public void test$$SandboxThreadContext$$releaseSlot() throws InterruptedException {
+        final Object object = new Object();
+        final SandboxThreadContext context = SandboxThreadContext.get();
+        Assert.assertNull(context.getSlot(SLOT_INDEX));
+        context.setSlot(SLOT_INDEX, object);
+        Assert.assertSame(object, context.getSlot(SLOT_INDEX));
+
+        // 另一个存活的线程也占用同一个槽位
+        final CountDownLatch occupied = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+        final AtomicReference<Object> slotInOtherThreadRef = new AtomicReference<Object>(object);
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final SandboxThreadContext contextInOtherThread = SandboxThreadContext.get();
+                contextInOtherThread.setSlot(SLOT_INDEX, object);
+                occupied.countDown();
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                slotInOtherThreadRef.set(contextInOtherThread.getSlot(SLOT_INDEX));
+            }
+        });
+        thread.start();
+        occupied.await();
+
+        // 所有线程的槽位都会被回收
+        SandboxThreadContext.releaseSlot(SLOT_INDEX);
+        released.countDown();
+        thread.join();
+        Assert.assertNull(context.getSlot(SLOT_INDEX));
+        Assert.assertNull(slotInOtherThreadRef.get());
+    }
+
+}
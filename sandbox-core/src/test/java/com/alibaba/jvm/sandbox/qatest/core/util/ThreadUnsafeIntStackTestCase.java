@@ -0,0 +1,40 @@
+package com.alibaba.jvm.sandbox.qatest.core.util;
+
+import com.alibaba.jvm.sandbox.core.util.collection.ThreadUnsafeIntStack;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+
+public class ThreadUnsafeIntStackTestCase {
+
+    @Test
+    public void test$$ThreadUnsafeIntStack$$pushAndPop() {
+        final ThreadUnsafeIntStack stack = new ThreadUnsafeIntStack(2);
+        Assert.assertTrue(stack.isEmpty());
+        for (int invokeId = 1000; invokeId < 1100; invokeId++) {
+            stack.push(invokeId);
+            Assert.assertEquals(invokeId, stack.peek());
+            Assert.assertEquals(1000, stack.peekLast());
+            Assert.assertEquals(invokeId - 999, stack.deep());
+        }
+        for (int invokeId = 1099; invokeId >= 1000; invokeId--) {
+            Assert.assertEquals(invokeId == 1000, stack.isLast());
+            Assert.assertEquals(invokeId, stack.pop());
+            Assert.assertEquals(0, stack.getElementArray()[stack.getCurrent() + 1]);
+        }
+        Assert.assertTrue(stack.isEmpty());
+        Assert.assertEquals(0, stack.deep());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void test$$ThreadUnsafeIntStack$$popEmpty() {
+        new ThreadUnsafeIntStack().pop();
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void test$$ThreadUnsafeIntStack$$peekLastEmpty() {
+        new ThreadUnsafeIntStack().peekLast();
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.alibaba.jvm.sandbox.qatest.core.util.matcher;
+
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureCache;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
+import com.alibaba.jvm.sandbox.qatest.core.util.matcher.target.ChildClass;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
+
+public class ClassStructureCacheTestCase {
+
+    private static final String PACKAGE_PREFIX = "com.alibaba.jvm.sandbox.qatest.core.util.matcher.target.";
+
+    @Before
+    public void before() {
+        ClassStructureCache.instance.setMaximumSize(16);
+    }
+
+    @After
+    public void after() {
+        ClassStructureCache.instance.setMaximumSize(ClassStructureCache.DEFAULT_MAXIMUM_SIZE);
+    }
+
+    // 只能从测试类目录中找到目标类的ClassLoader
+    private static ClassLoader newTargetClassLoader() {
+        return new URLClassLoader(
+                new URL[]{ChildClass.class.getProtectionDomain().getCodeSource().getLocation()},
+                null
+        );
+    }
+
+    private static ClassStructure newChildClassStructure(final ClassLoader loader) throws IOException {
+        return ClassStructureFactory.createClassStructure(toByteArray(ChildClass.class), loader);
+    }
+
+    @Test
+    public void test$$ClassStructureCache$$hit() throws IOException {
+        final ClassLoader loader = newTargetClassLoader();
+
+        Assert.assertEquals(PACKAGE_PREFIX + "ParentClass", newChildClassStructure(loader).getSuperClassStructure().getJavaClassName());
+        ClassStructureCache.Stats stats = ClassStructureCache.instance.getStats();
+        Assert.assertEquals(0, stats.getHitCount());
+        Assert.assertEquals(1, stats.getMissCount());
+        Assert.assertEquals(1, stats.getSize());
+
+        final ClassStructure parentClassStructure = newChildClassStructure(loader).getSuperClassStructure();
+        Assert.assertEquals(PACKAGE_PREFIX + "ParentClass", parentClassStructure.getJavaClassName());
+        Assert.assertSame(loader, parentClassStructure.getClassLoader());
+        stats = ClassStructureCache.instance.getStats();
+        Assert.assertEquals(1, stats.getHitCount());
+        Assert.assertEquals(0, stats.getNegativeHitCount());
+        Assert.assertEquals(1, stats.getMissCount());
+
+        // 不同的ClassLoader不能共用缓存
+        newChildClassStructure(newTargetClassLoader()).getSuperClassStructure();
+        stats = ClassStructureCache.instance.getStats();
+        Assert.assertEquals(1, stats.getHitCount());
+        Assert.assertEquals(2, stats.getMissCount());
+        Assert.assertEquals(2, stats.getSize());
+    }
+
+    @Test
+    public void test$$ClassStructureCache$$negative() throws IOException {
+        // 找不到父类的ClassLoader
+        final ClassLoader loader = new URLClassLoader(new URL[0], null);
+
+        Assert.assertNull(newChildClassStructure(loader).getSuperClassStructure());
+        Assert.assertNull(newChildClassStructure(loader).getSuperClassStructure());
+        final ClassStructureCache.Stats stats = ClassStructureCache.instance.getStats();
+        Assert.assertEquals(1, stats.getHitCount());
+        Assert.assertEquals(1, stats.getNegativeHitCount());
+        Assert.assertEquals(1, stats.getMissCount());
+    }
+
+    @Test
+    public void test$$ClassStructureCache$$eviction() throws IOException {
+        ClassStructureCache.instance.setMaximumSize(1);
+        Assert.assertEquals(
+                2,
+                newChildClassStructure(newTargetClassLoader()).getFamilySuperClassStructures().size()
+        );
+        final ClassStructureCache.Stats stats = ClassStructureCache.instance.getStats();
+        Assert.assertEquals(1, stats.getSize());
+        Assert.assertEquals(1, stats.getMaximumSize());
+        Assert.assertTrue(stats.getEvictionCount() > 0);
+    }
+
+    @Test
+    public void test$$ClassStructureCache$$releaseClassLoader() throws IOException, InterruptedException {
+        ClassLoader loader = newTargetClassLoader();
+        final WeakReference<ClassLoader> loaderRef = new WeakReference<ClassLoader>(loader);
+        newChildClassStructure(loader).getFamilyTypeClassStructures();
+        Assert.assertTrue(ClassStructureCache.instance.getStats().getSize() > 0);
+
+        // 缓存不能阻止ClassLoader被回收，回收后缓存随之清理
+        loader = null;
+        for (int i = 0; i < 50 && (null != loaderRef.get() || ClassStructureCache.instance.getStats().getSize() > 0); i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        Assert.assertNull(loaderRef.get());
+        Assert.assertEquals(0, ClassStructureCache.instance.getStats().getSize());
+    }
+
+}
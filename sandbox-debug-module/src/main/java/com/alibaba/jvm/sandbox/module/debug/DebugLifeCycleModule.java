@@ -6,8 +6,8 @@ import com.alibaba.jvm.sandbox.api.ModuleLifecycle;
 import com.alibaba.jvm.sandbox.api.annotation.Command;
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.filter.ExtFilter;
-import com.alibaba.jvm.sandbox.api.http.printer.ConcurrentLinkedQueuePrinter;
 import com.alibaba.jvm.sandbox.api.http.printer.Printer;
+import com.alibaba.jvm.sandbox.api.http.printer.RingBufferPrinter;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher;
 import com.alibaba.jvm.sandbox.api.resource.ModuleManager;
@@ -71,7 +71,7 @@ public class DebugLifeCycleModule implements Module, ModuleLifecycle{
 
     @Command("control")
     public void control(final Map<String, String> param, final PrintWriter writer){
-        final Printer printer = new ConcurrentLinkedQueuePrinter(writer);
+        final Printer printer = new RingBufferPrinter(writer);
 
         // --- 解析参数 ---
 
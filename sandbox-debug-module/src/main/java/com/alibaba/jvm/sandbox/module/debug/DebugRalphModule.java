@@ -6,8 +6,8 @@ import com.alibaba.jvm.sandbox.api.annotation.Command;
 import com.alibaba.jvm.sandbox.api.event.BeforeEvent;
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.event.InvokeEvent;
-import com.alibaba.jvm.sandbox.api.http.printer.ConcurrentLinkedQueuePrinter;
 import com.alibaba.jvm.sandbox.api.http.printer.Printer;
+import com.alibaba.jvm.sandbox.api.http.printer.RingBufferPrinter;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatcher;
@@ -56,7 +56,7 @@ public class DebugRalphModule extends ParamSupported implements Module {
     @Command("c-limit")
     public void concurrentLimit(final Map<String, String> param, final PrintWriter writer) {
 
-        final Printer printer = new ConcurrentLinkedQueuePrinter(writer);
+        final Printer printer = new RingBufferPrinter(writer);
 
         // --- 解析参数 ---
 
@@ -144,7 +144,7 @@ public class DebugRalphModule extends ParamSupported implements Module {
     @Command("r-limit")
     public void rateLimit(final Map<String, String> param, final PrintWriter writer) {
 
-        final Printer printer = new ConcurrentLinkedQueuePrinter(writer);
+        final Printer printer = new RingBufferPrinter(writer);
 
         // --- 解析参数 ---
 
@@ -268,7 +268,7 @@ public class DebugRalphModule extends ParamSupported implements Module {
     @Command("wreck")
     public void exception(final Map<String, String> param, final PrintWriter writer) {
 
-        final Printer printer = new ConcurrentLinkedQueuePrinter(writer);
+        final Printer printer = new RingBufferPrinter(writer);
 
         // --- 解析参数 ---
 
@@ -337,7 +337,7 @@ public class DebugRalphModule extends ParamSupported implements Module {
 
         final ReentrantLock delayLock = new ReentrantLock();
         final Condition delayCondition = delayLock.newCondition();
-        final Printer printer = new ConcurrentLinkedQueuePrinter(writer);
+        final Printer printer = new RingBufferPrinter(writer);
         final AtomicBoolean isFinishRef = new AtomicBoolean(false);
 
         // --- 解析参数 ---
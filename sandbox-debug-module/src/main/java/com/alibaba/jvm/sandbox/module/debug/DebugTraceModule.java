@@ -3,8 +3,8 @@ package com.alibaba.jvm.sandbox.module.debug;
 import com.alibaba.jvm.sandbox.api.Information;
 import com.alibaba.jvm.sandbox.api.Module;
 import com.alibaba.jvm.sandbox.api.annotation.Command;
-import com.alibaba.jvm.sandbox.api.http.printer.ConcurrentLinkedQueuePrinter;
 import com.alibaba.jvm.sandbox.api.http.printer.Printer;
+import com.alibaba.jvm.sandbox.api.http.printer.RingBufferPrinter;
 import com.alibaba.jvm.sandbox.api.listener.ext.Advice;
 import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder;
@@ -34,7 +34,7 @@ public class DebugTraceModule extends ParamSupported implements Module {
 
         final String cnPattern = getParameter(param, "class");
         final String mnPattern = getParameter(param, "method");
-        final Printer printer = new ConcurrentLinkedQueuePrinter(writer);
+        final Printer printer = new RingBufferPrinter(writer);
 
         final EventWatcher watcher = new EventWatchBuilder(moduleEventWatcher)
                 .onClass(cnPattern).includeSubClasses()
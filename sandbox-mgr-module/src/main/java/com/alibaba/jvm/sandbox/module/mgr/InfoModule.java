@@ -4,6 +4,7 @@ import com.alibaba.jvm.sandbox.api.Information;
 import com.alibaba.jvm.sandbox.api.Module;
 import com.alibaba.jvm.sandbox.api.annotation.Command;
 import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.resource.CacheMonitor;
 import com.alibaba.jvm.sandbox.api.resource.ConfigInfo;
 import org.kohsuke.MetaInfServices;
 
@@ -23,6 +24,9 @@ public class InfoModule implements Module {
     @Resource
     private ConfigInfo configInfo;
 
+    @Resource
+    private CacheMonitor cacheMonitor;
+
 //    @Resource
 //    private EventMonitor eventMonitor;
 
@@ -69,4 +73,20 @@ public class InfoModule implements Module {
 
     }
 
+    //@Http("/class-structure-cache")
+    @Command("class-structure-cache")
+    public void classStructureCache(final PrintWriter writer) throws IOException {
+
+        final CacheMonitor.CacheInfo cacheInfo = cacheMonitor.getClassStructureCacheInfo();
+        final long requestCount = cacheInfo.getHitCount() + cacheInfo.getMissCount();
+        writer.println(String.format("%18s : %d / %d", "SIZE", cacheInfo.getSize(), cacheInfo.getMaximumSize()));
+        writer.println(String.format("%18s : %d", "HIT", cacheInfo.getHitCount()));
+        writer.println(String.format("%18s : %d", "NEGATIVE_HIT", cacheInfo.getNegativeHitCount()));
+        writer.println(String.format("%18s : %d", "MISS", cacheInfo.getMissCount()));
+        writer.println(String.format("%18s : %d", "EVICTION", cacheInfo.getEvictionCount()));
+        writer.println(String.format("%18s : %.2f%%", "HIT_RATE", 0 == requestCount ? 0.0 : 100.0 * cacheInfo.getHitCount() / requestCount));
+        writer.flush();
+
+    }
+
 }
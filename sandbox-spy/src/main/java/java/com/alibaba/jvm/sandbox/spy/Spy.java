@@ -2,7 +2,6 @@ package java.com.alibaba.jvm.sandbox.spy;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 间谍类，藏匿在各个ClassLoader中
@@ -25,8 +24,49 @@ public class Spy {
      */
     public static volatile boolean isSpyThrowException = false;
 
-    private static final ConcurrentHashMap<String, SpyHandler> namespaceSpyHandlerMap
-            = new ConcurrentHashMap<String, SpyHandler>();
+    // 命名空间:命名空间下标
+    // 下标在JVM生命周期内固定不变，即使命名空间被清理后重新初始化也沿用原来的下标，
+    // 避免残留的增强代码将事件派发给其他命名空间
+    private static final ConcurrentHashMap<String, Integer> namespaceIndexMap
+            = new ConcurrentHashMap<String, Integer>();
+
+    // 以命名空间下标为槽位的间谍处理器，增强代码直接携带下标访问，写时复制
+    private static volatile SpyHandler[] spyHandlers = new SpyHandler[0];
+
+    // 是否有invokedynamic调用点被引导过，没有时不能触碰SpyCallSites，否则会在JDK6上加载java.lang.invoke
+    static volatile boolean isCallSitesBootstrapped = false;
+
+    /**
+     * 获取命名空间的下标，如果命名空间尚未分配下标则分配一个
+     *
+     * @param namespace 命名空间
+     * @return 命名空间下标
+     * @since {@code sandbox-spy:1.3.3}
+     */
+    public synchronized static int getNamespaceIndex(final String namespace) {
+        final Integer exist = namespaceIndexMap.get(namespace);
+        if (null != exist) {
+            return exist;
+        }
+        final int namespaceIndex = namespaceIndexMap.size();
+        namespaceIndexMap.put(namespace, namespaceIndex);
+        return namespaceIndex;
+    }
+
+    private static SpyHandler getSpyHandler(final int namespaceIndex) {
+        final SpyHandler[] current = spyHandlers;
+        return namespaceIndex >= 0 && namespaceIndex < current.length
+                ? current[namespaceIndex]
+                : null;
+    }
+
+    private static void setSpyHandler(final int namespaceIndex, final SpyHandler spyHandler) {
+        final SpyHandler[] current = spyHandlers;
+        final SpyHandler[] replace = new SpyHandler[Math.max(current.length, namespaceIndex + 1)];
+        System.arraycopy(current, 0, replace, 0, current.length);
+        replace[namespaceIndex] = spyHandler;
+        spyHandlers = replace;
+    }
 
     /**
      * 判断间谍类是否已经完成初始化
@@ -35,7 +75,9 @@ public class Spy {
      * @return TRUE:已完成初始化;FALSE:未完成初始化;
      */
     public static boolean isInit(final String namespace) {
-        return namespaceSpyHandlerMap.containsKey(namespace);
+        final Integer namespaceIndex = namespaceIndexMap.get(namespace);
+        return null != namespaceIndex
+                && null != getSpyHandler(namespaceIndex);
     }
 
     /**
@@ -45,9 +87,12 @@ public class Spy {
      * @param spyHandler 间谍处理器
      * @since {@code sandbox-spy:1.3.0}
      */
-    public static void init(final String namespace,
-                            final SpyHandler spyHandler) {
-        namespaceSpyHandlerMap.putIfAbsent(namespace, spyHandler);
+    public synchronized static void init(final String namespace,
+                                         final SpyHandler spyHandler) {
+        final int namespaceIndex = getNamespaceIndex(namespace);
+        if (null == getSpyHandler(namespaceIndex)) {
+            setSpyHandler(namespaceIndex, spyHandler);
+        }
     }
 
     /**
@@ -56,11 +101,20 @@ public class Spy {
      * @param namespace 命名空间
      */
     public synchronized static void clean(final String namespace) {
-        namespaceSpyHandlerMap.remove(namespace);
-        // 如果是最后的一个命名空间，则需要重新清理Node中所持有的Thread
-        if (namespaceSpyHandlerMap.isEmpty()) {
-            selfCallBarrier.cleanAndInit();
+        final Integer namespaceIndex = namespaceIndexMap.get(namespace);
+        if (null != namespaceIndex) {
+            setSpyHandler(namespaceIndex, null);
+            if (isCallSitesBootstrapped) {
+                SpyCallSites.clean(namespaceIndex);
+            }
+        }
+        // 如果是最后的一个命名空间，则需要重新清理各线程中所持有的Node
+        for (final SpyHandler spyHandler : spyHandlers) {
+            if (null != spyHandler) {
+                return;
+            }
         }
+        selfCallBarrier.cleanAndInit();
     }
 
 
@@ -93,10 +147,10 @@ public class Spy {
                                              final String owner,
                                              final String name,
                                              final String desc,
-                                             final String namespace,
+                                             final int namespaceIndex,
                                              final int listenerId) throws Throwable {
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceIndex);
             if (null != spyHandler) {
                 spyHandler.handleOnCallBefore(listenerId, lineNumber, owner, name, desc);
             }
@@ -105,10 +159,10 @@ public class Spy {
         }
     }
 
-    public static void spyMethodOnCallReturn(final String namespace,
+    public static void spyMethodOnCallReturn(final int namespaceIndex,
                                              final int listenerId) throws Throwable {
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceIndex);
             if (null != spyHandler) {
                 spyHandler.handleOnCallReturn(listenerId);
             }
@@ -118,10 +172,10 @@ public class Spy {
     }
 
     public static void spyMethodOnCallThrows(final String throwException,
-                                             final String namespace,
+                                             final int namespaceIndex,
                                              final int listenerId) throws Throwable {
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceIndex);
             if (null != spyHandler) {
                 spyHandler.handleOnCallThrows(listenerId, throwException);
             }
@@ -131,10 +185,10 @@ public class Spy {
     }
 
     public static void spyMethodOnLine(final int lineNumber,
-                                       final String namespace,
+                                       final int namespaceIndex,
                                        final int listenerId) throws Throwable {
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceIndex);
             if (null != spyHandler) {
                 spyHandler.handleOnLine(listenerId, lineNumber);
             }
@@ -144,20 +198,19 @@ public class Spy {
     }
 
     public static Ret spyMethodOnBefore(final Object[] argumentArray,
-                                        final String namespace,
+                                        final int namespaceIndex,
                                         final int listenerId,
                                         final int targetClassLoaderObjectID,
                                         final String javaClassName,
                                         final String javaMethodName,
                                         final String javaMethodDesc,
                                         final Object target) throws Throwable {
-        final Thread thread = Thread.currentThread();
-        if (selfCallBarrier.isEnter(thread)) {
+        final SelfCallBarrier.Node node = selfCallBarrier.enter();
+        if (null == node) {
             return Ret.RET_NONE;
         }
-        final SelfCallBarrier.Node node = selfCallBarrier.enter(thread);
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceIndex);
             if (null == spyHandler) {
                 return Ret.RET_NONE;
             }
@@ -172,20 +225,19 @@ public class Spy {
             handleException(cause);
             return Ret.RET_NONE;
         } finally {
-            selfCallBarrier.exit(thread, node);
+            selfCallBarrier.exit(node);
         }
     }
 
     public static Ret spyMethodOnReturn(final Object object,
-                                        final String namespace,
+                                        final int namespaceIndex,
                                         final int listenerId) throws Throwable {
-        final Thread thread = Thread.currentThread();
-        if (selfCallBarrier.isEnter(thread)) {
+        final SelfCallBarrier.Node node = selfCallBarrier.enter();
+        if (null == node) {
             return Ret.RET_NONE;
         }
-        final SelfCallBarrier.Node node = selfCallBarrier.enter(thread);
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceIndex);
             if (null == spyHandler) {
                 return Ret.RET_NONE;
             }
@@ -194,20 +246,19 @@ public class Spy {
             handleException(cause);
             return Ret.RET_NONE;
         } finally {
-            selfCallBarrier.exit(thread, node);
+            selfCallBarrier.exit(node);
         }
     }
 
     public static Ret spyMethodOnThrows(final Throwable throwable,
-                                        final String namespace,
+                                        final int namespaceIndex,
                                         final int listenerId) throws Throwable {
-        final Thread thread = Thread.currentThread();
-        if (selfCallBarrier.isEnter(thread)) {
+        final SelfCallBarrier.Node node = selfCallBarrier.enter();
+        if (null == node) {
             return Ret.RET_NONE;
         }
-        final SelfCallBarrier.Node node = selfCallBarrier.enter(thread);
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceIndex);
             if (null == spyHandler) {
                 return Ret.RET_NONE;
             }
@@ -216,12 +267,17 @@ public class Spy {
             handleException(cause);
             return Ret.RET_NONE;
         } finally {
-            selfCallBarrier.exit(thread, node);
+            selfCallBarrier.exit(node);
         }
     }
 
     /**
      * 返回结果
+     * <p>
+     * 增强代码在间谍方法返回后立即通过{@link #getState()}和{@link #getRespond()}读取，读取之前本线程不会再进入间谍，
+     * 所以容器可以让每个线程持有一个子类实例，通过{@link #reuse(int, Object)}改写后反复返回，不需要每次都分配。
+     * 模块代码拿不到可改写的返回结果，{@link #newInstanceForNone()}返回的共享实例也不会被改写
+     * </p>
      */
     public static class Ret {
 
@@ -232,11 +288,11 @@ public class Spy {
         /**
          * 返回状态(0:NONE;1:RETURN;2:THROWS)
          */
-        public final int state;
+        private int state;
         /**
          * 应答对象
          */
-        public final Object respond;
+        private Object respond;
 
         /**
          * 构造返回结果
@@ -244,7 +300,7 @@ public class Spy {
          * @param state   返回状态
          * @param respond 应答对象
          */
-        private Ret(int state, Object respond) {
+        protected Ret(int state, Object respond) {
             this.state = state;
             this.respond = respond;
         }
@@ -261,116 +317,96 @@ public class Spy {
             return new Ret(RET_STATE_THROWS, throwable);
         }
 
+        /**
+         * 获取返回状态
+         *
+         * @return 返回状态(0:NONE;1:RETURN;2:THROWS)
+         * @since {@code sandbox-spy:1.3.3}
+         */
+        public final int getState() {
+            return state;
+        }
+
+        /**
+         * 获取应答对象
+         *
+         * @return 应答对象
+         * @since {@code sandbox-spy:1.3.3}
+         */
+        public final Object getRespond() {
+            return respond;
+        }
+
+        /**
+         * 改写返回状态和应答对象
+         * <p>只有子类能改写自己的实例，由持有实例的线程在返回给增强代码之前调用</p>
+         *
+         * @param state   返回状态
+         * @param respond 应答对象
+         * @return this
+         * @since {@code sandbox-spy:1.3.3}
+         */
+        protected final Ret reuse(int state, Object respond) {
+            this.state = state;
+            this.respond = respond;
+            return this;
+        }
+
     }
 
     /**
      * 本地线程
+     * <p>
+     * 用于屏蔽Spy在处理事件过程中所产生的重入调用，每个线程独立持有一个{@link Node}，
+     * 进入和离开屏障时只修改本线程的标记位，无锁且无对象分配
+     * </p>
      */
     public static class SelfCallBarrier {
 
         public static class Node {
-            private final Thread thread;
-            private final ReentrantLock lock;
-            private Node pre;
-            private Node next;
-
-//            Node() {
-//                this(null);
-//            }
-
-            Node(final Thread thread) {
-                this(thread, null);
-            }
 
-            Node(final Thread thread, final ReentrantLock lock) {
-                this.thread = thread;
-                this.lock = lock;
-            }
-
-        }
-
-        // 删除节点
-        void delete(final Node node) {
-            node.pre.next = node.next;
-            if (null != node.next) {
-                node.next.pre = node.pre;
-            }
-            // help gc
-            node.pre = (node.next = null);
-        }
+            // 当前线程是否已经进入屏障
+            private boolean isEnter;
 
-        // 插入节点
-        void insert(final Node top, final Node node) {
-            if (null != top.next) {
-                top.next.pre = node;
-            }
-            node.next = top.next;
-            node.pre = top;
-            top.next = node;
         }
 
-        static final int THREAD_LOCAL_ARRAY_LENGTH = 512;
-
-        final Node[] nodeArray = new Node[THREAD_LOCAL_ARRAY_LENGTH];
+        // 替换为新的ThreadLocal后，旧的Node会随着线程的ThreadLocalMap清理而释放
+        private volatile ThreadLocal<Node> nodeRef;
 
         SelfCallBarrier() {
             cleanAndInit();
         }
 
-        Node createTopNode() {
-            return new Node(null, new ReentrantLock());
-        }
-
         void cleanAndInit() {
-            for (int i = 0; i < THREAD_LOCAL_ARRAY_LENGTH; i++) {
-                nodeArray[i] = createTopNode();
-            }
-        }
-
-        int abs(int val) {
-            return val < 0
-                    ? val * -1
-                    : val;
-        }
-
-        boolean isEnter(Thread thread) {
-            final Node top = nodeArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
-            Node node = top;
-            try {
-                // spin for lock
-                while (!top.lock.tryLock()) ;
-                while (null != node.next) {
-                    node = node.next;
-                    if (thread == node.thread) {
-                        return true;
-                    }
+            nodeRef = new ThreadLocal<Node>() {
+                @Override
+                protected Node initialValue() {
+                    return new Node();
                 }
-                return false;
-            } finally {
-                top.lock.unlock();
-            }
+            };
         }
 
-        Node enter(Thread thread) {
-            final Node top = nodeArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
-            final Node node = new Node(thread);
-            try {
-                while (!top.lock.tryLock()) ;
-                insert(top, node);
-            } finally {
-                top.lock.unlock();
+        /**
+         * 进入屏障
+         *
+         * @return 当前线程的屏障节点，如果当前线程已经在屏障中则返回null
+         */
+        Node enter() {
+            final Node node = nodeRef.get();
+            if (node.isEnter) {
+                return null;
             }
+            node.isEnter = true;
             return node;
         }
 
-        void exit(Thread thread, Node node) {
-            final Node top = nodeArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
-            try {
-                while (!top.lock.tryLock()) ;
-                delete(node);
-            } finally {
-                top.lock.unlock();
-            }
+        /**
+         * 离开屏障
+         *
+         * @param node 进入屏障时获得的节点
+         */
+        void exit(final Node node) {
+            node.isEnter = false;
         }
 
     }
@@ -0,0 +1,190 @@
+package java.com.alibaba.jvm.sandbox.spy;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 间谍调用点
+ * <p>
+ * 以invokedynamic方式增强的代码通过{@link #bootstrap(MethodHandles.Lookup, String, MethodType, int, int)}绑定到间谍方法，
+ * 同一个事件监听器的同一种探针共享一个{@link MutableCallSite}。
+ * 监听器冻结时调用点被切换为空操作，JIT会把探针整体消除；激活时再切换回{@link Spy}的间谍方法，不需要重新渲染类
+ * </p>
+ * <p>
+ * 这里用的是{@link MutableCallSite}而不是SwitchPoint：SwitchPoint一旦失效就无法恢复，而监听器会被反复冻结和激活
+ * </p>
+ * <p>
+ * 本类依赖JDK7+的java.lang.invoke，只有在invokedynamic增强模式下才会被加载，低版本JVM不会触碰到这里
+ * </p>
+ *
+ * @author luanjia@taobao.com
+ * @since {@code sandbox-spy:1.3.3}
+ */
+public class SpyCallSites {
+
+    // 冻结时无返回值探针的目标方法
+    private static final MethodHandle NOOP = MethodHandles
+            .constant(Object.class, null)
+            .asType(MethodType.methodType(void.class));
+
+    /**
+     * 一个事件监听器的所有调用点
+     */
+    private static class ListenerCallSites {
+
+        // 探针名称(间谍方法名):调用点
+        private final Map<String, MutableCallSite> callSites = new HashMap<String, MutableCallSite>();
+
+        // 监听器先激活后渲染，所以尚未激活的调用点默认为冻结
+        private boolean isActivated = false;
+
+    }
+
+    // (命名空间下标,监听器ID):调用点
+    private static final Map<Long, ListenerCallSites> listenerCallSitesMap = new HashMap<Long, ListenerCallSites>();
+
+    private static Long toKey(final int namespaceIndex, final int listenerId) {
+        return ((long) namespaceIndex << 32) | (listenerId & 0xFFFFFFFFL);
+    }
+
+    private static ListenerCallSites getOrCreate(final int namespaceIndex, final int listenerId) {
+        final Long key = toKey(namespaceIndex, listenerId);
+        final ListenerCallSites exist = listenerCallSitesMap.get(key);
+        if (null != exist) {
+            return exist;
+        }
+        final ListenerCallSites listenerCallSites = new ListenerCallSites();
+        listenerCallSitesMap.put(key, listenerCallSites);
+        Spy.isCallSitesBootstrapped = true;
+        return listenerCallSites;
+    }
+
+    private static MethodHandle toTarget(final boolean isActivated,
+                                         final String name,
+                                         final MethodType type) {
+        if (isActivated) {
+            try {
+                // java.开头的包不允许使用MethodHandles.lookup()，间谍方法都是公开的
+                return MethodHandles.publicLookup().findStatic(Spy.class, name, type);
+            } catch (Exception cause) {
+                throw new IllegalStateException("spy method not found: " + name + type, cause);
+            }
+        }
+        final MethodHandle none = type.returnType() == void.class
+                ? NOOP
+                : MethodHandles.constant(Spy.Ret.class, Spy.Ret.newInstanceForNone());
+        return MethodHandles.dropArguments(none, 0, type.parameterList());
+    }
+
+    // 切换监听器的所有调用点，并通知所有线程
+    private static void switchTo(final int namespaceIndex,
+                                 final int listenerId,
+                                 final boolean isActivated) {
+        // 调用点默认就是冻结的，冻结从未激活过的监听器时不需要登记
+        if (!isActivated && !listenerCallSitesMap.containsKey(toKey(namespaceIndex, listenerId))) {
+            return;
+        }
+        final ListenerCallSites listenerCallSites = getOrCreate(namespaceIndex, listenerId);
+        if (listenerCallSites.isActivated == isActivated) {
+            return;
+        }
+        listenerCallSites.isActivated = isActivated;
+        final List<MutableCallSite> switched = new ArrayList<MutableCallSite>();
+        for (final Map.Entry<String, MutableCallSite> entry : listenerCallSites.callSites.entrySet()) {
+            final MutableCallSite callSite = entry.getValue();
+            callSite.setTarget(toTarget(isActivated, entry.getKey(), callSite.type()));
+            switched.add(callSite);
+        }
+        if (!switched.isEmpty()) {
+            MutableCallSite.syncAll(switched.toArray(new MutableCallSite[0]));
+        }
+    }
+
+    /**
+     * invokedynamic的引导方法
+     *
+     * @param lookup         调用者的查找上下文
+     * @param name           间谍方法名
+     * @param type           间谍方法类型
+     * @param namespaceIndex 命名空间下标
+     * @param listenerId     事件监听器ID
+     * @return 调用点
+     */
+    public static synchronized CallSite bootstrap(final MethodHandles.Lookup lookup,
+                                                  final String name,
+                                                  final MethodType type,
+                                                  final int namespaceIndex,
+                                                  final int listenerId) {
+        final ListenerCallSites listenerCallSites = getOrCreate(namespaceIndex, listenerId);
+        final MutableCallSite exist = listenerCallSites.callSites.get(name);
+        if (null != exist) {
+            return exist;
+        }
+        final MutableCallSite callSite = new MutableCallSite(type);
+        callSite.setTarget(toTarget(listenerCallSites.isActivated, name, type));
+        listenerCallSites.callSites.put(name, callSite);
+        return callSite;
+    }
+
+    /**
+     * 激活事件监听器的调用点
+     *
+     * @param namespaceIndex 命名空间下标
+     * @param listenerId     事件监听器ID
+     */
+    public static synchronized void active(final int namespaceIndex,
+                                           final int listenerId) {
+        switchTo(namespaceIndex, listenerId, true);
+    }
+
+    /**
+     * 冻结事件监听器的调用点
+     *
+     * @param namespaceIndex 命名空间下标
+     * @param listenerId     事件监听器ID
+     */
+    public static synchronized void frozen(final int namespaceIndex,
+                                           final int listenerId) {
+        switchTo(namespaceIndex, listenerId, false);
+    }
+
+    /**
+     * 移除事件监听器的调用点
+     * <p>在观察删除并完成重新渲染之后调用，此时已经没有代码会再引导到这些调用点</p>
+     *
+     * @param namespaceIndex 命名空间下标
+     * @param listenerId     事件监听器ID
+     */
+    public static synchronized void remove(final int namespaceIndex,
+                                           final int listenerId) {
+        listenerCallSitesMap.remove(toKey(namespaceIndex, listenerId));
+    }
+
+    /**
+     * 清理命名空间下所有事件监听器的调用点
+     * <p>
+     * 在{@link Spy#clean(String)}时调用，残留的增强代码仍然持有调用点，所以先冻结再移除
+     * </p>
+     *
+     * @param namespaceIndex 命名空间下标
+     */
+    public static synchronized void clean(final int namespaceIndex) {
+        final Iterator<Map.Entry<Long, ListenerCallSites>> iterator = listenerCallSitesMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final long key = iterator.next().getKey();
+            if ((int) (key >>> 32) == namespaceIndex) {
+                switchTo(namespaceIndex, (int) key, false);
+                iterator.remove();
+            }
+        }
+    }
+
+}